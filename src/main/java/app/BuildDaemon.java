@@ -0,0 +1,299 @@
+package app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Properties;
+
+import app.input.IOUtils;
+import game.ProjectDatabase;
+import util.Logger;
+import util.Logger.Listener;
+import util.Priority;
+
+/**
+ * Keeps an initialized instance running so command line builds do not pay for JVM startup,
+ * class loading, and project initialization on every invocation. The daemon listens on a loopback
+ * port which it records in the project, along with a random token clients must present.
+ * Requests run one at a time, since they share the global project state.
+ * <p>
+ * Protocol: the client sends its token, working directory, and arguments. The daemon replies with
+ * any number of output frames followed by an exit frame carrying the status code.
+ * Frames begin with a type byte, output frames then have a length and UTF-8 text.
+ * <p>
+ * The client side must not touch {@link Environment}, so forwarding stays as cheap as possible.
+ */
+public class BuildDaemon
+{
+	private static final String FN_INFO = "daemon.cfg";
+	private static final String KEY_PORT = "port";
+	private static final String KEY_TOKEN = "token";
+
+	private static final String ARG_STOP = "-StopDaemon";
+	private static final String ARG_WATCH = "-Watch";
+	private static final String ARG_DAEMON = "-Daemon";
+
+	private static final int FRAME_OUTPUT = 0;
+	private static final int FRAME_EXIT = 1;
+
+	private static final int CONNECT_TIMEOUT = 1000;
+
+	// clients send their whole request at once, so a slow one is not a real client
+	private static final int REQUEST_TIMEOUT = 5000;
+	private static final int MAX_ARGS = 1024;
+
+	/**
+	 * Serves requests until a client sends {@code -StopDaemon}. Requires an initialized {@link Environment}.
+	 */
+	public static void serve() throws IOException
+	{
+		File infoFile = Directories.PROJ_STAR_ROD.file(FN_INFO);
+
+		byte[] tokenBytes = new byte[16];
+		new SecureRandom().nextBytes(tokenBytes);
+		String token = HexFormat.of().formatHex(tokenBytes);
+
+		try (ServerSocket server = new ServerSocket(0, 8, InetAddress.getLoopbackAddress())) {
+			Properties info = new Properties();
+			info.setProperty(KEY_PORT, Integer.toString(server.getLocalPort()));
+			info.setProperty(KEY_TOKEN, token);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			info.store(bytes, "Star Rod build daemon");
+			IOUtils.writeBytesToFileAtomic(bytes.toByteArray(), infoFile);
+
+			// the token is all that stops other local users from running builds
+			infoFile.setReadable(false, false);
+			infoFile.setReadable(true, true);
+			infoFile.deleteOnExit();
+
+			Logger.logf("Build daemon listening on port %d", server.getLocalPort());
+
+			boolean running = true;
+			while (running) {
+				try (Socket socket = server.accept()) {
+					socket.setSoTimeout(REQUEST_TIMEOUT);
+					running = handle(socket, token);
+				}
+				catch (IOException e) {
+					Logger.logWarning("Lost connection to client: " + e.getMessage());
+				}
+				catch (RuntimeException e) {
+					// a malformed request must not take down the daemon
+					Logger.printStackTrace(e);
+				}
+			}
+		}
+		finally {
+			infoFile.delete();
+		}
+
+		Logger.log("Build daemon stopped.");
+	}
+
+	/**
+	 * @return false if the daemon should stop
+	 */
+	private static boolean handle(Socket socket, String token) throws IOException
+	{
+		DataInputStream in = new DataInputStream(socket.getInputStream());
+		DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+		if (!token.equals(in.readUTF())) {
+			Logger.logWarning("Rejected client with invalid token.");
+			return true;
+		}
+
+		File workingDir = new File(in.readUTF());
+		int numArgs = in.readInt();
+		if (numArgs < 0 || numArgs > MAX_ARGS) {
+			Logger.logWarning("Rejected client with invalid request.");
+			return true;
+		}
+
+		String[] args = new String[numArgs];
+		for (int i = 0; i < args.length; i++)
+			args[i] = in.readUTF();
+
+		if (args.length == 1 && args[0].equalsIgnoreCase(ARG_STOP)) {
+			writeExit(out, 0);
+			return false;
+		}
+
+		PrintStream clientOut = new PrintStream(new FrameOutputStream(out), true, StandardCharsets.UTF_8);
+
+		// these never return, and would keep every later client waiting
+		for (String arg : args) {
+			if (arg.equalsIgnoreCase(ARG_WATCH) || arg.equalsIgnoreCase(ARG_DAEMON)) {
+				clientOut.println(arg + " cannot be run through the build daemon.");
+				clientOut.flush();
+				writeExit(out, 1);
+				return true;
+			}
+		}
+
+		Logger.log("Running: " + String.join(" ", args));
+
+		// mirrors the console output of Logger, which is not sent to listeners with its prefixes
+		Listener listener = (msg) -> {
+			String text = msg.text;
+			if (msg.priority == Priority.WARNING)
+				text = "WARNING: " + text;
+			else if (msg.priority == Priority.ERROR)
+				text = "ERROR: " + text;
+
+			if (text == null || text.isEmpty())
+				clientOut.println(">");
+			else
+				clientOut.println("> " + text);
+		};
+
+		int status = 1;
+		Logger.addListener(listener);
+		try {
+			ProjectDatabase.reloadIfChanged();
+			status = StarRodMain.runCommandLine(args, workingDir, clientOut);
+		}
+		catch (Throwable t) {
+			Logger.printStackTrace(t);
+		}
+		finally {
+			Logger.removeListener(listener);
+		}
+
+		clientOut.flush();
+		writeExit(out, status);
+		return true;
+	}
+
+	private static void writeExit(DataOutputStream out, int status) throws IOException
+	{
+		out.writeByte(FRAME_EXIT);
+		out.writeInt(status);
+		out.flush();
+	}
+
+	/**
+	 * Sends everything written between flushes as one output frame.
+	 */
+	private static class FrameOutputStream extends OutputStream
+	{
+		private final DataOutputStream out;
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		private FrameOutputStream(DataOutputStream out)
+		{
+			this.out = out;
+		}
+
+		@Override
+		public synchronized void write(int b)
+		{
+			buffer.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len)
+		{
+			buffer.write(b, off, len);
+		}
+
+		@Override
+		public synchronized void flush() throws IOException
+		{
+			if (buffer.size() == 0)
+				return;
+
+			out.writeByte(FRAME_OUTPUT);
+			out.writeInt(buffer.size());
+			buffer.writeTo(out);
+			out.flush();
+			buffer.reset();
+		}
+	}
+
+	/**
+	 * Forwards a command line to the daemon for the project containing the working directory,
+	 * printing its output as it arrives.
+	 * @return exit status of the request, or -1 if no daemon could be reached
+	 */
+	public static int forward(String[] args)
+	{
+		File workingDir = new File(System.getProperty("user.dir")).getAbsoluteFile();
+		File infoFile = findInfoFile(workingDir);
+		if (infoFile == null)
+			return -1;
+
+		Properties info = new Properties();
+		int port;
+		try (InputStream is = new FileInputStream(infoFile)) {
+			info.load(is);
+			port = Integer.parseInt(info.getProperty(KEY_PORT));
+		}
+		catch (IOException | NumberFormatException e) {
+			return -1;
+		}
+
+		try (Socket socket = new Socket()) {
+			try {
+				socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT);
+			}
+			catch (IOException e) {
+				// a daemon which exited without cleaning up leaves a stale file behind
+				return -1;
+			}
+
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeUTF(info.getProperty(KEY_TOKEN, ""));
+			out.writeUTF(workingDir.getPath());
+			out.writeInt(args.length);
+			for (String arg : args)
+				out.writeUTF(arg);
+			out.flush();
+
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			while (true) {
+				int type = in.readByte();
+				if (type == FRAME_EXIT)
+					return in.readInt();
+
+				byte[] text = new byte[in.readInt()];
+				in.readFully(text);
+				System.out.write(text);
+				System.out.flush();
+			}
+		}
+		catch (IOException e) {
+			// the request may have partially run, so it must not be repeated
+			System.out.println("Lost connection to build daemon: " + e.getMessage());
+			return 1;
+		}
+	}
+
+	/**
+	 * Searches the working directory and its parents, since the project directory is not known
+	 * without initializing the environment.
+	 */
+	private static File findInfoFile(File dir)
+	{
+		for (; dir != null; dir = dir.getParentFile()) {
+			File infoFile = new File(dir, ".starrod/" + FN_INFO);
+			if (infoFile.isFile())
+				return infoFile;
+		}
+		return null;
+	}
+}
@@ -44,6 +44,7 @@ public enum Directories
 
 	PROJ_STAR_ROD		(Root.PROJECT,					"/.starrod/"),
 	PROJ_CFG			(Root.PROJECT, PROJ_STAR_ROD,		"/cfg/"),
+	PROJ_CACHE			(Root.PROJECT, PROJ_STAR_ROD,		"/cache/"),
 	PROJ_THUMBNAIL		(Root.PROJECT,						"/thumbnail/"),
 	PROJ_SRC			(Root.PROJECT,					"/src/"),
 	PROJ_SRC_WORLD		(Root.PROJECT, PROJ_SRC,			"/world/"),
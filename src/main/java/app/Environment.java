@@ -13,6 +13,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
 import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.List;
@@ -593,23 +596,36 @@ public abstract class Environment
 		return cfg;
 	}
 
-	public static ByteBuffer getBaseRomBuffer()
+	/**
+	 * The base ROM is memory mapped read-only on first use, so only the pages which are
+	 * actually accessed are loaded. Each call returns a new view with its own position.
+	 */
+	public static synchronized ByteBuffer getBaseRomBuffer()
 	{
 		// lazy load
-		if (romBytes != null)
-			return romBytes;
-
-		try {
-			romBytes = IOUtils.getDirectBuffer(usBaseRom).asReadOnlyBuffer();
-		}
-		catch (IOException e) {
-			Logger.printStackTrace(e);
-			showErrorMessage("Base ROM Read Exception",
-				"IOException while attempting to read baserom: %n%s", usBaseRom.getAbsolutePath());
-			return null;
+		if (romBytes == null) {
+			try (FileChannel channel = FileChannel.open(usBaseRom.toPath(), StandardOpenOption.READ)) {
+				romBytes = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			}
+			catch (IOException e) {
+				Logger.printStackTrace(e);
+				showErrorMessage("Base ROM Read Exception",
+					"IOException while attempting to read baserom: %n%s", usBaseRom.getAbsolutePath());
+				return null;
+			}
 		}
 
-		return romBytes;
+		return romBytes.duplicate();
+	}
+
+	/**
+	 * @return read-only view of the base ROM from start (inclusive) to end (exclusive),
+	 * positioned at zero, without copying
+	 */
+	public static ByteBuffer getBaseRomSlice(int start, int end)
+	{
+		ByteBuffer rom = getBaseRomBuffer();
+		return (rom == null) ? null : rom.slice(start, end - start);
 	}
 
 	private static List<File> getAssetDirs(File directory, File splatFile) throws IOException
@@ -12,7 +12,9 @@ import java.awt.datatransfer.StringSelection;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
@@ -48,7 +50,10 @@ import game.globals.editor.GlobalsEditor;
 import game.map.Map;
 import game.map.compiler.BuildException;
 import game.map.compiler.CollisionCompiler;
+import game.map.compiler.DisplayListEstimator;
 import game.map.compiler.GeometryCompiler;
+import game.map.compiler.MapBuilder;
+import game.map.compiler.MapWatcher;
 import game.map.editor.MapEditor;
 import game.map.scripts.ScriptGenerator;
 import game.map.scripts.extract.Extractor;
@@ -56,6 +61,8 @@ import game.message.editor.MessageEditor;
 import game.sprite.editor.SpriteEditor;
 import game.texture.editor.ImageEditor;
 import game.worldmap.WorldMapEditor;
+import game.yay0.CompressionLevel;
+import game.yay0.Yay0FileHelper;
 import net.miginfocom.swing.MigLayout;
 import util.Logger;
 import util.Logger.Listener;
@@ -65,13 +72,32 @@ public class StarRodMain extends StarRodFrame
 {
 	public static void main(String[] args) throws InterruptedException
 	{
+		if (args.length > 0 && args[0].equalsIgnoreCase("-Client")) {
+			// forward to a running daemon, or build in this process if there is none
+			args = Arrays.copyOfRange(args, 1, args.length);
+			int status = BuildDaemon.forward(args);
+			if (status >= 0)
+				System.exit(status);
+		}
+
 		boolean isCommandLine = args.length > 0 || GraphicsEnvironment.isHeadless();
 
-		if (isCommandLine) {
+		if (args.length > 0 && args[0].equalsIgnoreCase("-Daemon")) {
 			Environment.initialize(true);
-			runCommandLine(args);
+			try {
+				BuildDaemon.serve();
+			}
+			catch (IOException e) {
+				Logger.printStackTrace(e);
+				Environment.exit(1);
+			}
 			Environment.exit();
 		}
+		else if (isCommandLine) {
+			Environment.initialize(true);
+			int status = runCommandLine(args, new File(System.getProperty("user.dir")), System.out);
+			Environment.exit(status);
+		}
 		else {
 			Environment.initialize(false);
 			LoadingBar.dismiss();
@@ -418,16 +444,23 @@ public class StarRodMain extends StarRodFrame
 
 				if (choice == JOptionPane.YES_OPTION) {
 					Logger.log("Extracting map data...", Priority.MILESTONE);
-					Extractor.extractAll();
-
-					SwingUtils.getMessageDialog()
-						.setTitle("All Data Extracted")
-						.setMessage("Complete!")
-						.setMessageType(JOptionPane.PLAIN_MESSAGE)
-						.show();
-
-					Environment.projectConfig.setBoolean(Options.ExtractedMapData, true);
-					Environment.projectConfig.saveConfigFile();
+					if (Extractor.extractAll()) {
+						SwingUtils.getMessageDialog()
+							.setTitle("All Data Extracted")
+							.setMessage("Complete!")
+							.setMessageType(JOptionPane.PLAIN_MESSAGE)
+							.show();
+
+						Environment.projectConfig.setBoolean(Options.ExtractedMapData, true);
+						Environment.projectConfig.saveConfigFile();
+					}
+					else {
+						SwingUtils.getWarningDialog()
+							.setTitle("Extraction Incomplete")
+							.setMessage("Some maps could not be extracted, check the log for details.",
+								"Extracting again will resume with the remaining maps.")
+							.show();
+					}
 				}
 			}
 			else {
@@ -541,12 +574,45 @@ public class StarRodMain extends StarRodFrame
 		}
 	}
 
-	private static void runCommandLine(String[] args)
+	/**
+	 * Runs command line arguments, both in-process and for the build daemon.
+	 * @param workingDir relative file arguments are resolved against this directory
+	 * @param out receives output which is not logged, such as the version string
+	 * @return exit status, which is 1 if any error was logged while running
+	 */
+	static int runCommandLine(String[] args, File workingDir, PrintStream out)
 	{
+		boolean[] failed = new boolean[1];
+		Listener errorListener = (msg) -> {
+			if (msg.priority == Priority.ERROR)
+				failed[0] = true;
+		};
+
+		Logger.addListener(errorListener, Priority.ERROR);
+		try {
+			runCommands(args, workingDir, out);
+		}
+		catch (Throwable t) {
+			Logger.printStackTrace(t);
+			failed[0] = true;
+		}
+		finally {
+			Logger.removeListener(errorListener);
+		}
+
+		return failed[0] ? 1 : 0;
+	}
+
+	private static void runCommands(String[] args, File workingDir, PrintStream out)
+	{
+		// zero = use the global executor
+		int numJobs = 0;
+		CompressionLevel yay0Level = CompressionLevel.OPTIMAL;
+
 		for (int i = 0; i < args.length; i++) {
 			switch (args[i].toUpperCase()) {
 				case "-VERSION":
-					System.out.println("VERSION=" + Environment.getVersionString());
+					out.println("VERSION=" + Environment.getVersionString());
 					break;
 
 				case "-COMPILESHAPE":
@@ -591,40 +657,88 @@ public class StarRodMain extends StarRodFrame
 						Logger.logfError("%s expects a mapName argument!", args[i]);
 					break;
 
+				case "-JOBS":
+					if (args.length > i + 1) {
+						try {
+							numJobs = Integer.parseInt(args[i + 1]);
+						}
+						catch (NumberFormatException e) {
+							Logger.logfError("Invalid number of jobs: %s", args[i + 1]);
+						}
+						i++;
+					}
+					else
+						Logger.logfError("%s expects a number argument!", args[i]);
+					break;
+
 				case "-COMPILEMAPS":
 					try {
-						File buildDir = AssetManager.getMapBuildDir();
-						for (AssetHandle ah : AssetManager.getMapSources()) {
-							// get existing compiled binaries
-							String mapName = Map.deriveName(ah);
-							File binShape = new File(buildDir, mapName + "_shape.bin");
-							File binHit = new File(buildDir, mapName + "_hit.bin");
-
-							// check if the map source is newer
-							boolean buildShape = !binShape.exists() || binShape.lastModified() < ah.lastModified();
-							boolean buildHit = !binHit.exists() || binHit.lastModified() < ah.lastModified();
-
-							if (!buildShape && !buildHit) {
-								continue;
-							}
+						MapBuilder.compileAll(numJobs);
+					}
+					catch (IOException e) {
+						Logger.printStackTrace(e);
+					}
+					break;
+
+				case "-REPORTDISPLAYLISTS":
+					try {
+						DisplayListEstimator.report();
+					}
+					catch (IOException e) {
+						Logger.printStackTrace(e);
+					}
+					break;
 
+				case "-WATCH":
+					try {
+						MapWatcher.watch(numJobs);
+					}
+					catch (IOException e) {
+						Logger.printStackTrace(e);
+					}
+					break;
+
+				case "-YAY0LEVEL":
+					if (args.length > i + 1) {
+						CompressionLevel level = CompressionLevel.get(args[i + 1]);
+						if (level != null)
+							yay0Level = level;
+						else
+							Logger.logfError("Invalid compression level: %s (expected fast or optimal)", args[i + 1]);
+						i++;
+					}
+					else
+						Logger.logfError("%s expects a level argument!", args[i]);
+					break;
+
+				case "-COMPRESSYAY0":
+				case "-DECOMPRESSYAY0":
+					if (args.length > i + 1) {
+						File in = new File(args[i + 1]);
+						if (!in.isAbsolute())
+							in = new File(workingDir, args[i + 1]);
+
+						if (!in.isFile()) {
+							Logger.logfError("Cannot find file '%s'!", args[i + 1]);
+						}
+						else {
 							try {
-								Map map = Map.loadMap(ah);
-								if (buildShape) {
-									new GeometryCompiler(map);
-								}
-								if (buildHit) {
-									new CollisionCompiler(map);
-								}
+								File outFile;
+								if (args[i].equalsIgnoreCase("-CompressYay0"))
+									outFile = Yay0FileHelper.encode(in, in.getParentFile(), yay0Level);
+								else
+									outFile = Yay0FileHelper.decode(in, in.getParentFile());
+								Logger.log("Wrote " + outFile.getName());
 							}
-							catch (IOException | BuildException e) {
+							catch (IOException | IllegalArgumentException e) {
 								Logger.printStackTrace(e);
 							}
 						}
+
+						i++;
 					}
-					catch (IOException e) {
-						Logger.printStackTrace(e);
-					}
+					else
+						Logger.logfError("%s expects a file argument!", args[i]);
 					break;
 
 				default:
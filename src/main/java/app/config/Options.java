@@ -26,6 +26,7 @@ public enum Options
 	CheckForUpdates		(true, Scope.Main, Type.Boolean, "CheckForUpdates", "true"),
 
 	ExtractedMapData	(true, Scope.Project, Type.Boolean, "ExtractedMapData", "false"),
+	OptimizeGeometry	(true, Scope.Project, Type.Boolean, "OptimizeGeometry", "false"),
 
 	// options for dumping assets
 	DumpVersion			(true, Scope.Dump, Type.String, "DumpVersion", Environment.getVersionString()),
@@ -14,9 +14,13 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -411,12 +415,23 @@ public class IOUtils
 			new FileOutputStream(f), StandardCharsets.UTF_8)));
 	}
 
+	/**
+	 * Writes the contents of the buffer from the start to its limit through a file channel,
+	 * so slices of mapped files are written without copying them onto the heap.
+	 * The position of the buffer is not changed.
+	 */
 	public static void writeBufferToFile(ByteBuffer bb, File f) throws IOException
 	{
-		byte[] bytes = new byte[bb.limit()];
-		bb.rewind();
-		bb.get(bytes);
-		FileUtils.writeByteArrayToFile(f, bytes);
+		FileUtils.forceMkdirParent(f);
+
+		ByteBuffer src = bb.duplicate();
+		src.rewind();
+
+		try (FileChannel channel = FileChannel.open(f.toPath(),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (src.hasRemaining())
+				channel.write(src);
+		}
 	}
 
 	public static void writeBytesToFile(byte[] bytes, File f) throws IOException
@@ -424,6 +439,25 @@ public class IOUtils
 		FileUtils.writeByteArrayToFile(f, bytes);
 	}
 
+	/**
+	 * Writes to a temporary file beside the destination and moves it into place,
+	 * so the destination is either left untouched or completely replaced.
+	 */
+	public static void writeBytesToFileAtomic(byte[] bytes, File f) throws IOException
+	{
+		File dir = f.getAbsoluteFile().getParentFile();
+		dir.mkdirs();
+
+		File tempFile = File.createTempFile(f.getName() + ".", ".temp", dir);
+		try {
+			Files.write(tempFile.toPath(), bytes);
+			Files.move(tempFile.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			tempFile.delete();
+		}
+	}
+
 	public static File touch(Directories dir, String filename)
 	{
 		return touch(dir + filename);
@@ -12,13 +12,13 @@ import app.Environment;
 import app.LoadingBar;
 import app.Resource;
 import app.Resource.ResourceType;
-import app.StarRodMain;
 import app.input.IOUtils;
 import game.map.Map;
 import game.map.compiler.CollisionDecompiler;
 import game.map.compiler.GeometryDecompiler;
 import game.map.marker.Marker;
 import util.Logger;
+import util.ResumableBatch;
 
 public class AssetExtractor
 {
@@ -70,6 +70,10 @@ public class AssetExtractor
 		}
 	}
 
+	/**
+	 * Generates map sources for every map and stage in parallel. Progress is recorded per map,
+	 * so an interrupted extraction resumes with the remaining maps the next time the project loads.
+	 */
 	public static void extractAll() throws IOException
 	{
 		// only extract in base asset dir
@@ -77,61 +81,63 @@ public class AssetExtractor
 		File assetDir = Environment.assetDirectories.get(numDirs - 1);
 
 		File sentinel = new File(assetDir, ".star_rod_extracted");
-		if (!sentinel.exists()) {
-			LoadingBar.show("Extracting Assets");
-			Logger.log("Extracting assets in " + assetDir.getName());
+		if (sentinel.exists())
+			return;
 
-			HashMap<String, File> assetFiles = new HashMap<>();
+		LoadingBar.show("Extracting Assets");
+		Logger.log("Extracting assets in " + assetDir.getName());
 
-			// find all relevant asset files
-			File subdir = AssetSubdir.MAP_GEOM.get(assetDir);
-			for (File assetFile : IOUtils.getFilesWithExtension(subdir, ".bin", true)) {
-				String name = FilenameUtils.getBaseName(assetFile.getName());
-				assetFiles.put(name, assetFile);
-			}
+		HashMap<String, File> assetFiles = new HashMap<>();
 
-			// extract maps
-			for (String mapInfo : Resource.getText(ResourceType.Extract, "maps.csv")) {
-				String[] tokens = mapInfo.trim().split("\\s*,\\s*");
-				MapTemplate template = new MapTemplate(tokens);
+		// find all relevant asset files
+		File subdir = AssetSubdir.MAP_GEOM.get(assetDir);
+		for (File assetFile : IOUtils.getFilesWithExtension(subdir, ".bin", true)) {
+			String name = FilenameUtils.getBaseName(assetFile.getName());
+			assetFiles.put(name, assetFile);
+		}
+
+		ResumableBatch batch = new ResumableBatch("map", new File(assetDir, ".star_rod_extract_progress"));
+
+		// extract maps
+		for (String mapInfo : Resource.getText(ResourceType.Extract, "maps.csv")) {
+			String[] tokens = mapInfo.trim().split("\\s*,\\s*");
+			MapTemplate template = new MapTemplate(tokens);
 
-				template.shapeFile = assetFiles.get(template.shapeName);
-				template.hitFile = assetFiles.get(template.hitName);
+			template.shapeFile = assetFiles.get(template.shapeName);
+			template.hitFile = assetFiles.get(template.hitName);
 
-				Logger.log("Generating map source: " + template.name);
+			batch.add(template.name, () -> {
 				Map map = generateMap(template);
-				try {
-					map.saveMapWithoutHeader(new File(subdir, map.getName() + Directories.EXT_MAP));
-				}
-				catch (Exception e) {
-					StarRodMain.displayStackTrace(e);
-				}
-			}
+				map.saveMapWithoutHeader(new File(subdir, map.getName() + Directories.EXT_MAP));
+			});
+		}
 
-			// extract stages
-			for (String stageInfo : Resource.getText(ResourceType.Extract, "stages.csv")) {
-				String[] tokens = stageInfo.trim().split("\\s*,\\s*");
-				MapTemplate template = new MapTemplate(tokens);
+		// extract stages
+		for (String stageInfo : Resource.getText(ResourceType.Extract, "stages.csv")) {
+			String[] tokens = stageInfo.trim().split("\\s*,\\s*");
+			MapTemplate template = new MapTemplate(tokens);
 
-				template.shapeFile = assetFiles.get(template.shapeName);
-				template.hitFile = assetFiles.get(template.hitName);
+			template.shapeFile = assetFiles.get(template.shapeName);
+			template.hitFile = assetFiles.get(template.hitName);
 
-				Logger.log("Generating stage source: " + template.name);
+			batch.add(template.name, () -> {
 				Map map = generateMap(template);
 				map.isStage = true;
 				for (Marker actor : map.getStageMarkers()) {
 					map.create(actor);
 				}
 
-				try {
-					map.saveMapWithoutHeader(new File(subdir, map.getName() + Directories.EXT_MAP));
-				}
-				catch (Exception e) {
-					StarRodMain.displayStackTrace(e);
-				}
-			}
+				map.saveMapWithoutHeader(new File(subdir, map.getName() + Directories.EXT_MAP));
+			});
+		}
 
+		if (batch.run()) {
 			FileUtils.touch(sentinel);
+			batch.reset();
+		}
+		else {
+			Logger.logError("Some maps could not be extracted. "
+				+ "Extraction will resume with the remaining maps the next time this project is opened.");
 		}
 	}
 
@@ -72,6 +72,14 @@ public class AssetManager
 		return get(AssetSubdir.MAP_TEX, texName + EXT_NEW_TEX);
 	}
 
+	/**
+	 * @return images belonging to a texture archive, sorted by filename
+	 */
+	public static Collection<AssetHandle> getTextureArchiveImages(String texName)
+	{
+		return getAssets(AssetSubdir.MAP_TEX, texName + "/", EXT_PNG);
+	}
+
 	public static File getTexBuildDir()
 	{
 		return AssetSubdir.MAP_TEX.getModDir();
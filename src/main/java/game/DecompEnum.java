@@ -1,5 +1,7 @@
 package game;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -9,6 +11,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,10 +40,14 @@ import util.Logger;
 
 public class DecompEnum
 {
-	private static final Matcher enumDefMatcher = Pattern.compile(
-		"\\s*(\\w+)\\s*=\\s*(-?(?:0x[0-9a-fA-F]+|\\d+)),?").matcher("");
+	// headers may be parsed in parallel, so each enum gets its own matcher
+	private static final Pattern EnumDefPattern = Pattern.compile(
+		"\\s*(\\w+)\\s*=\\s*(-?(?:0x[0-9a-fA-F]+|\\d+)),?");
 
-	public static void addEnums(CaseInsensitiveMap<DecompEnum> enums, String headerFileLocation)
+	/**
+	 * @return false if the header could not be read or parsed, in which case none of its enums are added
+	 */
+	public static boolean addEnums(CaseInsensitiveMap<DecompEnum> enums, String headerFileLocation)
 	{
 		IASTTranslationUnit translationUnit;
 
@@ -51,7 +58,7 @@ public class DecompEnum
 		}
 		catch (IOException e) {
 			Logger.printStackTrace(e);
-			return;
+			return false;
 		}
 
 		try {
@@ -67,7 +74,7 @@ public class DecompEnum
 		}
 		catch (CoreException e) {
 			Logger.printStackTrace(e);
-			return;
+			return false;
 		}
 
 		for (IASTDeclaration declaration : translationUnit.getDeclarations()) {
@@ -100,14 +107,90 @@ public class DecompEnum
 				Logger.printStackTrace(e);
 			}
 		}
+
+		return true;
 	}
 
 	private String name;
 	private LinkedHashMap<String, Integer> encodeMap = new LinkedHashMap<>();
 	private LinkedHashMap<Integer, String> decodeMap = new LinkedHashMap<>();
 
+	// provides the contents of a lazy enum on first use, null once resolved
+	private volatile Supplier<DecompEnum> source = null;
+
+	private DecompEnum(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Creates a placeholder which is filled from the source the first time it is used,
+	 * so headers are only parsed when an enum is actually needed.
+	 * A missing enum resolves to an empty one.
+	 */
+	public static DecompEnum lazy(String name, Supplier<DecompEnum> source)
+	{
+		DecompEnum denum = new DecompEnum(name);
+		denum.source = source;
+		return denum;
+	}
+
+	private void resolve()
+	{
+		if (source == null)
+			return;
+
+		synchronized (this) {
+			if (source == null)
+				return;
+
+			DecompEnum loaded = source.get();
+			if (loaded != null) {
+				loaded.resolve();
+				encodeMap = loaded.encodeMap;
+				decodeMap = loaded.decodeMap;
+			}
+			source = null;
+		}
+	}
+
+	private void put(String key, int value)
+	{
+		encodeMap.put(key, value);
+		decodeMap.put(value, key);
+	}
+
+	/**
+	 * Entries are written in definition order, so reading them back rebuilds both maps exactly.
+	 */
+	void write(DataOutputStream out) throws IOException
+	{
+		resolve();
+
+		out.writeUTF(name);
+		out.writeInt(encodeMap.size());
+		for (Entry<String, Integer> e : encodeMap.entrySet()) {
+			out.writeUTF(e.getKey());
+			out.writeInt(e.getValue());
+		}
+	}
+
+	static DecompEnum read(DataInputStream in) throws IOException
+	{
+		DecompEnum denum = new DecompEnum(in.readUTF());
+
+		int numEntries = in.readInt();
+		for (int i = 0; i < numEntries; i++) {
+			String key = in.readUTF();
+			denum.put(key, in.readInt());
+		}
+
+		return denum;
+	}
+
 	private DecompEnum(CPPASTEnumerationSpecifier declaration) throws InvalidInputException, ExpansionOverlapsBoundaryException
 	{
+		Matcher enumDefMatcher = EnumDefPattern.matcher("");
 		int lastValue = -1;
 
 		for (IASTNode child : declaration.getChildren()) {
@@ -135,20 +218,24 @@ public class DecompEnum
 					String key = enumDefMatcher.group(1);
 					String valueText = enumDefMatcher.group(2);
 					lastValue = (int) (long) Long.decode(valueText);
-					encodeMap.put(key, lastValue);
-					decodeMap.put(lastValue, key);
+					put(key, lastValue);
 				}
 				else {
 					lastValue++;
-					encodeMap.put(enumEntry, lastValue);
-					decodeMap.put(lastValue, enumEntry);
+					put(enumEntry, lastValue);
 				}
 			}
 		}
 	}
 
+	public String getEnumName()
+	{
+		return name;
+	}
+
 	public String[] getValues()
 	{
+		resolve();
 		String[] array = new String[decodeMap.size()];
 		int i = 0;
 		for (Entry<Integer, String> e : decodeMap.entrySet())
@@ -158,21 +245,25 @@ public class DecompEnum
 
 	public List<String> getValueList()
 	{
+		resolve();
 		return new ArrayList<>(decodeMap.values());
 	}
 
 	public String getName(int id)
 	{
+		resolve();
 		return decodeMap.get(id);
 	}
 
 	public Integer getID(String name)
 	{
+		resolve();
 		return encodeMap.get(name);
 	}
 
 	public Collection<Entry<String, Integer>> getEntries()
 	{
+		resolve();
 		return encodeMap.entrySet();
 	}
 
@@ -0,0 +1,251 @@
+package game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import app.Directories;
+import app.Environment;
+import app.input.IOUtils;
+import util.CaseInsensitiveMap;
+import util.ContentHash;
+import util.Logger;
+import util.Stopwatch;
+
+/**
+ * Names read from the decomp headers. Parsing the enum headers with CDT takes around half a second,
+ * so the results are cached in the project, keyed by the content of every header and the tool version.
+ * On a cache miss the headers are parsed in parallel.
+ */
+public class DecompHeaderCache
+{
+	private static final String FN_CACHE = "decomp_headers.bin";
+	private static final int MAGIC = 0x44484331; // DHC1
+
+	// content key of the headers these names were read from
+	public final String key;
+
+	public final CaseInsensitiveMap<DecompEnum> enums;
+	public final List<String> savedFlags;
+	public final List<String> savedBytes;
+
+	private DecompHeaderCache(String key, CaseInsensitiveMap<DecompEnum> enums, List<String> savedFlags, List<String> savedBytes)
+	{
+		this.key = key;
+		this.enums = enums;
+		this.savedFlags = savedFlags;
+		this.savedBytes = savedBytes;
+	}
+
+	private static File[] getEnumHeaders()
+	{
+		return new File[] {
+				Directories.PROJ_INCLUDE.file("enums.h"),
+				Directories.PROJ_INCLUDE.file("effects.h"),
+				Directories.PROJ_SRC.file("battle/battle_names.h"),
+				Directories.PROJ_SRC.file("battle/stage_names.h")
+		};
+	}
+
+	private static File getSavedFlagHeader()
+	{
+		return Directories.PROJ_INCLUDE.file("saved_flag_names.h");
+	}
+
+	private static File getSavedByteHeader()
+	{
+		return Directories.PROJ_INCLUDE.file("saved_byte_names.h");
+	}
+
+	/**
+	 * @return key covering the current content of every header and the tool version.
+	 * Compare with {@link #key} to find out whether loaded names are out of date.
+	 */
+	public static String getCurrentKey() throws IOException
+	{
+		ContentHash hash = new ContentHash();
+		hash.add(getSavedFlagHeader()).add(getSavedByteHeader());
+		for (File header : getEnumHeaders())
+			hash.add(header);
+		return hash.add(Environment.getVersionString()).get();
+	}
+
+	public static DecompHeaderCache load() throws IOException
+	{
+		Stopwatch watch = new Stopwatch();
+
+		File savedFlagHeader = getSavedFlagHeader();
+		File savedByteHeader = getSavedByteHeader();
+		File[] enumHeaders = getEnumHeaders();
+		String key = getCurrentKey();
+
+		File cacheFile = Directories.PROJ_CACHE.file(FN_CACHE);
+		if (cacheFile.exists()) {
+			try {
+				DecompHeaderCache cached = read(cacheFile, key);
+				if (cached != null) {
+					Logger.logf("Loaded decomp names from cache in %.1f ms", watch.ms());
+					return cached;
+				}
+			}
+			catch (IOException e) {
+				Logger.logWarning("Discarding unreadable cache " + cacheFile.getName() + ": " + e.getMessage());
+			}
+		}
+
+		List<FutureTask<CaseInsensitiveMap<DecompEnum>>> tasks = new ArrayList<>(enumHeaders.length);
+		for (File header : enumHeaders) {
+			FutureTask<CaseInsensitiveMap<DecompEnum>> task = new FutureTask<>(() -> {
+				CaseInsensitiveMap<DecompEnum> headerEnums = new CaseInsensitiveMap<>();
+				if (!DecompEnum.addEnums(headerEnums, header.getAbsolutePath()))
+					return null;
+				return headerEnums;
+			});
+			Environment.getExecutor().execute(task);
+			tasks.add(task);
+		}
+
+		List<String> savedFlags = loadSavedVarNames(savedFlagHeader);
+		List<String> savedBytes = loadSavedVarNames(savedByteHeader);
+
+		// later headers take precedence, as they did when parsed one after another
+		CaseInsensitiveMap<DecompEnum> enums = new CaseInsensitiveMap<>();
+		boolean complete = true;
+		for (FutureTask<CaseInsensitiveMap<DecompEnum>> task : tasks) {
+			// run any task no worker has started yet, since this may be called from a busy worker thread
+			task.run();
+			try {
+				CaseInsensitiveMap<DecompEnum> headerEnums = task.get();
+				if (headerEnums != null)
+					enums.putAll(headerEnums);
+				else
+					complete = false;
+			}
+			catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException re)
+					throw re;
+				throw new IOException(e.getCause());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while parsing decomp headers.");
+			}
+		}
+
+		DecompHeaderCache parsed = new DecompHeaderCache(key, enums, savedFlags, savedBytes);
+
+		// a failed header would otherwise stay missing until the headers change
+		if (!complete) {
+			Logger.logWarning("Some decomp headers could not be parsed, their names will not be cached.");
+		}
+		else {
+			try {
+				parsed.write(cacheFile, key);
+			}
+			catch (IOException e) {
+				Logger.logWarning("Could not cache decomp names: " + e.getMessage());
+			}
+		}
+
+		Logger.logf("Parsed decomp headers in %.1f ms", watch.ms());
+		return parsed;
+	}
+
+	private static final Pattern SavedVarPattern = Pattern.compile("\\s*(\\w+)\\s*=.+");
+
+	private static List<String> loadSavedVarNames(File header) throws IOException
+	{
+		Matcher matcher = SavedVarPattern.matcher("");
+
+		List<String> names = new ArrayList<>();
+		for (String line : IOUtils.readPlainTextFile(header)) {
+			matcher.reset(line);
+			if (matcher.matches()) {
+				names.add(matcher.group(1));
+			}
+		}
+
+		return names;
+	}
+
+	/*
+	 * Cache format: magic, key, saved flag names, saved byte names, then the enums.
+	 * Lists are written as a count followed by their elements.
+	 */
+
+	private void write(File cacheFile, String key) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(0x40000);
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(MAGIC);
+		out.writeUTF(key);
+		writeNames(out, savedFlags);
+		writeNames(out, savedBytes);
+
+		out.writeInt(enums.size());
+		for (DecompEnum denum : enums.values())
+			denum.write(out);
+
+		out.flush();
+		IOUtils.writeBytesToFileAtomic(bytes.toByteArray(), cacheFile);
+	}
+
+	/**
+	 * @return cached names, or null if the cache is for a different key
+	 */
+	private static DecompHeaderCache read(File cacheFile, String key) throws IOException
+	{
+		byte[] bytes = Files.readAllBytes(cacheFile.toPath());
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			if (in.readInt() != MAGIC || !key.equals(in.readUTF()))
+				return null;
+
+			List<String> savedFlags = readNames(in);
+			List<String> savedBytes = readNames(in);
+
+			CaseInsensitiveMap<DecompEnum> enums = new CaseInsensitiveMap<>();
+			int numEnums = in.readInt();
+			for (int i = 0; i < numEnums; i++) {
+				DecompEnum denum = DecompEnum.read(in);
+				enums.put(denum.getEnumName(), denum);
+			}
+
+			if (in.available() > 0)
+				throw new IOException("Unexpected data after enums.");
+
+			return new DecompHeaderCache(key, enums, savedFlags, savedBytes);
+		}
+		catch (EOFException e) {
+			throw new IOException("Cache is truncated.");
+		}
+	}
+
+	private static void writeNames(DataOutputStream out, List<String> names) throws IOException
+	{
+		out.writeInt(names.size());
+		for (String name : names)
+			out.writeUTF(name);
+	}
+
+	private static List<String> readNames(DataInputStream in) throws IOException
+	{
+		int count = in.readInt();
+		List<String> names = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			names.add(in.readUTF());
+		return names;
+	}
+}
@@ -1,21 +1,18 @@
 package game;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import app.Directories;
-import app.input.IOUtils;
+import app.StarRodException;
 import game.map.shading.SpriteShadingData;
 import game.map.shading.SpriteShadingEditor;
-import util.CaseInsensitiveMap;
+import util.Logger;
 
 public class ProjectDatabase
 {
-	private static CaseInsensitiveMap<DecompEnum> decompEnums;
+	// parsed from the decomp headers on first use, see DecompHeaderCache
+	private static DecompHeaderCache headers;
 
 	public static DecompEnum ESurfaceTypes;
 	public static DecompEnum ELocations;
@@ -34,8 +31,6 @@ public class ProjectDatabase
 	public static SpriteShadingData SpriteShading;
 
 	private static List<SimpleItem> items;
-	private static List<String> savedFlags;
-	private static List<String> savedBytes;
 
 	private static boolean initialized = false;
 
@@ -44,33 +39,22 @@ public class ProjectDatabase
 		if (initialized)
 			return;
 
-		savedFlags = loadSavedVarNames(Directories.PROJ_INCLUDE.file("saved_flag_names.h"));
-		savedBytes = loadSavedVarNames(Directories.PROJ_INCLUDE.file("saved_byte_names.h"));
+		// enums are placeholders until first use, so commands which never need them never parse the headers
+		ESurfaceTypes = getEnum("SurfaceType");
+		ELocations = getEnum("Locations");
+		EStoryProgress = getEnum("StoryProgress");
 
-		// TODO the following block takes a half-second at startup and could be optimized better
-		{
-			decompEnums = new CaseInsensitiveMap<>();
-			DecompEnum.addEnums(decompEnums, Directories.PROJ_INCLUDE.file("enums.h").getAbsolutePath());
-			DecompEnum.addEnums(decompEnums, Directories.PROJ_INCLUDE.file("effects.h").getAbsolutePath());
-			DecompEnum.addEnums(decompEnums, Directories.PROJ_SRC.file("battle/battle_names.h").getAbsolutePath());
-			DecompEnum.addEnums(decompEnums, Directories.PROJ_SRC.file("battle/stage_names.h").getAbsolutePath());
-		}
-
-		ESurfaceTypes = decompEnums.get("SurfaceType");
-		ELocations = decompEnums.get("Locations");
-		EStoryProgress = decompEnums.get("StoryProgress");
-
-		EMoveType = decompEnums.get("MoveType");
-		EBattleMessages = decompEnums.get("BattleMessages");
-		ItemTypeFlags = decompEnums.get("ItemTypeFlags");
-		TargetFlags = decompEnums.get("TargetFlags");
+		EMoveType = getEnum("MoveType");
+		EBattleMessages = getEnum("BattleMessages");
+		ItemTypeFlags = getEnum("ItemTypeFlags");
+		TargetFlags = getEnum("TargetFlags");
 
-		ESongs = decompEnums.get("SongIDs");
-		EAmbientSounds = decompEnums.get("AmbientSounds");
+		ESongs = getEnum("SongIDs");
+		EAmbientSounds = getEnum("AmbientSounds");
 
-		EDoorSounds = decompEnums.get("DoorSounds");
-		EDoorSwings = decompEnums.get("DoorSwing");
-		EItemSpawnModes = decompEnums.get("ItemSpawnModes");
+		EDoorSounds = getEnum("DoorSounds");
+		EDoorSwings = getEnum("DoorSwing");
+		EItemSpawnModes = getEnum("ItemSpawnModes");
 
 		SpriteShading = SpriteShadingEditor.loadData();
 
@@ -79,29 +63,51 @@ public class ProjectDatabase
 		initialized = true;
 	}
 
-	public static List<String> getSavedFlagNames()
+	/**
+	 * Reloads the database if the decomp headers changed since their names were loaded.
+	 * Long running processes call this before each request, since edits to the headers
+	 * would otherwise go unnoticed until restarting.
+	 */
+	public static void reloadIfChanged() throws IOException
 	{
-		return savedFlags;
+		synchronized (ProjectDatabase.class) {
+			if (headers == null || headers.key.equals(DecompHeaderCache.getCurrentKey()))
+				return;
+
+			headers = null;
+			initialized = false;
+		}
+
+		Logger.log("Decomp headers changed, reloading project database.");
+		initialize();
 	}
 
-	public static List<String> getSavedByteNames()
+	private static synchronized DecompHeaderCache getHeaders()
 	{
-		return savedBytes;
+		if (headers == null) {
+			try {
+				headers = DecompHeaderCache.load();
+			}
+			catch (IOException e) {
+				throw new StarRodException("IOException reading decomp headers: %n%s", e.getMessage());
+			}
+		}
+		return headers;
 	}
 
-	private static final Matcher SavedVarMatcher = Pattern.compile("\\s*(\\w+)\\s*=.+").matcher("");
+	private static DecompEnum getEnum(String name)
+	{
+		return DecompEnum.lazy(name, () -> getHeaders().enums.get(name));
+	}
 
-	private static List<String> loadSavedVarNames(File header) throws IOException
+	public static List<String> getSavedFlagNames()
 	{
-		List<String> names = new ArrayList<>();
-		for (String line : IOUtils.readPlainTextFile(header)) {
-			SavedVarMatcher.reset(line);
-			if (SavedVarMatcher.matches()) {
-				names.add(SavedVarMatcher.group(1));
-			}
-		}
+		return getHeaders().savedFlags;
+	}
 
-		return names;
+	public static List<String> getSavedByteNames()
+	{
+		return getHeaders().savedBytes;
 	}
 
 	public static List<SimpleItem> getItemList()
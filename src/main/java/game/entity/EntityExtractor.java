@@ -109,20 +109,12 @@ public class EntityExtractor
 
 	private static void dumpBinaryFiles() throws IOException
 	{
-		ByteBuffer fileBuffer = Environment.getBaseRomBuffer();
-
 		for (EntitySet set : EntitySet.values()) {
 			if (set == EntitySet.DUMMY)
 				continue;
 
-			for (int i = 0; i < 3; i++) {
-				byte[] bytes = new byte[set.dmaEnd - set.dmaStart];
-				fileBuffer.position(set.dmaStart);
-				fileBuffer.get(bytes);
-
-				File rawFile = new File(DUMP_ENTITY_RAW + "_" + set.name() + ".bin");
-				FileUtils.writeByteArrayToFile(rawFile, bytes);
-			}
+			File rawFile = new File(DUMP_ENTITY_RAW + "_" + set.name() + ".bin");
+			IOUtils.writeBufferToFile(Environment.getBaseRomSlice(set.dmaStart, set.dmaEnd), rawFile);
 		}
 
 		for (EntityType entity : EntityType.values()) {
@@ -134,22 +126,15 @@ public class EntityExtractor
 
 			int dmaStart = entity.typeData.dmaArgs[0][0];
 			int dmaEnd = entity.typeData.dmaArgs[0][1];
-			byte[] bytes = new byte[dmaEnd - dmaStart];
-			fileBuffer.position(dmaStart);
-			fileBuffer.get(bytes);
 
 			File rawFile = new File(DUMP_ENTITY_RAW + entity.name() + ".bin");
-			FileUtils.writeByteArrayToFile(rawFile, bytes);
+			IOUtils.writeBufferToFile(Environment.getBaseRomSlice(dmaStart, dmaEnd), rawFile);
 
 			dmaStart = entity.typeData.dmaArgs[1][0];
 			dmaEnd = entity.typeData.dmaArgs[1][1];
 			if (dmaStart != 0) {
-				bytes = new byte[dmaEnd - dmaStart];
-				fileBuffer.position(dmaStart);
-				fileBuffer.get(bytes);
-
 				rawFile = new File(DUMP_ENTITY_RAW + entity.name() + "_AUX.bin");
-				FileUtils.writeByteArrayToFile(rawFile, bytes);
+				IOUtils.writeBufferToFile(Environment.getBaseRomSlice(dmaStart, dmaEnd), rawFile);
 			}
 		}
 	}
@@ -161,7 +146,7 @@ public class EntityExtractor
 				continue;
 
 			try {
-				new EntityExtractor(entity.name);
+				new EntityExtractor(entity);
 			}
 			catch (IOException e) {
 				StarRodException sre = new StarRodException("IOException decompiling %s%n%s", entity.name, e.getMessage());
@@ -182,8 +167,9 @@ public class EntityExtractor
 
 	private static final int DEFAULT_RENDER_MODE = 1;
 
-	public EntityExtractor(String name) throws IOException
+	public EntityExtractor(EntityType entity) throws IOException
 	{
+		String name = entity.name;
 		entityName = name;
 		entityPath = DUMP_ENTITY_SRC + "/" + entityName;
 
@@ -264,8 +250,9 @@ public class EntityExtractor
 			}
 		}
 
-		File rawFile = new File(DUMP_ENTITY_RAW + name + ".bin");
-		fileBuffer = IOUtils.getDirectBuffer(rawFile);
+		// read the model data straight from the ROM rather than the raw file dumped from it
+		int[] dmaArgs = entity.typeData.dmaArgs[0];
+		fileBuffer = Environment.getBaseRomSlice(dmaArgs[0], dmaArgs[1]);
 
 		textureMap = new HashMap<>();
 		vertexMap = new HashMap<>();
@@ -0,0 +1,190 @@
+package game.f3dex2;
+
+import java.nio.ByteBuffer;
+
+import app.input.InvalidInputException;
+import game.f3dex2.DisplayList.CommandType;
+import game.f3dex2.commands.LoadVertex;
+
+/**
+ * Static cost estimate for F3DEX2 display lists. Commands are counted by kind and given a rough
+ * cycle cost on the RSP and RDP. The cycle weights are approximations for comparing lists with
+ * each other, not measurements: fill rate depends on screen coverage, which is unknown here,
+ * so the RDP estimate only includes triangle setup and pipeline stalls.
+ */
+public class DisplayListCost
+{
+	// @formatter:off
+	private static final int RSP_DISPATCH		= 8;
+	private static final int RSP_VTX_BASE		= 16;
+	private static final int RSP_PER_VERTEX		= 18;
+	private static final int RSP_PER_TRIANGLE	= 40;
+	private static final int RSP_MATRIX			= 120;
+	private static final int RSP_POP_MATRIX		= 40;
+	private static final int RSP_BRANCH			= 12;
+
+	private static final int RDP_PER_TRIANGLE	= 20;
+	private static final int RDP_PIPE_SYNC		= 40;
+	private static final int RDP_OTHER_SYNC		= 20;
+	private static final int RDP_TEXTURE_LOAD	= 40;
+	private static final int RDP_STATE			= 2;
+	// @formatter:on
+
+	public int commands;
+	public int bytes;
+	public int vertexLoads;
+	public int vertices;
+	public int triangles;
+	public int stateChanges;
+	public int syncs;
+	public int calls;
+	public int unknown;
+
+	public long rspCycles;
+	public long rdpCycles;
+
+	/**
+	 * Measures a list up to its G_ENDDL or the end of the buffer, without following calls or branches.
+	 */
+	public static DisplayListCost measure(ByteBuffer buf)
+	{
+		DisplayListCost cost = new DisplayListCost();
+
+		while (buf.remaining() >= 8) {
+			int A = buf.getInt();
+			int B = buf.getInt();
+
+			CommandType type = DisplayList.getCommandForOpcode((A >> 24) & 0xFF);
+			if (type == null || type.size != 2) {
+				cost.addUnknown();
+				continue;
+			}
+
+			try {
+				cost.add(type.create(A, B));
+			}
+			catch (InvalidInputException e) {
+				// valid for the microcode, but not representable by the command class (such as a
+				// geometry mode change which sets and clears bits at once)
+				cost.add(type, (A >> 12) & 0xFF);
+			}
+
+			if (type == CommandType.G_ENDDL)
+				break;
+		}
+
+		return cost;
+	}
+
+	private void addUnknown()
+	{
+		commands++;
+		bytes += 8;
+		unknown++;
+		rspCycles += RSP_DISPATCH;
+	}
+
+	public void add(BaseF3DEX2 cmd)
+	{
+		add(cmd.type, (cmd instanceof LoadVertex load) ? load.num : 0);
+	}
+
+	private void add(CommandType type, int numVertices)
+	{
+		commands++;
+		bytes += 4 * type.size;
+		rspCycles += RSP_DISPATCH;
+
+		switch (type) {
+			case G_VTX:
+				vertexLoads++;
+				vertices += numVertices;
+				rspCycles += RSP_VTX_BASE + numVertices * RSP_PER_VERTEX;
+				break;
+
+			case G_TRI1:
+				addTriangles(1);
+				break;
+
+			case G_TRI2:
+			case G_QUAD:
+				addTriangles(2);
+				break;
+
+			case G_DL:
+			case G_BRANCH_Z:
+			case G_CULLDL:
+				calls++;
+				rspCycles += RSP_BRANCH;
+				break;
+
+			case G_ENDDL:
+			case G_NOOP:
+			case G_NOOP_RDP:
+				break;
+
+			case G_MTX:
+				stateChanges++;
+				rspCycles += RSP_MATRIX;
+				break;
+
+			case G_POPMTX:
+				stateChanges++;
+				rspCycles += RSP_POP_MATRIX;
+				break;
+
+			case G_RDPPIPESYNC:
+				syncs++;
+				rdpCycles += RDP_PIPE_SYNC;
+				break;
+
+			case G_RDPLOADSYNC:
+			case G_RDPTILESYNC:
+			case G_RDPFULLSYNC:
+				syncs++;
+				rdpCycles += RDP_OTHER_SYNC;
+				break;
+
+			case G_LOADBLOCK:
+			case G_LOADTILE:
+			case G_LOADTLUT:
+				stateChanges++;
+				rdpCycles += RDP_TEXTURE_LOAD;
+				break;
+
+			default:
+				stateChanges++;
+				rdpCycles += RDP_STATE;
+				break;
+		}
+	}
+
+	private void addTriangles(int count)
+	{
+		triangles += count;
+		rspCycles += count * RSP_PER_TRIANGLE;
+		rdpCycles += count * RDP_PER_TRIANGLE;
+	}
+
+	public void add(DisplayListCost other)
+	{
+		commands += other.commands;
+		bytes += other.bytes;
+		vertexLoads += other.vertexLoads;
+		vertices += other.vertices;
+		triangles += other.triangles;
+		stateChanges += other.stateChanges;
+		syncs += other.syncs;
+		calls += other.calls;
+		unknown += other.unknown;
+		rspCycles += other.rspCycles;
+		rdpCycles += other.rdpCycles;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d triangles, %d vertex loads (%d vertices), %d state changes, %d syncs, %d bytes, ~%d RSP / %d RDP cycles",
+			triangles, vertexLoads, vertices, stateChanges, syncs, bytes, rspCycles, rdpCycles);
+	}
+}
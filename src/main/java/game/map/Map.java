@@ -3,6 +3,7 @@ package game.map;
 import static game.map.MapKey.*;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -14,7 +15,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -24,6 +27,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.w3c.dom.Element;
 
 import app.Directories;
+import app.Environment;
 import app.SwingUtils;
 import app.input.IOUtils;
 import assets.AssetManager;
@@ -58,6 +62,7 @@ import game.map.scripts.extract.TexPannerExtractor;
 import game.map.shape.LightSet;
 import game.map.shape.LightSet.LightSetDigest;
 import game.map.shape.Model;
+import game.map.shape.TriangleBatch.PackedBatch;
 import game.map.shape.UV;
 import game.map.tree.ColliderTreeModel;
 import game.map.tree.MapObjectNode;
@@ -69,6 +74,7 @@ import util.IterableListModel;
 import util.Logger;
 import util.identity.IdentityHashSet;
 import util.xml.XmlKey;
+import util.xml.XmlTreeCache;
 import util.xml.XmlWrapper.XmlReader;
 import util.xml.XmlWrapper.XmlSerializable;
 import util.xml.XmlWrapper.XmlTag;
@@ -86,6 +92,15 @@ public class Map implements XmlSerializable
 	public MapObjectTreeModel<Zone> zoneTree;
 	public MapObjectTreeModel<Marker> markerTree;
 
+	// picking hierarchies, refit whenever bounding boxes are recalculated
+	private final transient MapObjectPickTree<Model> modelPickTree = new MapObjectPickTree<>();
+	private final transient MapObjectPickTree<Collider> colliderPickTree = new MapObjectPickTree<>();
+	private final transient MapObjectPickTree<Zone> zonePickTree = new MapObjectPickTree<>();
+
+	// object types in selection priority order, after the favored type
+	private static final MapObjectType[] PICK_PRIORITY = {
+			MapObjectType.EDITOR, MapObjectType.MODEL, MapObjectType.COLLIDER, MapObjectType.ZONE, MapObjectType.MARKER };
+
 	public ScriptData scripts;
 
 	public IterableListModel<LightSet> lightSets;
@@ -105,6 +120,8 @@ public class Map implements XmlSerializable
 
 	public static final String NO_BG = "none";
 
+	private static final String MAP_CACHE_DIR = "maps";
+
 	public List<String> areaByteNames = new ArrayList<>();
 	public List<String> areaFlagNames = new ArrayList<>();
 	public List<String> mapVarNames = new ArrayList<>();
@@ -407,20 +424,22 @@ public class Map implements XmlSerializable
 
 	public List<MapObject> getObjectsWithinRegion(BoundingBox selectionBox, List<EditorObject> editorObjects)
 	{
-		List<MapObject> objs = new LinkedList<>();
+		List<MapObject> objs = new ArrayList<>();
 
 		for (MapObject o : editorObjects)
 			if (!o.hidden && selectionBox.contains(o.AABB.getCenter()))
 				objs.add(o);
-		for (MapObject o : modelTree)
-			if (!o.hidden && selectionBox.contains(o.AABB.getCenter()))
-				objs.add(o);
-		for (MapObject o : colliderTree)
-			if (!o.hidden && selectionBox.contains(o.AABB.getCenter()))
-				objs.add(o);
-		for (MapObject o : zoneTree)
-			if (!o.hidden && selectionBox.contains(o.AABB.getCenter()))
+
+		// an object can only be centered inside the box if its bounding box overlaps it
+		List<MapObject> candidates = new ArrayList<>();
+		modelPickTree.query(modelTree, selectionBox, Map::isVisible, candidates);
+		colliderPickTree.query(colliderTree, selectionBox, Map::isVisible, candidates);
+		zonePickTree.query(zoneTree, selectionBox, Map::isVisible, candidates);
+
+		for (MapObject o : candidates)
+			if (selectionBox.contains(o.AABB.getCenter()))
 				objs.add(o);
+
 		for (MapObject o : markerTree)
 			if (!o.hidden && selectionBox.contains(o.AABB.getCenter()))
 				objs.add(o);
@@ -428,70 +447,98 @@ public class Map implements XmlSerializable
 		return objs;
 	}
 
+	/**
+	 * @return visible objects with meshes whose bounding boxes overlap a volume, in tree order
+	 */
+	private List<MapObject> getMeshObjectsWithinVolume(BoundingBox volume, MapObjectType type)
+	{
+		List<MapObject> objects = new ArrayList<>();
+
+		if (type == null || type == MapObjectType.MODEL)
+			modelPickTree.query(modelTree, volume, Map::canPickMesh, objects);
+		if (type == null || type == MapObjectType.COLLIDER)
+			colliderPickTree.query(colliderTree, volume, Map::canPickMesh, objects);
+		if (type == null || type == MapObjectType.ZONE)
+			zonePickTree.query(zoneTree, volume, Map::canPickMesh, objects);
+
+		return objects;
+	}
+
 	public PickHit pickNearestObject(PickRay pickRay, MapObjectType favoredType, List<EditorObject> editorObjects)
 	{
-		// list order = selection priority!
-		LinkedList<MapObject> candidates = new LinkedList<>();
+		// favored type first, then the rest in priority order
+		// later types only replace the current hit if they are strictly closer
+		PickHit closestHit = pickObjectsOfType(pickRay, favoredType, editorObjects);
+
+		for (MapObjectType type : PICK_PRIORITY) {
+			if (type == favoredType)
+				continue;
+
+			PickHit hit = pickObjectsOfType(pickRay, type, editorObjects);
+			if (hit.dist < closestHit.dist)
+				closestHit = hit;
+		}
+
+		return closestHit;
+	}
 
-		switch (favoredType) {
+	private PickHit pickObjectsOfType(PickRay pickRay, MapObjectType type, List<EditorObject> editorObjects)
+	{
+		switch (type) {
 			case MODEL:
-				for (MapObject o : modelTree)
-					if (!o.hidden && o.shouldTryPick(pickRay))
-						candidates.add(o);
-				break;
+				return modelPickTree.pick(modelTree, pickRay, Map::canPickMesh, Map::tryPickObject);
 			case COLLIDER:
-				for (MapObject o : colliderTree)
-					if (!o.hidden && o.shouldTryPick(pickRay))
-						candidates.add(o);
-				break;
+				return colliderPickTree.pick(colliderTree, pickRay, Map::canPickMesh, Map::tryPickObject);
 			case ZONE:
-				for (MapObject o : zoneTree)
-					if (!o.hidden && o.shouldTryPick(pickRay))
-						candidates.add(o);
-				break;
+				return zonePickTree.pick(zoneTree, pickRay, Map::canPickMesh, Map::tryPickObject);
 			case MARKER:
-				for (MapObject o : markerTree)
-					if (!o.hidden && o.shouldTryPick(pickRay))
-						candidates.add(o);
-				break;
+				return pickObjectFromSet(pickRay, getPickCandidates(markerTree, pickRay));
 			case EDITOR:
-				for (MapObject o : editorObjects)
-					if (!o.hidden && o.shouldTryPick(pickRay))
-						candidates.add(o);
-				break;
+				return pickObjectFromSet(pickRay, getPickCandidates(editorObjects, pickRay));
 		}
+		return new PickHit(pickRay);
+	}
 
-		if (favoredType != MapObjectType.EDITOR) {
-			for (MapObject o : editorObjects)
-				if (!o.hidden && o.shouldTryPick(pickRay))
-					candidates.add(o);
-		}
+	private static List<MapObject> getPickCandidates(Iterable<? extends MapObject> objects, PickRay pickRay)
+	{
+		List<MapObject> candidates = new ArrayList<>();
+		for (MapObject o : objects)
+			if (!o.hidden && o.shouldTryPick(pickRay))
+				candidates.add(o);
+		return candidates;
+	}
 
-		if (favoredType != MapObjectType.MODEL) {
-			for (MapObject o : modelTree)
-				if (!o.hidden && o.shouldTryPick(pickRay))
-					candidates.add(o);
-		}
+	private static boolean isVisible(MapObject obj)
+	{
+		return !obj.hidden;
+	}
 
-		if (favoredType != MapObjectType.COLLIDER) {
-			for (MapObject o : colliderTree)
-				if (!o.hidden && o.shouldTryPick(pickRay))
-					candidates.add(o);
-		}
+	private static boolean canPickMesh(MapObject obj)
+	{
+		return !obj.hidden && obj.hasMesh();
+	}
 
-		if (favoredType != MapObjectType.ZONE) {
-			for (MapObject o : zoneTree)
-				if (!o.hidden && o.shouldTryPick(pickRay))
-					candidates.add(o);
-		}
+	private static PickHit tryPickObject(MapObject obj, PickRay pickRay)
+	{
+		PickHit hit = obj.tryPick(pickRay);
+		if (hit != null)
+			hit.obj = obj;
+		return hit;
+	}
 
-		if (favoredType != MapObjectType.MARKER) {
-			for (MapObject o : markerTree)
-				if (!o.hidden && o.shouldTryPick(pickRay))
-					candidates.add(o);
-		}
+	private static PickHit tryPickTriangle(MapObject obj, PickRay pickRay)
+	{
+		return obj.getMesh().getPickTree().pick(pickRay);
+	}
 
-		return pickObjectFromSet(pickRay, candidates);
+	/**
+	 * Finds the nearest collider hit by a ray, using the collider picking hierarchy.
+	 * Equivalent to {@link #pickObjectFromSet(PickRay, Iterable, boolean)} over the
+	 * colliders accepted by filter, without visiting every collider.
+	 */
+	public PickHit pickCollider(PickRay pickRay, Predicate<? super Collider> filter)
+	{
+		return colliderPickTree.pick(colliderTree, pickRay, filter, Map::tryPickObject);
 	}
 
 	public static <T extends MapObject> PickHit pickObjectFromSet(PickRay pickRay, Iterable<T> candidates)
@@ -518,38 +565,31 @@ public class Map implements XmlSerializable
 
 	public PickHit pickNearestTriangle(PickRay pickRay)
 	{
-		ArrayList<MapObject> candidates = new ArrayList<>();
-		for (Model mdl : modelTree)
-			if (!mdl.hidden && mdl.shouldTryPick(pickRay))
-				candidates.add(mdl);
-		for (Collider c : colliderTree)
-			if (!c.hidden && c.shouldTryPick(pickRay))
-				candidates.add(c);
-		for (Zone z : zoneTree)
-			if (!z.hidden && z.shouldTryPick(pickRay))
-				candidates.add(z);
+		PickHit closestHit = modelPickTree.pick(modelTree, pickRay, Map::canPickMesh, Map::tryPickTriangle);
+
+		PickHit hit = colliderPickTree.pick(colliderTree, pickRay, Map::canPickMesh, Map::tryPickTriangle);
+		if (hit.dist < closestHit.dist)
+			closestHit = hit;
 
-		return pickTriangleFromObjectList(pickRay, candidates);
+		hit = zonePickTree.pick(zoneTree, pickRay, Map::canPickMesh, Map::tryPickTriangle);
+		if (hit.dist < closestHit.dist)
+			closestHit = hit;
+
+		return closestHit;
 	}
 
 	public List<Triangle> getTrianglesWithinRegion(BoundingBox box)
 	{
 		List<Triangle> triangleList = new ArrayList<>();
+		IdentityHashSet<Triangle> found = new IdentityHashSet<>();
 
-		ArrayList<AbstractMesh> meshes = new ArrayList<>();
-		for (Model mdl : modelTree)
-			if (!mdl.hidden && mdl.hasMesh())
-				meshes.add(mdl.getMesh());
-		for (Collider c : colliderTree)
-			if (!c.hidden && c.hasMesh())
-				meshes.add(c.mesh);
-		for (Zone z : zoneTree)
-			if (!z.hidden && z.hasMesh())
-				meshes.add(z.mesh);
-
-		for (AbstractMesh m : meshes) {
-			for (Triangle t : m) {
-				if (box.contains(t.getCenter()) && !triangleList.contains(t))
+		List<Triangle> candidates = new ArrayList<>();
+		for (MapObject obj : getMeshObjectsWithinVolume(box, null)) {
+			candidates.clear();
+			obj.getMesh().getPickTree().query(box, candidates);
+
+			for (Triangle t : candidates) {
+				if (box.contains(t.getCenter()) && found.add(t))
 					triangleList.add(t);
 			}
 		}
@@ -557,6 +597,69 @@ public class Map implements XmlSerializable
 		return triangleList;
 	}
 
+	/**
+	 * Candidate triangles from one mesh, along with a snapshot of their vertex positions.
+	 * Filtering a snapshot is safe on another thread while the editor continues to move vertices.
+	 */
+	public static class TriangleCandidates
+	{
+		public final Triangle[] triangles;
+
+		// sum of the three vertex positions for each triangle
+		private final int[] positionSums;
+
+		private TriangleCandidates(List<Triangle> candidates)
+		{
+			triangles = candidates.toArray(new Triangle[candidates.size()]);
+			positionSums = new int[3 * triangles.length];
+
+			for (int i = 0; i < triangles.length; i++) {
+				Vertex[] vert = triangles[i].vert;
+				positionSums[3 * i] = vert[0].getCurrentX() + vert[1].getCurrentX() + vert[2].getCurrentX();
+				positionSums[3 * i + 1] = vert[0].getCurrentY() + vert[1].getCurrentY() + vert[2].getCurrentY();
+				positionSums[3 * i + 2] = vert[0].getCurrentZ() + vert[1].getCurrentZ() + vert[2].getCurrentZ();
+			}
+		}
+	}
+
+	/**
+	 * Gathers every triangle which may be centered inside a region, without testing them.
+	 * The result can be filtered with {@link #filterTrianglesWithinRegion(BoundingBox, TriangleCandidates)}
+	 * on another thread, since it no longer depends on the mesh lists or vertex positions.
+	 */
+	public List<TriangleCandidates> getTriangleCandidatesWithinRegion(BoundingBox box)
+	{
+		List<TriangleCandidates> candidateSets = new ArrayList<>();
+
+		List<Triangle> candidates = new ArrayList<>();
+		for (MapObject obj : getMeshObjectsWithinVolume(box, null)) {
+			candidates.clear();
+			obj.getMesh().getPickTree().query(box, candidates);
+			if (!candidates.isEmpty())
+				candidateSets.add(new TriangleCandidates(candidates));
+		}
+
+		return candidateSets;
+	}
+
+	/**
+	 * @return triangles from the candidates which were centered inside the region when they were gathered
+	 */
+	public static List<Triangle> filterTrianglesWithinRegion(BoundingBox box, TriangleCandidates candidates)
+	{
+		List<Triangle> triangleList = new ArrayList<>();
+		int[] sums = candidates.positionSums;
+		for (int i = 0; i < candidates.triangles.length; i++) {
+			// matches the rounding of Triangle::getCenter
+			int x = (int) (sums[3 * i] / 3.0f);
+			int y = (int) (sums[3 * i + 1] / 3.0f);
+			int z = (int) (sums[3 * i + 2] / 3.0f);
+			if (box.contains(x, y, z))
+				triangleList.add(candidates.triangles[i]);
+		}
+		return triangleList;
+	}
+
 	public static PickHit pickTriangleFromObjectList(PickRay pickRay, Iterable<? extends MapObject> candidates)
 	{
 		PickHit closestHit = new PickHit(pickRay, Float.MAX_VALUE);
@@ -564,13 +667,9 @@ public class Map implements XmlSerializable
 			if (obj.hidden)
 				continue;
 
-			for (Triangle t : obj.getMesh()) {
-				PickHit hit = PickRay.getIntersection(pickRay, t);
-				if (hit.dist < closestHit.dist) {
-					closestHit = hit;
-					closestHit.obj = t;
-				}
-			}
+			PickHit hit = obj.getMesh().getPickTree().pick(pickRay);
+			if (hit.dist < closestHit.dist)
+				closestHit = hit;
 		}
 		return closestHit;
 	}
@@ -616,59 +715,31 @@ public class Map implements XmlSerializable
 
 	public Iterable<Vertex> getVerticesWithinVolume(BoundingBox viewingVolume)
 	{
-		LinkedList<MapObject> objects = new LinkedList<>();
-
-		for (MapObject o : modelTree)
-			if (!o.hidden && o.hasMesh() && o.AABB.overlaps(viewingVolume))
-				objects.add(o);
-
-		for (MapObject o : colliderTree)
-			if (!o.hidden && o.hasMesh() && o.AABB.overlaps(viewingVolume))
-				objects.add(o);
-
-		for (MapObject o : zoneTree)
-			if (!o.hidden && o.hasMesh() && o.AABB.overlaps(viewingVolume))
-				objects.add(o);
-
-		IdentityHashSet<Vertex> vertices = new IdentityHashSet<>();
-		for (MapObject obj : objects) {
-			for (Triangle t : obj.getMesh()) {
-				for (Vertex v : t.vert) {
-					if (viewingVolume.contains(v))
-						vertices.add(v);
-				}
-			}
-		}
-		return vertices;
+		return getVerticesWithinVolume(viewingVolume, getMeshObjectsWithinVolume(viewingVolume, null));
 	}
 
 	public Iterable<Vertex> getVerticesWithinVolume(BoundingBox viewingVolume, MapObjectType category)
 	{
-		LinkedList<MapObject> objects = new LinkedList<>();
-
 		switch (category) {
 			case MODEL:
-				for (MapObject o : modelTree)
-					if (!o.hidden && o.hasMesh() && o.AABB.overlaps(viewingVolume))
-						objects.add(o);
-				break;
 			case COLLIDER:
-				for (MapObject o : colliderTree)
-					if (!o.hidden && o.hasMesh() && o.AABB.overlaps(viewingVolume))
-						objects.add(o);
-				break;
 			case ZONE:
-				for (MapObject o : zoneTree)
-					if (!o.hidden && o.hasMesh() && o.AABB.overlaps(viewingVolume))
-						objects.add(o);
-				break;
+				return getVerticesWithinVolume(viewingVolume, getMeshObjectsWithinVolume(viewingVolume, category));
 			default:
-				break;
+				return new IdentityHashSet<>();
 		}
+	}
 
+	private static Iterable<Vertex> getVerticesWithinVolume(BoundingBox viewingVolume, List<MapObject> objects)
+	{
 		IdentityHashSet<Vertex> vertices = new IdentityHashSet<>();
+
+		List<Triangle> candidates = new ArrayList<>();
 		for (MapObject obj : objects) {
-			for (Triangle t : obj.getMesh()) {
+			candidates.clear();
+			obj.getMesh().getPickTree().query(viewingVolume, candidates);
+
+			for (Triangle t : candidates) {
 				for (Vertex v : t.vert) {
 					if (viewingVolume.contains(v))
 						vertices.add(v);
@@ -683,10 +754,14 @@ public class Map implements XmlSerializable
 		long t0 = System.nanoTime();
 		Map map = null;
 
-		XmlReader xmr = new XmlReader(f);
+		XmlTreeCache cache = getMapCache();
+		XmlReader xmr = (cache != null) ? cache.read(f) : new XmlReader(f);
 		map = new Map();
 		map.fromXML(xmr, xmr.getRootElement());
 
+		if (cache != null)
+			cache.save();
+
 		map.setName(deriveName(f));
 		map.lastModified = f.lastModified();
 		validateObjectData(map);
@@ -701,6 +776,21 @@ public class Map implements XmlSerializable
 		return map;
 	}
 
+	/**
+	 * Maps are reopened often, so their parsed XML is cached in the project directory.
+	 * Triangle batches are cached as packed vertex and triangle arrays, which skips reading
+	 * an element for every vertex and triangle.
+	 * @return null if there is no project to cache in
+	 */
+	private static XmlTreeCache getMapCache()
+	{
+		if (Environment.getProjectDirectory() == null)
+			return null;
+
+		return new XmlTreeCache(Directories.PROJ_CACHE.file(MAP_CACHE_DIR))
+			.addPackedType(TAG_TRIANGLE_BATCH, PackedBatch::read);
+	}
+
 	private static final Matcher AreaByteMatcher = Pattern.compile("\\s*(\\w+)\\s*=\\s*AreaByte\\(\\d+\\),?.*").matcher("");
 	private static final Matcher AreaFlagMatcher = Pattern.compile("\\s*(\\w+)\\s*=\\s*AreaFlag\\(\\d+\\),?.*").matcher("");
 	private static final Matcher MapVarMatcher = Pattern.compile("\\s*(\\w+)\\s*=\\s*MapVar\\(\\d+\\),?.*").matcher("");
@@ -817,12 +907,36 @@ public class Map implements XmlSerializable
 	 * Scans through all MapObjects and rebuilds bounding boxes for any marked
 	 * with dirtyAABB. Bounding box changes are propagated up the tree hierarchy.
 	 */
-	public void recalculateBoundingBoxes()
+	/**
+	 * Recalculates any bounding boxes which have been marked dirty since the last call.
+	 * @return number of bounding boxes which were recalculated
+	 */
+	public int recalculateBoundingBoxes()
+	{
+		int numModels = modelTree.recalculateBoundingBoxes();
+		int numColliders = colliderTree.recalculateBoundingBoxes();
+		int numZones = zoneTree.recalculateBoundingBoxes();
+		int numMarkers = markerTree.recalculateBoundingBoxes();
+
+		if (numModels > 0)
+			modelPickTree.invalidate();
+		if (numColliders > 0)
+			colliderPickTree.invalidate();
+		if (numZones > 0)
+			zonePickTree.invalidate();
+
+		return numModels + numColliders + numZones + numMarkers;
+	}
+
+	/**
+	 * Forces every bounding box to be recalculated on the next update.
+	 */
+	public void invalidateBoundingBoxes()
 	{
-		modelTree.recalculateBoundingBoxes();
-		colliderTree.recalculateBoundingBoxes();
-		zoneTree.recalculateBoundingBoxes();
-		markerTree.recalculateBoundingBoxes();
+		modelTree.invalidateBoundingBoxes();
+		colliderTree.invalidateBoundingBoxes();
+		zoneTree.invalidateBoundingBoxes();
+		markerTree.invalidateBoundingBoxes();
 	}
 
 	public static String deriveName(File f)
@@ -867,20 +981,14 @@ public class Map implements XmlSerializable
 
 	private void saveMapAs_impl(File file, boolean generateHeader) throws Exception
 	{
-		FileUtils.touch(file);
-		File tempFile = new File(file.getAbsolutePath() + ".temp");
-
 		long t0 = System.nanoTime();
 
 		markerTree.recalculateIndicies();
 
-		try (XmlWriter xmw = new XmlWriter(tempFile)) {
+		try (XmlWriter xmw = new XmlWriter(file)) {
 			toXML(xmw);
 			xmw.save();
-		} // flushed on auto-close
-
-		FileUtils.copyFile(tempFile, file);
-		FileUtils.deleteQuietly(tempFile);
+		}
 
 		long t1 = System.nanoTime();
 		double sec = (t1 - t0) / 1e9;
@@ -901,22 +1009,34 @@ public class Map implements XmlSerializable
 
 	/**
 	 * Similar to the saveMap family of methods, but does not update map name of modification time fields.
+	 * The map is serialized to memory immediately and written to disk on a background thread.
+	 * @return completes once the backup has been written or has failed
 	 */
-	public void saveBackup(File f)
+	public CompletableFuture<Void> saveBackup(File f)
 	{
 		markerTree.recalculateIndicies();
 
-		try (XmlWriter xmw = new XmlWriter(f)) {
+		ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+		try (XmlWriter xmw = new XmlWriter(snapshot)) {
 			toXML(xmw);
 			xmw.save();
-		} // flushed on auto-close
+		}
 		catch (Exception e) {
 			Logger.printStackTrace(e);
 			Logger.logError("Error during map backup: " + e.getMessage());
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 
-		Logger.log("Saved backup for " + name);
+		return CompletableFuture.runAsync(() -> {
+			try {
+				IOUtils.writeBytesToFileAtomic(snapshot.toByteArray(), f);
+				Logger.log("Saved backup to " + f.getName());
+			}
+			catch (IOException e) {
+				Logger.printStackTrace(e);
+				Logger.logError("Error during map backup: " + e.getMessage());
+			}
+		}, Environment.getExecutor());
 	}
 
 	public String getExpectedTexFilename()
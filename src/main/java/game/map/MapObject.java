@@ -8,6 +8,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.w3c.dom.Element;
 
@@ -27,6 +28,7 @@ import game.map.mesh.Triangle;
 import game.map.mesh.Vertex;
 import game.map.shape.TransformMatrix;
 import game.map.tree.MapObjectNode;
+import game.map.tree.MapObjectTreeModel;
 import util.identity.IdentityHashSet;
 import util.xml.XmlWrapper.XmlReader;
 import util.xml.XmlWrapper.XmlSerializable;
@@ -38,28 +40,29 @@ public abstract class MapObject extends UpdateProvider implements Selectable, Xm
 	private int instanceVersion = latestVersion;
 	private static final int latestVersion = 1;
 
-	private static int nextID = 0;
+	private static final AtomicInteger nextID = new AtomicInteger();
 	public final int uniqueID;
 
 	public MapObject(MapObjectType type)
 	{
-		uniqueID = nextID++;
+		uniqueID = nextID.getAndIncrement();
 	}
 
 	private transient boolean transforming = false;
 
 	/**
 	 * Every map object has an axis aligned bounding box used for picking.
-	 * These are rebuilt when a map is loaded and once per frame if the
-	 * dirtyAABB flag is set.
+	 * These are rebuilt when a map is loaded and at the end of any frame
+	 * where they were marked dirty.
 	 */
 	public transient BoundingBox AABB = new BoundingBox();
 
 	/**
 	 * Many things can cause the bounding box of a mesh to change.
-	 * Rather than meticulously recalculating them every time the mesh changes, simply
-	 * set a dirty flag which tells the editor to recalculate at the end of every frame.
-	 * This is true by default so bounding boxes are rebuilt on map load.
+	 * Rather than meticulously recalculating them every time the mesh changes, call
+	 * {@link #markDirtyAABB()} to have the editor recalculate it and the bounding boxes of
+	 * its ancestors at the end of the frame. This is true by default so bounding boxes are
+	 * rebuilt on map load, and remains set until the bounding box is recalculated.
 	 */
 	public transient boolean dirtyAABB = true;
 
@@ -309,12 +312,27 @@ public abstract class MapObject extends UpdateProvider implements Selectable, Xm
 		//	AABB.max.endTransform();
 	}
 
+	@Override
+	public void markDirtyAABB()
+	{
+		if (dirtyAABB)
+			return;
+
+		dirtyAABB = true;
+
+		MapObjectNode<?> node = getNode();
+		if (node != null)
+			MapObjectTreeModel.markDirty(node);
+	}
+
 	@Override
 	public void recalculateAABB()
 	{
 		AABB.clear();
-		if (hasMesh())
+		if (hasMesh()) {
 			AABB.encompass(getMesh());
+			getMesh().updatePickTree();
+		}
 	}
 
 	@Override
@@ -0,0 +1,121 @@
+package game.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+
+import game.map.editor.selection.PickRay;
+import game.map.editor.selection.PickRay.PickHit;
+import game.map.editor.selection.PickTree;
+import game.map.tree.MapObjectTreeModel;
+
+/**
+ * Picking hierarchy over the bounding boxes of the objects in one map object tree.
+ * Bounds are refit after every bounding box recalculation and the hierarchy is rebuilt
+ * after the tree model reports objects being added, removed, or reordered.
+ */
+public class MapObjectPickTree<T extends MapObject> extends PickTree<T>
+{
+	private final ArrayList<T> objects = new ArrayList<>();
+	private boolean needsRefit = false;
+	private boolean needsRebuild = true;
+
+	private MapObjectTreeModel<T> treeModel = null;
+	private final TreeModelListener structureListener = new TreeModelListener() {
+		@Override
+		public void treeNodesChanged(TreeModelEvent e)
+		{}
+
+		@Override
+		public void treeNodesInserted(TreeModelEvent e)
+		{
+			needsRebuild = true;
+		}
+
+		@Override
+		public void treeNodesRemoved(TreeModelEvent e)
+		{
+			needsRebuild = true;
+		}
+
+		@Override
+		public void treeStructureChanged(TreeModelEvent e)
+		{
+			needsRebuild = true;
+		}
+	};
+
+	@Override
+	protected void getBounds(T obj, float[] out, int pos)
+	{
+		BoundingBox aabb = obj.AABB;
+		if (aabb.isEmpty()) {
+			setEmpty(out, pos);
+			return;
+		}
+
+		out[pos + 0] = aabb.min.getX();
+		out[pos + 1] = aabb.min.getY();
+		out[pos + 2] = aabb.min.getZ();
+		out[pos + 3] = aabb.max.getX();
+		out[pos + 4] = aabb.max.getY();
+		out[pos + 5] = aabb.max.getZ();
+	}
+
+	/**
+	 * Bounding boxes have been recalculated and should be refit before the next pick.
+	 */
+	public void invalidate()
+	{
+		needsRefit = true;
+	}
+
+	/**
+	 * Finds the nearest hit among the objects of a tree, in the same order as iterating the tree.
+	 * @param filter may be null to test every object
+	 * @param test performs the exact intersection test for a single object
+	 */
+	public PickHit pick(MapObjectTreeModel<T> objectTree, PickRay ray, Predicate<? super T> filter, BiFunction<? super T, PickRay, PickHit> test)
+	{
+		validate(objectTree);
+		return pick(ray, filter, test);
+	}
+
+	/**
+	 * Collects objects with bounding boxes overlapping a box, in the same order as iterating the tree.
+	 * @param filter may be null to accept every object
+	 */
+	public void query(MapObjectTreeModel<T> objectTree, BoundingBox box, Predicate<? super T> filter, List<? super T> out)
+	{
+		validate(objectTree);
+		query(box, filter, out);
+	}
+
+	private void validate(MapObjectTreeModel<T> objectTree)
+	{
+		if (treeModel != objectTree) {
+			if (treeModel != null)
+				treeModel.removeTreeModelListener(structureListener);
+			objectTree.addTreeModelListener(structureListener);
+			treeModel = objectTree;
+			needsRebuild = true;
+		}
+
+		if (needsRebuild) {
+			objects.clear();
+			for (T obj : objectTree)
+				objects.add(obj);
+			build(objects);
+			needsRebuild = false;
+			needsRefit = false;
+		}
+		else if (needsRefit) {
+			refit();
+			needsRefit = false;
+		}
+	}
+}
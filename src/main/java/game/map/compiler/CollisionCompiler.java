@@ -3,7 +3,6 @@ package game.map.compiler;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Objects;
@@ -20,8 +19,10 @@ import game.map.hit.Zone;
 import game.map.mesh.Triangle;
 import game.map.mesh.Vertex;
 import game.map.tree.MapObjectNode;
+import util.BinaryWriter;
 import util.Logger;
 import util.Priority;
+import util.Stopwatch;
 
 public class CollisionCompiler
 {
@@ -31,18 +32,18 @@ public class CollisionCompiler
 
 		Logger.log("Compiling map collision to " + build_dec.getPath());
 
-		if (build_dec.exists())
-			build_dec.delete();
+		Stopwatch watch = new Stopwatch();
+		BinaryWriter out = new BinaryWriter();
 
-		RandomAccessFile raf = new RandomAccessFile(build_dec, "rw");
+		int colliderHeaderOffset = compileColliders(out, map);
+		int zoneHeaderOffset = compileZones(out, map);
 
-		int colliderHeaderOffset = compileColliders(raf, map);
-		int zoneHeaderOffset = compileZones(raf, map);
+		out.seek(0);
+		out.writeInt(colliderHeaderOffset);
+		out.writeInt(zoneHeaderOffset);
+		out.writeTo(build_dec);
 
-		raf.seek(0);
-		raf.writeInt(colliderHeaderOffset);
-		raf.writeInt(zoneHeaderOffset);
-		raf.close();
+		Logger.logf("Compiled collision in %.1f ms", watch.ms());
 
 		File headerFile = Directories.PROJ_INCLUDE_MAPFS.file(map.getName() + "_hit.h");
 		try (PrintWriter pw = IOUtils.getBufferedPrintWriter(headerFile)) {
@@ -57,7 +58,7 @@ public class CollisionCompiler
 		}
 	}
 
-	private int compileColliders(RandomAccessFile raf, Map map) throws IOException
+	private int compileColliders(BinaryWriter out, Map map) throws IOException
 	{
 		MapObjectNode<Collider> colliderRoot = map.colliderTree.getRoot();
 		int num = colliderRoot.countDescendents();
@@ -98,19 +99,19 @@ public class CollisionCompiler
 		/* write vertices */
 
 		int colliderVertexOffset = 0x10;
-		raf.seek(colliderVertexOffset);
+		out.seek(colliderVertexOffset);
 
 		for (SimpleVertex v : uniqueVertexList) {
-			raf.writeShort((short) v.x);
-			raf.writeShort((short) v.y);
-			raf.writeShort((short) v.z);
+			out.writeShort((short) v.x);
+			out.writeShort((short) v.y);
+			out.writeShort((short) v.z);
 		}
 
 		// pad to alignment
 		if ((uniqueVertexList.size() % 2) == 1)
-			raf.writeShort(0);
+			out.writeShort(0);
 
-		int endVertOffset = (int) raf.getFilePointer();
+		int endVertOffset = out.getFilePointer();
 		Logger.logf("Wrote %d vertices (%X to %X).", uniqueVertexList.size(), 0x10, endVertOffset);
 
 		/* write triangles */
@@ -121,7 +122,7 @@ public class CollisionCompiler
 			if (!c.hasMesh())
 				continue;
 
-			c.c_TriangleOffset = (int) raf.getFilePointer();
+			c.c_TriangleOffset = out.getFilePointer();
 			for (Triangle t : c.getMesh()) {
 				int index1 = uniqueVertexMap.get(simpleVertexMap.get(t.vert[0])) & 0x3FF;
 				int index2 = uniqueVertexMap.get(simpleVertexMap.get(t.vert[1])) & 0x3FF;
@@ -132,84 +133,84 @@ public class CollisionCompiler
 				triangle = triangle | (index2 << 10);
 				triangle = triangle | (index3 << 20);
 
-				raf.writeInt(triangle);
+				out.writeInt(triangle);
 				triCount++;
 			}
 		}
 
-		int endTriOffset = (int) raf.getFilePointer();
+		int endTriOffset = out.getFilePointer();
 		Logger.logf("Wrote %d triangles (%X to %X).", triCount, endVertOffset, endTriOffset);
 
 		/* write meshes */
 
-		int colliderMeshOffset = (int) raf.getFilePointer();
+		int colliderMeshOffset = out.getFilePointer();
 		short aabbOffset = 0; // not file offset, its the word offset in the aabb table
 		for (Collider c : colliderList) {
-			raf.writeShort(aabbOffset);
-			raf.writeShort(c.c_NextIndex);
-			raf.writeShort(c.c_ChildIndex);
+			out.writeShort(aabbOffset);
+			out.writeShort(c.c_NextIndex);
+			out.writeShort(c.c_ChildIndex);
 
 			if (c.hasMesh()) {
 				int triangleCount = c.mesh.batch.triangles.size();
-				raf.writeShort(triangleCount);
-				raf.writeInt(c.c_TriangleOffset);
+				out.writeShort(triangleCount);
+				out.writeInt(c.c_TriangleOffset);
 			}
 			else {
-				raf.writeShort(0);
-				raf.writeInt(0);
+				out.writeShort(0);
+				out.writeInt(0);
 			}
 
 			aabbOffset += 7;
 		}
 
-		int endColliderOffset = (int) raf.getFilePointer();
+		int endColliderOffset = out.getFilePointer();
 		Logger.logf("Wrote %d colliders (%X to %X).", colliderList.size(), endTriOffset, endColliderOffset);
 
 		/* write bounding boxes */
 
-		int colliderBoundingOffset = (int) raf.getFilePointer();
+		int colliderBoundingOffset = out.getFilePointer();
 		for (Collider c : colliderList) {
 			Vector3f min = c.AABB.getMin();
 			Vector3f max = c.AABB.getMax();
-			raf.writeFloat(min.x);
-			raf.writeFloat(min.y);
-			raf.writeFloat(min.z);
-			raf.writeFloat(max.x);
-			raf.writeFloat(max.y);
-			raf.writeFloat(max.z);
+			out.writeFloat(min.x);
+			out.writeFloat(min.y);
+			out.writeFloat(min.z);
+			out.writeFloat(max.x);
+			out.writeFloat(max.y);
+			out.writeFloat(max.z);
 
 			int flagBits = 0;
 			flagBits |= c.flags.get() & ~0xFF;
 			flagBits |= c.surface.get() & 0xFF;
-			raf.writeInt(flagBits);
+			out.writeInt(flagBits);
 		}
 
-		int endBoxesOffset = (int) raf.getFilePointer();
+		int endBoxesOffset = out.getFilePointer();
 		Logger.logf("Wrote %d bounding boxes (%X to %X).", colliderList.size(), endColliderOffset, endBoxesOffset);
 
 		/* write header */
 
-		int colliderHeaderOffset = (int) raf.getFilePointer();
+		int colliderHeaderOffset = out.getFilePointer();
 
-		raf.writeShort(colliderList.size());
-		raf.writeShort(0);
-		raf.writeInt(colliderMeshOffset);
+		out.writeShort(colliderList.size());
+		out.writeShort(0);
+		out.writeInt(colliderMeshOffset);
 
-		raf.writeShort(uniqueVertexList.size());
-		raf.writeShort(0);
-		raf.writeInt(colliderVertexOffset);
+		out.writeShort(uniqueVertexList.size());
+		out.writeShort(0);
+		out.writeInt(colliderVertexOffset);
 
-		raf.writeShort(colliderList.size() * 7);
-		raf.writeShort(0);
-		raf.writeInt(colliderBoundingOffset);
+		out.writeShort(colliderList.size() * 7);
+		out.writeShort(0);
+		out.writeInt(colliderBoundingOffset);
 
-		while ((raf.length() & 0x0F) != 0)
-			raf.write(0);
+		while ((out.length() & 0x0F) != 0)
+			out.write(0);
 
 		return colliderHeaderOffset;
 	}
 
-	private int compileZones(RandomAccessFile raf, Map map) throws IOException
+	private int compileZones(BinaryWriter out, Map map) throws IOException
 	{
 		MapObjectNode<Zone> zoneRoot = map.zoneTree.getRoot();
 		int num = zoneRoot.countDescendents();
@@ -237,17 +238,17 @@ public class CollisionCompiler
 
 		/* write vertices */
 
-		int areaVertexOffset = (int) raf.getFilePointer();
+		int areaVertexOffset = out.getFilePointer();
 
 		for (Vertex v : vertexList) {
-			raf.writeShort((short) v.getCurrentX());
-			raf.writeShort((short) v.getCurrentY());
-			raf.writeShort((short) v.getCurrentZ());
+			out.writeShort((short) v.getCurrentX());
+			out.writeShort((short) v.getCurrentY());
+			out.writeShort((short) v.getCurrentZ());
 		}
 
 		// pad to alignment
 		if ((vertexList.size() % 2) == 1)
-			raf.writeShort(0);
+			out.writeShort(0);
 
 		/* write triangles */
 
@@ -256,7 +257,7 @@ public class CollisionCompiler
 			if (!z.hasMesh())
 				continue;
 
-			z.c_TriangleOffset = (int) raf.getFilePointer();
+			z.c_TriangleOffset = out.getFilePointer();
 			for (Triangle t : z.getMesh()) {
 				int index1 = vertexMap.get(t.vert[0]) & 0x3FF;
 				int index2 = vertexMap.get(t.vert[1]) & 0x3FF;
@@ -267,70 +268,70 @@ public class CollisionCompiler
 				triangle = triangle | (index2 << 10);
 				triangle = triangle | (index3 << 20);
 
-				raf.writeInt(triangle);
+				out.writeInt(triangle);
 			}
 		}
 
 		/* write meshes */
 
-		int areaMeshOffset = (int) raf.getFilePointer();
+		int areaMeshOffset = out.getFilePointer();
 		int cameraOffset = 0;
 		for (Zone z : zoneList) {
 			if (z.hasCameraData.get()) {
-				raf.writeShort(cameraOffset);
+				out.writeShort(cameraOffset);
 				z.c_CameraOffset = cameraOffset * 4;
 				cameraOffset += 11; // 11 words
 			}
 			else {
-				raf.writeShort(-1);
+				out.writeShort(-1);
 			}
 
-			raf.writeShort(z.c_NextIndex);
-			raf.writeShort(z.c_ChildIndex);
+			out.writeShort(z.c_NextIndex);
+			out.writeShort(z.c_ChildIndex);
 
 			if (z.hasMesh()) {
 				int triangleCount = z.mesh.batch.triangles.size();
-				raf.writeShort(triangleCount);
-				raf.writeInt(z.c_TriangleOffset);
+				out.writeShort(triangleCount);
+				out.writeInt(z.c_TriangleOffset);
 			}
 			else {
-				raf.writeShort(0);
-				raf.writeInt(0);
+				out.writeShort(0);
+				out.writeInt(0);
 			}
 		}
 
 		/* write camera data -- could be out of order or duplicated etc. */
-		int zoneDataOffset = (int) raf.getFilePointer();
+		int zoneDataOffset = out.getFilePointer();
 		int zoneDataSize = 0;
 		for (Zone z : zoneList) {
 			if (z.c_CameraOffset >= 0) {
-				raf.seek(zoneDataOffset + z.c_CameraOffset);
+				out.seek(zoneDataOffset + z.c_CameraOffset);
 				for (int i : z.camData.getData())
-					raf.writeInt(i);
+					out.writeInt(i);
 				zoneDataSize += 0x2C;
 			}
 		}
 
-		raf.seek(zoneDataOffset + zoneDataSize);
+		out.seek(zoneDataOffset + zoneDataSize);
 
 		/* write header */
 
-		int zoneHeaderOffset = (int) raf.getFilePointer();
+		int zoneHeaderOffset = out.getFilePointer();
 
-		raf.writeShort(zoneList.size());
-		raf.writeShort(0);
-		raf.writeInt(areaMeshOffset);
+		out.writeShort(zoneList.size());
+		out.writeShort(0);
+		out.writeInt(areaMeshOffset);
 
-		raf.writeShort(vertexList.size());
-		raf.writeShort(0);
-		raf.writeInt(areaVertexOffset);
+		out.writeShort(vertexList.size());
+		out.writeShort(0);
+		out.writeInt(areaVertexOffset);
 
-		raf.writeShort(zoneDataSize / 4);
-		raf.writeShort(0);
-		raf.writeInt(zoneDataOffset);
+		out.writeShort(zoneDataSize / 4);
+		out.writeShort(0);
+		out.writeInt(zoneDataOffset);
 
-		while ((raf.length() & 0x0F) != 0)
-			raf.write(0);
+		while ((out.length() & 0x0F) != 0)
+			out.write(0);
 
 		return zoneHeaderOffset;
 	}
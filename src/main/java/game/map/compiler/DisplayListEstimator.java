@@ -0,0 +1,147 @@
+package game.map.compiler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import assets.AssetHandle;
+import assets.AssetManager;
+import game.f3dex2.DisplayListCost;
+import game.map.Map;
+import game.map.mesh.Triangle;
+import game.map.mesh.Vertex;
+import game.map.shape.Model;
+import game.map.shape.TriangleBatch;
+import game.map.shape.commands.DisplayCommand;
+import util.Logger;
+import util.Priority;
+
+/**
+ * Estimates the cost of compiled model display lists without building the map.
+ * Each model is compiled on its own with {@link GeometryCompiler#compileMeshDisplayList} and measured
+ * with {@link DisplayListCost}. Results are kept until the mesh changes, so map totals can be
+ * refreshed after every edit while only recompiling the edited models.
+ */
+public class DisplayListEstimator
+{
+	private static class Estimate
+	{
+		private final long signature;
+		private final DisplayListCost cost;
+
+		private Estimate(long signature, DisplayListCost cost)
+		{
+			this.signature = signature;
+			this.cost = cost;
+		}
+	}
+
+	private IdentityHashMap<Model, Estimate> estimates = new IdentityHashMap<>();
+
+	/**
+	 * @return cost of the mesh display list for a model, or null if it has no mesh
+	 */
+	public DisplayListCost getCost(Model mdl)
+	{
+		return getCost(mdl, estimates);
+	}
+
+	private DisplayListCost getCost(Model mdl, IdentityHashMap<Model, Estimate> previous)
+	{
+		if (!mdl.hasMesh())
+			return null;
+
+		long signature = getSignature(mdl);
+		Estimate estimate = previous.get(mdl);
+
+		if (estimate == null || estimate.signature != signature) {
+			byte[] displayList = GeometryCompiler.compileMeshDisplayList(mdl);
+			estimate = new Estimate(signature, DisplayListCost.measure(ByteBuffer.wrap(displayList)));
+		}
+
+		estimates.put(mdl, estimate);
+		return estimate.cost;
+	}
+
+	/**
+	 * @return total cost of the mesh display lists in a map. Forgets models no longer in the map.
+	 */
+	public DisplayListCost getTotalCost(Map map)
+	{
+		IdentityHashMap<Model, Estimate> previous = estimates;
+		estimates = new IdentityHashMap<>();
+
+		DisplayListCost total = new DisplayListCost();
+		for (Model mdl : map.modelTree) {
+			DisplayListCost cost = getCost(mdl, previous);
+			if (cost != null)
+				total.add(cost);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Covers everything the compiled list depends on: the commands, the triangles and the content
+	 * of their vertices, and the options affecting how they are ordered.
+	 */
+	private static long getSignature(Model mdl)
+	{
+		long hash = GeometryCompiler.isOptimizing() ? 1 : 0;
+		hash = 31 * hash + (mdl.renderMode.get().translucent ? 1 : 0);
+
+		for (DisplayCommand cmd : mdl.getMesh().displayListModel) {
+			if (cmd instanceof TriangleBatch batch) {
+				hash = 31 * hash + batch.triangles.size();
+				for (Triangle t : batch.triangles) {
+					for (Vertex v : t.vert)
+						hash = 31 * hash + v.hashCode();
+				}
+			}
+			else {
+				hash = 31 * hash + Arrays.hashCode(cmd.getF3DEX2Command());
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Logs the estimated display list cost of every map in the project, one line per map,
+	 * so the output of successive builds can be compared.
+	 */
+	public static void report() throws IOException
+	{
+		DisplayListEstimator estimator = new DisplayListEstimator();
+		DisplayListCost total = new DisplayListCost();
+		int numMaps = 0;
+
+		Logger.logf("%-12s %8s %8s %8s %8s %8s %10s %10s", "Map", "Tris", "Loads", "Verts", "State", "Bytes", "RSP", "RDP");
+
+		for (AssetHandle ah : AssetManager.getMapSources()) {
+			String mapName = Map.deriveName(ah);
+			try {
+				Map map = Map.loadMap(ah);
+				DisplayListCost cost = estimator.getTotalCost(map);
+				logRow(mapName, cost);
+
+				total.add(cost);
+				numMaps++;
+			}
+			catch (Throwable t) {
+				Logger.log("Failed to estimate " + mapName + ": " + t.getMessage(), Priority.ERROR);
+				Logger.printStackTrace(t);
+			}
+		}
+
+		logRow("Total", total);
+		Logger.logf("Estimated display lists for %d maps.", numMaps);
+	}
+
+	private static void logRow(String name, DisplayListCost cost)
+	{
+		Logger.logf("%-12s %8d %8d %8d %8d %8d %10d %10d", name, cost.triangles, cost.vertexLoads,
+			cost.vertices, cost.stateChanges, cost.bytes, cost.rspCycles, cost.rdpCycles);
+	}
+}
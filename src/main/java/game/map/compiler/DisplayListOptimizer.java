@@ -0,0 +1,137 @@
+package game.map.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import game.map.mesh.TexturedMesh;
+import game.map.mesh.Triangle;
+import game.map.shape.TransformMatrix;
+import game.map.shape.TriangleBatch;
+import game.map.shape.commands.DisplayCommand;
+
+/**
+ * Peephole optimizations for the display lists of compiled map shapes. The commands of a mesh are
+ * reduced to an equivalent sequence: geometry mode changes are combined and dropped when they would
+ * not change anything, repeated pipe syncs with nothing drawn between them are dropped, and triangle
+ * batches which end up next to each other are drawn as one run.
+ * <p>
+ * The geometry mode on entry to a list is unknown, so only bits set or cleared earlier in the same
+ * list are assumed. Commands this class does not understand end all assumptions.
+ */
+class DisplayListOptimizer
+{
+	private static final int OP_GEOMETRYMODE = GeometryCompiler.F3DEX2_GEOMETRYMODE >>> 24;
+	private static final int OP_PIPE_SYNC = GeometryCompiler.RDP_PIPE_SYNC >>> 24;
+
+	// geometry mode flags all fit in the 24 bit clear mask of G_GEOMETRYMODE
+	private static final int MODE_BITS = 0x00FFFFFF;
+
+	/**
+	 * A single command, or a run of triangles drawn without any command between them.
+	 */
+	static class MeshStep
+	{
+		final int[] command;
+		final List<Triangle> triangles;
+
+		private MeshStep(int[] command, List<Triangle> triangles)
+		{
+			this.command = command;
+			this.triangles = triangles;
+		}
+
+		private boolean isGeometryMode()
+		{
+			return command != null && (command[0] >>> 24) == OP_GEOMETRYMODE && (command[1] & ~MODE_BITS) == 0;
+		}
+	}
+
+	static ArrayList<MeshStep> optimize(TexturedMesh mesh)
+	{
+		ArrayList<MeshStep> steps = new ArrayList<>();
+
+		// geometry mode bits whose values are known, and the known state before the last step
+		int knownMask = 0;
+		int knownBits = 0;
+		int priorMask = 0;
+		int priorBits = 0;
+
+		// nothing has been drawn since the last pipe sync
+		boolean synced = false;
+
+		for (int i = 0; i < mesh.displayListModel.size(); i++) {
+			DisplayCommand cmd = mesh.displayListModel.getElementAt(i);
+			MeshStep last = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+
+			if (cmd instanceof TriangleBatch batch) {
+				if (batch.triangles == null || batch.triangles.size() == 0)
+					continue;
+
+				if (last != null && last.triangles != null)
+					last.triangles.addAll(batch.triangles);
+				else
+					steps.add(new MeshStep(null, new ArrayList<>(batch.triangles)));
+
+				synced = false;
+				continue;
+			}
+
+			int[] words = cmd.getF3DEX2Command();
+			MeshStep step = new MeshStep(words, null);
+
+			if ((words[0] >>> 24) == OP_PIPE_SYNC) {
+				if (!synced)
+					steps.add(step);
+				synced = true;
+			}
+			else if (step.isGeometryMode()) {
+				int keep = words[0] & MODE_BITS;
+				int set = words[1];
+
+				// nothing has observed the previous change yet, so the two can be combined
+				if (last != null && last.isGeometryMode()) {
+					set = (last.command[1] & keep) | set;
+					keep = (last.command[0] & MODE_BITS) & keep;
+					steps.remove(steps.size() - 1);
+					knownMask = priorMask;
+					knownBits = priorBits;
+				}
+
+				int affected = (~keep | set) & MODE_BITS;
+				boolean changes = (affected & ~knownMask) != 0 || ((knownBits ^ set) & affected) != 0;
+
+				priorMask = knownMask;
+				priorBits = knownBits;
+				knownMask |= affected;
+				knownBits = (knownBits & ~affected) | (set & affected);
+
+				if (changes)
+					steps.add(new MeshStep(new int[] { (OP_GEOMETRYMODE << 24) | keep, set }, null));
+			}
+			else {
+				// may draw or change the geometry mode, such as a call to another list
+				steps.add(step);
+				synced = false;
+				knownMask = 0;
+				knownBits = 0;
+			}
+		}
+
+		return steps;
+	}
+
+	/**
+	 * @return true if the matrix is exactly the identity after conversion to fixed point
+	 */
+	static boolean isIdentity(TransformMatrix m)
+	{
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				int v = (int) (m.get(i, j) * 65536.0);
+				if (v != ((i == j) ? 0x10000 : 0))
+					return false;
+			}
+		}
+		return true;
+	}
+}
@@ -3,22 +3,26 @@ package game.map.compiler;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.function.Function;
 
 import javax.swing.ListModel;
 
-import org.apache.commons.io.FileUtils;
-
 import app.Directories;
+import app.Environment;
+import app.config.Options;
 import app.input.IOUtils;
 import assets.AssetManager;
 import game.map.BoundingBox;
 import game.map.Map;
+import game.map.compiler.DisplayListOptimizer.MeshStep;
 import game.map.MapObject.ShapeType;
 import game.map.mesh.TexturedMesh;
 import game.map.mesh.Triangle;
@@ -29,8 +33,10 @@ import game.map.shape.TransformMatrix;
 import game.map.shape.TriangleBatch;
 import game.map.shape.commands.DisplayCommand;
 import game.map.tree.MapObjectNode;
+import util.BinaryWriter;
 import util.Logger;
 import util.Priority;
+import util.Stopwatch;
 
 public class GeometryCompiler
 {
@@ -43,6 +49,7 @@ public class GeometryCompiler
 	public static final int F3DEX2_GEOMETRYMODE	= 0xD9000000;
 	public static final int F3DEX2_LOAD_MATRIX	= 0xDA000000;
 	public static final int F3DEX2_START_DL 	= 0xDE000000;
+	public static final int F3DEX2_BRANCH_DL 	= 0xDE010000;
 	public static final int F3DEX2_END_DL 		= 0xDF000000;
 	// @formatter:on
 
@@ -50,7 +57,7 @@ public class GeometryCompiler
 	private static final int MAX_MAP_SIZE = 0x30000;
 	private static final int MAX_STAGE_SIZE = 0x8000;
 
-	private RandomAccessFile raf;
+	private BinaryWriter out;
 
 	private int vertexTableBase;
 	private ArrayList<Vertex> vertexTable;
@@ -61,6 +68,14 @@ public class GeometryCompiler
 
 	private HashMap<String, Integer> textureNameMap;
 
+	// optimized mesh commands and the vertex batches for each triangle run, planned with the vertex table
+	private final boolean optimize;
+	private IdentityHashMap<TexturedMesh, ArrayList<MeshStep>> meshPlans;
+	private IdentityHashMap<List<Triangle>, ArrayList<VertexBatch>> plannedBatches;
+	private HashMap<Vertex, Integer> defaultVertexMap;
+	private int listBytesBefore;
+	private int listBytesAfter;
+
 	/*
 	 * Plan:
 	 * (0) create canonical version of all model and vertex data
@@ -78,44 +93,62 @@ public class GeometryCompiler
 
 		Logger.log("Compiling map geometry to " + build_dec.getPath());
 
-		if (build_dec.exists())
-			build_dec.delete();
+		optimize = isOptimizing();
+
+		Stopwatch totalWatch = new Stopwatch();
+		Stopwatch phaseWatch = new Stopwatch();
 
 		MapObjectNode<Model> rootNode = map.modelTree.getRoot();
 		finalizeBoundingBoxes(rootNode);
 
-		raf = new RandomAccessFile(build_dec, "rw");
-		raf.seek(0x20);
+		out = new BinaryWriter();
+		out.seek(0x20);
 
 		// texture list
 		textureNameMap = new HashMap<>();
 		for (Model mdl : map.modelTree) {
 			TexturedMesh m = mdl.getMesh();
 			if (!textureNameMap.containsKey(m.textureName) && !m.textureName.isEmpty()) {
-				textureNameMap.put(m.textureName, (int) raf.getFilePointer());
+				textureNameMap.put(m.textureName, out.getFilePointer());
 
-				raf.write(m.textureName.getBytes());
-				raf.write((byte) 0);
-				raf.seek(((int) raf.getFilePointer() + 3) & 0xFFFFFFFC);
+				out.write(m.textureName.getBytes());
+				out.write((byte) 0);
+				out.seek((out.getFilePointer() + 3) & 0xFFFFFFFC);
 			}
 		}
-		raf.seek(((int) raf.getFilePointer() + 0xF) & 0xFFFFFFF0);
+		out.seek((out.getFilePointer() + 0xF) & 0xFFFFFFF0);
 
 		// create vertex table
+		phaseWatch.reset();
 		vertexTable = new ArrayList<>();
 		vertexMap = new HashMap<>();
 		buildVertexTable(rootNode);
 
+		if (optimize) {
+			defaultVertexMap = vertexMap;
+			vertexTable = new ArrayList<>();
+			vertexMap = new HashMap<>();
+			meshPlans = new IdentityHashMap<>();
+			plannedBatches = new IdentityHashMap<>();
+			buildOptimizedVertexTable(rootNode);
+
+			int[] before = countTriangleCommands(rootNode, defaultVertexMap, false);
+			int[] after = countTriangleCommands(rootNode, vertexMap, true);
+			Logger.logf("Optimized triangle order: %d -> %d vertex loads, %d -> %d draw commands (%d -> %d bytes)",
+				before[0], after[0], before[1], after[1], 8 * (before[0] + before[1]), 8 * (after[0] + after[1]));
+		}
+
 		// write vertex table
-		vertexTableBase = (int) raf.getFilePointer();
+		vertexTableBase = out.getFilePointer();
 		for (Vertex v : vertexTable)
-			raf.write(v.getCompiledRepresentation());
-		raf.seek(((int) raf.getFilePointer() + 0xF) & 0xFFFFFFF0);
+			out.write(v.getCompiledRepresentation());
+		out.seek((out.getFilePointer() + 0xF) & 0xFFFFFFF0);
+		double vertexTableTime = phaseWatch.ms();
 
 		// write light sets
 		for (LightSet lightSet : map.lightSets) {
-			lightSet.c_address = RAM_BASE + (int) raf.getFilePointer();
-			lightSet.write(raf);
+			lightSet.c_address = RAM_BASE + out.getFilePointer();
+			lightSet.write(out);
 		}
 
 		// create matrix list
@@ -125,45 +158,54 @@ public class GeometryCompiler
 		// write matrix list
 		matrixMap = new HashMap<>();
 		for (TransformMatrix m : matrixTable) {
-			matrixMap.put(m, (int) raf.getFilePointer());
-			m.writeRDP(raf);
+			matrixMap.put(m, out.getFilePointer());
+			m.writeRDP(out);
 		}
 
 		// display list
+		phaseWatch.reset();
 		writeDisplayList(rootNode);
-		raf.seek(((int) raf.getFilePointer() + 0xF) & 0xFFFFFFF0);
+		out.seek((out.getFilePointer() + 0xF) & 0xFFFFFFF0);
+		double displayListTime = phaseWatch.ms();
+
+		if (optimize)
+			Logger.logf("Optimized display lists: %d -> %d bytes", listBytesBefore, listBytesAfter);
 
 		// model tree
+		phaseWatch.reset();
 		int modelTreeRoot = writeModelTree(rootNode, map.lightSets);
+		double modelTreeTime = phaseWatch.ms();
 
 		// header
-		raf.seek(0);
-		raf.writeInt(RAM_BASE + modelTreeRoot);
-		raf.writeInt(RAM_BASE + vertexTableBase);
+		out.seek(0);
+		out.writeInt(RAM_BASE + modelTreeRoot);
+		out.writeInt(RAM_BASE + vertexTableBase);
 
 		// padding
-		raf.seek(raf.length());
-		int nextAlignedOffset = ((int) raf.length() + 0xF) & 0xFFFFFFF0;
-		for (int i = 0; i < nextAlignedOffset - raf.length(); i += 4)
-			raf.writeInt(0);
+		out.seek(out.length());
+		int nextAlignedOffset = (out.length() + 0xF) & 0xFFFFFFF0;
+		for (int i = 0; i < nextAlignedOffset - out.length(); i += 4)
+			out.writeInt(0);
 
-		raf.close();
-
-		byte[] complete = FileUtils.readFileToByteArray(build_dec);
-
-		// check size
+		// check size before writing, so a failed build leaves the previous binary in place
 		boolean battleMap = map.getName().contains("_bt");
 		int limit = battleMap ? MAX_STAGE_SIZE : MAX_MAP_SIZE;
+		int size = out.length();
 
-		if (complete.length > limit) {
+		if (size > limit) {
 			String mapType = battleMap ? "battle map" : "map";
 			String breakdown = String.format("0x%X of 0x%X bytes (%4.2f%%)",
-				complete.length, limit, 100.0 * complete.length / limit);
+				size, limit, 100.0 * size / limit);
 			Logger.log("Build failed: " + mapType + " size exceeds engine limit " + breakdown, Priority.ERROR);
 
 			throw new BuildException("Build failed: " + mapType + " size exceeds engine limit.\n" + breakdown);
 		}
 
+		out.writeTo(build_dec);
+
+		Logger.logf("Compiled geometry in %.1f ms (vertex table %.1f ms, display lists %.1f ms, model tree %.1f ms)",
+			totalWatch.ms(), vertexTableTime, displayListTime, modelTreeTime);
+
 		File headerFile = Directories.PROJ_INCLUDE_MAPFS.file(map.getName() + "_shape.h");
 		try (PrintWriter pw = IOUtils.getBufferedPrintWriter(headerFile)) {
 			for (Model mdl : map.modelTree.getList()) {
@@ -173,6 +215,46 @@ public class GeometryCompiler
 		}
 	}
 
+	/**
+	 * Compiles the display list of a single mesh, as it would be written for a map containing only
+	 * this model. Vertices shared with other models are not merged, so vertex loads may differ slightly
+	 * from a full build. Vertex addresses are relative to an empty vertex table.
+	 * @return display list of the mesh, ending with G_ENDDL
+	 */
+	public static byte[] compileMeshDisplayList(Model mdl)
+	{
+		GeometryCompiler compiler = new GeometryCompiler(mdl);
+		return compiler.out.toByteArray();
+	}
+
+	private GeometryCompiler(Model mdl)
+	{
+		optimize = isOptimizing();
+		out = new BinaryWriter();
+
+		vertexTable = new ArrayList<>();
+		vertexMap = new HashMap<>();
+
+		if (optimize) {
+			meshPlans = new IdentityHashMap<>();
+			plannedBatches = new IdentityHashMap<>();
+			planMesh(mdl);
+		}
+		else {
+			for (Triangle t : mdl.getMesh())
+				for (Vertex v : t.vert)
+					addVertexToTable(v);
+		}
+
+		try {
+			writeMeshDisplayList(mdl.getMesh());
+		}
+		catch (IOException e) {
+			// only written to memory
+			throw new IllegalStateException(e);
+		}
+	}
+
 	private void finalizeBoundingBoxes(MapObjectNode<Model> node)
 	{
 		// depth first, ensure child bounding boxes are correct
@@ -240,6 +322,188 @@ public class GeometryCompiler
 		}
 	}
 
+	public static boolean isOptimizing()
+	{
+		return Environment.projectConfig != null && Environment.projectConfig.getBoolean(Options.OptimizeGeometry);
+	}
+
+	/**
+	 * Optimizes the commands of every mesh, then plans the vertex batches for each triangle run and
+	 * lays out the vertex table to match. Each run uses whichever of the original and the reordered
+	 * triangle order needs fewer commands. Visits models in the same order as {@link #writeDisplayList}.
+	 */
+	private void buildOptimizedVertexTable(MapObjectNode<Model> node)
+	{
+		Model mdl = node.getUserObject();
+
+		for (int i = 0; i < node.getChildCount(); i++)
+			buildOptimizedVertexTable(node.getChildAt(i));
+
+		if (mdl.hasMesh())
+			planMesh(mdl);
+	}
+
+	private void planMesh(Model mdl)
+	{
+		// blending depends on draw order, so translucent models keep theirs
+		boolean keepOrder = mdl.renderMode.get().translucent;
+
+		TexturedMesh mesh = mdl.getMesh();
+		ArrayList<MeshStep> plan = DisplayListOptimizer.optimize(mesh);
+		meshPlans.put(mesh, plan);
+
+		for (MeshStep step : plan) {
+			if (step.triangles == null)
+				continue;
+
+			ArrayList<VertexBatch> batchList = getTriangleBatches(step.triangles);
+			LinkedHashMap<Vertex, Integer> layout = layoutBatchVertices(batchList);
+
+			if (!keepOrder) {
+				ArrayList<VertexBatch> reordered = getOptimizedTriangleBatches(step.triangles);
+				LinkedHashMap<Vertex, Integer> reorderedLayout = layoutBatchVertices(reordered);
+
+				if (countCommands(reordered, reorderedLayout) < countCommands(batchList, layout)) {
+					batchList = reordered;
+					layout = reorderedLayout;
+				}
+			}
+
+			plannedBatches.put(step.triangles, batchList);
+			for (Vertex v : layout.keySet())
+				addVertexToTable(v);
+		}
+	}
+
+	/**
+	 * Assigns vertex table indices, following the end of the current table, to vertices which are
+	 * used for the first time by a list of batches. Each batch gets a contiguous run of new vertices.
+	 * Those shared with the following batch go at the end of the run, so it can load them in the
+	 * same range as its own new vertices.
+	 * @return new indices in ascending order
+	 */
+	private LinkedHashMap<Vertex, Integer> layoutBatchVertices(List<VertexBatch> batchList)
+	{
+		LinkedHashMap<Vertex, Integer> layout = new LinkedHashMap<>();
+		int nextIndex = vertexTable.size();
+
+		for (int i = 0; i < batchList.size(); i++) {
+			VertexBatch batch = batchList.get(i);
+			HashSet<Vertex> nextVertices = (i + 1 < batchList.size()) ? batchList.get(i + 1).vertexSet : new HashSet<>();
+			ArrayList<Vertex> shared = new ArrayList<>();
+
+			for (Triangle t : batch.triangleList) {
+				for (Vertex v : t.vert) {
+					if (vertexMap.containsKey(v) || layout.containsKey(v) || shared.contains(v))
+						continue;
+
+					if (nextVertices.contains(v))
+						shared.add(v);
+					else
+						layout.put(v, nextIndex++);
+				}
+			}
+
+			for (Vertex v : shared)
+				layout.put(v, nextIndex++);
+		}
+
+		return layout;
+	}
+
+	/**
+	 * @return number of load and draw commands for a list of batches, given a planned layout
+	 */
+	private int countCommands(List<VertexBatch> batchList, HashMap<Vertex, Integer> layout)
+	{
+		int count = 0;
+		for (VertexBatch batch : batchList) {
+			count += getIndexRanges(batch, (v) -> layout.getOrDefault(v, vertexMap.get(v))).size();
+			count += (batch.triangleList.size() + 1) / 2;
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of vertex load and triangle draw commands needed for every mesh in the tree
+	 */
+	private int[] countTriangleCommands(MapObjectNode<Model> node, HashMap<Vertex, Integer> indexMap, boolean planned)
+	{
+		int[] counts = new int[2];
+
+		for (int i = 0; i < node.getChildCount(); i++) {
+			int[] childCounts = countTriangleCommands(node.getChildAt(i), indexMap, planned);
+			counts[0] += childCounts[0];
+			counts[1] += childCounts[1];
+		}
+
+		Model mdl = node.getUserObject();
+		if (mdl.hasMesh()) {
+			int[] meshCounts = countMeshCommands(mdl.getMesh(), indexMap, planned);
+			counts[0] += meshCounts[0];
+			counts[1] += meshCounts[1];
+		}
+
+		return counts;
+	}
+
+	/**
+	 * @return number of vertex load and triangle draw commands needed for a single mesh
+	 */
+	private int[] countMeshCommands(TexturedMesh mesh, HashMap<Vertex, Integer> indexMap, boolean planned)
+	{
+		int[] counts = new int[2];
+
+		ArrayList<ArrayList<VertexBatch>> runs = new ArrayList<>();
+		if (planned) {
+			for (MeshStep step : meshPlans.get(mesh)) {
+				if (step.triangles != null)
+					runs.add(plannedBatches.get(step.triangles));
+			}
+		}
+		else {
+			for (int i = 0; i < mesh.displayListModel.size(); i++) {
+				if (mesh.displayListModel.getElementAt(i) instanceof TriangleBatch batch
+					&& batch.triangles != null && batch.triangles.size() > 0)
+					runs.add(getTriangleBatches(batch.triangles));
+			}
+		}
+
+		for (ArrayList<VertexBatch> batchList : runs) {
+			for (VertexBatch vb : batchList) {
+				counts[0] += getIndexRanges(vb, indexMap::get).size();
+				counts[1] += (vb.triangleList.size() + 1) / 2;
+			}
+		}
+
+		return counts;
+	}
+
+	/**
+	 * @return size of the display list for a model without optimization
+	 */
+	private int getDefaultListSize(MapObjectNode<Model> node)
+	{
+		Model mdl = node.getUserObject();
+		int numCommands = node.getChildCount() + 1;
+
+		if (mdl.hasTransformMatrix.get())
+			numCommands += 2;
+
+		if (mdl.hasMesh()) {
+			TexturedMesh mesh = mdl.getMesh();
+			int[] counts = countMeshCommands(mesh, defaultVertexMap, false);
+			numCommands += counts[0] + counts[1] + 1;
+
+			for (int i = 0; i < mesh.displayListModel.size(); i++) {
+				if (!(mesh.displayListModel.getElementAt(i) instanceof TriangleBatch))
+					numCommands++;
+			}
+		}
+
+		return 8 * numCommands;
+	}
+
 	/**
 	 * Recursively writes the display list to the .shape file. Pass the
 	 * root as a parameter to write the whole tree.
@@ -253,38 +517,100 @@ public class GeometryCompiler
 			writeDisplayList(child);
 		}
 
+		if (optimize) {
+			writeOptimizedDisplayList(node);
+			return;
+		}
+
 		Model mdl = node.getUserObject();
-		mdl.c_DisplayListOffset = (int) raf.getFilePointer(); //XXX changed!
+		mdl.c_DisplayListOffset = out.getFilePointer(); //XXX changed!
 
 		// F3DEX2_LOAD_MATRIX
 		if (mdl.hasTransformMatrix.get()) {
-			raf.writeInt(0xDA380000);
-			raf.writeInt(RAM_BASE + matrixMap.get(mdl.localTransformMatrix));
+			out.writeInt(0xDA380000);
+			out.writeInt(RAM_BASE + matrixMap.get(mdl.localTransformMatrix));
 		}
 
 		// write DL for this group
 		for (int i = 0; i < node.getChildCount(); i++) {
 			MapObjectNode<Model> child = node.getChildAt(i);
 
-			raf.writeInt(F3DEX2_START_DL);
-			raf.writeInt(RAM_BASE + child.getUserObject().c_DisplayListOffset);
+			out.writeInt(F3DEX2_START_DL);
+			out.writeInt(RAM_BASE + child.getUserObject().c_DisplayListOffset);
 		}
 
 		if (mdl.hasMesh()) {
 			//	System.out.println(mdl + " " + mdl.mesh.batchList.size());
 
-			//	mdl.c_DisplayListOffset = (int)raf.getFilePointer();
+			//	mdl.c_DisplayListOffset = (int)out.getFilePointer();
 			writeMeshDisplayList(mdl.getMesh());
 		}
 
 		// F3DEX2_POP_MATRIX
 		if (mdl.hasTransformMatrix.get()) {
-			raf.writeInt(0xD8380002);
-			raf.writeInt(0x00000040);
+			out.writeInt(0xD8380002);
+			out.writeInt(0x00000040);
 		}
 
-		raf.writeInt(F3DEX2_END_DL);
-		raf.writeInt(0);
+		out.writeInt(F3DEX2_END_DL);
+		out.writeInt(0);
+	}
+
+	/**
+	 * Writes the same list as {@link #writeDisplayList} with structural optimizations:
+	 * identity matrices are not loaded, the last call of a group becomes a branch, a group which
+	 * would only call one other list is replaced by it, and nothing is written after the end of a mesh.
+	 * The children of the node must already be written.
+	 */
+	private void writeOptimizedDisplayList(MapObjectNode<Model> node) throws IOException
+	{
+		Model mdl = node.getUserObject();
+		int start = out.getFilePointer();
+		int numChildren = node.getChildCount();
+
+		// multiplying by an identity matrix and popping it again has no effect
+		boolean loadMatrix = mdl.hasTransformMatrix.get() && !DisplayListOptimizer.isIdentity(mdl.localTransformMatrix);
+		boolean tailCall = !loadMatrix && !mdl.hasMesh() && numChildren > 0;
+
+		if (tailCall && numChildren == 1) {
+			mdl.c_DisplayListOffset = node.getChildAt(0).getUserObject().c_DisplayListOffset;
+		}
+		else {
+			mdl.c_DisplayListOffset = start;
+
+			if (loadMatrix) {
+				out.writeInt(0xDA380000);
+				out.writeInt(RAM_BASE + matrixMap.get(mdl.localTransformMatrix));
+			}
+
+			for (int i = 0; i < numChildren; i++) {
+				boolean last = (i == numChildren - 1);
+				out.writeInt((tailCall && last) ? F3DEX2_BRANCH_DL : F3DEX2_START_DL);
+				out.writeInt(RAM_BASE + node.getChildAt(i).getUserObject().c_DisplayListOffset);
+			}
+
+			// the mesh list ends the display list, so the original matrix pop was never reached
+			if (mdl.hasMesh()) {
+				writeMeshDisplayList(mdl.getMesh());
+			}
+			else if (!tailCall) {
+				if (loadMatrix) {
+					out.writeInt(0xD8380002);
+					out.writeInt(0x00000040);
+				}
+
+				out.writeInt(F3DEX2_END_DL);
+				out.writeInt(0);
+			}
+		}
+
+		int before = getDefaultListSize(node);
+		int after = out.getFilePointer() - start;
+		listBytesBefore += before;
+		listBytesAfter += after;
+
+		if (after != before)
+			Logger.logf("  %-24s %5d -> %5d bytes", mdl.getName(), before, after);
 	}
 
 	/**
@@ -297,6 +623,22 @@ public class GeometryCompiler
 	 */
 	private void writeMeshDisplayList(TexturedMesh mesh) throws IOException
 	{
+		if (optimize) {
+			for (MeshStep step : meshPlans.get(mesh)) {
+				if (step.triangles != null) {
+					writeTriangleBatches(plannedBatches.get(step.triangles));
+				}
+				else {
+					out.writeInt(step.command[0]);
+					out.writeInt(step.command[1]);
+				}
+			}
+
+			out.writeInt(F3DEX2_END_DL);
+			out.writeInt(0);
+			return;
+		}
+
 		for (int i = 0; i < mesh.displayListModel.size(); i++) {
 			DisplayCommand cmd = mesh.displayListModel.getElementAt(i);
 			if (cmd instanceof TriangleBatch batch) {
@@ -304,14 +646,14 @@ public class GeometryCompiler
 			}
 			else {
 				int[] v = cmd.getF3DEX2Command();
-				raf.writeInt(v[0]);
-				raf.writeInt(v[1]);
+				out.writeInt(v[0]);
+				out.writeInt(v[1]);
 			}
 
 		}
 
-		raf.writeInt(F3DEX2_END_DL);
-		raf.writeInt(0);
+		out.writeInt(F3DEX2_END_DL);
+		out.writeInt(0);
 	}
 
 	/**
@@ -328,7 +670,14 @@ public class GeometryCompiler
 		if (triangleList == null || triangleList.size() == 0)
 			return;
 
-		ArrayList<VertexBatch> batchList = getTriangleBatches(triangleList);
+		writeTriangleBatches(getTriangleBatches(triangleList));
+	}
+
+	private void writeTriangleBatches(List<VertexBatch> batchList) throws IOException
+	{
+		if (batchList == null)
+			return;
+
 		for (VertexBatch batch : batchList)
 			writeTriangleBatch(batch);
 	}
@@ -357,11 +706,86 @@ public class GeometryCompiler
 		return batchList;
 	}
 
-	private void writeTriangleBatch(VertexBatch batch) throws IOException
+	/**
+	 * Groups triangles into batches like {@link #getTriangleBatches}, but chooses their order greedily.
+	 * Each batch grows by the triangle adding the fewest vertices not yet in the buffer, preferring
+	 * triangles which share a vertex with it. This is the F3DEX2 analogue of cache-aware ordering:
+	 * the vertex buffer is refilled for every batch, so the goal is fewer, fuller batches.
+	 */
+	private static ArrayList<VertexBatch> getOptimizedTriangleBatches(List<Triangle> triangleList)
+	{
+		int numTriangles = triangleList.size();
+
+		HashMap<Vertex, ArrayList<Integer>> adjacency = new HashMap<>();
+		for (int i = 0; i < numTriangles; i++) {
+			for (Vertex v : triangleList.get(i).vert)
+				adjacency.computeIfAbsent(v, (k) -> new ArrayList<>(8)).add(i);
+		}
+
+		ArrayList<VertexBatch> batchList = new ArrayList<>();
+		LinkedHashSet<Integer> candidates = new LinkedHashSet<>();
+		boolean[] used = new boolean[numTriangles];
+		int nextUnused = 0;
+		int remaining = numTriangles;
+		VertexBatch batch = null;
+
+		while (remaining > 0) {
+			if (batch == null) {
+				batch = new VertexBatch();
+				batchList.add(batch);
+				candidates.clear();
+			}
+
+			int best = -1;
+			int bestNew = Integer.MAX_VALUE;
+			for (int i : candidates) {
+				int numNew = batch.countNewVertices(triangleList.get(i));
+				if (numNew < bestNew) {
+					best = i;
+					bestNew = numNew;
+					if (numNew == 0)
+						break;
+				}
+			}
+
+			// no neighbor fits, start a new strip with the next triangle in the original order
+			if (best < 0 || batch.vertexSet.size() + bestNew > VertexBatch.VERTEX_BUFFER_SIZE) {
+				while (used[nextUnused])
+					nextUnused++;
+
+				best = nextUnused;
+				bestNew = batch.countNewVertices(triangleList.get(best));
+				if (batch.vertexSet.size() + bestNew > VertexBatch.VERTEX_BUFFER_SIZE) {
+					batch = null;
+					continue;
+				}
+			}
+
+			Triangle t = triangleList.get(best);
+			batch.addTriangle(t);
+			used[best] = true;
+			candidates.remove(best);
+			remaining--;
+
+			for (Vertex v : t.vert) {
+				for (int i : adjacency.get(v)) {
+					if (!used[i])
+						candidates.add(i);
+				}
+			}
+		}
+
+		return batchList;
+	}
+
+	/**
+	 * @return contiguous ranges of vertex table indices used by a batch, in ascending order
+	 */
+	private static ArrayList<IntegerRange> getIndexRanges(VertexBatch batch, Function<Vertex, Integer> getIndex)
 	{
 		ArrayList<Integer> indexList = new ArrayList<>();
 		for (Vertex v : batch.vertexSet)
-			indexList.add(vertexMap.get(v));
+			indexList.add(getIndex.apply(v));
 
 		Collections.sort(indexList);
 
@@ -382,6 +806,13 @@ public class GeometryCompiler
 			}
 		}
 
+		return indexGroups;
+	}
+
+	private void writeTriangleBatch(VertexBatch batch) throws IOException
+	{
+		ArrayList<IntegerRange> indexGroups = getIndexRanges(batch, vertexMap::get);
+
 		ArrayList<Vertex> vertexBuffer = new ArrayList<>();
 		HashMap<Vertex, Integer> vertexBufferMap = new HashMap<>();
 
@@ -396,8 +827,8 @@ public class GeometryCompiler
 			int cmd = F3DEX2_LOAD_VTX;
 			cmd |= range.length() << 12;
 			cmd |= 2 * vertexBuffer.size();
-			raf.writeInt(cmd);
-			raf.writeInt(RAM_BASE + vertexTableBase + range.start * 0x10);
+			out.writeInt(cmd);
+			out.writeInt(RAM_BASE + vertexTableBase + range.start * 0x10);
 		}
 
 		// write draw triangle commands
@@ -411,8 +842,8 @@ public class GeometryCompiler
 				code |= (2 * vertexBufferMap.get(t.vert[0])) << 16;
 				code |= (2 * vertexBufferMap.get(t.vert[1])) << 8;
 				code |= (2 * vertexBufferMap.get(t.vert[2]));
-				raf.writeInt(code);
-				raf.writeInt(0);
+				out.writeInt(code);
+				out.writeInt(0);
 				draws++;
 
 				// draw two triangles
@@ -423,7 +854,7 @@ public class GeometryCompiler
 				code |= (2 * vertexBufferMap.get(t.vert[0])) << 16;
 				code |= (2 * vertexBufferMap.get(t.vert[1])) << 8;
 				code |= (2 * vertexBufferMap.get(t.vert[2]));
-				raf.writeInt(code);
+				out.writeInt(code);
 				draws++;
 
 				t = batch.triangleList.get(draws);
@@ -431,7 +862,7 @@ public class GeometryCompiler
 				code |= (2 * vertexBufferMap.get(t.vert[0])) << 16;
 				code |= (2 * vertexBufferMap.get(t.vert[1])) << 8;
 				code |= (2 * vertexBufferMap.get(t.vert[2]));
-				raf.writeInt(code);
+				out.writeInt(code);
 				draws++;
 			}
 		}
@@ -498,6 +929,24 @@ public class GeometryCompiler
 			}
 		}
 
+		public int countNewVertices(Triangle t)
+		{
+			Vertex[] vs = t.vert;
+			int count = 0;
+			for (int i = 0; i < vs.length; i++) {
+				if (vertexSet.contains(vs[i]))
+					continue;
+
+				// degenerate triangles may repeat a vertex
+				boolean repeated = false;
+				for (int j = 0; j < i; j++)
+					repeated |= vs[j].equals(vs[i]);
+				if (!repeated)
+					count++;
+			}
+			return count;
+		}
+
 		private void addVertex(ArrayList<Vertex> added, Vertex v)
 		{
 			if (!vertexSet.contains(v)) {
@@ -521,17 +970,17 @@ public class GeometryCompiler
 		int nodePosition = -1;
 
 		if (mdl.modelType.get() == ShapeType.MODEL) {
-			int propertiesAddress = (int) raf.getFilePointer();
+			int propertiesAddress = out.getFilePointer();
 			int numProperties = writeModelProperties(mdl);
 
-			raf.writeInt(RAM_BASE + mdl.c_DisplayListOffset);
-			raf.writeInt(0);
-			nodePosition = (int) raf.getFilePointer();
-			raf.writeInt(2); // type 2 = model
-			raf.writeInt(RAM_BASE + (int) raf.getFilePointer() - 0xC);
-			raf.writeInt(numProperties);
-			raf.writeInt(RAM_BASE + propertiesAddress);
-			raf.writeInt(0);
+			out.writeInt(RAM_BASE + mdl.c_DisplayListOffset);
+			out.writeInt(0);
+			nodePosition = out.getFilePointer();
+			out.writeInt(2); // type 2 = model
+			out.writeInt(RAM_BASE + out.getFilePointer() - 0xC);
+			out.writeInt(numProperties);
+			out.writeInt(RAM_BASE + propertiesAddress);
+			out.writeInt(0);
 		}
 		else {
 			ArrayList<Integer> childOffsets = new ArrayList<>();
@@ -542,34 +991,34 @@ public class GeometryCompiler
 				childOffsets.add(writeModelTree(child, lightSets));
 			}
 
-			int propertiesOffset = (int) raf.getFilePointer();
+			int propertiesOffset = out.getFilePointer();
 			int numProperties = writeGroupProperties(mdl);
 
-			int childListOffset = (int) raf.getFilePointer();
+			int childListOffset = out.getFilePointer();
 			for (Integer i : childOffsets)
-				raf.writeInt(RAM_BASE + i);
+				out.writeInt(RAM_BASE + i);
 
 			if (mdl.hasTransformMatrix.get())
-				raf.writeInt(RAM_BASE + matrixMap.get(mdl.localTransformMatrix));
+				out.writeInt(RAM_BASE + matrixMap.get(mdl.localTransformMatrix));
 			else
-				raf.writeInt(0);
+				out.writeInt(0);
 
-			raf.writeInt(mdl.lights.get().c_address);
-			raf.writeInt(mdl.lights.get().getLightCount());
+			out.writeInt(mdl.lights.get().c_address);
+			out.writeInt(mdl.lights.get().getLightCount());
 
-			raf.writeInt(childOffsets.size());
-			raf.writeInt(RAM_BASE + childListOffset);
+			out.writeInt(childOffsets.size());
+			out.writeInt(RAM_BASE + childListOffset);
 
-			raf.writeInt(RAM_BASE + mdl.c_DisplayListOffset);
-			raf.writeInt(0);
+			out.writeInt(RAM_BASE + mdl.c_DisplayListOffset);
+			out.writeInt(0);
 
-			nodePosition = (int) raf.getFilePointer();
-			raf.writeInt(Model.getIDFromType(mdl.modelType.get()));
-			raf.writeInt(RAM_BASE + (int) raf.getFilePointer() - 0xC);
+			nodePosition = out.getFilePointer();
+			out.writeInt(Model.getIDFromType(mdl.modelType.get()));
+			out.writeInt(RAM_BASE + out.getFilePointer() - 0xC);
 
-			raf.writeInt(numProperties);
-			raf.writeInt(RAM_BASE + propertiesOffset);
-			raf.writeInt(RAM_BASE + (int) raf.getFilePointer() - 0x2C);
+			out.writeInt(numProperties);
+			out.writeInt(RAM_BASE + propertiesOffset);
+			out.writeInt(RAM_BASE + out.getFilePointer() - 0x2C);
 		}
 
 		Logger.log(String.format("Wrote %s to %08X", mdl.toString(), nodePosition), Priority.DETAIL);
@@ -582,9 +1031,9 @@ public class GeometryCompiler
 
 		int[][] properties = mdl.getProperties();
 		for (int[] element : properties) {
-			raf.writeInt(element[0]);
-			raf.writeInt(element[1]);
-			raf.writeInt(element[2]);
+			out.writeInt(element[0]);
+			out.writeInt(element[1]);
+			out.writeInt(element[2]);
 		}
 
 		return 6 + properties.length;
@@ -595,18 +1044,18 @@ public class GeometryCompiler
 		writeBoundingBox(mdl.localAABB);
 
 		// write texture pointer
-		raf.writeInt(0x5E);
-		raf.writeInt(2);
+		out.writeInt(0x5E);
+		out.writeInt(2);
 		if (mdl.getMesh().textureName.isEmpty())
-			raf.writeInt(0);
+			out.writeInt(0);
 		else
-			raf.writeInt(RAM_BASE + textureNameMap.get(mdl.getMesh().textureName));
+			out.writeInt(RAM_BASE + textureNameMap.get(mdl.getMesh().textureName));
 
 		int[][] properties = mdl.getProperties();
 		for (int[] element : properties) {
-			raf.writeInt(element[0]);
-			raf.writeInt(element[1]);
-			raf.writeInt(element[2]);
+			out.writeInt(element[0]);
+			out.writeInt(element[1]);
+			out.writeInt(element[2]);
 		}
 
 		return 7 + properties.length;
@@ -614,24 +1063,24 @@ public class GeometryCompiler
 
 	private void writeBoundingBox(BoundingBox AABB) throws IOException
 	{
-		raf.writeInt(0x61);
-		raf.writeInt(1);
-		raf.writeFloat(AABB.min.getX());
-		raf.writeInt(0x61);
-		raf.writeInt(1);
-		raf.writeFloat(AABB.min.getY());
-		raf.writeInt(0x61);
-		raf.writeInt(1);
-		raf.writeFloat(AABB.min.getZ());
-
-		raf.writeInt(0x61);
-		raf.writeInt(1);
-		raf.writeFloat(AABB.max.getX());
-		raf.writeInt(0x61);
-		raf.writeInt(1);
-		raf.writeFloat(AABB.max.getY());
-		raf.writeInt(0x61);
-		raf.writeInt(1);
-		raf.writeFloat(AABB.max.getZ());
+		out.writeInt(0x61);
+		out.writeInt(1);
+		out.writeFloat(AABB.min.getX());
+		out.writeInt(0x61);
+		out.writeInt(1);
+		out.writeFloat(AABB.min.getY());
+		out.writeInt(0x61);
+		out.writeInt(1);
+		out.writeFloat(AABB.min.getZ());
+
+		out.writeInt(0x61);
+		out.writeInt(1);
+		out.writeFloat(AABB.max.getX());
+		out.writeInt(0x61);
+		out.writeInt(1);
+		out.writeFloat(AABB.max.getY());
+		out.writeInt(0x61);
+		out.writeInt(1);
+		out.writeFloat(AABB.max.getZ());
 	}
 }
@@ -0,0 +1,175 @@
+package game.map.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import app.Directories;
+import app.Environment;
+import app.config.Options;
+import app.input.IOUtils;
+import assets.AssetHandle;
+import assets.AssetManager;
+import util.ContentHash;
+import util.Logger;
+
+/**
+ * Persistent record of the source hash each compiled map binary was built from.
+ * Staleness is decided by content rather than timestamps, so checkouts and copies
+ * which touch file times do not force a rebuild. The record is only a cache and
+ * may be deleted at any time, which forces every map to rebuild once.
+ */
+public class MapBuildCache
+{
+	private static final String FN_BUILD_CACHE = "map_builds.txt";
+
+	private static final String NONE = "-";
+
+	public static final class BuildRecord
+	{
+		private final String texName;
+		private final String shapeHash;
+		private final String hitHash;
+
+		private BuildRecord(String texName, String shapeHash, String hitHash)
+		{
+			this.texName = texName;
+			this.shapeHash = shapeHash;
+			this.hitHash = hitHash;
+		}
+	}
+
+	private final File cacheFile;
+	private final ConcurrentHashMap<String, BuildRecord> records = new ConcurrentHashMap<>();
+
+	// texture archives are shared by many maps, so each is only hashed once per build
+	private final ConcurrentHashMap<String, String> textureHashes = new ConcurrentHashMap<>();
+
+	public MapBuildCache()
+	{
+		cacheFile = Directories.PROJ_CACHE.file(FN_BUILD_CACHE);
+
+		if (!cacheFile.exists())
+			return;
+
+		try {
+			for (String line : IOUtils.readPlainTextFile(cacheFile)) {
+				String[] tokens = line.split("\t");
+				if (tokens.length != 4)
+					continue;
+
+				String texName = tokens[1].equals(NONE) ? "" : tokens[1];
+				records.put(tokens[0], new BuildRecord(texName, tokens[2], tokens[3]));
+			}
+		}
+		catch (IOException e) {
+			Logger.logWarning("Could not read map build cache, all maps will be rebuilt.");
+			records.clear();
+		}
+	}
+
+	/**
+	 * Computes the hash which compiled binaries of a map are keyed on: the map source,
+	 * its texture archive and images, and the tool version and options which compiled them.
+	 * @param texName may be null if the texture archive is not yet known
+	 */
+	public String getSourceHash(AssetHandle mapSource, String texName) throws IOException
+	{
+		ContentHash hash = new ContentHash();
+		hash.add(Environment.getVersionString());
+		if (GeometryCompiler.isOptimizing())
+			hash.add(Options.OptimizeGeometry.key);
+		hash.add(mapSource);
+
+		if (texName != null && !texName.isEmpty()) {
+			hash.add(texName);
+			hash.add(getTextureHash(texName));
+		}
+		else {
+			hash.add(NONE);
+		}
+
+		return hash.get();
+	}
+
+	private String getTextureHash(String texName) throws IOException
+	{
+		String texHash = textureHashes.get(texName);
+		if (texHash != null)
+			return texHash;
+
+		ContentHash hash = new ContentHash();
+		hash.add(AssetManager.getTextureArchive(texName));
+		for (AssetHandle img : AssetManager.getTextureArchiveImages(texName)) {
+			hash.add(img.getName());
+			hash.add(img);
+		}
+
+		texHash = hash.get();
+		textureHashes.putIfAbsent(texName, texHash);
+		return texHash;
+	}
+
+	/**
+	 * @return texture archive name recorded for the last build of this map, or null
+	 */
+	public String getTexName(String mapName)
+	{
+		BuildRecord rec = records.get(mapName);
+		return (rec == null) ? null : rec.texName;
+	}
+
+	public boolean isShapeCurrent(String mapName, String sourceHash)
+	{
+		BuildRecord rec = records.get(mapName);
+		return rec != null && sourceHash.equals(rec.shapeHash);
+	}
+
+	public boolean isHitCurrent(String mapName, String sourceHash)
+	{
+		BuildRecord rec = records.get(mapName);
+		return rec != null && sourceHash.equals(rec.hitHash);
+	}
+
+	public void recordBuild(String mapName, String texName, String shapeHash, String hitHash)
+	{
+		records.compute(mapName, (name, prev) -> {
+			String newShape = (shapeHash != null) ? shapeHash : (prev != null ? prev.shapeHash : NONE);
+			String newHit = (hitHash != null) ? hitHash : (prev != null ? prev.hitHash : NONE);
+			return new BuildRecord(texName, newShape, newHit);
+		});
+	}
+
+	public void invalidate(String mapName)
+	{
+		records.remove(mapName);
+	}
+
+	public void save()
+	{
+		File tempFile = new File(cacheFile.getPath() + ".temp");
+
+		try {
+			cacheFile.getParentFile().mkdirs();
+
+			try (PrintWriter pw = IOUtils.getBufferedPrintWriter(tempFile)) {
+				for (Entry<String, BuildRecord> e : new TreeMap<>(records).entrySet()) {
+					BuildRecord rec = e.getValue();
+					String texName = (rec.texName == null || rec.texName.isEmpty()) ? NONE : rec.texName;
+					pw.printf("%s\t%s\t%s\t%s%n", e.getKey(), texName, rec.shapeHash, rec.hitHash);
+				}
+			}
+
+			Files.move(tempFile.toPath(), cacheFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			Logger.logWarning("Could not save map build cache: " + e.getMessage());
+		}
+	}
+}
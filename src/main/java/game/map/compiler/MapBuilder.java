@@ -0,0 +1,122 @@
+package game.map.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.Environment;
+import assets.AssetHandle;
+import assets.AssetManager;
+import game.map.Map;
+import util.Logger;
+import util.Priority;
+import util.Stopwatch;
+
+/**
+ * Incremental builder for every map source in the project. Maps are compiled in parallel
+ * and skipped when their content hash matches the one recorded for their current binaries.
+ */
+public class MapBuilder
+{
+	private final MapBuildCache cache;
+	private final File buildDir;
+
+	private final AtomicInteger numBuilt = new AtomicInteger();
+	private final AtomicInteger numSkipped = new AtomicInteger();
+	private final AtomicInteger numFailed = new AtomicInteger();
+
+	/**
+	 * Compiles shape and hit binaries for all stale maps.
+	 * @param numJobs number of worker threads, or zero to use the global executor
+	 */
+	public static void compileAll(int numJobs) throws IOException
+	{
+		new MapBuilder().run(AssetManager.getMapSources(), numJobs);
+	}
+
+	MapBuilder()
+	{
+		cache = new MapBuildCache();
+		buildDir = AssetManager.getMapBuildDir();
+	}
+
+	void run(Collection<AssetHandle> sources, int numJobs)
+	{
+		Stopwatch watch = new Stopwatch();
+
+		ExecutorService executor = (numJobs > 0) ? Executors.newFixedThreadPool(numJobs) : Environment.getExecutor();
+
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>(sources.size());
+			for (AssetHandle ah : sources)
+				futures.add(CompletableFuture.runAsync(() -> build(ah), executor));
+
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+		}
+		finally {
+			if (executor != Environment.getExecutor())
+				executor.shutdown();
+
+			cache.save();
+		}
+
+		Logger.logf("Compiled %d maps in %.2f seconds (%d up to date, %d failed)",
+			numBuilt.get(), watch.ms() / 1e3, numSkipped.get(), numFailed.get());
+	}
+
+	private void build(AssetHandle ah)
+	{
+		String mapName = Map.deriveName(ah);
+
+		try {
+			File binShape = new File(buildDir, mapName + "_shape.bin");
+			File binHit = new File(buildDir, mapName + "_hit.bin");
+
+			// use the texture archive from the previous build to check staleness without parsing the map
+			String sourceHash = cache.getSourceHash(ah, cache.getTexName(mapName));
+
+			boolean buildShape = !binShape.exists() || !cache.isShapeCurrent(mapName, sourceHash);
+			boolean buildHit = !binHit.exists() || !cache.isHitCurrent(mapName, sourceHash);
+
+			if (!buildShape && !buildHit) {
+				numSkipped.incrementAndGet();
+				return;
+			}
+
+			Stopwatch watch = new Stopwatch();
+			Map map = Map.loadMap(ah);
+
+			// texture archive may have changed along with the map source
+			if (!Objects.equals(map.texName, cache.getTexName(mapName))) {
+				sourceHash = cache.getSourceHash(ah, map.texName);
+				buildShape = true;
+				buildHit = true;
+			}
+
+			// forget the previous build until this one succeeds
+			cache.invalidate(mapName);
+
+			if (buildShape)
+				new GeometryCompiler(map);
+			if (buildHit)
+				new CollisionCompiler(map);
+
+			cache.recordBuild(mapName, map.texName, sourceHash, sourceHash);
+			numBuilt.incrementAndGet();
+
+			Logger.logf("Built %s in %.1f ms", mapName, watch.ms());
+		}
+		catch (Throwable t) {
+			numFailed.incrementAndGet();
+			Logger.log("Failed to build " + mapName + ": " + t.getMessage(), Priority.ERROR);
+			Logger.printStackTrace(t);
+		}
+	}
+}
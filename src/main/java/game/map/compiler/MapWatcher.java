@@ -0,0 +1,165 @@
+package game.map.compiler;
+
+import static app.Directories.*;
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import app.Environment;
+import assets.AssetHandle;
+import assets.AssetManager;
+import assets.AssetSubdir;
+import game.map.Map;
+import util.Logger;
+
+/**
+ * Rebuilds maps whenever their sources or texture archives change on disk. Bursts of events,
+ * such as an editor saving several files, are collected until the directories have been quiet
+ * for a short while and then built together. The watcher blocks on the file system while idle.
+ */
+public class MapWatcher
+{
+	private static final long DEBOUNCE_MS = 250;
+
+	private final int numJobs;
+
+	private final WatchService watcher;
+	private final HashMap<WatchKey, AssetSubdir> watchedDirs = new HashMap<>();
+
+	private final TreeSet<String> changedMaps = new TreeSet<>();
+	private final TreeSet<String> changedTextures = new TreeSet<>();
+	private boolean overflow = false;
+
+	/**
+	 * Brings every map up to date, then rebuilds maps as they change until the process is stopped.
+	 * @param numJobs number of worker threads, or zero to use the global executor
+	 */
+	public static void watch(int numJobs) throws IOException
+	{
+		MapWatcher mapWatcher = new MapWatcher(numJobs);
+		new MapBuilder().run(AssetManager.getMapSources(), numJobs);
+
+		try {
+			mapWatcher.run();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			mapWatcher.watcher.close();
+		}
+	}
+
+	private MapWatcher(int numJobs) throws IOException
+	{
+		this.numJobs = numJobs;
+
+		watcher = FileSystems.getDefault().newWatchService();
+
+		// register before the initial build, so changes made during it are not missed
+		for (File assetDir : Environment.assetDirectories) {
+			register(AssetSubdir.MAP_GEOM.get(assetDir), AssetSubdir.MAP_GEOM);
+			register(AssetSubdir.MAP_TEX.get(assetDir), AssetSubdir.MAP_TEX);
+		}
+	}
+
+	private void register(File dir, AssetSubdir subdir) throws IOException
+	{
+		if (!dir.isDirectory())
+			return;
+
+		WatchKey key = dir.toPath().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+		watchedDirs.put(key, subdir);
+	}
+
+	private void run() throws InterruptedException
+	{
+		Logger.log("Watching for changes to maps and textures...");
+
+		while (true) {
+			poll(watcher.take());
+
+			WatchKey key;
+			while ((key = watcher.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null)
+				poll(key);
+
+			try {
+				buildChanged();
+			}
+			catch (IOException e) {
+				Logger.printStackTrace(e);
+			}
+		}
+	}
+
+	private void poll(WatchKey key)
+	{
+		AssetSubdir subdir = watchedDirs.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				overflow = true;
+				continue;
+			}
+
+			String filename = ((Path) event.context()).getFileName().toString();
+
+			if (subdir == AssetSubdir.MAP_GEOM && filename.endsWith(EXT_MAP)
+				&& !filename.endsWith(MAP_CRASH_SUFFIX) && !filename.endsWith(MAP_BACKUP_SUFFIX)) {
+				changedMaps.add(filename.substring(0, filename.length() - EXT_MAP.length()));
+			}
+			else if (subdir == AssetSubdir.MAP_TEX && filename.endsWith(EXT_NEW_TEX)) {
+				changedTextures.add(filename.substring(0, filename.length() - EXT_NEW_TEX.length()));
+			}
+		}
+
+		if (!key.reset())
+			watchedDirs.remove(key);
+	}
+
+	private void buildChanged() throws IOException
+	{
+		List<AssetHandle> sources = new ArrayList<>();
+
+		if (overflow) {
+			Logger.logWarning("Too many changes to track, checking every map.");
+			sources.addAll(AssetManager.getMapSources());
+		}
+		else {
+			// maps using a changed texture archive, as of their last build
+			if (!changedTextures.isEmpty()) {
+				MapBuildCache cache = new MapBuildCache();
+				for (AssetHandle ah : AssetManager.getMapSources()) {
+					String texName = cache.getTexName(Map.deriveName(ah));
+					if (texName != null && changedTextures.contains(texName))
+						changedMaps.add(Map.deriveName(ah));
+				}
+			}
+
+			for (String mapName : changedMaps) {
+				AssetHandle ah = AssetManager.getMap(mapName);
+				if (ah.exists())
+					sources.add(ah);
+			}
+		}
+
+		overflow = false;
+		changedMaps.clear();
+		changedTextures.clear();
+
+		// unchanged content, such as a save without edits, is skipped by the build cache
+		if (!sources.isEmpty())
+			new MapBuilder().run(sources, numJobs);
+	}
+}
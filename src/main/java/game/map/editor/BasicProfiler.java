@@ -20,11 +20,13 @@ public class BasicProfiler
 	}
 
 	private List<Snapshot> times;
+	private List<String> counts;
 	private long startTime;
 
 	public void begin()
 	{
 		times = new ArrayList<>();
+		counts = new ArrayList<>();
 		startTime = System.nanoTime();
 	}
 
@@ -36,6 +38,11 @@ public class BasicProfiler
 			times.add(new Snapshot(name, times.get(times.size() - 1).end, System.nanoTime()));
 	}
 
+	public void count(String name, int value)
+	{
+		counts.add(String.format("%-16s %d", name, value));
+	}
+
 	public void print()
 	{
 		System.out.println("PERFORMANCE");
@@ -48,6 +55,8 @@ public class BasicProfiler
 			System.out.println();
 		}
 		System.out.printf("TOTAL:   %6.2f%n", total);
+		for (String s : counts)
+			System.out.println(s);
 		System.out.println();
 	}
 }
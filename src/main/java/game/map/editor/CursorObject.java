@@ -21,7 +21,6 @@ import common.commands.AbstractCommand;
 import game.map.Axis;
 import game.map.BoundingBox;
 import game.map.Map;
-import game.map.MapObject;
 import game.map.MutableAngle;
 import game.map.MutableAngle.AngleBackup;
 import game.map.MutablePoint;
@@ -256,7 +255,44 @@ public class CursorObject extends EditorObject
 		canJump = true;
 	}
 
-	private void checkLateralCollision(List<MapObject> candidates, double deltaTime)
+	/**
+	 * Objects the player can collide with during a single simulation step.
+	 * Colliders are found through the collision map's picking hierarchy rather than
+	 * testing each one, markers with collision are few enough to test directly.
+	 */
+	private static class CollisionCandidates
+	{
+		private final Map collisionMap;
+		private final boolean ignoreHiddenColliders;
+		private final List<Marker> markers = new ArrayList<>();
+
+		private CollisionCandidates(Map collisionMap, Map entityMap, boolean ignoreHiddenColliders)
+		{
+			this.collisionMap = collisionMap;
+			this.ignoreHiddenColliders = ignoreHiddenColliders;
+
+			for (Marker m : entityMap.markerTree) {
+				if (m.hasCollision())
+					markers.add(m);
+			}
+		}
+
+		private boolean canCollide(Collider c)
+		{
+			return c.hasMesh() && (!ignoreHiddenColliders || !c.hidden)
+				&& (c.flags.get() & Collider.IGNORE_PLAYER_BIT) == 0;
+		}
+
+		private PickHit pick(PickRay ray)
+		{
+			// colliders come before markers, so markers must be strictly closer to win
+			PickHit hit = collisionMap.pickCollider(ray, this::canCollide);
+			PickHit markerHit = Map.pickObjectFromSet(ray, markers, false);
+			return (markerHit.dist < hit.dist) ? markerHit : hit;
+		}
+	}
+
+	private void checkLateralCollision(CollisionCandidates candidates, double deltaTime)
 	{
 		double moveDist = moveSpeed * deltaTime;
 		//	float mx = (float)(moveDist * Math.cos(moveYaw));
@@ -269,7 +305,7 @@ public class CursorObject extends EditorObject
 			Vector3f upper = new Vector3f(previewPos.x, previewPos.y + 0.75f * COLLISION_HEIGHT, previewPos.z);
 			Vector3f forward = new Vector3f((float) Math.cos(moveYaw), 0.0f, (float) Math.sin(moveYaw));
 			PickRay forwardRay = new PickRay(Channel.COLLISION, lower, forward, false);
-			PickHit forwardHit = Map.pickObjectFromSet(forwardRay, candidates, false);
+			PickHit forwardHit = candidates.pick(forwardRay);
 
 			if (showDebugTraces)
 				debugTraces.add(new Trace(forwardRay, forwardHit, COLLISION_RADIUS));
@@ -277,7 +313,7 @@ public class CursorObject extends EditorObject
 			double traceLength = moveDist + COLLISION_RADIUS;
 			if (forwardHit.dist >= traceLength) {
 				forwardRay = new PickRay(Channel.COLLISION, upper, forward, false);
-				forwardHit = Map.pickObjectFromSet(forwardRay, candidates, false);
+				forwardHit = candidates.pick(forwardRay);
 
 				if (showDebugTraces)
 					debugTraces.add(new Trace(forwardRay, forwardHit, COLLISION_RADIUS));
@@ -306,8 +342,8 @@ public class CursorObject extends EditorObject
 			PickRay leftRay = new PickRay(Channel.COLLISION, whiskerStart, leftDir, false);
 			PickRay rightRay = new PickRay(Channel.COLLISION, whiskerStart, rightDir, false);
 
-			PickHit leftHit = Map.pickObjectFromSet(leftRay, candidates, false);
-			PickHit rightHit = Map.pickObjectFromSet(rightRay, candidates, false);
+			PickHit leftHit = candidates.pick(leftRay);
+			PickHit rightHit = candidates.pick(rightRay);
 
 			if (showDebugTraces) {
 				debugTraces.add(new Trace(leftRay, leftHit, COLLISION_RADIUS));
@@ -393,7 +429,7 @@ public class CursorObject extends EditorObject
 		}
 	}
 
-	private boolean checkSurroundingCollision(List<MapObject> candidates, float offsetY)
+	private boolean checkSurroundingCollision(CollisionCandidates candidates, float offsetY)
 	{
 		boolean hitSomething = false;
 
@@ -406,7 +442,7 @@ public class CursorObject extends EditorObject
 		for (Vector3f traceDir : traceDirs) {
 			Vector3f origin = new Vector3f(previewPos.x, previewPos.y + offsetY, previewPos.z);
 			PickRay ray = new PickRay(Channel.COLLISION, origin, traceDir, false);
-			PickHit hit = Map.pickObjectFromSet(ray, candidates, false);
+			PickHit hit = candidates.pick(ray);
 
 			if (hit.dist < COLLISION_RADIUS) {
 				previewPos.x += (hit.dist - COLLISION_RADIUS) * traceDir.x;
@@ -421,7 +457,7 @@ public class CursorObject extends EditorObject
 		return hitSomething;
 	}
 
-	private float checkForGround(List<MapObject> candidates, float camYaw)
+	private float checkForGround(CollisionCandidates candidates, float camYaw)
 	{
 		double angle = Math.toRadians(camYaw + faceAngleGoal - 90.0);
 		float dx = (float) Math.cos(angle) * 2.0f * COLLISION_RADIUS * 0.28f;
@@ -443,7 +479,7 @@ public class CursorObject extends EditorObject
 
 		PickHit[] hits = new PickHit[floorTraces.length];
 		for (int i = 0; i < floorTraces.length; i++) {
-			hits[i] = Map.pickObjectFromSet(floorTraces[i], candidates, false);
+			hits[i] = candidates.pick(floorTraces[i]);
 			if (hits[i].dist <= minDist) // note: operator includes ==, we pick LAST match
 			{
 				minDist = hits[i].dist;
@@ -466,7 +502,7 @@ public class CursorObject extends EditorObject
 		return (minHit == null || minHit.missed()) ? Float.MAX_VALUE : (start.y - minHit.point.y);
 	}
 
-	private float checkForCeiling(List<MapObject> candidates, float camYaw)
+	private float checkForCeiling(CollisionCandidates candidates, float camYaw)
 	{
 		double angle = Math.toRadians(camYaw + faceAngleGoal - 90.0);
 		float dx = (float) Math.cos(angle) * 2.0f * COLLISION_RADIUS * 0.30f;
@@ -486,7 +522,7 @@ public class CursorObject extends EditorObject
 
 		PickHit[] hits = new PickHit[ceilingTraces.length];
 		for (int i = 0; i < ceilingTraces.length; i++) {
-			hits[i] = Map.pickObjectFromSet(ceilingTraces[i], candidates, false);
+			hits[i] = candidates.pick(ceilingTraces[i]);
 			if (hits[i].dist <= minDist) // note: operator includes ==, we pick LAST match
 			{
 				minDist = hits[i].dist;
@@ -569,16 +605,7 @@ public class CursorObject extends EditorObject
 
 		boolean ignoreHiddenColliders = MapEditor.instance().pieIgnoreHiddenColliders;
 
-		List<MapObject> candidates = new ArrayList<>();
-		for (Collider c : collisionMap.colliderTree) {
-			if (c.hasMesh() && (!ignoreHiddenColliders || !c.hidden)
-				&& (c.flags.get() & Collider.IGNORE_PLAYER_BIT) == 0)
-				candidates.add(c);
-		}
-		for (Marker m : entityMap.markerTree) {
-			if (m.hasCollision())
-				candidates.add(m);
-		}
+		CollisionCandidates candidates = new CollisionCandidates(collisionMap, entityMap, ignoreHiddenColliders);
 
 		checkLateralCollision(candidates, deltaTime);
 
@@ -719,20 +746,11 @@ public class CursorObject extends EditorObject
 
 		boolean ignoreHiddenColliders = MapEditor.instance().pieIgnoreHiddenColliders;
 
-		List<MapObject> candidates = new ArrayList<>();
-		for (Collider c : collisionMap.colliderTree) {
-			if (c.hasMesh() && (!ignoreHiddenColliders || !c.hidden)
-				&& (c.flags.get() & Collider.IGNORE_PLAYER_BIT) == 0)
-				candidates.add(c);
-		}
-		for (Marker m : entityMap.markerTree) {
-			if (m.hasCollision())
-				candidates.add(m);
-		}
+		CollisionCandidates candidates = new CollisionCandidates(collisionMap, entityMap, ignoreHiddenColliders);
 
 		Vector3f shadowOrigin = new Vector3f(previewPos.x, previewPos.y + COLLISION_HEIGHT / 2, previewPos.z);
 		PickRay shadowRay = new PickRay(Channel.COLLISION, shadowOrigin, PickRay.DOWN, false);
-		shadowHit = Map.pickObjectFromSet(shadowRay, candidates, false);
+		shadowHit = candidates.pick(shadowRay);
 	}
 
 	private Vector3f getSize()
@@ -43,6 +43,13 @@ public abstract class EditorObject extends MapObject
 		return MapObjectType.EDITOR;
 	}
 
+	@Override
+	public void markDirtyAABB()
+	{
+		// editor objects are not part of any tree and update their own bounding boxes
+		dirtyAABB = true;
+	}
+
 	// ==================================================
 	// picking
 	// --------------------------------------------------
@@ -18,18 +18,21 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.imageio.ImageIO;
 import javax.swing.JComboBox;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingUtilities;
 
 import org.apache.commons.io.FileUtils;
@@ -130,11 +133,13 @@ import game.map.editor.selection.SelectionManager.SelectionMode;
 import game.map.editor.ui.FindDialog;
 import game.map.editor.ui.GuiCommand;
 import game.map.editor.ui.SwingGUI;
+import game.map.editor.ui.info.DisplayListPanel;
 import game.map.hit.CameraZoneData;
 import game.map.hit.CameraZoneData.SetCameraFlag;
 import game.map.hit.CameraZoneData.SetCameraPos;
 import game.map.hit.CameraZoneData.SetCameraType;
 import game.map.hit.Collider;
+import game.map.hit.ColliderHierarchy;
 import game.map.hit.ControlType;
 import game.map.hit.Zone;
 import game.map.marker.Marker;
@@ -155,6 +160,8 @@ import game.map.shape.UVGenerator;
 import game.map.tree.MapObjectNode;
 import game.sprite.SpriteLoader;
 import game.texture.ModelTexture;
+import net.miginfocom.swing.MigLayout;
+import renderer.buffers.BufferedMesh;
 import renderer.buffers.LineRenderQueue;
 import renderer.shaders.RenderState;
 import renderer.shaders.postprocess.PostProcessFX;
@@ -199,12 +206,21 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 	private double time = 0;
 	private long frameCounter;
 
+	// number of mesh vertex buffers uploaded by the most recent frame, and the peak over the FPS interval
+	private int meshBufferUploads = 0;
+	private int peakMeshBufferUploads = 0;
+
+	// number of bounding boxes recalculated by the most recent frame, and the peak over the FPS interval
+	private int boundingBoxRefreshes = 0;
+	private int peakBoundingBoxRefreshes = 0;
+
 	/**
 	 * Autosaves
 	 */
 
 	private int backupInterval;
 	private double lastBackupTime;
+	private CompletableFuture<Void> pendingBackup = CompletableFuture.completedFuture(null);
 
 	/**
 	 * Inputs
@@ -716,6 +732,9 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 			Logger.log("Exited without error.");
 		}
 
+		// backups and crash files are written in the background
+		pendingBackup.join();
+
 		editorLog.close();
 
 		instance = null;
@@ -825,28 +844,17 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 
 	private void saveCrashFile()
 	{
-		try {
-			map.saveMapAs(AssetManager.getSaveMapFile(map.getName() + Directories.MAP_CRASH_SUFFIX));
-			DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-			Logger.log("Saved crash at " + dateFormatter.format(LocalDateTime.now()));
-		}
-		catch (Exception e) {
-			Logger.logError("Failed to save crash for " + map.getName());
-			Logger.printStackTrace(e);
-		}
+		CompletableFuture<Void> crashSave = map.saveBackup(AssetManager.getSaveMapFile(map.getName() + Directories.MAP_CRASH_SUFFIX));
+		pendingBackup = CompletableFuture.allOf(pendingBackup, crashSave);
 	}
 
 	private void saveBackup()
 	{
-		try {
-			map.saveMapAs(AssetManager.getSaveMapFile(map.getName() + Directories.MAP_BACKUP_SUFFIX));
-			DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-			Logger.log("Saved backup at " + dateFormatter.format(LocalDateTime.now()));
-		}
-		catch (Exception e) {
-			Logger.logError("Backup failed for " + map.getName());
-			Logger.printStackTrace(e);
-		}
+		// writing the previous backup is taking a while, try again next frame
+		if (!pendingBackup.isDone())
+			return;
+
+		pendingBackup = map.saveBackup(AssetManager.getSaveMapFile(map.getName() + Directories.MAP_BACKUP_SUFFIX));
 		lastBackupTime = time;
 	}
 
@@ -1274,10 +1282,15 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 			if (!selectionManager.currentSelection.transforming() && !selectionManager.uvSelection.transforming())
 				gui.setLastSelectedInfo(selectionManager.getMostRecentObject());
 
+			peakMeshBufferUploads = Math.max(peakMeshBufferUploads, meshBufferUploads);
+			peakBoundingBoxRefreshes = Math.max(peakBoundingBoxRefreshes, boundingBoxRefreshes);
+
 			if (++frameCounter % 30 == 0) {
-				gui.displayFPS(avFPS / 30, avMaxFPS / 30, (t_beforesync - t_start) / 1e6);
+				gui.displayFPS(avFPS / 30, avMaxFPS / 30, (t_beforesync - t_start) / 1e6, peakMeshBufferUploads, peakBoundingBoxRefreshes);
 				avMaxFPS = 0;
 				avFPS = 0;
+				peakMeshBufferUploads = 0;
+				peakBoundingBoxRefreshes = 0;
 			}
 
 			if (backupInterval > 0 && time >= lastBackupTime + 60.0 * backupInterval)
@@ -1406,12 +1419,16 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 		if (doStepProfiling)
 			profiler.record("gui events");
 
-		// recalculate bounding boxes every frame, it's easier this way
-		map.recalculateBoundingBoxes();
-		selectionManager.recalculateBoundingBox();
+		// recalculate only the bounding boxes marked dirty by changes since the last frame
+		selectionManager.markTransformingAABBs();
+		boundingBoxRefreshes = map.recalculateBoundingBoxes();
+		if (boundingBoxRefreshes > 0)
+			selectionManager.recalculateBoundingBox();
 
-		if (doStepProfiling)
+		if (doStepProfiling) {
 			profiler.record("AABBs");
+			profiler.count("AABBs refreshed", boundingBoxRefreshes);
+		}
 
 		for (Marker m : map.markerTree)
 			m.tick(deltaTime);
@@ -1436,6 +1453,7 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 	private void onModified()
 	{
 		map.modified = true;
+		selectionManager.markSelectedAABBs();
 	}
 
 	public EditorMode getEditorMode()
@@ -1700,8 +1718,35 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 			case CREATE_BVH:
 				if (editorMode == EditorMode.Modify) {
 					List<Collider> colliders = selectionManager.getSelectedObjects(Collider.class);
-					if (colliders.size() > 0)
-						commandManager.executeCommand(new CreateBVH(colliders));
+					if (colliders.size() > 0) {
+						SwingUtilities.invokeLater(() -> {
+							JSpinner depthSpinner = new JSpinner(new SpinnerNumberModel(ColliderHierarchy.DEFAULT_MAX_DEPTH, 1, 32, 1));
+							JSpinner leafSpinner = new JSpinner(new SpinnerNumberModel(ColliderHierarchy.DEFAULT_LEAF_SIZE, 1, 64, 1));
+
+							JPanel optionsPanel = new JPanel(new MigLayout("fill, ins 0, wrap 2"));
+							optionsPanel.add(new JLabel("Max Depth"));
+							optionsPanel.add(depthSpinner, "w 80!");
+							optionsPanel.add(new JLabel("Max Leaf Size"));
+							optionsPanel.add(leafSpinner, "w 80!");
+
+							int choice = SwingUtils.getConfirmDialog()
+								.setParent(gui)
+								.setCounter(gui.getDialogCounter())
+								.setTitle("Create BVH")
+								.setMessage(optionsPanel)
+								.setMessageType(JOptionPane.PLAIN_MESSAGE)
+								.setOptionsType(JOptionPane.OK_CANCEL_OPTION)
+								.choose();
+
+							if (choice == JOptionPane.YES_OPTION) {
+								int maxDepth = (int) depthSpinner.getValue();
+								int leafSize = (int) leafSpinner.getValue();
+								doNextFrame(() -> {
+									commandManager.executeCommand(new CreateBVH(colliders, maxDepth, leafSize));
+								});
+							}
+						});
+					}
 				}
 				break;
 
@@ -2533,9 +2578,11 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 		switch (key) {
 			case UNDO:
 				commandManager.action_Undo();
+				selectionManager.markSelectedAABBs();
 				break;
 			case REDO:
 				commandManager.action_Redo();
+				selectionManager.markSelectedAABBs();
 				break;
 			case SELECT_ALL:
 				selectAll();
@@ -2752,6 +2799,7 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 
 			case TOGGLE_GRID_TYPE:
 				objectGrid.toggleType();
+				map.markerTree.invalidateBoundingBoxes(); // marker size depends on grid type
 				if (!fromGui)
 					key.setCheckbox(!objectGrid.binary);
 				gui.post("Using " + (objectGrid.binary ? "binary" : "decimal") + " grid");
@@ -3473,6 +3521,12 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 			needsTextureReload = false;
 		}
 
+		// thumbnails are captured from a single frame, so they cannot wait for textures to trickle in
+		if (thumbnailMode)
+			TextureManager.uploadAll();
+		else
+			TextureManager.uploadQueued();
+
 		if (needsBackgroundReload) {
 			glDeleteTextures(map.glBackgroundTexID);
 			if (map.bgImage != null)
@@ -3487,7 +3541,12 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 		RenderState.setTime(time);
 		Renderer.updateColors(time);
 		RenderingOptions opts = getRenderingOptions();
+
+		// count only uploads made for map meshes, render queues upload every frame regardless
+		BufferedMesh.pollUploadCount();
 		prepareVertexBuffers(opts);
+		meshBufferUploads = BufferedMesh.pollUploadCount();
+		DisplayListPanel.checkForMeshChanges();
 
 		// viewports
 		switch (viewMode) {
@@ -3542,6 +3601,11 @@ public class MapEditor extends GLEditor implements MouseManagerListener, Keyboar
 		}
 	}
 
+	public int getMeshBufferUploads()
+	{
+		return meshBufferUploads;
+	}
+
 	private void prepareVertexBuffers(RenderingOptions opts)
 	{
 		Map shapeMap = getGeometryMap();
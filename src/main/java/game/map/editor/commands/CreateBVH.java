@@ -4,42 +4,106 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.Stack;
 
-import common.Vector3f;
 import common.commands.AbstractCommand;
-import game.map.BoundingBox;
-import game.map.MapObject;
+import game.map.Map;
 import game.map.MapObject.HitType;
 import game.map.editor.MapEditor;
 import game.map.hit.Collider;
+import game.map.hit.ColliderHierarchy;
+import game.map.hit.ColliderHierarchy.Node;
+import game.map.hit.ColliderQueryEstimator;
+import game.map.hit.ColliderQueryEstimator.Result;
 import game.map.tree.MapObjectNode;
+import game.map.tree.MapObjectTreeModel;
+import util.Logger;
 
-//XXX just bad overall
+/**
+ * Moves colliders into a new group hierarchy built by {@link ColliderHierarchy}.
+ * Undo puts every collider back in its original group and position.
+ */
 public class CreateBVH extends AbstractCommand
 {
+	private static final int NUM_SAMPLE_QUERIES = 2000;
+
+	// in tree order, so reinserting them in sequence restores their original positions
 	private final List<Collider> colliders;
 	private final IdentityHashMap<Collider, MapObjectNode<Collider>> oldParents;
+	private final IdentityHashMap<Collider, Integer> oldIndices;
 	private final IdentityHashMap<Collider, MapObjectNode<Collider>> newParents;
 	private final Collider bvh;
 
-	public CreateBVH(List<Collider> colliders)
+	public CreateBVH(List<Collider> selected, int maxDepth, int leafSize)
 	{
 		super("Create BVH");
 
-		this.colliders = colliders;
+		MapObjectNode<Collider> root = MapEditor.instance().map.colliderTree.getRoot();
+
+		// groups are left in place, only their selected colliders are moved
+		Set<Collider> selectedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Collider c : selected) {
+			if (c.getType() == HitType.HIT)
+				selectedSet.add(c);
+		}
+
+		colliders = new ArrayList<>(selectedSet.size());
 		oldParents = new IdentityHashMap<>();
+		oldIndices = new IdentityHashMap<>();
 		newParents = new IdentityHashMap<>();
 
-		// sort, get child at .... etc
-		// save/restore tree would be better!
-
-		for (Collider c : colliders)
-			oldParents.put(c, c.getNode().parentNode);
+		Stack<MapObjectNode<Collider>> stack = new Stack<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			MapObjectNode<Collider> node = stack.pop();
+			for (int i = node.getChildCount() - 1; i >= 0; i--)
+				stack.push(node.getChildAt(i));
+
+			Collider c = node.getUserObject();
+			if (selectedSet.contains(c)) {
+				colliders.add(c);
+				oldParents.put(c, node.getParent());
+				oldIndices.put(c, node.getParent().getIndex(node));
+			}
+		}
 
-		BoundingHierarchy hierarchy = new BoundingHierarchy(colliders);
+		Node hierarchy = ColliderHierarchy.build(colliders, maxDepth, leafSize);
 
-		bvh = hierarchy.put(null, newParents);
+		bvh = createGroup(hierarchy, null);
 		bvh.setName("BVH Root");
+
+		Node before = ColliderHierarchy.fromTree(root, Set.of());
+		Node after = ColliderHierarchy.withChild(ColliderHierarchy.fromTree(root, selectedSet), hierarchy);
+
+		Result oldCost = ColliderQueryEstimator.estimate(before, before.bounds, NUM_SAMPLE_QUERIES);
+		Result newCost = ColliderQueryEstimator.estimate(after, before.bounds, NUM_SAMPLE_QUERIES);
+		Logger.logf("Collider hierarchy for %d colliders: %.1f -> %.1f box tests per ray, %.1f -> %.1f per capsule",
+			colliders.size(), oldCost.rayBoxTests, newCost.rayBoxTests, oldCost.capsuleBoxTests, newCost.capsuleBoxTests);
+	}
+
+	private Collider createGroup(Node node, MapObjectNode<Collider> parent)
+	{
+		Collider group = new Collider(HitType.GROUP);
+		group.setName("BVH");
+
+		if (parent != null)
+			parent.add(group.getNode());
+
+		for (Node child : node.children) {
+			if (child.isGroup())
+				createGroup(child, group.getNode());
+			else
+				newParents.put(child.collider, group.getNode());
+		}
+
+		return group;
+	}
+
+	@Override
+	public boolean shouldExec()
+	{
+		return !colliders.isEmpty();
 	}
 
 	@Override
@@ -48,12 +112,18 @@ public class CreateBVH extends AbstractCommand
 		super.exec();
 
 		MapEditor editor = MapEditor.instance();
+		MapObjectTreeModel<Collider> treeModel = editor.map.colliderTree;
 
-		for (Collider c : colliders)
+		// detach through the tree model so the tree view is updated
+		for (Collider c : colliders) {
+			treeModel.removeNodeFromParent(c.getNode());
 			newParents.get(c).add(c.getNode());
+		}
 
 		editor.map.create(bvh);
 		editor.selectionManager.createObject(bvh);
+
+		Map.validateObjectData(editor.map);
 	}
 
 	@Override
@@ -62,94 +132,20 @@ public class CreateBVH extends AbstractCommand
 		super.undo();
 
 		MapEditor editor = MapEditor.instance();
+		MapObjectTreeModel<Collider> treeModel = editor.map.colliderTree;
 
-		//XXX
+		editor.map.remove(bvh);
+		editor.selectionManager.deleteObject(bvh);
 
-		for (Collider c : colliders)
-			c.getNode().parentNode = oldParents.get(c);
-	}
-
-	private static class BoundingHierarchy
-	{
-		private BoundingHierarchy[] children;
-		private List<Collider> objects;
-		private BoundingBox bb;
-
-		public BoundingHierarchy(List<Collider> objects)
-		{
-			this.objects = objects;
-			bb = new BoundingBox();
-			for (MapObject obj : objects)
-				bb.encompass(obj.AABB);
-			Vector3f size = bb.getSize();
-
-			if (objects.size() > 3 && (size.x > 100 || size.z > 100))
-				divide();
-		}
-
-		public Collider put(MapObjectNode<Collider> parent, IdentityHashMap<Collider, MapObjectNode<Collider>> parentMap)
-		{
-			Collider bvh = new Collider(HitType.GROUP);
-			bvh.setName("BVH");
-
-			if (parent != null)
-				parent.add(bvh.getNode());
-
-			if (children != null) {
-				children[0].put(bvh.getNode(), parentMap);
-				children[1].put(bvh.getNode(), parentMap);
-			}
-			else {
-				for (Collider c : objects)
-					parentMap.put(c, bvh.getNode());
-			}
-
-			return bvh;
-		}
-
-		public void divide()
-		{
-			children = new BoundingHierarchy[2];
-			List<Collider> left = new ArrayList<>();
-			List<Collider> right = new ArrayList<>();
-
-			Vector3f size = bb.getSize();
-			if (size.x > size.z) {
-				// divide along x
-				Collections.sort(objects, (a, b) -> (int) a.AABB.getCenter().x - (int) b.AABB.getCenter().x);
-			}
-			else {
-				// divide along z
-				Collections.sort(objects, (a, b) -> (int) a.AABB.getCenter().z - (int) b.AABB.getCenter().z);
-			}
-
-			int median = objects.size() / 2;
-			for (int i = 0; i < median; i++)
-				left.add(objects.get(i));
-			for (int i = median; i < objects.size(); i++)
-				right.add(objects.get(i));
-
-			children[0] = new BoundingHierarchy(left);
-			children[1] = new BoundingHierarchy(right);
+		for (Collider c : colliders) {
+			MapObjectNode<Collider> node = c.getNode();
+			node.removeFromParent();
+			node.parentNode = oldParents.get(c);
+			node.childIndex = oldIndices.get(c);
+			treeModel.insertNodeInto(node, node.parentNode, node.childIndex);
 		}
+		treeModel.recalculateIndicies();
 
-		public void print()
-		{
-			print("");
-		}
-
-		public void print(String tabs)
-		{
-			System.out.println(tabs + "@");
-			tabs = tabs + "\t";
-			if (children != null) {
-				children[0].print(tabs);
-				children[1].print(tabs);
-			}
-			else {
-				for (Collider c : objects)
-					System.out.println(tabs + c);
-			}
-		}
+		Map.validateObjectData(editor.map);
 	}
 }
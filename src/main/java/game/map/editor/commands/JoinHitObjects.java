@@ -52,7 +52,7 @@ public abstract class JoinHitObjects<T extends HitObject> extends AbstractComman
 
 		HitObject first = objs.get(0);
 		first.mesh.batch = newBatch;
-		first.dirtyAABB = true;
+		first.markDirtyAABB();
 
 		for (int i = 1; i < objs.size(); i++) {
 			HitObject obj = objs.get(i);
@@ -73,7 +73,7 @@ public abstract class JoinHitObjects<T extends HitObject> extends AbstractComman
 		HitObject first = objs.get(0);
 		first.mesh.batch = oldBatch;
 		first.updateMeshHierarchy();
-		first.dirtyAABB = true;
+		first.markDirtyAABB();
 
 		for (int i = objs.size() - 1; i >= 1; i--) {
 			HitObject obj = objs.get(i);
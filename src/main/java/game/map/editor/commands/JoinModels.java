@@ -56,7 +56,7 @@ public class JoinModels extends AbstractCommand
 		}
 
 		first.updateMeshHierarchy();
-		first.dirtyAABB = true;
+		first.markDirtyAABB();
 	}
 
 	@Override
@@ -84,7 +84,7 @@ public class JoinModels extends AbstractCommand
 			}
 
 			mdl.updateMeshHierarchy();
-			mdl.dirtyAABB = true;
+			mdl.markDirtyAABB();
 		}
 	}
 }
@@ -117,7 +117,7 @@ public abstract class SplitHitObject<T extends HitObject> extends AbstractComman
 
 		for (TriangleBatch batch : oldBatches) {
 			batch.triangles = oldBatchLists.get(batch);
-			batch.parentMesh.parentObject.dirtyAABB = true;
+			batch.parentMesh.parentObject.markDirtyAABB();
 		}
 	}
 }
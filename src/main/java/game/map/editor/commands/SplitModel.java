@@ -64,7 +64,7 @@ public class SplitModel extends AbstractCommand
 		newModel.getMesh().displayListModel.addElement(batch);
 
 		newModel.updateMeshHierarchy();
-		newModel.dirtyAABB = true;
+		newModel.markDirtyAABB();
 		newModel.updateTransformHierarchy();
 	}
 
@@ -81,7 +81,7 @@ public class SplitModel extends AbstractCommand
 			batch.triangles = newBatchLists.get(batch);
 			TexturedMesh mesh = (TexturedMesh) batch.parentMesh;
 			mesh.displayListModel.setDirty();
-			mesh.parentObject.dirtyAABB = true;
+			mesh.parentObject.markDirtyAABB();
 		}
 	}
 
@@ -98,7 +98,7 @@ public class SplitModel extends AbstractCommand
 			batch.triangles = oldBatchLists.get(batch);
 			TexturedMesh mesh = (TexturedMesh) batch.parentMesh;
 			mesh.displayListModel.setDirty();
-			mesh.parentObject.dirtyAABB = true;
+			mesh.parentObject.markDirtyAABB();
 		}
 	}
 }
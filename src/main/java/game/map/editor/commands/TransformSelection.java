@@ -1,5 +1,6 @@
 package game.map.editor.commands;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 
 import common.commands.AbstractCommand;
@@ -12,6 +13,7 @@ import game.map.shape.TransformMatrix;
 public class TransformSelection<T extends Selectable> extends AbstractCommand
 {
 	private final LinkedList<ReversibleTransform> transformerList;
+	private final ArrayList<T> transformedItems;
 	private final Selection<T> selection;
 
 	public TransformSelection(Selection<T> selection, TransformMatrix m)
@@ -20,14 +22,17 @@ public class TransformSelection<T extends Selectable> extends AbstractCommand
 		this.selection = selection;
 
 		transformerList = new LinkedList<>();
+		transformedItems = new ArrayList<>();
 		for (T item : selection.selectableList) {
 			if (!item.transforms())
 				continue;
 
 			ReversibleTransform t = item.createTransformer(m);
 
-			if (t != null)
+			if (t != null) {
 				transformerList.add(t);
+				transformedItems.add(item);
+			}
 
 			item.endTransformation();
 		}
@@ -41,6 +46,10 @@ public class TransformSelection<T extends Selectable> extends AbstractCommand
 		for (ReversibleTransform t : transformerList)
 			t.transform();
 
+		// the selection may have changed since, so use the items which were transformed
+		for (T item : transformedItems)
+			item.markDirtyAABB();
+
 		selection.updateAABB();
 
 		MapEditor editor = MapEditor.instance();
@@ -55,6 +64,9 @@ public class TransformSelection<T extends Selectable> extends AbstractCommand
 		for (ReversibleTransform t : transformerList)
 			t.revert();
 
+		for (T item : transformedItems)
+			item.markDirtyAABB();
+
 		selection.updateAABB();
 
 		MapEditor editor = MapEditor.instance();
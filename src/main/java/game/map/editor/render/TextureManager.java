@@ -8,9 +8,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.imageio.ImageIO;
 
@@ -18,6 +22,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.lwjgl.BufferUtils;
 
 import app.Directories;
+import app.Environment;
 import app.Resource;
 import app.Resource.ResourceType;
 import app.StarRodMain;
@@ -33,6 +38,7 @@ import game.texture.Texture;
 import game.texture.TextureArchive;
 import util.Logger;
 import util.Priority;
+import util.Stopwatch;
 
 /**
  * All GL textures must be bound and unbound using this class.
@@ -55,6 +61,10 @@ public abstract class TextureManager
 	public static HashMap<String, Integer> textureCount;
 	public static int untexturedCount = 0;
 
+	// textures waiting for glUpload, drained a few at a time each frame
+	private static final ArrayDeque<ModelTexture> uploadQueue = new ArrayDeque<>();
+	private static final double UPLOAD_BUDGET_MS = 4.0;
+
 	static {
 		background = loadEditorImage("tex_background.png");
 		miniBackground = background.getScaledInstance(48, 48, java.awt.Image.SCALE_SMOOTH);
@@ -123,13 +133,15 @@ public abstract class TextureManager
 		for (ModelTexture t : textureList)
 			t.clean();
 
+		uploadQueue.clear();
 		textureMap.clear();
 		textureList.clear();
 	}
 
 	/**
-	 * First part of loading a new texture archive. Loads the texture image files and
-	 * binds them to openGL texture objects.
+	 * First part of loading a new texture archive. Decodes the texture image files in parallel
+	 * and queues them for upload by {@link #uploadQueued()}. Models are drawn untextured until
+	 * their texture has been uploaded.
 	 * @return successfully loaded all textures
 	 */
 	public static boolean load(String texArchiveName)
@@ -153,11 +165,18 @@ public abstract class TextureManager
 			return false;
 		}
 
+		List<CompletableFuture<ModelTexture>> futures = new ArrayList<>(ta.textureList.size());
+		for (Texture tx : ta.textureList)
+			futures.add(CompletableFuture.supplyAsync(() -> new ModelTexture(tx), Environment.getExecutor()));
+
 		int loaded = 0;
-		for (Texture tx : ta.textureList) {
-			ModelTexture texture = new ModelTexture(tx);
+		Iterator<Texture> iter = ta.textureList.iterator();
+		for (CompletableFuture<ModelTexture> future : futures) {
+			Texture tx = iter.next();
+			ModelTexture texture = future.join();
 			textureMap.put(tx.name, texture);
 			textureList.add(texture);
+			uploadQueue.add(texture);
 			loaded++;
 		}
 
@@ -165,6 +184,33 @@ public abstract class TextureManager
 		return true;
 	}
 
+	/**
+	 * Uploads queued textures until the per-frame time budget is used up.
+	 * At least one texture is uploaded per call so the queue always drains.
+	 * Must be called from the GL thread.
+	 */
+	public static void uploadQueued()
+	{
+		if (uploadQueue.isEmpty())
+			return;
+
+		Stopwatch watch = new Stopwatch();
+		do {
+			uploadQueue.poll().glUpload();
+		}
+		while (!uploadQueue.isEmpty() && watch.ms() < UPLOAD_BUDGET_MS);
+	}
+
+	/**
+	 * Uploads every queued texture immediately, for callers that render a single frame.
+	 * Must be called from the GL thread.
+	 */
+	public static void uploadAll()
+	{
+		while (!uploadQueue.isEmpty())
+			uploadQueue.poll().glUpload();
+	}
+
 	/**
 	 * Second part of loading a new texture archive. Associates TexturedMeshes with a
 	 * EditorTexture objects according to their textureName.
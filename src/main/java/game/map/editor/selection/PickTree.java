@@ -0,0 +1,383 @@
+package game.map.editor.selection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+import game.map.BoundingBox;
+import game.map.editor.selection.PickRay.PickHit;
+
+/**
+ * Bounding volume hierarchy used to accelerate ray picking. Items are split at the median
+ * centroid along the longest axis until each leaf holds a few items, so the depth of the tree
+ * is logarithmic in the number of items. When items move without being added or removed,
+ * {@link #refit()} updates the node bounds in linear time without rebuilding the tree.
+ * <p>
+ * Picking returns the same result as testing every item in list order: the nearest hit wins
+ * and ties go to the item which appeared first in the list given to {@link #build(List)}.
+ */
+public abstract class PickTree<T>
+{
+	private static final int LEAF_SIZE = 4;
+
+	// bounds are grown slightly so hits lying exactly on a face are not culled by rounding
+	private static final float PADDING = 0.01f;
+
+	private T[] items;
+	private T[] sourceItems; // items in their original list order
+	private int[] order; // position of each item in the original list
+	private float[] itemBounds; // min xyz, max xyz for each item
+	private float[] nodeBounds; // min xyz, max xyz for each node
+
+	// leaves have count > 0 and hold items [start, start + count)
+	// interior nodes have their left child at index + 1 and their right child at start
+	private int[] nodeStart;
+	private int[] nodeCount;
+	private int numNodes = 0;
+
+	private int[] stack = new int[64];
+
+	/**
+	 * Writes the bounds of an item to out as min xyz followed by max xyz.
+	 * Items without any extent should use {@link #setEmpty(float[], int)}.
+	 */
+	protected abstract void getBounds(T item, float[] out, int pos);
+
+	protected static void setEmpty(float[] out, int pos)
+	{
+		out[pos + 0] = Float.POSITIVE_INFINITY;
+		out[pos + 1] = Float.POSITIVE_INFINITY;
+		out[pos + 2] = Float.POSITIVE_INFINITY;
+		out[pos + 3] = Float.NEGATIVE_INFINITY;
+		out[pos + 4] = Float.NEGATIVE_INFINITY;
+		out[pos + 5] = Float.NEGATIVE_INFINITY;
+	}
+
+	public int size()
+	{
+		return (items == null) ? 0 : items.length;
+	}
+
+	protected T getItem(int index)
+	{
+		return items[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	public void build(List<T> list)
+	{
+		int n = list.size();
+		T[] source = (T[]) list.toArray();
+
+		float[] bounds = new float[6 * n];
+		float[] centers = new float[3 * n];
+		int[] index = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			index[i] = i;
+			getBounds(source[i], bounds, 6 * i);
+			for (int j = 0; j < 3; j++) {
+				float min = bounds[6 * i + j];
+				float max = bounds[6 * i + j + 3];
+				centers[3 * i + j] = (min <= max) ? (min + max) / 2 : 0.0f;
+			}
+		}
+
+		int maxNodes = Math.max(1, 2 * n);
+		nodeBounds = new float[6 * maxNodes];
+		nodeStart = new int[maxNodes];
+		nodeCount = new int[maxNodes];
+		numNodes = 0;
+
+		if (n > 0)
+			buildNode(index, centers, bounds, 0, n);
+
+		sourceItems = source;
+		items = (T[]) new Object[n];
+		order = new int[n];
+		itemBounds = new float[6 * n];
+
+		for (int i = 0; i < n; i++) {
+			items[i] = source[index[i]];
+			order[i] = index[i];
+			System.arraycopy(bounds, 6 * index[i], itemBounds, 6 * i, 6);
+		}
+	}
+
+	private int buildNode(int[] index, float[] centers, float[] bounds, int lo, int hi)
+	{
+		int node = numNodes++;
+
+		setEmpty(nodeBounds, 6 * node);
+		for (int i = lo; i < hi; i++)
+			encompass(nodeBounds, 6 * node, bounds, 6 * index[i]);
+
+		if (hi - lo <= LEAF_SIZE) {
+			nodeStart[node] = lo;
+			nodeCount[node] = hi - lo;
+			return node;
+		}
+
+		// split along the axis with the largest spread of centroids
+		float[] min = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY };
+		float[] max = { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+		for (int i = lo; i < hi; i++) {
+			for (int j = 0; j < 3; j++) {
+				float c = centers[3 * index[i] + j];
+				min[j] = Math.min(min[j], c);
+				max[j] = Math.max(max[j], c);
+			}
+		}
+
+		int axis = 0;
+		if (max[1] - min[1] > max[axis] - min[axis])
+			axis = 1;
+		if (max[2] - min[2] > max[axis] - min[axis])
+			axis = 2;
+
+		int mid = (lo + hi) >>> 1;
+		select(index, centers, axis, lo, hi - 1, mid);
+
+		buildNode(index, centers, bounds, lo, mid);
+		nodeStart[node] = buildNode(index, centers, bounds, mid, hi);
+		nodeCount[node] = 0;
+		return node;
+	}
+
+	// partially sorts index[lo..hi] so the element at k is in its sorted position
+	private static void select(int[] index, float[] centers, int axis, int lo, int hi, int k)
+	{
+		while (hi > lo) {
+			float pivot = centers[3 * index[(lo + hi) >>> 1] + axis];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (centers[3 * index[i] + axis] < pivot)
+					i++;
+				while (centers[3 * index[j] + axis] > pivot)
+					j--;
+				if (i <= j) {
+					int tmp = index[i];
+					index[i] = index[j];
+					index[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	/**
+	 * Recomputes all bounds from the current state of the items, keeping the tree structure.
+	 */
+	public void refit()
+	{
+		for (int i = 0; i < size(); i++)
+			getBounds(items[i], itemBounds, 6 * i);
+
+		// children always follow their parent, so a reverse pass visits them first
+		for (int node = numNodes - 1; node >= 0; node--) {
+			int pos = 6 * node;
+			setEmpty(nodeBounds, pos);
+
+			if (nodeCount[node] > 0) {
+				int start = nodeStart[node];
+				for (int i = start; i < start + nodeCount[node]; i++)
+					encompass(nodeBounds, pos, itemBounds, 6 * i);
+			}
+			else {
+				encompass(nodeBounds, pos, nodeBounds, 6 * (node + 1));
+				encompass(nodeBounds, pos, nodeBounds, 6 * nodeStart[node]);
+			}
+		}
+	}
+
+	private static void encompass(float[] dest, int d, float[] src, int s)
+	{
+		dest[d + 0] = Math.min(dest[d + 0], src[s + 0]);
+		dest[d + 1] = Math.min(dest[d + 1], src[s + 1]);
+		dest[d + 2] = Math.min(dest[d + 2], src[s + 2]);
+		dest[d + 3] = Math.max(dest[d + 3], src[s + 3]);
+		dest[d + 4] = Math.max(dest[d + 4], src[s + 4]);
+		dest[d + 5] = Math.max(dest[d + 5], src[s + 5]);
+	}
+
+	/**
+	 * Finds the nearest hit among items accepted by filter.
+	 * @param filter may be null to test every item
+	 * @param test performs the exact intersection test for a single item
+	 * @return nearest hit, or a missed PickHit if nothing was hit
+	 */
+	public PickHit pick(PickRay ray, Predicate<? super T> filter, BiFunction<? super T, PickRay, PickHit> test)
+	{
+		PickHit closestHit = new PickHit(ray, Float.MAX_VALUE);
+		int closestOrder = Integer.MAX_VALUE;
+
+		if (numNodes == 0)
+			return closestHit;
+
+		float ox = ray.origin.x;
+		float oy = ray.origin.y;
+		float oz = ray.origin.z;
+		float dx = ray.direction.x;
+		float dy = ray.direction.y;
+		float dz = ray.direction.z;
+
+		int sp = 0;
+		stack[sp++] = 0;
+
+		while (sp > 0) {
+			int node = stack[--sp];
+
+			if (intersect(nodeBounds, 6 * node, ox, oy, oz, dx, dy, dz) > closestHit.dist)
+				continue;
+
+			if (nodeCount[node] > 0) {
+				int start = nodeStart[node];
+				for (int i = start; i < start + nodeCount[node]; i++) {
+					T item = items[i];
+					if (filter != null && !filter.test(item))
+						continue;
+
+					if (intersect(itemBounds, 6 * i, ox, oy, oz, dx, dy, dz) > closestHit.dist)
+						continue;
+
+					PickHit hit = test.apply(item, ray);
+					if (hit == null || hit.missed())
+						continue;
+
+					if (hit.dist < closestHit.dist || (hit.dist == closestHit.dist && order[i] < closestOrder)) {
+						closestHit = hit;
+						closestOrder = order[i];
+					}
+				}
+			}
+			else {
+				if (sp + 2 > stack.length)
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				stack[sp++] = nodeStart[node];
+				stack[sp++] = node + 1;
+			}
+		}
+
+		return closestHit;
+	}
+
+	/**
+	 * Collects items with bounds overlapping a box, in the same order as the list given to
+	 * {@link #build(List)}. The overlap test is conservative, callers should apply their
+	 * own exact test to the results.
+	 * @param filter may be null to accept every item
+	 */
+	public void query(BoundingBox box, Predicate<? super T> filter, List<? super T> out)
+	{
+		if (numNodes == 0 || box.isEmpty())
+			return;
+
+		float[] b = {
+				box.min.getX() - PADDING, box.min.getY() - PADDING, box.min.getZ() - PADDING,
+				box.max.getX() + PADDING, box.max.getY() + PADDING, box.max.getZ() + PADDING };
+
+		int[] found = new int[16];
+		int numFound = 0;
+
+		int sp = 0;
+		stack[sp++] = 0;
+
+		while (sp > 0) {
+			int node = stack[--sp];
+
+			if (!overlaps(nodeBounds, 6 * node, b))
+				continue;
+
+			if (nodeCount[node] > 0) {
+				int start = nodeStart[node];
+				for (int i = start; i < start + nodeCount[node]; i++) {
+					if (!overlaps(itemBounds, 6 * i, b))
+						continue;
+					if (filter != null && !filter.test(items[i]))
+						continue;
+
+					if (numFound == found.length)
+						found = Arrays.copyOf(found, 2 * found.length);
+					found[numFound++] = order[i];
+				}
+			}
+			else {
+				if (sp + 2 > stack.length)
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				stack[sp++] = nodeStart[node];
+				stack[sp++] = node + 1;
+			}
+		}
+
+		Arrays.sort(found, 0, numFound);
+		for (int i = 0; i < numFound; i++)
+			out.add(sourceItems[found[i]]);
+	}
+
+	private static boolean overlaps(float[] a, int p, float[] b)
+	{
+		return a[p + 0] <= b[3] && b[0] <= a[p + 3]
+			&& a[p + 1] <= b[4] && b[1] <= a[p + 4]
+			&& a[p + 2] <= b[5] && b[2] <= a[p + 5];
+	}
+
+	/**
+	 * Slab test against a padded box.
+	 * @return distance along the ray where it enters the box, or infinity if it misses
+	 */
+	private static float intersect(float[] b, int p, float ox, float oy, float oz, float dx, float dy, float dz)
+	{
+		if (b[p] > b[p + 3])
+			return Float.POSITIVE_INFINITY;
+
+		float tmin = Float.NEGATIVE_INFINITY;
+		float tmax = Float.POSITIVE_INFINITY;
+
+		if (dx == 0.0f) {
+			if (ox < b[p] - PADDING || ox > b[p + 3] + PADDING)
+				return Float.POSITIVE_INFINITY;
+		}
+		else {
+			float t1 = (b[p] - PADDING - ox) / dx;
+			float t2 = (b[p + 3] + PADDING - ox) / dx;
+			tmin = Math.max(tmin, Math.min(t1, t2));
+			tmax = Math.min(tmax, Math.max(t1, t2));
+		}
+
+		if (dy == 0.0f) {
+			if (oy < b[p + 1] - PADDING || oy > b[p + 4] + PADDING)
+				return Float.POSITIVE_INFINITY;
+		}
+		else {
+			float t1 = (b[p + 1] - PADDING - oy) / dy;
+			float t2 = (b[p + 4] + PADDING - oy) / dy;
+			tmin = Math.max(tmin, Math.min(t1, t2));
+			tmax = Math.min(tmax, Math.max(t1, t2));
+		}
+
+		if (dz == 0.0f) {
+			if (oz < b[p + 2] - PADDING || oz > b[p + 5] + PADDING)
+				return Float.POSITIVE_INFINITY;
+		}
+		else {
+			float t1 = (b[p + 2] - PADDING - oz) / dz;
+			float t2 = (b[p + 5] + PADDING - oz) / dz;
+			tmin = Math.max(tmin, Math.min(t1, t2));
+			tmax = Math.min(tmax, Math.max(t1, t2));
+		}
+
+		if (tmax < tmin || tmax < 0)
+			return Float.POSITIVE_INFINITY;
+
+		return Math.max(tmin, 0.0f);
+	}
+}
@@ -23,6 +23,13 @@ public interface Selectable
 
 	public void recalculateAABB();
 
+	/**
+	 * Queues the bounding boxes of any map objects affected by changes to this item
+	 * to be recalculated at the end of the frame.
+	 */
+	public default void markDirtyAABB()
+	{}
+
 	public boolean allowRotation(Axis axis);
 
 	public void addPoints(IdentityHashSet<MutablePoint> positions);
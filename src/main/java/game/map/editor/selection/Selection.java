@@ -172,8 +172,10 @@ public final class Selection<T extends Selectable>
 		transformPoints.clear();
 		transformAngles.clear();
 
-		for (T item : selectableList)
+		for (T item : selectableList) {
 			item.recalculateAABB();
+			item.markDirtyAABB();
+		}
 
 		updateAABB();
 
@@ -992,13 +994,18 @@ public final class Selection<T extends Selectable>
 	 */
 	public void removeAndDeselect(Iterable<T> items)
 	{
+		// remove in a single pass, removing items one at a time is quadratic for large selections
+		IdentityHashSet<T> removed = new IdentityHashSet<>();
 		for (T item : items) {
 			if (!item.isSelected())
 				continue;
 
-			selectableList.remove(item);
+			removed.add(item);
 			item.setSelected(false);
 		}
+
+		if (!removed.isEmpty())
+			selectableList.removeIf(removed::contains);
 		recalculateAABB();
 
 		if (selectableList.isEmpty())
@@ -1038,6 +1045,15 @@ public final class Selection<T extends Selectable>
 		return selectableList.get(selectableList.size() - 1);
 	}
 
+	/**
+	 * Queues the map object bounding boxes affected by this selection for recalculation.
+	 */
+	public void markDirtyAABBs()
+	{
+		for (T item : selectableList)
+			item.markDirtyAABB();
+	}
+
 	public void updateAABB()
 	{
 		recalculateAABB();
@@ -1287,12 +1303,14 @@ public final class Selection<T extends Selectable>
 	private static final class DirectTransformSelection<T extends Selectable> extends AbstractCommand
 	{
 		private LinkedList<PointBackup> backupList;
+		private ArrayList<T> items;
 		private Selection<T> selection;
 
 		public DirectTransformSelection(MapEditor editor, Selection<T> selection)
 		{
 			super("Direct Transform Selection");
 			backupList = new LinkedList<>();
+			items = new ArrayList<>(selection.selectableList);
 			this.selection = selection;
 
 			IdentityHashSet<MutablePoint> pointList = new IdentityHashSet<>();
@@ -1317,6 +1335,9 @@ public final class Selection<T extends Selectable>
 			for (PointBackup b : backupList)
 				b.pos.setPosition(b.newx, b.newy, b.newz);
 
+			for (T item : items)
+				item.markDirtyAABB();
+
 			selection.updateAABB();
 		}
 
@@ -1328,6 +1349,9 @@ public final class Selection<T extends Selectable>
 			for (PointBackup b : backupList)
 				b.pos.setPosition(b.oldx, b.oldy, b.oldz);
 
+			for (T item : items)
+				item.markDirtyAABB();
+
 			selection.updateAABB();
 		}
 	}
@@ -5,12 +5,15 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.swing.SwingUtilities;
 
+import app.Environment;
 import game.map.BoundingBox;
 import game.map.Map;
+import game.map.Map.TriangleCandidates;
 import game.map.MapObject;
 import game.map.MapObject.MapObjectType;
 import game.map.editor.MapEditor;
@@ -36,6 +39,7 @@ import game.map.shape.UV;
 import game.map.shape.commands.DisplayCommand;
 import game.map.shape.commands.DisplayCommand.CmdType;
 import game.texture.ModelTexture;
+import util.Logger;
 import util.identity.IdentityArrayList;
 import util.identity.IdentityHashSet;
 
@@ -68,6 +72,10 @@ public class SelectionManager
 
 	private SelectionMode selectionMode;
 
+	// region selections with more candidate triangles than this are tested off the editor thread
+	private static final int ASYNC_REGION_TRIANGLES = 20000;
+	private int regionSelectGeneration = 0;
+
 	private MapObjectType currentType;
 
 	public Selection<?> currentSelection;
@@ -554,6 +562,25 @@ public class SelectionManager
 			currentSelection.updateAABB();
 	}
 
+	/**
+	 * Objects being transformed change every frame until the transformation is finished.
+	 */
+	public void markTransformingAABBs()
+	{
+		if (currentSelection.transforming())
+			currentSelection.markDirtyAABBs();
+	}
+
+	/**
+	 * Queues bounding boxes of all selected objects for recalculation. Nearly every change
+	 * to the map is made to the current selection, so this is used after commands are
+	 * executed or undone to cover changes which do not mark bounding boxes themselves.
+	 */
+	public void markSelectedAABBs()
+	{
+		objectSelection.markDirtyAABBs();
+	}
+
 	public void selectAll(Map map)
 	{
 		switch (selectionMode) {
@@ -675,16 +702,22 @@ public class SelectionManager
 				break;
 
 			case TRIANGLE: {
-				List<Triangle> toAdd = new LinkedList<>();
-				List<Triangle> toRemove = new LinkedList<>();
-				for (Triangle t : map.getTrianglesWithinRegion(selectionBox)) {
-					if (t.selected)
-						toRemove.add(t);
-					else
-						toAdd.add(t);
+				regionSelectGeneration++;
+
+				List<TriangleCandidates> candidateSets = map.getTriangleCandidatesWithinRegion(selectionBox);
+				int numCandidates = 0;
+				for (TriangleCandidates candidates : candidateSets)
+					numCandidates += candidates.triangles.length;
+
+				if (numCandidates >= ASYNC_REGION_TRIANGLES) {
+					selectTrianglesWithinBoxAsync(selectionBox.deepCopy(), candidateSets);
+					break;
 				}
-				if (toAdd.size() != 0 || toRemove.size() != 0)
-					MapEditor.execute(getModifyTriangles(toAdd, toRemove, true));
+
+				List<Triangle> found = new ArrayList<>();
+				for (TriangleCandidates candidates : candidateSets)
+					found.addAll(Map.filterTrianglesWithinRegion(selectionBox, candidates));
+				toggleTriangles(found);
 			}
 				break;
 
@@ -726,6 +759,46 @@ public class SelectionManager
 		}
 	}
 
+	/**
+	 * Tests large sets of candidate triangles on worker threads. Each mesh's result is applied
+	 * on the editor thread as soon as it arrives, so the selection fills in while the rest are
+	 * still being tested. Starting another region selection or leaving triangle mode discards
+	 * any results still in flight.
+	 */
+	private void selectTrianglesWithinBoxAsync(BoundingBox selectionBox, List<TriangleCandidates> candidateSets)
+	{
+		int generation = regionSelectGeneration;
+
+		Logger.logf("Selecting triangles from %d meshes...", candidateSets.size());
+
+		for (TriangleCandidates candidates : candidateSets) {
+			CompletableFuture.supplyAsync(() -> Map.filterTrianglesWithinRegion(selectionBox, candidates), Environment.getExecutor())
+				.whenComplete((found, e) -> editor.doNextFrame(() -> {
+					if (generation != regionSelectGeneration || selectionMode != SelectionMode.TRIANGLE)
+						return;
+
+					if (e != null)
+						Logger.logError("Region selection failed: " + e.getMessage());
+					else
+						toggleTriangles(found);
+				}));
+		}
+	}
+
+	private void toggleTriangles(Iterable<Triangle> triangles)
+	{
+		List<Triangle> toAdd = new ArrayList<>();
+		List<Triangle> toRemove = new ArrayList<>();
+		for (Triangle t : triangles) {
+			if (t.selected)
+				toRemove.add(t);
+			else
+				toAdd.add(t);
+		}
+		if (toAdd.size() != 0 || toRemove.size() != 0)
+			MapEditor.execute(getModifyTriangles(toAdd, toRemove, true));
+	}
+
 	public void selectUVsWithinBox(BoundingBox selectionBox)
 	{
 		List<UV> toAdd = new LinkedList<>();
@@ -1251,6 +1324,54 @@ public class SelectionManager
 		}
 	}
 
+	/**
+	 * Equivalent to calling {@link #selectTriangle(Triangle)} for each triangle, but updates
+	 * the triangle selection in a single pass.
+	 */
+	private void selectTriangles(List<Triangle> triangles)
+	{
+		if (SwingUtilities.isEventDispatchThread())
+			throw new RuntimeException("Invalid state. Tried to select triangles from EDT.");
+
+		triangleSelection.addAndSelect(triangles);
+
+		for (Triangle t : triangles) {
+			AbstractMesh mesh = t.parentBatch.parentMesh;
+			if (mesh.selectedTriangleCount == 0) {
+				MapObject obj = mesh.parentObject;
+				objectSelection.addAndSelect(obj);
+				editorObjectUpdates.select(obj);
+			}
+			mesh.selectedTriangleCount++;
+		}
+	}
+
+	/**
+	 * Equivalent to calling {@link #deselectTriangle(Triangle, boolean)} for each triangle, but updates
+	 * the triangle and object selections in a single pass each.
+	 */
+	private void deselectTriangles(List<Triangle> triangles, boolean canDeselectMesh)
+	{
+		if (SwingUtilities.isEventDispatchThread())
+			throw new RuntimeException("Invalid state. Tried to deselect triangles from EDT.");
+
+		triangleSelection.removeAndDeselect(triangles);
+
+		List<MapObject> deselectedObjects = new ArrayList<>();
+		for (Triangle t : triangles) {
+			AbstractMesh mesh = t.parentBatch.parentMesh;
+			mesh.selectedTriangleCount--;
+			if (mesh.selectedTriangleCount == 0 && canDeselectMesh)
+				deselectedObjects.add(mesh.parentObject);
+		}
+
+		if (!deselectedObjects.isEmpty()) {
+			objectSelection.removeAndDeselect(deselectedObjects);
+			for (MapObject obj : deselectedObjects)
+				editorObjectUpdates.deselect(obj);
+		}
+	}
+
 	// STORY TIME
 	// In this method, updates from the Editor take precedence over changes from the GUI. Why is that?
 	// If we allow bidirectional updates in the same frame, conflicts may occur. Here is an example.
@@ -1518,6 +1639,16 @@ public class SelectionManager
 		private final List<SelectablePoint> removePoints = new LinkedList<>();
 		private final List<SelectablePoint> deselectPoints = new LinkedList<>();
 
+		// membership tests for the lists above, searching the lists is quadratic for large meshes
+		private final IdentityHashSet<Triangle> selectTriSet = new IdentityHashSet<>();
+		private final IdentityHashSet<Triangle> deselectTriSet = new IdentityHashSet<>();
+		private final IdentityHashSet<Vertex> addVertSet = new IdentityHashSet<>();
+		private final IdentityHashSet<Vertex> removeVertSet = new IdentityHashSet<>();
+		private final IdentityHashSet<Vertex> deselectVertSet = new IdentityHashSet<>();
+		private final IdentityHashSet<SelectablePoint> addPointSet = new IdentityHashSet<>();
+		private final IdentityHashSet<SelectablePoint> removePointSet = new IdentityHashSet<>();
+		private final IdentityHashSet<SelectablePoint> deselectPointSet = new IdentityHashSet<>();
+
 		private AbstractCommand subordinateSelectionChange = null;
 
 		public ModifyObjects(String msg, Iterable<? extends MapObject> addList, Iterable<? extends MapObject> removeList)
@@ -1567,7 +1698,7 @@ public class SelectionManager
 				case TRIANGLE:
 					if (obj.hasMesh()) {
 						for (Triangle t : obj.getMesh()) {
-							if (!t.isSelected() && !selectTris.contains(t))
+							if (!t.isSelected() && selectTriSet.add(t))
 								selectTris.add(t);
 						}
 					}
@@ -1576,7 +1707,7 @@ public class SelectionManager
 					if (obj.hasMesh()) {
 						for (Triangle t : obj.getMesh()) {
 							for (Vertex v : t.vert)
-								if (!addVerts.contains(v))
+								if (addVertSet.add(v))
 									addVerts.add(v);
 						}
 					}
@@ -1584,7 +1715,7 @@ public class SelectionManager
 				case POINT:
 					if (obj.hasSelectablePoints()) {
 						for (SelectablePoint p : obj.getSelectablePoints())
-							if (!addPoints.contains(p))
+							if (addPointSet.add(p))
 								addPoints.add(p);
 					}
 					break;
@@ -1599,7 +1730,7 @@ public class SelectionManager
 				case TRIANGLE:
 					if (obj.hasMesh()) {
 						for (Triangle t : obj.getMesh()) {
-							if (t.isSelected() && !deselectTris.contains(t))
+							if (t.isSelected() && deselectTriSet.add(t))
 								deselectTris.add(t);
 						}
 					}
@@ -1608,10 +1739,10 @@ public class SelectionManager
 					if (obj.hasMesh()) {
 						for (Triangle t : obj.getMesh()) {
 							for (Vertex v : t.vert) {
-								if (!removeVerts.contains(v))
+								if (removeVertSet.add(v))
 									removeVerts.add(v);
 
-								if (v.isSelected() && !deselectVerts.contains(v))
+								if (v.isSelected() && deselectVertSet.add(v))
 									deselectVerts.add(v);
 							}
 						}
@@ -1620,10 +1751,10 @@ public class SelectionManager
 				case POINT:
 					if (obj.hasSelectablePoints()) {
 						for (SelectablePoint p : obj.getSelectablePoints()) {
-							if (!removePoints.contains(p))
+							if (removePointSet.add(p))
 								removePoints.add(p);
 
-							if (p.isSelected() && !deselectPoints.contains(p))
+							if (p.isSelected() && deselectPointSet.add(p))
 								deselectPoints.add(p);
 						}
 					}
@@ -1654,7 +1785,7 @@ public class SelectionManager
 			// change working sets
 			switch (mode) {
 				case VERTEX:
-					vertexWorkingSet.removeAll(removeVerts);
+					vertexWorkingSet.removeIf(removeVertSet::contains);
 					vertexWorkingSet.addAll(addVerts);
 					break;
 				default:
@@ -1670,7 +1801,7 @@ public class SelectionManager
 			switch (mode) {
 				case VERTEX:
 					vertexWorkingSet.addAll(removeVerts);
-					vertexWorkingSet.removeAll(addVerts);
+					vertexWorkingSet.removeIf(addVertSet::contains);
 					break;
 				default:
 			}
@@ -1790,11 +1921,8 @@ public class SelectionManager
 		{
 			super.exec();
 
-			for (Triangle t : removeList)
-				deselectTriangle(t, canDeselectMesh);
-
-			for (Triangle t : addList)
-				selectTriangle(t);
+			deselectTriangles(removeList, canDeselectMesh);
+			selectTriangles(addList);
 		}
 
 		@Override
@@ -1802,11 +1930,8 @@ public class SelectionManager
 		{
 			super.undo();
 
-			for (Triangle t : addList)
-				deselectTriangle(t, canDeselectMesh);
-
-			for (Triangle t : removeList)
-				selectTriangle(t);
+			deselectTriangles(addList, canDeselectMesh);
+			selectTriangles(removeList);
 		}
 	}
 
@@ -1858,11 +1983,8 @@ public class SelectionManager
 		{
 			super.exec();
 
-			for (T selectable : removeList)
-				selection.removeAndDeselect(selectable);
-
-			for (T selectable : addList)
-				selection.addAndSelect(selectable);
+			selection.removeAndDeselect(removeList);
+			selection.addAndSelect(addList);
 		}
 
 		@Override
@@ -1870,11 +1992,8 @@ public class SelectionManager
 		{
 			super.undo();
 
-			for (T selectable : addList)
-				selection.removeAndDeselect(selectable);
-
-			for (T selectable : removeList)
-				selection.addAndSelect(selectable);
+			selection.removeAndDeselect(addList);
+			selection.addAndSelect(removeList);
 		}
 	}
 
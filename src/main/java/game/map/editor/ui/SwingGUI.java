@@ -1807,9 +1807,11 @@ public final class SwingGUI extends StarRodFrame implements ActionListener, Logg
 			extraInfoLabel.setText("");
 	}
 
-	public void displayFPS(double current, double max, double ms)
+	public void displayFPS(double current, double max, double ms, int bufferUploads, int boundingBoxRefreshes)
 	{
 		fpsLabel.setText(String.format("%s FPS  (%.1f ms)", (int) max, ms));
+		fpsLabel.setToolTipText(String.format("<html>Peak vertex buffer uploads per frame: %d<br>"
+			+ "Peak bounding box refreshes per frame: %d</html>", bufferUploads, boundingBoxRefreshes));
 	}
 
 	public void updateSnapLabel()
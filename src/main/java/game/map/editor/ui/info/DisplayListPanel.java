@@ -21,6 +21,7 @@ import javax.swing.DefaultListSelectionModel;
 import javax.swing.DropMode;
 import javax.swing.JButton;
 import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
@@ -38,10 +39,14 @@ import com.alexandriasoftware.swing.JSplitButton;
 
 import app.SwingUtils;
 import common.commands.AbstractCommand;
+import game.f3dex2.DisplayListCost;
+import game.map.Map;
+import game.map.compiler.DisplayListEstimator;
 import game.map.editor.MapEditor;
 import game.map.editor.MapEditor.IShutdownListener;
 import game.map.editor.ui.SwingGUI;
 import game.map.mesh.AbstractMesh;
+import game.map.mesh.TexturedMesh;
 import game.map.mesh.TexturedMesh.DisplayListModel;
 import game.map.mesh.Triangle;
 import game.map.shape.Model;
@@ -83,11 +88,20 @@ public class DisplayListPanel extends JPanel implements IShutdownListener, ListS
 	private boolean ignoreListSelectionEvents = false;
 	private boolean additiveSelection = false;
 
-	private Model mdl;
+	private volatile Model mdl;
 	private DisplayCommand popupCommand;
 
 	private int dropDestination;
 
+	private final DisplayListEstimator estimator = new DisplayListEstimator();
+
+	// state of the map when the cost labels were last updated, only used by the editor thread
+	private Model estimatedModel = null;
+	private int estimatedGeometryVersion = -1;
+	private int estimatedModelCount = -1;
+	private final JLabel modelCostLabel;
+	private final JLabel mapCostLabel;
+
 	private DisplayListPanel()
 	{
 		// list selection
@@ -339,6 +353,11 @@ public class DisplayListPanel extends JPanel implements IShutdownListener, ListS
 
 		add(addCommandButton, "growx, pushx, sg buttons, split 2");
 		add(cleanupButton, "growx, pushx, sg buttons");
+
+		modelCostLabel = new JLabel();
+		mapCostLabel = new JLabel();
+		add(modelCostLabel, "growx, gaptop 8");
+		add(mapCostLabel, "growx");
 	}
 
 	public void setModel(Model mdl)
@@ -354,6 +373,83 @@ public class DisplayListPanel extends JPanel implements IShutdownListener, ListS
 				commandList.addSelectionInterval(i, i);
 		}
 		ignoreListSelectionEvents = false;
+
+		// cost labels are refreshed by the editor thread on its next frame
+	}
+
+	/**
+	 * Called by the editor each frame after mesh buffers are prepared. Once the selected model
+	 * changes, any mesh has been rebuilt, or a model is added or removed, the display list cost
+	 * is estimated here on the editor thread and only the label text is passed to Swing.
+	 * Only models changed since the last estimate are recompiled, so this is cheap enough to
+	 * run after every edit.
+	 */
+	public static void checkForMeshChanges()
+	{
+		if (instance != null)
+			instance.checkMeshChanges();
+	}
+
+	private void checkMeshChanges()
+	{
+		Model model = mdl;
+		if (model == null || !isShowing())
+			return;
+
+		Map map = MapEditor.instance().map;
+		int geometryVersion = TexturedMesh.getGeometryVersion();
+		int modelCount = getModelCount(map);
+
+		if (model == estimatedModel && geometryVersion == estimatedGeometryVersion && modelCount == estimatedModelCount)
+			return;
+
+		estimatedModel = model;
+		estimatedGeometryVersion = geometryVersion;
+		estimatedModelCount = modelCount;
+
+		DisplayListCost modelCost;
+		DisplayListCost mapCost;
+		try {
+			modelCost = estimator.getCost(model);
+			mapCost = (map == null) ? null : estimator.getTotalCost(map);
+		}
+		catch (RuntimeException e) {
+			Logger.logWarning("Could not estimate display list cost: " + e.getMessage());
+			modelCost = null;
+			mapCost = null;
+		}
+
+		String modelText = getCostText("Model", modelCost);
+		String modelTooltip = (modelCost == null) ? null : modelCost.toString();
+		String mapText = getCostText("Map", mapCost);
+		String mapTooltip = (mapCost == null) ? null : mapCost.toString();
+
+		SwingUtilities.invokeLater(() -> {
+			modelCostLabel.setText(modelText);
+			modelCostLabel.setToolTipText(modelTooltip);
+			mapCostLabel.setText(mapText);
+			mapCostLabel.setToolTipText(mapTooltip);
+		});
+	}
+
+	private static int getModelCount(Map map)
+	{
+		if (map == null)
+			return 0;
+
+		int count = 0;
+		for (Iterator<Model> iter = map.modelTree.iterator(); iter.hasNext(); iter.next())
+			count++;
+		return count;
+	}
+
+	private static String getCostText(String name, DisplayListCost cost)
+	{
+		if (cost == null)
+			return "";
+
+		return String.format("%s: %d tris, %d loads, %d bytes, ~%d RSP cycles",
+			name, cost.triangles, cost.vertexLoads, cost.bytes, cost.rspCycles);
 	}
 
 	@Override
@@ -903,7 +999,7 @@ public class DisplayListPanel extends JPanel implements IShutdownListener, ListS
 			}
 
 			for (AbstractMesh mesh : meshes)
-				mesh.parentObject.dirtyAABB = true;
+				mesh.parentObject.markDirtyAABB();
 
 			// update the display command descriptions
 			commandList.repaint();
@@ -922,7 +1018,7 @@ public class DisplayListPanel extends JPanel implements IShutdownListener, ListS
 			}
 
 			for (AbstractMesh mesh : meshes)
-				mesh.parentObject.dirtyAABB = true;
+				mesh.parentObject.markDirtyAABB();
 
 			// update the display command descriptions
 			commandList.repaint();
@@ -957,7 +1053,7 @@ public class DisplayListPanel extends JPanel implements IShutdownListener, ListS
 				t.setParent(batch);
 			}
 
-			batch.parentMesh.parentObject.dirtyAABB = true;
+			batch.parentMesh.parentObject.markDirtyAABB();
 
 			// update the display command descriptions
 			DisplayListPanel.instance().commandList.repaint();
@@ -972,7 +1068,7 @@ public class DisplayListPanel extends JPanel implements IShutdownListener, ListS
 				batch.triangles.remove(t);
 			}
 
-			batch.parentMesh.parentObject.dirtyAABB = true;
+			batch.parentMesh.parentObject.markDirtyAABB();
 
 			// update the display command descriptions
 			DisplayListPanel.instance().commandList.repaint();
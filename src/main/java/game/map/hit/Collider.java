@@ -45,7 +45,7 @@ public class Collider extends HitObject implements XmlSerializable
 		c.setName(name);
 		c.mesh.batch = batch;
 		c.updateMeshHierarchy();
-		c.dirtyAABB = true;
+		c.markDirtyAABB();
 		return c;
 	}
 
@@ -56,7 +56,7 @@ public class Collider extends HitObject implements XmlSerializable
 		c.setName(name);
 		c.mesh = mesh;
 		c.updateMeshHierarchy();
-		c.dirtyAABB = true;
+		c.markDirtyAABB();
 		return c;
 	}
 
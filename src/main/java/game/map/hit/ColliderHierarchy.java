@@ -0,0 +1,231 @@
+package game.map.hit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import common.Vector3f;
+import game.map.BoundingBox;
+import game.map.MapObject.HitType;
+import game.map.tree.MapObjectNode;
+
+/**
+ * Groups colliders into a bounding volume hierarchy using the surface area heuristic.
+ * A query which hits a group tests the bounding box of every child, and the chance of a random
+ * query hitting a box is taken to be proportional to its surface area. Each split is placed where
+ * the expected number of box tests is lowest, and groups stop splitting when that would not
+ * reduce the expected number of tests.
+ */
+public class ColliderHierarchy
+{
+	public static final int DEFAULT_MAX_DEPTH = 8;
+	public static final int DEFAULT_LEAF_SIZE = 4;
+
+	// a split tests the bounding boxes of both halves before descending
+	private static final float SPLIT_COST = 2.0f;
+
+	/**
+	 * Either a single collider or a group of child nodes.
+	 * Bounds are stored as min xyz followed by max xyz, and are inverted for nodes without any extent.
+	 */
+	public static class Node
+	{
+		public final Collider collider;
+		public final List<Node> children;
+		public final float[] bounds = new float[6];
+
+		private Node(Collider collider)
+		{
+			this.collider = collider;
+			this.children = null;
+			setBounds(collider.AABB, bounds);
+		}
+
+		private Node(List<Node> children)
+		{
+			this.collider = null;
+			this.children = children;
+
+			setEmpty(bounds);
+			for (Node child : children)
+				encompass(bounds, child.bounds);
+		}
+
+		public boolean isGroup()
+		{
+			return children != null;
+		}
+	}
+
+	/**
+	 * Builds a hierarchy over a set of colliders.
+	 * @param maxDepth groups deeper than this are not split further
+	 * @param leafSize groups with more colliders than this are always split, unless at the maximum depth
+	 */
+	public static Node build(List<Collider> colliders, int maxDepth, int leafSize)
+	{
+		List<Node> leaves = new ArrayList<>(colliders.size());
+		for (Collider c : colliders)
+			leaves.add(new Node(c));
+
+		return buildNode(leaves, 0, Math.max(1, maxDepth), Math.max(1, leafSize));
+	}
+
+	private static Node buildNode(List<Node> items, int depth, int maxDepth, int leafSize)
+	{
+		int n = items.size();
+		Node group = new Node(items);
+
+		if (n <= 1 || depth >= maxDepth)
+			return group;
+
+		float parentArea = getHalfArea(group.bounds);
+		float bestCost = Float.POSITIVE_INFINITY;
+		int bestAxis = -1;
+		int bestSplit = -1;
+
+		float[] rightAreas = new float[n];
+		float[] box = new float[6];
+
+		for (int axis = 0; axis < 3; axis++) {
+			sortByCenter(items, axis);
+
+			// sweep from the right to find the area of every suffix
+			setEmpty(box);
+			for (int i = n - 1; i > 0; i--) {
+				encompass(box, items.get(i).bounds);
+				rightAreas[i] = getHalfArea(box);
+			}
+
+			// then from the left, evaluating each split between items i-1 and i
+			setEmpty(box);
+			for (int i = 1; i < n; i++) {
+				encompass(box, items.get(i - 1).bounds);
+				float leftArea = getHalfArea(box);
+
+				float cost = SPLIT_COST;
+				if (parentArea > 0)
+					cost += (leftArea * i + rightAreas[i] * (n - i)) / parentArea;
+				else
+					cost += n;
+
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestAxis = axis;
+					bestSplit = i;
+				}
+			}
+		}
+
+		// testing every item of a small group directly is cheaper than splitting it
+		if (n <= leafSize && bestCost >= n)
+			return group;
+
+		sortByCenter(items, bestAxis);
+
+		List<Node> children = new ArrayList<>(2);
+		children.add(buildChild(new ArrayList<>(items.subList(0, bestSplit)), depth, maxDepth, leafSize));
+		children.add(buildChild(new ArrayList<>(items.subList(bestSplit, n)), depth, maxDepth, leafSize));
+		return new Node(children);
+	}
+
+	private static Node buildChild(List<Node> items, int depth, int maxDepth, int leafSize)
+	{
+		// a lone collider does not need a group of its own
+		if (items.size() == 1)
+			return items.get(0);
+
+		return buildNode(items, depth + 1, maxDepth, leafSize);
+	}
+
+	private static void sortByCenter(List<Node> items, int axis)
+	{
+		// stable, so ties keep their existing order and builds are repeatable
+		items.sort(Comparator.comparingDouble((Node node) -> getCenter(node.bounds, axis)));
+	}
+
+	/**
+	 * Mirrors an existing collider tree, so it can be compared with a built hierarchy.
+	 * Group bounds are computed from their children, as they are when the map is compiled.
+	 * @param skip colliders to leave out of the copy
+	 */
+	public static Node fromTree(MapObjectNode<Collider> root, Set<Collider> skip)
+	{
+		List<Node> children = new ArrayList<>(root.getChildCount());
+
+		for (int i = 0; i < root.getChildCount(); i++) {
+			MapObjectNode<Collider> childNode = root.getChildAt(i);
+			Collider child = childNode.getUserObject();
+
+			if (skip.contains(child))
+				continue;
+
+			if (child.getType() == HitType.HIT)
+				children.add(new Node(child));
+			else
+				children.add(fromTree(childNode, skip));
+		}
+
+		return new Node(children);
+	}
+
+	/**
+	 * @return a copy of a node with an extra child added to it
+	 */
+	public static Node withChild(Node group, Node child)
+	{
+		List<Node> children = new ArrayList<>(group.children);
+		children.add(child);
+		return new Node(children);
+	}
+
+	private static void setBounds(BoundingBox bb, float[] out)
+	{
+		if (bb == null || bb.isEmpty()) {
+			setEmpty(out);
+			return;
+		}
+
+		Vector3f min = bb.getMin();
+		Vector3f max = bb.getMax();
+		out[0] = min.x;
+		out[1] = min.y;
+		out[2] = min.z;
+		out[3] = max.x;
+		out[4] = max.y;
+		out[5] = max.z;
+	}
+
+	private static void setEmpty(float[] out)
+	{
+		Arrays.fill(out, 0, 3, Float.POSITIVE_INFINITY);
+		Arrays.fill(out, 3, 6, Float.NEGATIVE_INFINITY);
+	}
+
+	private static void encompass(float[] out, float[] other)
+	{
+		for (int i = 0; i < 3; i++) {
+			out[i] = Math.min(out[i], other[i]);
+			out[i + 3] = Math.max(out[i + 3], other[i + 3]);
+		}
+	}
+
+	private static float getCenter(float[] bounds, int axis)
+	{
+		return (bounds[axis] <= bounds[axis + 3]) ? (bounds[axis] + bounds[axis + 3]) / 2 : 0.0f;
+	}
+
+	private static float getHalfArea(float[] bounds)
+	{
+		float dx = bounds[3] - bounds[0];
+		float dy = bounds[4] - bounds[1];
+		float dz = bounds[5] - bounds[2];
+
+		if (dx < 0 || dy < 0 || dz < 0)
+			return 0.0f;
+
+		return dx * dy + dy * dz + dz * dx;
+	}
+}
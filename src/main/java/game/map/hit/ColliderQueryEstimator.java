@@ -0,0 +1,204 @@
+package game.map.hit;
+
+import java.util.Random;
+
+import game.map.hit.ColliderHierarchy.Node;
+
+/**
+ * Estimates how many bounding box tests collision queries make against a collider hierarchy,
+ * by replaying a fixed set of sample queries spread over an area. The root itself is never tested.
+ * A query which hits a group goes on to test each of its children, and one which hits a collider
+ * goes on to test its triangles.
+ * <p>
+ * Rays follow the common cases in the game: downward floor probes from above the area and short
+ * horizontal wall probes. Capsules approximate a player sized actor standing anywhere in the area.
+ * The same seed is used for every estimate, so hierarchies over the same area get the same queries.
+ */
+public class ColliderQueryEstimator
+{
+	private static final long SEED = 0x5EED;
+
+	private static final float WALL_PROBE_LENGTH = 32.0f;
+	private static final float CAPSULE_RADIUS = 12.0f;
+	private static final float CAPSULE_HEIGHT = 40.0f;
+
+	public static class Result
+	{
+		public final int numRays;
+		public final int numCapsules;
+		public final double rayBoxTests;
+		public final double capsuleBoxTests;
+		public final double rayColliderHits;
+		public final double capsuleColliderHits;
+
+		private Result(int numRays, int numCapsules, long rayTests, long capsuleTests, long rayHits, long capsuleHits)
+		{
+			this.numRays = numRays;
+			this.numCapsules = numCapsules;
+			rayBoxTests = (numRays > 0) ? (double) rayTests / numRays : 0;
+			capsuleBoxTests = (numCapsules > 0) ? (double) capsuleTests / numCapsules : 0;
+			rayColliderHits = (numRays > 0) ? (double) rayHits / numRays : 0;
+			capsuleColliderHits = (numCapsules > 0) ? (double) capsuleHits / numCapsules : 0;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%.1f box tests per ray, %.1f per capsule", rayBoxTests, capsuleBoxTests);
+		}
+	}
+
+	// counts for the query in progress
+	private long boxTests;
+	private long colliderHits;
+
+	/**
+	 * @param area bounds to spread the queries over, as min xyz followed by max xyz
+	 */
+	public static Result estimate(Node root, float[] area, int numQueries)
+	{
+		return new ColliderQueryEstimator().run(root, area, numQueries);
+	}
+
+	private Result run(Node root, float[] area, int numQueries)
+	{
+		Random rng = new Random(SEED);
+
+		if (area[0] > area[3] || area[1] > area[4] || area[2] > area[5])
+			return new Result(0, 0, 0, 0, 0, 0);
+
+		float[] origin = new float[3];
+		float[] dir = new float[3];
+		float[] box = new float[6];
+
+		long rayTests = 0;
+		long rayHits = 0;
+		for (int i = 0; i < numQueries; i++) {
+			float x = lerp(area[0], area[3], rng.nextFloat());
+			float y = lerp(area[1], area[4], rng.nextFloat());
+			float z = lerp(area[2], area[5], rng.nextFloat());
+
+			float length;
+			if ((i & 1) == 0) {
+				// floor probe through the whole area
+				set(origin, x, area[4] + 1.0f, z);
+				set(dir, 0.0f, -1.0f, 0.0f);
+				length = area[4] - area[1] + 2.0f;
+			}
+			else {
+				double angle = 2.0 * Math.PI * rng.nextDouble();
+				set(origin, x, y, z);
+				set(dir, (float) Math.cos(angle), 0.0f, (float) Math.sin(angle));
+				length = WALL_PROBE_LENGTH;
+			}
+
+			boxTests = 0;
+			colliderHits = 0;
+			visitRay(root, origin, dir, length);
+			rayTests += boxTests;
+			rayHits += colliderHits;
+		}
+
+		long capsuleTests = 0;
+		long capsuleHits = 0;
+		for (int i = 0; i < numQueries; i++) {
+			float x = lerp(area[0], area[3], rng.nextFloat());
+			float y = lerp(area[1], area[4], rng.nextFloat());
+			float z = lerp(area[2], area[5], rng.nextFloat());
+
+			box[0] = x - CAPSULE_RADIUS;
+			box[1] = y;
+			box[2] = z - CAPSULE_RADIUS;
+			box[3] = x + CAPSULE_RADIUS;
+			box[4] = y + CAPSULE_HEIGHT;
+			box[5] = z + CAPSULE_RADIUS;
+
+			boxTests = 0;
+			colliderHits = 0;
+			visitBox(root, box);
+			capsuleTests += boxTests;
+			capsuleHits += colliderHits;
+		}
+
+		return new Result(numQueries, numQueries, rayTests, capsuleTests, rayHits, capsuleHits);
+	}
+
+	private void visitRay(Node group, float[] origin, float[] dir, float length)
+	{
+		for (Node child : group.children) {
+			boxTests++;
+			if (!intersectsRay(child.bounds, origin, dir, length))
+				continue;
+
+			if (child.isGroup())
+				visitRay(child, origin, dir, length);
+			else
+				colliderHits++;
+		}
+	}
+
+	private void visitBox(Node group, float[] box)
+	{
+		for (Node child : group.children) {
+			boxTests++;
+			if (!overlaps(child.bounds, box))
+				continue;
+
+			if (child.isGroup())
+				visitBox(child, box);
+			else
+				colliderHits++;
+		}
+	}
+
+	private static boolean intersectsRay(float[] bounds, float[] origin, float[] dir, float length)
+	{
+		float tmin = 0.0f;
+		float tmax = length;
+
+		for (int i = 0; i < 3; i++) {
+			float min = bounds[i];
+			float max = bounds[i + 3];
+
+			if (min > max)
+				return false;
+
+			if (dir[i] == 0.0f) {
+				if (origin[i] < min || origin[i] > max)
+					return false;
+				continue;
+			}
+
+			float t1 = (min - origin[i]) / dir[i];
+			float t2 = (max - origin[i]) / dir[i];
+			tmin = Math.max(tmin, Math.min(t1, t2));
+			tmax = Math.min(tmax, Math.max(t1, t2));
+
+			if (tmin > tmax)
+				return false;
+		}
+
+		return true;
+	}
+
+	private static boolean overlaps(float[] bounds, float[] box)
+	{
+		for (int i = 0; i < 3; i++) {
+			if (bounds[i] > box[i + 3] || bounds[i + 3] < box[i])
+				return false;
+		}
+		return true;
+	}
+
+	private static void set(float[] v, float x, float y, float z)
+	{
+		v[0] = x;
+		v[1] = y;
+		v[2] = z;
+	}
+
+	private static float lerp(float a, float b, float t)
+	{
+		return a + (b - a) * t;
+	}
+}
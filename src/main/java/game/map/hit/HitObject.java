@@ -10,7 +10,6 @@ import game.map.editor.selection.PickRay;
 import game.map.editor.selection.PickRay.PickHit;
 import game.map.mesh.AbstractMesh;
 import game.map.mesh.BasicMesh;
-import game.map.mesh.Triangle;
 import util.xml.XmlWrapper.XmlReader;
 import util.xml.XmlWrapper.XmlSerializable;
 import util.xml.XmlWrapper.XmlTag;
@@ -91,11 +90,9 @@ public abstract class HitObject extends MapObject implements XmlSerializable
 		if (!PickRay.intersects(ray, AABB))
 			return nearestHit;
 
-		for (Triangle t : mesh) {
-			PickHit hit = PickRay.getIntersection(ray, t);
-			if (hit.dist < nearestHit.dist)
-				nearestHit = hit;
-		}
+		PickHit hit = mesh.getPickTree().pick(ray);
+		if (hit.dist < nearestHit.dist)
+			nearestHit = hit;
 
 		nearestHit.obj = this;
 		return nearestHit;
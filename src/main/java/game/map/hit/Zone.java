@@ -50,7 +50,7 @@ public class Zone extends HitObject implements XmlSerializable
 		z.setName(name);
 		z.mesh.batch = batch;
 		z.updateMeshHierarchy();
-		z.dirtyAABB = true;
+		z.markDirtyAABB();
 		return z;
 	}
 
@@ -61,7 +61,7 @@ public class Zone extends HitObject implements XmlSerializable
 		z.setName(name);
 		z.mesh = mesh;
 		z.updateMeshHierarchy();
-		z.dirtyAABB = true;
+		z.markDirtyAABB();
 		return z;
 	}
 
@@ -18,6 +18,25 @@ public abstract class AbstractMesh implements Iterable<Triangle>
 	public BufferedMesh buffer = null;
 	private final int meshFlags;
 
+	/**
+	 * Vertex buffers stay resident between frames. Each frame the mesh computes cheap hashes
+	 * of its geometry and selection state and only uploads when these differ from the hashes
+	 * of the data currently in the buffer, so every kind of edit is picked up without
+	 * requiring each one to mark the mesh dirty. Changes to the display list structure set
+	 * dirtyBuffer directly.
+	 */
+	protected transient boolean dirtyBuffer = true;
+	protected transient long bufferedGeometryHash;
+	protected transient long bufferedSelectionHash;
+
+	/**
+	 * Triangle hierarchy for ray picking, created on the first pick against this mesh.
+	 */
+	private transient TrianglePickTree pickTree = null;
+
+	private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+
 	public AbstractMesh(int meshFlags)
 	{
 		this.meshFlags = meshFlags;
@@ -35,6 +54,51 @@ public abstract class AbstractMesh implements Iterable<Triangle>
 		buffer.setVAO();
 	}
 
+	public void setDirty()
+	{
+		dirtyBuffer = true;
+	}
+
+	public TrianglePickTree getPickTree()
+	{
+		if (pickTree == null)
+			pickTree = new TrianglePickTree(this);
+		return pickTree;
+	}
+
+	/**
+	 * Called whenever the bounding box of the parent object is recalculated, so the pick tree
+	 * follows edits to the mesh. Meshes which have never been picked skip the check.
+	 */
+	public void updatePickTree()
+	{
+		if (pickTree != null)
+			pickTree.checkForChanges();
+	}
+
+	protected static long hashStart()
+	{
+		return FNV_OFFSET;
+	}
+
+	protected static long hash(long h, int value)
+	{
+		return (h ^ value) * FNV_PRIME;
+	}
+
+	protected static long hash(long h, float value)
+	{
+		return hash(h, Float.floatToIntBits(value));
+	}
+
+	protected static long hashVertex(long h, Vertex v)
+	{
+		h = hash(h, v.getCurrentX());
+		h = hash(h, v.getCurrentY());
+		h = hash(h, v.getCurrentZ());
+		return h;
+	}
+
 	public abstract AbstractMesh deepCopy();
 
 	public abstract void updateHierarchy();
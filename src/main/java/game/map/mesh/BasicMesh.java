@@ -86,27 +86,70 @@ public class BasicMesh extends AbstractMesh implements Iterable<Triangle>, XmlSe
 			colors = hitObj.getColors(opts.useColliderColoring);
 
 		validateBuffer();
-		buffer.clear();
 		boolean selectionEnabled = (opts.editorMode == EditorMode.Modify || opts.editorMode == EditorMode.Scripts);
-		for (TriangleBatch batch : getBatches()) {
-			batch.bufferStartPos = -1;
+
+		long geometryHash = hashStart();
+		long selectionHash = hashStart();
+
+		for (Color4f color : colors) {
+			selectionHash = hash(selectionHash, color.r);
+			selectionHash = hash(selectionHash, color.g);
+			selectionHash = hash(selectionHash, color.b);
+			selectionHash = hash(selectionHash, color.a);
+		}
+
+		geometryHash = hash(geometryHash, batch.triangles.size());
+		for (Triangle t : batch.triangles) {
+			for (Vertex v : t.vert)
+				geometryHash = hashVertex(geometryHash, v);
+			selectionHash = hash(selectionHash, isSelected(t, opts, selectionEnabled) ? 1 : 0);
+			selectionHash = hash(selectionHash, t.doubleSided ? 1 : 0);
+		}
+
+		if (dirtyBuffer || geometryHash != bufferedGeometryHash) {
+			buffer.clear();
+			for (TriangleBatch batch : getBatches()) {
+				batch.bufferStartPos = -1;
+				for (Triangle t : batch.triangles) {
+					int triStart = addTriangle(t, getColor(t, colors, opts, selectionEnabled));
+					if (batch.bufferStartPos < 0)
+						batch.bufferStartPos = triStart;
+				}
+			}
+			buffer.loadBuffers();
+		}
+		else if (selectionHash != bufferedSelectionHash) {
+			// only colors depend on selection, leave positions resident
+			int pos = batch.bufferStartPos;
 			for (Triangle t : batch.triangles) {
-				boolean selected = selectionEnabled &&
-					(opts.selectionMode == SelectionMode.TRIANGLE && t.selected) ||
-					(opts.selectionMode == SelectionMode.OBJECT && parentObject.selected);
-
-				Color4f color = colors[1];
-				if (t.doubleSided)
-					color = colors[2];
-				if (selected)
-					color = colors[0];
-
-				int triStart = addTriangle(t, color);
-				if (batch.bufferStartPos < 0)
-					batch.bufferStartPos = triStart;
+				Color4f color = getColor(t, colors, opts, selectionEnabled);
+				buffer.getVertex(pos++).setColor(color.r, color.g, color.b, color.a);
+				buffer.getVertex(pos++).setColor(color.r, color.g, color.b, color.a);
+				buffer.getVertex(pos++).setColor(color.r, color.g, color.b, color.a);
 			}
+			buffer.updateBuffers(VBO_COLOR);
 		}
-		buffer.loadBuffers();
+
+		bufferedGeometryHash = geometryHash;
+		bufferedSelectionHash = selectionHash;
+		dirtyBuffer = false;
+	}
+
+	private boolean isSelected(Triangle t, RenderingOptions opts, boolean selectionEnabled)
+	{
+		return selectionEnabled &&
+			(opts.selectionMode == SelectionMode.TRIANGLE && t.selected) ||
+			(opts.selectionMode == SelectionMode.OBJECT && parentObject.selected);
+	}
+
+	private Color4f getColor(Triangle t, Color4f[] colors, RenderingOptions opts, boolean selectionEnabled)
+	{
+		if (isSelected(t, opts, selectionEnabled))
+			return colors[0];
+		else if (t.doubleSided)
+			return colors[2];
+		else
+			return colors[1];
 	}
 
 	private int addTriangle(Triangle t, Color4f color)
@@ -36,7 +36,8 @@ public class TexturedMesh extends AbstractMesh implements XmlSerializable
 
 	public transient DisplayListModel displayListModel;
 
-	private transient boolean dirtyBuffer = true;
+	// incremented whenever any textured mesh rebuilds its buffer after an edit, see getGeometryVersion
+	private static volatile int geometryVersion = 0;
 
 	public String textureName = "";
 
@@ -130,30 +131,65 @@ public class TexturedMesh extends AbstractMesh implements XmlSerializable
 	@Override
 	public void prepareVertexBuffers(RenderingOptions opts)
 	{
-		// when profiling this is nearly INSTANT -- so its perfectly fine to just reload the buffers every frame
-		//	if(!dirtyBuffer)
-		//		return;
-
 		validateBuffer();
-		buffer.clear();
 		boolean selectionEnabled = (opts.editorMode == EditorMode.Modify || opts.editorMode == EditorMode.Scripts);
-		for (TriangleBatch batch : getBatches()) {
-			batch.bufferStartPos = -1;
+
+		long geometryHash = hashStart();
+		long selectionHash = hashStart();
+
+		for (int i = 0; i < displayListModel.size(); i++) {
+			if (!(displayListModel.getElementAt(i) instanceof TriangleBatch batch))
+				continue;
+
+			geometryHash = hash(geometryHash, batch.triangles.size());
 			for (Triangle t : batch.triangles) {
-				int triStart = addTexturedTriangle(t, selectionEnabled &&
-					(opts.selectionMode == SelectionMode.TRIANGLE && t.selected) ||
-					(opts.selectionMode == SelectionMode.OBJECT && parentObject.selected));
-				if (batch.bufferStartPos < 0)
-					batch.bufferStartPos = triStart;
+				for (Vertex v : t.vert) {
+					geometryHash = hashVertex(geometryHash, v);
+					geometryHash = hash(geometryHash, v.uv.getU());
+					geometryHash = hash(geometryHash, v.uv.getV());
+					geometryHash = hash(geometryHash, (v.r << 24) | (v.g << 16) | (v.b << 8) | v.a);
+				}
+				selectionHash = hash(selectionHash, isSelected(t, opts, selectionEnabled) ? 1 : 0);
+			}
+		}
+
+		if (dirtyBuffer || geometryHash != bufferedGeometryHash) {
+			geometryVersion++;
+			buffer.clear();
+			for (TriangleBatch batch : getBatches()) {
+				batch.bufferStartPos = -1;
+				for (Triangle t : batch.triangles) {
+					int triStart = addTexturedTriangle(t, isSelected(t, opts, selectionEnabled));
+					if (batch.bufferStartPos < 0)
+						batch.bufferStartPos = triStart;
+				}
 			}
+			buffer.loadBuffers();
 		}
-		buffer.loadBuffers();
-		//	dirtyBuffer = false;
+		else if (selectionHash != bufferedSelectionHash) {
+			// selection is stored in its own small attribute, leave everything else resident
+			for (TriangleBatch batch : getBatches()) {
+				int pos = batch.bufferStartPos;
+				for (Triangle t : batch.triangles) {
+					float aux = isSelected(t, opts, selectionEnabled) ? 1.0f : 0.0f;
+					buffer.getVertex(pos++).setAux(0, aux);
+					buffer.getVertex(pos++).setAux(0, aux);
+					buffer.getVertex(pos++).setAux(0, aux);
+				}
+			}
+			buffer.updateBuffers(VBO_AUX);
+		}
+
+		bufferedGeometryHash = geometryHash;
+		bufferedSelectionHash = selectionHash;
+		dirtyBuffer = false;
 	}
 
-	public void setDirty()
+	private boolean isSelected(Triangle t, RenderingOptions opts, boolean selectionEnabled)
 	{
-		dirtyBuffer = true;
+		return selectionEnabled &&
+			(opts.selectionMode == SelectionMode.TRIANGLE && t.selected) ||
+			(opts.selectionMode == SelectionMode.OBJECT && parentObject.selected);
 	}
 
 	private int addTexturedTriangle(Triangle t, boolean selected)
@@ -180,6 +216,15 @@ public class TexturedMesh extends AbstractMesh implements XmlSerializable
 			.getIndex();
 	}
 
+	/**
+	 * Every map mesh is prepared each frame, so a change in this value means some mesh
+	 * or display list was edited, regardless of which command made the edit.
+	 */
+	public static int getGeometryVersion()
+	{
+		return geometryVersion;
+	}
+
 	public void setTexture(String texName)
 	{
 		if (texName.isEmpty())
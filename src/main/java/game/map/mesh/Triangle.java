@@ -230,7 +230,13 @@ public class Triangle implements XmlSerializable, Selectable
 	@Override
 	public void recalculateAABB()
 	{
-		parentBatch.parentMesh.parentObject.dirtyAABB = true;
+		markDirtyAABB();
+	}
+
+	@Override
+	public void markDirtyAABB()
+	{
+		parentBatch.parentMesh.parentObject.markDirtyAABB();
 	}
 
 	@Override
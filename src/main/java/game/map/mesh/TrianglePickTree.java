@@ -0,0 +1,115 @@
+package game.map.mesh;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import game.map.BoundingBox;
+import game.map.editor.selection.PickRay;
+import game.map.editor.selection.PickRay.PickHit;
+import game.map.editor.selection.PickTree;
+
+/**
+ * Picking hierarchy over the triangles of a single mesh. Owned by {@link AbstractMesh} and
+ * checked for changes whenever the bounding box of the parent object is recalculated.
+ * Moving vertices only refits the tree, adding or removing triangles rebuilds it.
+ */
+public class TrianglePickTree extends PickTree<Triangle>
+{
+	private final AbstractMesh mesh;
+
+	private long topologyHash;
+	private long positionHash;
+
+	private boolean needsRebuild = true;
+	private boolean needsRefit = false;
+
+	public TrianglePickTree(AbstractMesh mesh)
+	{
+		this.mesh = mesh;
+	}
+
+	@Override
+	protected void getBounds(Triangle t, float[] out, int pos)
+	{
+		Vertex v0 = t.vert[0];
+		Vertex v1 = t.vert[1];
+		Vertex v2 = t.vert[2];
+
+		int x0 = v0.getCurrentX(), y0 = v0.getCurrentY(), z0 = v0.getCurrentZ();
+		int x1 = v1.getCurrentX(), y1 = v1.getCurrentY(), z1 = v1.getCurrentZ();
+		int x2 = v2.getCurrentX(), y2 = v2.getCurrentY(), z2 = v2.getCurrentZ();
+
+		out[pos + 0] = Math.min(x0, Math.min(x1, x2));
+		out[pos + 1] = Math.min(y0, Math.min(y1, y2));
+		out[pos + 2] = Math.min(z0, Math.min(z1, z2));
+		out[pos + 3] = Math.max(x0, Math.max(x1, x2));
+		out[pos + 4] = Math.max(y0, Math.max(y1, y2));
+		out[pos + 5] = Math.max(z0, Math.max(z1, z2));
+	}
+
+	/**
+	 * Compares the mesh against the state captured when the tree was last built or refit
+	 * and schedules whichever update is required. Runs in linear time with no allocation.
+	 */
+	public void checkForChanges()
+	{
+		long topology = AbstractMesh.hashStart();
+		long position = AbstractMesh.hashStart();
+
+		for (Triangle t : mesh) {
+			topology = AbstractMesh.hash(topology, System.identityHashCode(t));
+			for (Vertex v : t.vert)
+				position = AbstractMesh.hashVertex(position, v);
+		}
+
+		if (topology != topologyHash)
+			needsRebuild = true;
+		else if (position != positionHash)
+			needsRefit = true;
+
+		topologyHash = topology;
+		positionHash = position;
+	}
+
+	/**
+	 * Finds the nearest triangle hit by a ray.
+	 * @return nearest hit with obj set to the triangle, or a missed PickHit
+	 */
+	public PickHit pick(PickRay ray)
+	{
+		validate();
+		return pick(ray, null, TrianglePickTree::pickTriangle);
+	}
+
+	/**
+	 * Collects the triangles whose bounds overlap a box, in mesh order.
+	 */
+	public void query(BoundingBox box, List<Triangle> out)
+	{
+		validate();
+		query(box, null, out);
+	}
+
+	private void validate()
+	{
+		if (needsRebuild) {
+			ArrayList<Triangle> triangles = new ArrayList<>();
+			for (Triangle t : mesh)
+				triangles.add(t);
+			build(triangles);
+			needsRebuild = false;
+			needsRefit = false;
+		}
+		else if (needsRefit) {
+			refit();
+			needsRefit = false;
+		}
+	}
+
+	private static PickHit pickTriangle(Triangle t, PickRay ray)
+	{
+		PickHit hit = PickRay.getIntersection(ray, t);
+		hit.obj = t;
+		return hit;
+	}
+}
@@ -310,11 +310,17 @@ public class Vertex implements XmlSerializable, Selectable
 
 	@Override
 	public void recalculateAABB()
+	{
+		markDirtyAABB();
+	}
+
+	@Override
+	public void markDirtyAABB()
 	{
 		if (parentMesh == null || parentMesh.parentObject == null)
 			return;
 
-		parentMesh.parentObject.dirtyAABB = true;
+		parentMesh.parentObject.markDirtyAABB();
 	}
 
 	@Override
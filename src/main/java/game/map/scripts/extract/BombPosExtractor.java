@@ -15,29 +15,29 @@ public class BombPosExtractor
 		};
 	*/
 
-	private static final Matcher BombPosMatcher = Pattern.compile(
+	private static final Pattern BombPosPattern = Pattern.compile(
 		"(BombTrigger \\S+ = \\{\\n)" +
 			"\\s+\\.pos = \\{ (\\S+), (\\S+), (\\S+) }," +
 			"\\s+\\.diameter = (\\S+),?"
-	).matcher("");
+	);
 
 	protected static void findAndReplace(Extractor extractor)
 	{
 		String workingText = extractor.getFileText();
 		StringBuilder out = null;
-		BombPosMatcher.reset(workingText);
+		Matcher bombPosMatcher = BombPosPattern.matcher(workingText);
 
 		boolean modified = false;
-		while (BombPosMatcher.find()) {
+		while (bombPosMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
 
-			String declaration = BombPosMatcher.group(1);
-			float x = Float.parseFloat(BombPosMatcher.group(2));
-			float y = Float.parseFloat(BombPosMatcher.group(3));
-			float z = Float.parseFloat(BombPosMatcher.group(4));
-			float r = Float.parseFloat(BombPosMatcher.group(5)) / 2.0f;
+			String declaration = bombPosMatcher.group(1);
+			float x = Float.parseFloat(bombPosMatcher.group(2));
+			float y = Float.parseFloat(bombPosMatcher.group(3));
+			float z = Float.parseFloat(bombPosMatcher.group(4));
+			float r = Float.parseFloat(bombPosMatcher.group(5)) / 2.0f;
 
 			String markerName = extractor.getNextName("BombPos");
 			Marker m = new Marker(markerName, MarkerType.Sphere, x, y, z, 0);
@@ -51,11 +51,11 @@ public class BombPosExtractor
 			newList.append(String.format("    .pos = { %s_VEC },%n", genName));
 			newList.append(String.format("    .diameter = 2.0f * %s_RAD,", genName));
 
-			BombPosMatcher.appendReplacement(out, newList.toString());
+			bombPosMatcher.appendReplacement(out, newList.toString());
 		}
 
 		if (modified) {
-			BombPosMatcher.appendTail(out);
+			bombPosMatcher.appendTail(out);
 			extractor.setFileText(out.toString());
 		}
 	}
@@ -8,32 +8,31 @@ import game.map.marker.Marker.MarkerType;
 
 public class DripVolumeExtractor
 {
-	private static final Matcher DripVolumeMatcher = Pattern.compile(
+	private static final Pattern DripVolumePattern = Pattern.compile(
 		"( +)\\.minPos\\s*=\\s*\\{\\s*(\\S+),\\s*(\\S+)\\s*\\}," +
 			"\\s+\\.maxPos\\s*=\\s*\\{\\s*(\\S+),\\s*(\\S+)\\s*\\}," +
 			"\\s+\\.startY\\s*=\\s*(\\S+)," +
-			"\\s+\\.endY\\s*=\\s*(\\S+),")
-		.matcher("");
+			"\\s+\\.endY\\s*=\\s*(\\S+),");
 
 	protected static void findAndReplace(Extractor extractor)
 	{
 		String workingText = extractor.getFileText();
 		StringBuilder out = null;
-		DripVolumeMatcher.reset(workingText);
+		Matcher dripVolumeMatcher = DripVolumePattern.matcher(workingText);
 
 		boolean modified = false;
-		while (DripVolumeMatcher.find()) {
+		while (dripVolumeMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
 
-			String indent = DripVolumeMatcher.group(1);
-			float minX = Float.parseFloat(DripVolumeMatcher.group(2));
-			float minZ = Float.parseFloat(DripVolumeMatcher.group(3));
-			float maxX = Float.parseFloat(DripVolumeMatcher.group(4));
-			float maxZ = Float.parseFloat(DripVolumeMatcher.group(5));
-			float maxY = Float.parseFloat(DripVolumeMatcher.group(6));
-			float minY = Float.parseFloat(DripVolumeMatcher.group(7));
+			String indent = dripVolumeMatcher.group(1);
+			float minX = Float.parseFloat(dripVolumeMatcher.group(2));
+			float minZ = Float.parseFloat(dripVolumeMatcher.group(3));
+			float maxX = Float.parseFloat(dripVolumeMatcher.group(4));
+			float maxZ = Float.parseFloat(dripVolumeMatcher.group(5));
+			float maxY = Float.parseFloat(dripVolumeMatcher.group(6));
+			float minY = Float.parseFloat(dripVolumeMatcher.group(7));
 
 			String markerName = extractor.getNextName("DripVolume");
 			Marker m = new Marker(markerName, MarkerType.Volume, (minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2, 0);
@@ -49,11 +48,11 @@ public class DripVolumeExtractor
 			newList.append(String.format("%s.startY = %s_MAX_Y,%n", indent, genName));
 			newList.append(String.format("%s.endY   = %s_MIN_Y,", indent, genName));
 
-			DripVolumeMatcher.appendReplacement(out, newList.toString());
+			dripVolumeMatcher.appendReplacement(out, newList.toString());
 		}
 
 		if (modified) {
-			DripVolumeMatcher.appendTail(out);
+			dripVolumeMatcher.appendTail(out);
 			extractor.setFileText(out.toString());
 		}
 	}
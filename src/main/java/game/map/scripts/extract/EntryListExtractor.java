@@ -18,20 +18,19 @@ public abstract class EntryListExtractor
 		[kmr_11_ENTRY_1]    {  770.0,    0.0, -525.0,  225.0 },
 	*/
 
-	private static final Matcher EntryListMatcher = Pattern.compile(
+	private static final Pattern EntryListPattern = Pattern.compile(
 		"(EntryList \\S+ = \\{\\n)" +
 			"((?:\\s*\\S+\\s*\\{\\s*\\S+,\\s*\\S+,\\s*\\S+,\\s*\\S+\\s*\\},?\\n)+)" +
-			"(\\};)")
-		.matcher("");
+			"(\\};)");
 
 	protected static void findAndReplace(Extractor extractor)
 	{
 		String workingText = extractor.getFileText();
 		StringBuilder out = null;
-		EntryListMatcher.reset(workingText);
+		Matcher entryListMatcher = EntryListPattern.matcher(workingText);
 
 		boolean modified = false;
-		while (EntryListMatcher.find()) {
+		while (entryListMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
@@ -39,16 +38,16 @@ public abstract class EntryListExtractor
 			HeaderEntry h = new HeaderEntry("EntryList");
 			extractor.addHeaderEntry(h);
 
-			String listText = EntryListMatcher.group(2).replaceAll("[\t ]+", "");
+			String listText = entryListMatcher.group(2).replaceAll("[\t ]+", "");
 			String[] lines = listText.split("\r?\n");
 			h.addDefine("ENTRY_LIST", List.of(lines));
 
-			String replacement = String.format("%s    %s%n%s", EntryListMatcher.group(1), "GEN_ENTRY_LIST", EntryListMatcher.group(3));
-			EntryListMatcher.appendReplacement(out, replacement);
+			String replacement = String.format("%s    %s%n%s", entryListMatcher.group(1), "GEN_ENTRY_LIST", entryListMatcher.group(3));
+			entryListMatcher.appendReplacement(out, replacement);
 		}
 
 		if (modified) {
-			EntryListMatcher.appendTail(out);
+			entryListMatcher.appendTail(out);
 			extractor.setFileText(out.toString());
 		}
 	}
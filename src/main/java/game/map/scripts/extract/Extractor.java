@@ -8,6 +8,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import app.Directories;
 import app.Environment;
@@ -41,6 +42,7 @@ import game.sprite.SpriteLoader;
 import util.Logger;
 import util.NameUtils;
 import util.Priority;
+import util.ResumableBatch;
 
 public class Extractor
 {
@@ -51,10 +53,23 @@ public class Extractor
 		Environment.exit();
 	}
 
-	public static void extractAll() throws IOException
+	private static final String FN_EXTRACT_PROGRESS = "extracted_maps.txt";
+
+	/**
+	 * Extracts data from the sources of every map in parallel. Progress is recorded per map,
+	 * so an interrupted or partially failed extraction resumes with the remaining maps.
+	 * @return true if every map has been extracted
+	 */
+	public static boolean extractAll() throws IOException
 	{
 		LoadingBar.show("Extracting Map Data", Priority.IMPORTANT);
 
+		// shared lookup tables, load them before maps are extracted concurrently
+		SpriteLoader.loadAnimsMetadata(false);
+		NpcExtractor.loadAnimDefs();
+
+		ResumableBatch batch = new ResumableBatch("map", Directories.PROJ_CACHE.file(FN_EXTRACT_PROGRESS));
+
 		File f = Directories.PROJ_SRC_WORLD.toFile();
 		File[] worldDirs = f.listFiles();
 		Arrays.sort(worldDirs);
@@ -67,13 +82,19 @@ public class Extractor
 
 				for (File mapDir : mapDirs) {
 					if (mapDir.isDirectory() && mapDir.getName().startsWith(areaName)) {
-						new Extractor(mapDir.getName(), true);
+						String mapName = mapDir.getName();
+						batch.add(mapName, () -> new Extractor(mapName, true));
 					}
 				}
 			}
 		}
 
+		boolean complete = batch.run();
+		if (complete)
+			batch.reset();
+
 		LoadingBar.dismiss();
+		return complete;
 	}
 
 	protected HashSet<String> usedNames = new HashSet<>();
@@ -163,23 +184,23 @@ public class Extractor
 			NpcExtractor.findAndReplace(this);
 
 		if (fileText.contains("MakeItemEntity"))
-			findAndReplace(ItemEntity.RegexMatcher, ItemEntity.class);
+			findAndReplace(ItemEntity.RegexPattern, ItemEntity.class);
 
 		if (fileText.contains("MakeEntity")) {
-			findAndReplace(BasicEntity.RegexMatcher, BasicEntity.class);
-			findAndReplace(OptionalScriptEntity.RegexMatcher, OptionalScriptEntity.class);
-			findAndReplace(BlueSwitch.RegexMatcher, BlueSwitch.class);
-			findAndReplace(ItemBlock.RegexMatcher, ItemBlock.class);
-			findAndReplace(CoinBlock.RegexMatcher, CoinBlock.class);
-			findAndReplace(HeartBlock.RegexMatcher, HeartBlock.class);
-			findAndReplace(Chest.RegexMatcher, Chest.class);
-			findAndReplace(ArrowSign.RegexMatcher, ArrowSign.class);
-			findAndReplace(HiddenPanel.RegexMatcher, HiddenPanel.class);
-			findAndReplace(SimpleSpring.RegexMatcher, SimpleSpring.class);
-			findAndReplace(WoodenCrate.RegexMatcher, WoodenCrate.class);
-			findAndReplace(SpinningFlower.RegexMatcher, SpinningFlower.class);
-			findAndReplace(BlueWarpPipe.RegexMatcher, BlueWarpPipe.class);
-			findAndReplace(Tweester.RegexMatcher, Tweester.class);
+			findAndReplace(BasicEntity.RegexPattern, BasicEntity.class);
+			findAndReplace(OptionalScriptEntity.RegexPattern, OptionalScriptEntity.class);
+			findAndReplace(BlueSwitch.RegexPattern, BlueSwitch.class);
+			findAndReplace(ItemBlock.RegexPattern, ItemBlock.class);
+			findAndReplace(CoinBlock.RegexPattern, CoinBlock.class);
+			findAndReplace(HeartBlock.RegexPattern, HeartBlock.class);
+			findAndReplace(Chest.RegexPattern, Chest.class);
+			findAndReplace(ArrowSign.RegexPattern, ArrowSign.class);
+			findAndReplace(HiddenPanel.RegexPattern, HiddenPanel.class);
+			findAndReplace(SimpleSpring.RegexPattern, SimpleSpring.class);
+			findAndReplace(WoodenCrate.RegexPattern, WoodenCrate.class);
+			findAndReplace(SpinningFlower.RegexPattern, SpinningFlower.class);
+			findAndReplace(BlueWarpPipe.RegexPattern, BlueWarpPipe.class);
+			findAndReplace(Tweester.RegexPattern, Tweester.class);
 		}
 
 		// special case for Super Blocks since they use macros
@@ -204,9 +225,9 @@ public class Extractor
 			Files.writeString(src.toPath(), fileText);
 	}
 
-	private <T extends ExtractedEntity> void findAndReplace(Matcher matcher, Class<T> theClass)
+	private <T extends ExtractedEntity> void findAndReplace(Pattern pattern, Class<T> theClass)
 	{
-		matcher.reset(fileText);
+		Matcher matcher = pattern.matcher(fileText);
 
 		StringBuilder out = new StringBuilder(fileText.length());
 
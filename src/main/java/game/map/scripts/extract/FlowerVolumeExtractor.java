@@ -8,26 +8,26 @@ import game.map.marker.Marker.MarkerType;
 
 public class FlowerVolumeExtractor
 {
-	private static final Matcher FlowerVolumeMatcher = Pattern.compile(
-		"EVT_FLOWER_SPAWN_REGION\\(\\s*(\\S+),\\s*(\\S+),\\s*(\\S+),\\s*(\\S+),\\s*(\\S+)\\s*\\)").matcher("");
+	private static final Pattern FlowerVolumePattern = Pattern.compile(
+		"EVT_FLOWER_SPAWN_REGION\\(\\s*(\\S+),\\s*(\\S+),\\s*(\\S+),\\s*(\\S+),\\s*(\\S+)\\s*\\)");
 
 	protected static void findAndReplace(Extractor extractor)
 	{
 		String workingText = extractor.getFileText();
 		StringBuilder out = null;
-		FlowerVolumeMatcher.reset(workingText);
+		Matcher flowerVolumeMatcher = FlowerVolumePattern.matcher(workingText);
 
 		boolean modified = false;
-		while (FlowerVolumeMatcher.find()) {
+		while (flowerVolumeMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
 
-			float minX = Float.parseFloat(FlowerVolumeMatcher.group(1));
-			float minZ = Float.parseFloat(FlowerVolumeMatcher.group(2));
-			float maxX = Float.parseFloat(FlowerVolumeMatcher.group(3));
-			float maxZ = Float.parseFloat(FlowerVolumeMatcher.group(4));
-			float minY = Float.parseFloat(FlowerVolumeMatcher.group(5));
+			float minX = Float.parseFloat(flowerVolumeMatcher.group(1));
+			float minZ = Float.parseFloat(flowerVolumeMatcher.group(2));
+			float maxX = Float.parseFloat(flowerVolumeMatcher.group(3));
+			float maxZ = Float.parseFloat(flowerVolumeMatcher.group(4));
+			float minY = Float.parseFloat(flowerVolumeMatcher.group(5));
 
 			String markerName = extractor.getNextName("FlowerVolume");
 			Marker m = new Marker(markerName, MarkerType.Volume, (minX + maxX) / 2, minY + 25, (minZ + maxZ) / 2, 0);
@@ -39,11 +39,11 @@ public class FlowerVolumeExtractor
 
 			StringBuilder newList = new StringBuilder();
 			newList.append(String.format("GEN_FLOWER_SPAWN_REGION(%s_MIN_XZ, %s_MAX_XZ, %s_MIN_Y)", genName, genName, genName));
-			FlowerVolumeMatcher.appendReplacement(out, newList.toString());
+			flowerVolumeMatcher.appendReplacement(out, newList.toString());
 		}
 
 		if (modified) {
-			FlowerVolumeMatcher.appendTail(out);
+			flowerVolumeMatcher.appendTail(out);
 			extractor.setFileText(out.toString());
 		}
 	}
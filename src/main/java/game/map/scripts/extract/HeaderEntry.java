@@ -275,20 +275,20 @@ public class HeaderEntry
 		System.out.println();
 	}
 
-	private static final Matcher CommentLineMatcher = Pattern.compile(
-		"\\s*\\/\\*.+\\*\\/\\s*").matcher("");
+	private static final Pattern CommentLinePattern = Pattern.compile(
+		"\\s*\\/\\*.+\\*\\/\\s*");
 
-	private static final Matcher PropertyMatcher = Pattern.compile(
-		"//\\s*(\\w+):\\s*(\\S+)\\s*").matcher("");
+	private static final Pattern PropertyPattern = Pattern.compile(
+		"//\\s*(\\w+):\\s*(\\S+)\\s*");
 
-	private static final Matcher SimpleDefineMatcher = Pattern.compile(
-		"#define\\s+(\\w+)\\s+([^\\\\]+)\\s*").matcher("");
+	private static final Pattern SimpleDefinePattern = Pattern.compile(
+		"#define\\s+(\\w+)\\s+([^\\\\]+)\\s*");
 
-	private static final Matcher ComplexDefineMatcher = Pattern.compile(
-		"#define\\s+(\\w+)\\s+\\\\\\s*").matcher("");
+	private static final Pattern ComplexDefinePattern = Pattern.compile(
+		"#define\\s+(\\w+)\\s+\\\\\\s*");
 
-	private static final Matcher ComplexLineMatcher = Pattern.compile(
-		"(.+?)\\s*\\\\\\s*").matcher("");
+	private static final Pattern ComplexLinePattern = Pattern.compile(
+		"(.+?)\\s*\\\\\\s*");
 
 	public static List<HeaderEntry> parseFile(File header) throws IOException
 	{
@@ -302,25 +302,25 @@ public class HeaderEntry
 			if (line.startsWith("#include "))
 				continue;
 
-			CommentLineMatcher.reset(line);
-			if (CommentLineMatcher.matches())
+			Matcher commentLineMatcher = CommentLinePattern.matcher(line);
+			if (commentLineMatcher.matches())
 				continue;
 
 			if (h == null) {
 				// valid property indicates the start of a new header entry
-				PropertyMatcher.reset(line);
-				if (PropertyMatcher.matches()) {
+				Matcher propertyMatcher = PropertyPattern.matcher(line);
+				if (propertyMatcher.matches()) {
 					h = new HeaderEntry();
 					entries.add(h);
-					h.addProperty(PropertyMatcher.group(1), PropertyMatcher.group(2));
+					h.addProperty(propertyMatcher.group(1), propertyMatcher.group(2));
 				}
 			}
 			else {
 				if (currentDefineContent != null) {
 					// is this another line of the #define (terminated with a line continuation character)?
-					ComplexLineMatcher.reset(line);
-					if (ComplexLineMatcher.matches()) {
-						currentDefineContent.add(ComplexLineMatcher.group(1));
+					Matcher complexLineMatcher = ComplexLinePattern.matcher(line);
+					if (complexLineMatcher.matches()) {
+						currentDefineContent.add(complexLineMatcher.group(1));
 						continue; // keep adding lines
 					}
 
@@ -334,28 +334,28 @@ public class HeaderEntry
 				}
 				else {
 					// is this line is another property?
-					PropertyMatcher.reset(line);
-					if (PropertyMatcher.matches()) {
-						if ("name".equals(PropertyMatcher.group(1))) {
-							h.setName(PropertyMatcher.group(2));
+					Matcher propertyMatcher = PropertyPattern.matcher(line);
+					if (propertyMatcher.matches()) {
+						if ("name".equals(propertyMatcher.group(1))) {
+							h.setName(propertyMatcher.group(2));
 						}
 						else {
-							h.addProperty(PropertyMatcher.group(1), PropertyMatcher.group(2));
+							h.addProperty(propertyMatcher.group(1), propertyMatcher.group(2));
 						}
 						continue;
 					}
 
 					// is this line is a one-line #define?
-					SimpleDefineMatcher.reset(line);
-					if (SimpleDefineMatcher.matches()) {
-						h.addDefine(h.denamespace(SimpleDefineMatcher.group(1)), SimpleDefineMatcher.group(2));
+					Matcher simpleDefineMatcher = SimpleDefinePattern.matcher(line);
+					if (simpleDefineMatcher.matches()) {
+						h.addDefine(h.denamespace(simpleDefineMatcher.group(1)), simpleDefineMatcher.group(2));
 						continue;
 					}
 
 					// is this line the start of a multi-line #define?
-					ComplexDefineMatcher.reset(line);
-					if (ComplexDefineMatcher.matches()) {
-						currentDefineName = h.denamespace(ComplexDefineMatcher.group(1));
+					Matcher complexDefineMatcher = ComplexDefinePattern.matcher(line);
+					if (complexDefineMatcher.matches()) {
+						currentDefineName = h.denamespace(complexDefineMatcher.group(1));
 						currentDefineContent = new ArrayList<>();
 						continue;
 					}
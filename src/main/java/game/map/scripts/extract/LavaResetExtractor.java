@@ -8,41 +8,39 @@ import game.map.marker.Marker.MarkerType;
 
 public class LavaResetExtractor
 {
-	private static final Matcher LavaResetMatcher = Pattern.compile(
+	private static final Pattern LavaResetPattern = Pattern.compile(
 		"(LavaReset \\S+\\[\\] = \\{\\n)" +
 			"((?:\\s*\\{.+\\},?\\n)+)" +
-			"(\\};)")
-		.matcher("");
+			"(\\};)");
 
-	private static final Matcher LineMatcher = Pattern.compile(
-		"\\{\\.colliderID=COLLIDER_(\\w+),\\.pos=\\{(\\S+),(\\S+),(\\S+)\\}\\},")
-		.matcher("");
+	private static final Pattern LinePattern = Pattern.compile(
+		"\\{\\.colliderID=COLLIDER_(\\w+),\\.pos=\\{(\\S+),(\\S+),(\\S+)\\}\\},");
 
 	protected static void findAndReplace(Extractor extractor)
 	{
 		String workingText = extractor.getFileText();
 		StringBuilder out = null;
-		LavaResetMatcher.reset(workingText);
+		Matcher lavaResetMatcher = LavaResetPattern.matcher(workingText);
 
 		boolean modified = false;
-		while (LavaResetMatcher.find()) {
+		while (lavaResetMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
 
-			String listText = LavaResetMatcher.group(2);//.replaceAll("[\t ]+", "");
-			String indent = LavaResetMatcher.group(2).substring(0, LavaResetMatcher.group(2).indexOf("{"));
+			String listText = lavaResetMatcher.group(2);//.replaceAll("[\t ]+", "");
+			String indent = lavaResetMatcher.group(2).substring(0, lavaResetMatcher.group(2).indexOf("{"));
 
 			StringBuilder newList = new StringBuilder();
 			String[] lines = listText.split("\r?\n");
 			for (String line : lines) {
 				String cleanLine = line.replaceAll("[\t ]+", "");
-				LineMatcher.reset(cleanLine);
-				if (LineMatcher.matches()) {
-					String colliderName = LineMatcher.group(1);
-					float x = Float.parseFloat(LineMatcher.group(2));
-					float y = Float.parseFloat(LineMatcher.group(3));
-					float z = Float.parseFloat(LineMatcher.group(4));
+				Matcher lineMatcher = LinePattern.matcher(cleanLine);
+				if (lineMatcher.matches()) {
+					String colliderName = lineMatcher.group(1);
+					float x = Float.parseFloat(lineMatcher.group(2));
+					float y = Float.parseFloat(lineMatcher.group(3));
+					float z = Float.parseFloat(lineMatcher.group(4));
 
 					String markerName = extractor.getNextName("LavaReset_" + colliderName, -1);
 					extractor.addMarker(new Marker(markerName, MarkerType.Position, x, y, z, 0));
@@ -55,11 +53,11 @@ public class LavaResetExtractor
 				}
 			}
 
-			LavaResetMatcher.appendReplacement(out, LavaResetMatcher.group(1) + newList.toString() + LavaResetMatcher.group(3));
+			lavaResetMatcher.appendReplacement(out, lavaResetMatcher.group(1) + newList.toString() + lavaResetMatcher.group(3));
 		}
 
 		if (modified) {
-			LavaResetMatcher.appendTail(out);
+			lavaResetMatcher.appendTail(out);
 			extractor.setFileText(out.toString());
 		}
 	}
@@ -9,14 +9,14 @@ import game.map.scripts.extract.HeaderEntry.HeaderParseException;
 
 public class MapPropertiesExtractor
 {
-	private static final Matcher ShadingMatcher = Pattern.compile(
-		"(\\s*)Call\\(SetSpriteShading,\\s*(\\w+)\\)\\s*").matcher("");
+	private static final Pattern ShadingPattern = Pattern.compile(
+		"(\\s*)Call\\(SetSpriteShading,\\s*(\\w+)\\)\\s*");
 
-	private static final Matcher LocationMatcher = Pattern.compile(
-		"Set\\(GB_WorldLocation,\\s*(?!GEN_)(\\w+)\\)").matcher("");
+	private static final Pattern LocationPattern = Pattern.compile(
+		"Set\\(GB_WorldLocation,\\s*(?!GEN_)(\\w+)\\)");
 
-	private static final Matcher SetMusicMatcher = Pattern.compile(
-		"(Call\\(SetMusicTrack,\\s*\\S+,\\s*)(\\w+)(,.+)").matcher("");
+	private static final Pattern SetMusicPattern = Pattern.compile(
+		"(Call\\(SetMusicTrack,\\s*\\S+,\\s*)(\\w+)(,.+)");
 
 	protected static void findAndReplace(Map map, Extractor extractor)
 	{
@@ -24,17 +24,17 @@ public class MapPropertiesExtractor
 		StringBuilder out = null;
 		boolean modified = false;
 
-		LocationMatcher.reset(workingText);
-		if (LocationMatcher.find()) {
+		Matcher locationMatcher = LocationPattern.matcher(workingText);
+		if (locationMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
 
-			String locationName = LocationMatcher.group(1);
+			String locationName = locationMatcher.group(1);
 			map.scripts.locationName.set(locationName);
 
-			LocationMatcher.appendReplacement(out, "Set(GB_WorldLocation, GEN_MAP_LOCATION)");
-			LocationMatcher.appendTail(out);
+			locationMatcher.appendReplacement(out, "Set(GB_WorldLocation, GEN_MAP_LOCATION)");
+			locationMatcher.appendTail(out);
 
 			workingText = out.toString();
 			modified = true;
@@ -42,19 +42,19 @@ public class MapPropertiesExtractor
 
 		/*
 		
-		ShadingMatcher.reset(workingText);
-		if (ShadingMatcher.find()) {
+		Matcher shadingMatcher = ShadingPattern.matcher(workingText);
+		if (shadingMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
 		
-			String profileName = ShadingMatcher.group(1);
+			String profileName = shadingMatcher.group(1);
 			map.scripts.hasSpriteShading.set(!"SHADING_NONE".equals(profileName));
 		
 			map.scripts.shadingProfile.set(null);
 			//TODO
 		
-			ShadingMatcher.appendReplacement(out, "Call(SetSpriteShading, MAP_SPRITE_SHADING)");
+			shadingMatcher.appendReplacement(out, "Call(SetSpriteShading, MAP_SPRITE_SHADING)");
 		
 			if (modifiedLine) {
 				modified = true;
@@ -13,28 +13,30 @@ import util.Logger;
 
 public class NpcExtractor
 {
-	private static final Matcher NpcDataMatcher = Pattern.compile(
+	private static final Pattern NpcDataPattern = Pattern.compile(
 		"(\\n +)\\.id = (.+),"
 			+ "\\1\\.pos = (.+),"
 			+ "\\1\\.yaw = (.+),"
 			+ "(?:\\1\\.territory = ([^;]+?\\1\\}),)?" // (optional) territory field
 			+ "([^;]+?)" // any number of additional fields
-			+ "\\.animations = (\\{[^;]+?\\}|\\w+),") // the animations field (for selecting a preview sprite)
-		.matcher("");
+			+ "\\.animations = (\\{[^;]+?\\}|\\w+),"); // the animations field (for selecting a preview sprite)
 
-	private static final Matcher AnimArrayMatcher = Pattern.compile(
-		"\\{\\s+\\.idle\\s*=\\s*(\\w+),[\\s\\S]+").matcher("");
+	private static final Pattern AnimArrayPattern = Pattern.compile(
+		"\\{\\s+\\.idle\\s*=\\s*(\\w+),[\\s\\S]+");
 
-	private static HashMap<String, String> animDefs = null;
+	private static volatile HashMap<String, String> animDefs = null;
 
 	public static void loadAnimDefs()
 	{
-		animDefs = new HashMap<>();
+		HashMap<String, String> defs = new HashMap<>();
 
 		for (String mapping : Resource.getText(ResourceType.Extract, "npc_anim_defs.txt")) {
 			String[] tokens = mapping.split("\\s*=\\s*");
-			animDefs.put(tokens[0], tokens[1]);
+			defs.put(tokens[0], tokens[1]);
 		}
+
+		// publish only once complete, maps may be extracted in parallel
+		animDefs = defs;
 	}
 
 	protected static void findAndReplace(Extractor extractor)
@@ -44,22 +46,22 @@ public class NpcExtractor
 
 		String workingText = extractor.getFileText();
 		StringBuilder out = null;
-		NpcDataMatcher.reset(workingText);
+		Matcher npcDataMatcher = NpcDataPattern.matcher(workingText);
 
 		boolean modified = false;
-		while (NpcDataMatcher.find()) {
+		while (npcDataMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
 
-			String indent = NpcDataMatcher.group(1).replaceAll("[\r\n]", "");
-			String ID = NpcDataMatcher.group(2); // .id field
-			String pos = NpcDataMatcher.group(3);
-			String dir = NpcDataMatcher.group(4);
-			String territory = NpcDataMatcher.group(5);
+			String indent = npcDataMatcher.group(1).replaceAll("[\r\n]", "");
+			String ID = npcDataMatcher.group(2); // .id field
+			String pos = npcDataMatcher.group(3);
+			String dir = npcDataMatcher.group(4);
+			String territory = npcDataMatcher.group(5);
 
 			if (ID.startsWith("NPC_FireBar_")) {
-				NpcDataMatcher.appendReplacement(out, NpcDataMatcher.group());
+				npcDataMatcher.appendReplacement(out, npcDataMatcher.group());
 				continue;
 			}
 
@@ -89,11 +91,11 @@ public class NpcExtractor
 			if (territory != null)
 				npc.parseTerritory(territory);
 
-			String animation = NpcDataMatcher.group(7);
+			String animation = npcDataMatcher.group(7);
 
-			AnimArrayMatcher.reset(animation);
-			if (AnimArrayMatcher.matches()) {
-				npc.setAnimByName(AnimArrayMatcher.group(1));
+			Matcher animArrayMatcher = AnimArrayPattern.matcher(animation);
+			if (animArrayMatcher.matches()) {
+				npc.setAnimByName(animArrayMatcher.group(1));
 			}
 			else if (animDefs != null && animDefs.containsKey(animation)) {
 				npc.setAnimByName(animDefs.get(animation));
@@ -112,15 +114,15 @@ public class NpcExtractor
 			replacement.append(String.format("%s.yaw = %s_DIR,%n", indent, genName));
 			replacement.append(String.format("%s.territory = %s_TERRITORY,", indent, genName));
 
-			if (NpcDataMatcher.group(6) != null)
-				replacement.append(NpcDataMatcher.group(6));
+			if (npcDataMatcher.group(6) != null)
+				replacement.append(npcDataMatcher.group(6));
 
-			replacement.append(String.format(".animations = %s,", NpcDataMatcher.group(7)));
-			NpcDataMatcher.appendReplacement(out, replacement.toString());
+			replacement.append(String.format(".animations = %s,", npcDataMatcher.group(7)));
+			npcDataMatcher.appendReplacement(out, replacement.toString());
 		}
 
 		if (modified) {
-			NpcDataMatcher.appendTail(out);
+			npcDataMatcher.appendTail(out);
 			extractor.setFileText(out.toString());
 		}
 	}
@@ -11,28 +11,26 @@ import game.map.marker.PathPoint;
 
 public abstract class PathExtractor
 {
-	private static final Matcher PathMatcher = Pattern.compile(
+	private static final Pattern PathPattern = Pattern.compile(
 		"(Vec3f \\S+\\[\\] = \\{\\n)" +
 			"((?:\\s*\\{\\s*\\S+,\\s*\\S+,\\s*\\S+\\s*\\},?\\n)+)" +
-			"(\\};)")
-		.matcher("");
+			"(\\};)");
 
-	private static final Matcher TweesterMatcher = Pattern.compile(
+	private static final Pattern TweesterPattern = Pattern.compile(
 		"(TweesterPath \\S+ = \\{\\n)" +
 			"((?:\\s*\\{\\s*\\S+,\\s*\\S+,\\s*\\S+\\s*\\},?\\n)+)" +
-			"(\\s*\\S+)")
-		.matcher("");
+			"(\\s*\\S+)");
 
 	protected static void findAndReplace(Extractor extractor)
 	{
-		findAndReplace(extractor, PathMatcher, true);
-		findAndReplace(extractor, TweesterMatcher, false);
+		findAndReplace(extractor, PathPattern, true);
+		findAndReplace(extractor, TweesterPattern, false);
 	}
 
-	private static void findAndReplace(Extractor extractor, Matcher matcher, boolean showInterp)
+	private static void findAndReplace(Extractor extractor, Pattern pattern, boolean showInterp)
 	{
 		StringBuilder out = null;
-		matcher.reset(extractor.getFileText());
+		Matcher matcher = pattern.matcher(extractor.getFileText());
 
 		boolean modified = false;
 		while (matcher.find()) {
@@ -11,27 +11,26 @@ import game.map.marker.Marker.MarkerType;
 
 public class PushGridExtractor
 {
-	private static final Matcher FullMatcher = Pattern.compile(
+	private static final Pattern FullPattern = Pattern.compile(
 		"([ \\t]+)(Call\\(CreatePushBlockGrid, (?!GEN_).+\\)" +
-			"(?:\\s*Call\\((?:SetPushBlock|FillPushBlockX|FillPushBlockZ|SetPushBlockFallEffect), .+\\))+)")
-		.matcher("");
+			"(?:\\s*Call\\((?:SetPushBlock|FillPushBlockX|FillPushBlockZ|SetPushBlockFallEffect), .+\\))+)");
 
-	private static final Matcher CallMatcher = Pattern.compile("Call\\((.+)\\)").matcher("");
+	private static final Pattern CallPattern = Pattern.compile("Call\\((.+)\\)");
 
 	protected static void findAndReplace(Extractor extractor)
 	{
 		String workingText = extractor.getFileText();
 		StringBuilder out = null;
-		FullMatcher.reset(workingText);
+		Matcher fullMatcher = FullPattern.matcher(workingText);
 
 		boolean modified = false;
-		while (FullMatcher.find()) {
+		while (fullMatcher.find()) {
 			modified = true;
 			if (out == null)
 				out = new StringBuilder(extractor.getFileText().length());
 
-			String indent = FullMatcher.group(1).replaceAll("[\r\n]", "");
-			String[] lines = FullMatcher.group(2).split("\r?\n");
+			String indent = fullMatcher.group(1).replaceAll("[\r\n]", "");
+			String[] lines = fullMatcher.group(2).split("\r?\n");
 
 			StringBuilder newLines = new StringBuilder();
 			Marker m = null;
@@ -39,12 +38,12 @@ public class PushGridExtractor
 
 			for (String line : lines) {
 				String cleanLine = line.replaceAll("\\s+", "");
-				CallMatcher.reset(cleanLine);
+				Matcher callMatcher = CallPattern.matcher(cleanLine);
 
-				if (!CallMatcher.matches())
+				if (!callMatcher.matches())
 					throw new IllegalStateException();
 
-				String[] args = CallMatcher.group(1).split(",");
+				String[] args = callMatcher.group(1).split(",");
 
 				GridComponent grid;
 				OccupantType type;
@@ -122,11 +121,11 @@ public class PushGridExtractor
 				}
 			}
 
-			FullMatcher.appendReplacement(out, newLines.toString());
+			fullMatcher.appendReplacement(out, newLines.toString());
 		}
 
 		if (modified) {
-			FullMatcher.appendTail(out);
+			fullMatcher.appendTail(out);
 			extractor.setFileText(out.toString());
 		}
 	}
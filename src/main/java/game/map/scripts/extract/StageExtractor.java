@@ -48,7 +48,7 @@ public class StageExtractor
 		Environment.exit();
 	}
 
-	private static final Matcher StageNameMatcher = Pattern.compile("(\\w+)_bt(\\d+)([a-z]+)?").matcher("");
+	private static final Pattern StageNamePattern = Pattern.compile("(\\w+)_bt(\\d+)([a-z]+)?");
 
 	private final String stageName;
 	private String fileText;
@@ -59,15 +59,15 @@ public class StageExtractor
 	{
 		stageName = FilenameUtils.getBaseName(stageFile.getName());
 
-		StageNameMatcher.reset(stageName);
-		if (!StageNameMatcher.matches()) {
+		Matcher stageNameMatcher = StageNamePattern.matcher(stageName);
+		if (!stageNameMatcher.matches()) {
 			Logger.logWarning("Couldn't parse stage name: " + stageName);
 			return;
 		}
 
 		// remove the "bt" separating area name and map number
-		String baseName = StageNameMatcher.group(1) + "_" + StageNameMatcher.group(2);
-		String suffix = StageNameMatcher.group(3); // a,b,c,...
+		String baseName = stageNameMatcher.group(1) + "_" + stageNameMatcher.group(2);
+		String suffix = stageNameMatcher.group(3); // a,b,c,...
 		if (suffix == null)
 			suffix = "";
 
@@ -20,11 +20,11 @@ import util.IterableListModel;
 
 public class TexPannerExtractor
 {
-	private static final Matcher TexPanMatcher = Pattern.compile(
-		"(\\s*)TEX_PAN_PARAMS_(\\w+)\\((.+)\\)\\s*").matcher("");
+	private static final Pattern TexPanPattern = Pattern.compile(
+		"(\\s*)TEX_PAN_PARAMS_(\\w+)\\((.+)\\)\\s*");
 
-	private static final Matcher SetPannerMatcher = Pattern.compile(
-		"\\s*Call\\(SetTexPanner,\\s*MODEL_(\\w+),\\s*TEX_PANNER_(\\w+)\\)\\s*").matcher("");
+	private static final Pattern SetPannerPattern = Pattern.compile(
+		"\\s*Call\\(SetTexPanner,\\s*MODEL_(\\w+),\\s*TEX_PANNER_(\\w+)\\)\\s*");
 
 	protected static void findAndReplace(Map map, Extractor extractor)
 	{
@@ -37,17 +37,17 @@ public class TexPannerExtractor
 
 		for (String line : workingText.split("\\r?\\n")) {
 			boolean modifiedLine = false;
-			TexPanMatcher.reset(line);
-			SetPannerMatcher.reset(line);
+			Matcher texPanMatcher = TexPanPattern.matcher(line);
+			Matcher setPannerMatcher = SetPannerPattern.matcher(line);
 
-			if (TexPanMatcher.matches()) {
-				String[] args = TexPanMatcher.group(3).replaceAll("\\s", "").split(",");
+			if (texPanMatcher.matches()) {
+				String[] args = texPanMatcher.group(3).replaceAll("\\s", "").split(",");
 
-				if (TexPanMatcher.group(2).equals("ID")) {
+				if (texPanMatcher.group(2).equals("ID")) {
 					if (args[0].startsWith("TEX_PANNER_"))
 						args[0] = "0x" + args[0].substring("TEX_PANNER_".length());
 					int curPanID = Integer.decode(args[0]);
-					out.append(TexPanMatcher.group(1)); // indent
+					out.append(texPanMatcher.group(1)); // indent
 					out.append(String.format("GEN_TEX_PANNER_%X%n", curPanID));
 				}
 
@@ -62,9 +62,9 @@ public class TexPannerExtractor
 				}
 			}
 
-			if (SetPannerMatcher.matches()) {
-				String modelName = SetPannerMatcher.group(1);
-				int pannerID = Integer.parseInt(SetPannerMatcher.group(2), 16);
+			if (setPannerMatcher.matches()) {
+				String modelName = setPannerMatcher.group(1);
+				int pannerID = Integer.parseInt(setPannerMatcher.group(2), 16);
 				Model mdl = (Model) map.find(MapObjectType.MODEL, modelName);
 
 				if (mdl != null && !modelsAssignedPanners.contains(mdl)) {
@@ -92,13 +92,13 @@ public class TexPannerExtractor
 		int panID = 0;
 
 		for (String line : lines) {
-			TexPanMatcher.reset(line);
+			Matcher texPanMatcher = TexPanPattern.matcher(line);
 
-			if (TexPanMatcher.matches()) {
-				String[] args = TexPanMatcher.group(3).replaceAll("\\s", "").split(",");
+			if (texPanMatcher.matches()) {
+				String[] args = texPanMatcher.group(3).replaceAll("\\s", "").split(",");
 				PannerParams panParams;
 
-				switch (TexPanMatcher.group(2)) {
+				switch (texPanMatcher.group(2)) {
 					case "ID":
 						if (args[0].startsWith("TEX_PANNER_"))
 							args[0] = "0x" + args[0].substring("TEX_PANNER_".length());
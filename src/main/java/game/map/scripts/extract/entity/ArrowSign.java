@@ -18,7 +18,7 @@ public class ArrowSign extends ExtractedEntity
 	private static final String TYPES = "(ArrowSign)";
 	private static final String RegexString = ExtractedEntity.INDENT +
 		"Call\\(MakeEntity, Ref\\(Entity_" + TYPES + "\\)" + ExtractedEntity.ARG.repeat(5) + ",\\s*MAKE_ENTITY_END\\)";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private int pitch;
 
@@ -20,7 +20,7 @@ public class BasicEntity extends ExtractedEntity
 		+ ")";
 	private static final String RegexString = ExtractedEntity.INDENT +
 		"Call\\(MakeEntity, Ref\\(Entity_" + TYPES + "\\)" + ExtractedEntity.ARG.repeat(4) + ",\\s*MAKE_ENTITY_END\\)";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	// required
 	public BasicEntity()
@@ -20,7 +20,7 @@ public class BlueSwitch extends ExtractedEntity
 	private static final String RegexString = ExtractedEntity.INDENT +
 		"Call\\(MakeEntity, Ref\\(Entity_" + TYPES + "\\)" + ExtractedEntity.ARG.repeat(4) + ExtractedEntity.OPTIONAL_ARG + ",\\s*MAKE_ENTITY_END\\)" +
 		"(?:\\n\\s*Call\\(AssignSwitchFlag,\\s*EVT_INDEX_OF_AREA_FLAG\\((\\S+)\\)\\))?";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private boolean hasFlag;
 	private String flagName;
@@ -21,7 +21,7 @@ public class BlueWarpPipe extends ExtractedEntity
 		",\\s*Ref\\((\\S+)\\)" +
 		",\\s*EVT_INDEX_OF_GAME_FLAG\\((\\S+)\\)" +
 		",\\s*MAKE_ENTITY_END\\)";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private String entryName;
 	private String scriptName;
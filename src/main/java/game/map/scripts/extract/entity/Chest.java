@@ -22,7 +22,7 @@ public class Chest extends ExtractedEntity
 		"Call\\(MakeEntity, Ref\\(Entity_" + TYPES + "\\)" + ExtractedEntity.ARG.repeat(5) + ",\\s*MAKE_ENTITY_END\\)" +
 		"(?:\\n\\s*Call\\(AssignChestFlag,\\s*(\\S+)\\))?" +
 		"(?:\\n\\s*Call\\(AssignScript,\\s*Ref\\((\\S+)\\)\\))?";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private boolean hasFlag;
 	private String flagName;
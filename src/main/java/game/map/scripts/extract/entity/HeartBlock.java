@@ -17,7 +17,7 @@ public class HeartBlock extends ExtractedEntity
 	private static final String TYPES = "(HeartBlock)";
 	private static final String RegexString = ExtractedEntity.INDENT +
 		"Call\\(MakeEntity, Ref\\(Entity_" + TYPES + "\\)" + ExtractedEntity.ARG.repeat(4) + ExtractedEntity.OPTIONAL_ARG + ",\\s*MAKE_ENTITY_END\\)";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private boolean hasStyle;
 	private int style;
@@ -20,7 +20,7 @@ public class HiddenPanel extends ExtractedEntity
 	private static final String RegexString = ExtractedEntity.INDENT +
 		"Call\\(MakeEntity, Ref\\(Entity_" + TYPES + "\\)" + ExtractedEntity.ARG.repeat(5) + ",\\s*MAKE_ENTITY_END\\)" +
 		"(?:\\n\\s*Call\\(AssignPanelFlag" + ExtractedEntity.ARG + "\\))?";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private String modelName;
 	private boolean hasFlag;
@@ -20,7 +20,7 @@ public class ItemBlock extends ExtractedEntity
 	private static final String RegexString = ExtractedEntity.INDENT +
 		"Call\\(MakeEntity, Ref\\(Entity_" + TYPES + "\\)" + ExtractedEntity.ARG.repeat(5) + ",\\s*MAKE_ENTITY_END\\)" +
 		"(?:\\n\\s*Call\\(AssignBlockFlag" + ExtractedEntity.ARG + "\\))?";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private String itemName;
 	private String flagName;
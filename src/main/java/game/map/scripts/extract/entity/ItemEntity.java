@@ -17,7 +17,7 @@ public class ItemEntity extends ExtractedEntity
 	*/
 
 	private static final String RegexString = ExtractedEntity.INDENT + "Call\\(MakeItemEntity" + ExtractedEntity.ARG.repeat(6) + "\\)";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private String itemName;
 	private String spawnMode;
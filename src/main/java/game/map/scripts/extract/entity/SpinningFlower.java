@@ -20,7 +20,7 @@ public class SpinningFlower extends ExtractedEntity
 	private static final String THREE_OPTIONAL_ARGS = "(?:" + ExtractedEntity.ARG.repeat(3) + ")?";
 	private static final String RegexString = ExtractedEntity.INDENT +
 		"Call\\(MakeEntity, Ref\\(Entity_" + TYPES + "\\)" + ExtractedEntity.ARG.repeat(4) + THREE_OPTIONAL_ARGS + ",\\s*MAKE_ENTITY_END\\)";
-	public static final Matcher RegexMatcher = Pattern.compile(RegexString).matcher("");
+	public static final Pattern RegexPattern = Pattern.compile(RegexString);
 
 	private boolean hasTarget;
 	private String targetName;
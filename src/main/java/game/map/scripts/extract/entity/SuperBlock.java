@@ -11,14 +11,14 @@ import game.map.scripts.extract.HeaderEntry.HeaderParseException;
 
 public class SuperBlock extends ExtractedEntity
 {
-	private static final Matcher SuperBlockMatcher = Pattern.compile(
-		"EVT_MAKE_SUPER_BLOCK\\(\\s*(\\S+),\\s*(\\S+),\\s*(\\S+),\\s*(\\S+)\\s*\\)").matcher("");
+	private static final Pattern SuperBlockPattern = Pattern.compile(
+		"EVT_MAKE_SUPER_BLOCK\\(\\s*(\\S+),\\s*(\\S+),\\s*(\\S+),\\s*(\\S+)\\s*\\)");
 
-	private static final Matcher SuperVarMatcher = Pattern.compile(
-		"#define\\s+SUPER_BLOCK_MAPVAR\\s+(?!GEN_)(\\w+)").matcher("");
+	private static final Pattern SuperVarPattern = Pattern.compile(
+		"#define\\s+SUPER_BLOCK_MAPVAR\\s+(?!GEN_)(\\w+)");
 
-	private static final Matcher SuperFlagMatcher = Pattern.compile(
-		"#define\\s+SUPER_BLOCK_GAMEFLAG\\s+(?!GEN_)(\\w+)").matcher("");
+	private static final Pattern SuperFlagPattern = Pattern.compile(
+		"#define\\s+SUPER_BLOCK_GAMEFLAG\\s+(?!GEN_)(\\w+)");
 
 	private String varName;
 	private String flagName;
@@ -30,33 +30,33 @@ public class SuperBlock extends ExtractedEntity
 	public static void scan(Extractor extractor)
 	{
 		String workingText = extractor.getFileText();
-		SuperBlockMatcher.reset(workingText);
-		if (!SuperBlockMatcher.find())
+		Matcher superBlockMatcher = SuperBlockPattern.matcher(workingText);
+		if (!superBlockMatcher.find())
 			return;
 
 		SuperBlock block = new SuperBlock();
 		block.type = "SuperBlock";
-		block.posX = Integer.decode(SuperBlockMatcher.group(1));
-		block.posY = Integer.decode(SuperBlockMatcher.group(2));
-		block.posZ = Integer.decode(SuperBlockMatcher.group(3));
-		block.angle = Integer.decode(SuperBlockMatcher.group(4));
+		block.posX = Integer.decode(superBlockMatcher.group(1));
+		block.posY = Integer.decode(superBlockMatcher.group(2));
+		block.posZ = Integer.decode(superBlockMatcher.group(3));
+		block.angle = Integer.decode(superBlockMatcher.group(4));
 		block.setName(extractor.getNextName(block.type));
 
-		workingText = SuperBlockMatcher.replaceFirst("EVT_MAKE_SUPER_BLOCK(" + block.genName + "_PARAMS)");
+		workingText = superBlockMatcher.replaceFirst("EVT_MAKE_SUPER_BLOCK(" + block.genName + "_PARAMS)");
 
-		SuperVarMatcher.reset(workingText);
-		if (!SuperVarMatcher.find())
+		Matcher superVarMatcher = SuperVarPattern.matcher(workingText);
+		if (!superVarMatcher.find())
 			return;
 
-		block.varName = SuperVarMatcher.group(1);
-		workingText = SuperVarMatcher.replaceFirst("#define SUPER_BLOCK_MAPVAR " + block.genName + "_VAR");
+		block.varName = superVarMatcher.group(1);
+		workingText = superVarMatcher.replaceFirst("#define SUPER_BLOCK_MAPVAR " + block.genName + "_VAR");
 
-		SuperFlagMatcher.reset(workingText);
-		if (!SuperFlagMatcher.find())
+		Matcher superFlagMatcher = SuperFlagPattern.matcher(workingText);
+		if (!superFlagMatcher.find())
 			return;
 
-		block.flagName = SuperFlagMatcher.group(1);
-		workingText = SuperFlagMatcher.replaceFirst("#define SUPER_BLOCK_GAMEFLAG " + block.genName + "_FLAG");
+		block.flagName = superFlagMatcher.group(1);
+		workingText = superFlagMatcher.replaceFirst("#define SUPER_BLOCK_GAMEFLAG " + block.genName + "_FLAG");
 
 		extractor.setFileText(workingText);
 
@@ -7,8 +7,6 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Insets;
 import java.awt.Toolkit;
-import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Objects;
@@ -26,6 +24,7 @@ import game.map.shape.LightSet.DeleteLight;
 import game.map.shape.LightSet.MoveLightDown;
 import game.map.shape.LightSet.MoveLightUp;
 import net.miginfocom.swing.MigLayout;
+import util.BinaryWriter;
 import util.MathUtil;
 import util.ui.IntVectorPanel;
 
@@ -82,15 +81,15 @@ public class Light
 		panel = new LightPanel(this);
 	}
 
-	public void write(RandomAccessFile raf) throws IOException
+	public void write(BinaryWriter out)
 	{
 		int packedColor = ((color[0] & 0xFF) << 24) | ((color[1] & 0xFF) << 16) | ((color[2] & 0xFF) << 8);
 		int packedDirection = ((dir[0] & 0xFF) << 24) | ((dir[1] & 0xFF) << 16) | ((dir[2] & 0xFF) << 8);
 
-		raf.writeInt(packedColor);
-		raf.writeInt(packedColor);
-		raf.writeInt(packedDirection);
-		raf.writeInt(0);
+		out.writeInt(packedColor);
+		out.writeInt(packedColor);
+		out.writeInt(packedDirection);
+		out.writeInt(0);
 	}
 
 	public int[] getPacked()
@@ -54,7 +54,7 @@ public class Model extends MapObject
 
 	public EditableField<Boolean> hasMesh = EditableFieldFactory.create(false)
 		.setCallback((obj) -> {
-			dirtyAABB = true;
+			markDirtyAABB();
 			notifyListeners();
 		}).setName(new StandardBoolName("Transform Matrix")).build();
 
@@ -452,7 +452,7 @@ public class Model extends MapObject
 		mdl.getMesh().displayListModel.addElement(batch);
 
 		mdl.updateMeshHierarchy();
-		mdl.dirtyAABB = true;
+		mdl.markDirtyAABB();
 		mdl.updateTransformHierarchy();
 
 		return mdl;
@@ -580,7 +580,7 @@ public class Model extends MapObject
 		mesh = newMesh;
 		hasMesh.set((newMesh != null));
 
-		dirtyAABB = true;
+		markDirtyAABB();
 		if (hasMesh.get())
 			updateMeshHierarchy();
 	}
@@ -619,11 +619,9 @@ public class Model extends MapObject
 		if (!PickRay.intersects(ray, AABB))
 			return nearestHit;
 
-		for (Triangle t : mesh) {
-			PickHit hit = PickRay.getIntersection(ray, t);
-			if (hit.dist < nearestHit.dist)
-				nearestHit = hit;
-		}
+		PickHit hit = mesh.getPickTree().pick(ray);
+		if (hit.dist < nearestHit.dist)
+			nearestHit = hit;
 		nearestHit.obj = this;
 		return nearestHit;
 	}
@@ -691,7 +689,7 @@ public class Model extends MapObject
 				for (Vertex v : t.vert)
 					v.useLocal = !hasTransformation;
 
-			dirtyAABB = true;
+			markDirtyAABB();
 		}
 
 		for (int i = 0; i < node.getChildCount(); i++) {
@@ -2,8 +2,6 @@ package game.map.shape;
 
 import static game.map.MapKey.*;
 
-import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.Arrays;
@@ -15,6 +13,7 @@ import common.Vector3f;
 import game.map.Axis;
 import game.map.MutableAngle;
 import game.map.MutablePoint;
+import util.BinaryWriter;
 import util.Logger;
 import util.MathUtil;
 import util.xml.XmlWrapper.XmlReader;
@@ -145,7 +144,7 @@ public class TransformMatrix implements XmlSerializable
 			}
 	}
 
-	public void writeRDP(RandomAccessFile raf) throws IOException
+	public void writeRDP(BinaryWriter out)
 	{
 		short[][] whole = new short[4][4];
 		short[][] frac = new short[4][4];
@@ -159,11 +158,11 @@ public class TransformMatrix implements XmlSerializable
 
 		for (int i = 0; i < 4; i++)
 			for (int j = 0; j < 4; j++)
-				raf.writeShort(whole[j][i]);
+				out.writeShort(whole[j][i]);
 
 		for (int i = 0; i < 4; i++)
 			for (int j = 0; j < 4; j++)
-				raf.writeShort(frac[j][i]);
+				out.writeShort(frac[j][i]);
 	}
 
 	@Override
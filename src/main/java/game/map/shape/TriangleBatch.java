@@ -2,15 +2,22 @@ package game.map.shape;
 
 import static game.map.MapKey.*;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.w3c.dom.Element;
 
+import common.Vector3f;
+import game.map.MutablePoint;
 import game.map.mesh.AbstractMesh;
 import game.map.mesh.Triangle;
 import game.map.mesh.Vertex;
 import game.map.shape.commands.DisplayCommand;
 import util.identity.IdentityArrayList;
+import util.xml.XmlTreeCache;
+import util.xml.XmlTreeCache.PackedElement;
 import util.xml.XmlWrapper.XmlReader;
 import util.xml.XmlWrapper.XmlSerializable;
 import util.xml.XmlWrapper.XmlTag;
@@ -48,6 +55,11 @@ public class TriangleBatch extends DisplayCommand implements XmlSerializable
 		xmr.requiresAttribute(batchElem, ATTR_VERSION);
 		instanceVersion = xmr.readInt(batchElem, ATTR_VERSION);
 
+		if (xmr.getPacked(batchElem) instanceof PackedBatch packed) {
+			packed.unpack(this);
+			return;
+		}
+
 		Element vertexTableElement = xmr.getUniqueRequiredTag(batchElem, TAG_VERTEX_TABLE);
 		List<Element> vertexElements = xmr.getTags(vertexTableElement, TAG_VERTEX);
 
@@ -67,6 +79,121 @@ public class TriangleBatch extends DisplayCommand implements XmlSerializable
 			t.parentBatch = this;
 			triangles.add(t);
 		}
+
+		if (xmr.isCollectingPacked())
+			xmr.setPacked(batchElem, new PackedBatch(vertexTable, triangles));
+	}
+
+	/**
+	 * Vertex table and triangle list of a batch as flat arrays, so cached maps can be reopened
+	 * without reading an element for every vertex and triangle. See {@link XmlTreeCache}.
+	 */
+	public static class PackedBatch implements PackedElement
+	{
+		// per vertex: x, y, z, u, v, rgba
+		private static final int VERTEX_SIZE = 6;
+
+		private final int[] vertices;
+		private final int[] indices;
+		private final byte[] doubleSided;
+
+		private PackedBatch(int[] vertices, int[] indices, byte[] doubleSided)
+		{
+			this.vertices = vertices;
+			this.indices = indices;
+			this.doubleSided = doubleSided;
+		}
+
+		private PackedBatch(Vertex[] vertexTable, List<Triangle> triangles)
+		{
+			vertices = new int[VERTEX_SIZE * vertexTable.length];
+			for (int i = 0; i < vertexTable.length; i++) {
+				Vertex v = vertexTable[i];
+				MutablePoint pos = v.getLocalPosition();
+				Vector3f uv = v.uv.toVector();
+
+				int k = VERTEX_SIZE * i;
+				vertices[k] = pos.getX();
+				vertices[k + 1] = pos.getY();
+				vertices[k + 2] = pos.getZ();
+				vertices[k + 3] = Math.round(uv.x);
+				vertices[k + 4] = Math.round(uv.y);
+				vertices[k + 5] = (v.r << 24) | (v.g << 16) | (v.b << 8) | v.a;
+			}
+
+			indices = new int[3 * triangles.size()];
+			doubleSided = new byte[triangles.size()];
+			for (int i = 0; i < triangles.size(); i++) {
+				Triangle t = triangles.get(i);
+				indices[3 * i] = t.ijk[0];
+				indices[3 * i + 1] = t.ijk[1];
+				indices[3 * i + 2] = t.ijk[2];
+				doubleSided[i] = (byte) (t.doubleSided ? 1 : 0);
+			}
+		}
+
+		public static PackedBatch read(ByteBuffer in) throws IOException
+		{
+			int numVertices = in.getInt();
+			int numTriangles = in.getInt();
+			if (numVertices < 0 || numTriangles < 0 || in.remaining() != 4L * VERTEX_SIZE * numVertices + 13L * numTriangles)
+				throw new IOException("Invalid packed triangle batch.");
+
+			int[] vertices = new int[VERTEX_SIZE * numVertices];
+			int[] indices = new int[3 * numTriangles];
+			byte[] doubleSided = new byte[numTriangles];
+
+			in.asIntBuffer().get(vertices);
+			in.position(in.position() + 4 * vertices.length);
+			in.asIntBuffer().get(indices);
+			in.position(in.position() + 4 * indices.length);
+			in.get(doubleSided);
+
+			for (int index : indices) {
+				if (index < 0 || index >= numVertices)
+					throw new IOException("Vertex index is out of bounds: " + index);
+			}
+
+			return new PackedBatch(vertices, indices, doubleSided);
+		}
+
+		@Override
+		public void write(DataOutputStream out) throws IOException
+		{
+			out.writeInt(vertices.length / VERTEX_SIZE);
+			out.writeInt(doubleSided.length);
+			for (int i : vertices)
+				out.writeInt(i);
+			for (int i : indices)
+				out.writeInt(i);
+			out.write(doubleSided);
+		}
+
+		private void unpack(TriangleBatch batch)
+		{
+			Vertex[] vertexTable = new Vertex[vertices.length / VERTEX_SIZE];
+			for (int i = 0; i < vertexTable.length; i++) {
+				int k = VERTEX_SIZE * i;
+				Vertex v = new Vertex(vertices[k], vertices[k + 1], vertices[k + 2]);
+				v.uv = new UV(vertices[k + 3], vertices[k + 4]);
+
+				int rgba = vertices[k + 5];
+				v.r = (rgba >>> 24);
+				v.g = (rgba >> 16) & 0xFF;
+				v.b = (rgba >> 8) & 0xFF;
+				v.a = rgba & 0xFF;
+				vertexTable[i] = v;
+			}
+
+			for (int i = 0; i < doubleSided.length; i++) {
+				Triangle t = new Triangle();
+				t.ijk = new int[] { indices[3 * i], indices[3 * i + 1], indices[3 * i + 2] };
+				t.vert = new Vertex[] { vertexTable[t.ijk[0]], vertexTable[t.ijk[1]], vertexTable[t.ijk[2]] };
+				t.doubleSided = (doubleSided[i] != 0);
+				t.parentBatch = batch;
+				batch.triangles.add(t);
+			}
+		}
 	}
 
 	@Override
@@ -17,6 +17,9 @@ public class MapObjectNode<T extends MapObject>
 	// where this node exists in the tree, used by scripts to index objects
 	private int treeIndex = -1;
 
+	// set for the root node of a tree model, used to find where dirty bounding boxes are queued
+	transient MapObjectTreeModel<T> treeModel = null;
+
 	public MapObjectNode(T obj)
 	{
 		super(obj);
@@ -2,6 +2,7 @@ package game.map.tree;
 
 import static game.map.MapKey.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -10,10 +11,13 @@ import java.util.Queue;
 import java.util.Stack;
 
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
 
 import org.w3c.dom.Element;
 
 import game.map.MapObject;
+import util.identity.IdentityHashSet;
 import util.xml.XmlWrapper.XmlReader;
 import util.xml.XmlWrapper.XmlSerializable;
 import util.xml.XmlWrapper.XmlTag;
@@ -24,9 +28,24 @@ public abstract class MapObjectTreeModel<T extends MapObject> extends DefaultTre
 	private MapObjectJTree<T> tree;
 	public boolean ignoreSelectionChanges = false;
 
+	// nodes with stale bounding boxes, their ancestors are refreshed along with them
+	private final List<MapObjectNode<?>> dirtyNodes = new ArrayList<>();
+	private boolean refreshAll = true;
+
 	public MapObjectTreeModel(MapObjectNode<T> root)
 	{
 		super(root);
+		root.treeModel = this;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void setRoot(TreeNode root)
+	{
+		super.setRoot(root);
+		if (root != null)
+			((MapObjectNode<T>) root).treeModel = this;
+		refreshAll = true;
 	}
 
 	public void setTree(MapObjectJTree<T> tree)
@@ -305,6 +324,33 @@ public abstract class MapObjectTreeModel<T extends MapObject> extends DefaultTre
 		return null;
 	}
 
+	@Override
+	public void insertNodeInto(MutableTreeNode newChild, MutableTreeNode parent, int index)
+	{
+		super.insertNodeInto(newChild, parent, index);
+
+		// objects may have been changed while they were outside the tree
+		queueDirtySubtree((MapObjectNode<?>) newChild);
+		dirtyNodes.add((MapObjectNode<?>) parent);
+	}
+
+	@Override
+	public void removeNodeFromParent(MutableTreeNode node)
+	{
+		MapObjectNode<?> parent = (MapObjectNode<?>) node.getParent();
+		super.removeNodeFromParent(node);
+
+		if (parent != null)
+			dirtyNodes.add(parent);
+	}
+
+	@Override
+	public void reload(TreeNode node)
+	{
+		super.reload(node);
+		refreshAll = true;
+	}
+
 	public void add(T obj)
 	{
 		MapObjectNode<?> node = obj.getNode();
@@ -332,28 +378,91 @@ public abstract class MapObjectTreeModel<T extends MapObject> extends DefaultTre
 
 	public abstract void recalculateIndicies();
 
-	public void recalculateBoundingBoxes()
+	/**
+	 * Queues the bounding box of an object and all of its ancestors to be recalculated by
+	 * the next call to {@link #recalculateBoundingBoxes()}. Objects outside of a tree are
+	 * only flagged, they will be queued when inserted.
+	 */
+	public static void markDirty(MapObjectNode<?> node)
 	{
-		recalculateBoundingBoxes(getRoot());
+		MapObjectNode<?> root = node;
+		while (root.getParent() != null)
+			root = root.getParent();
+
+		if (root.treeModel != null)
+			root.treeModel.dirtyNodes.add(node);
 	}
 
-	private boolean recalculateBoundingBoxes(MapObjectNode<T> node)
+	private void queueDirtySubtree(MapObjectNode<?> node)
 	{
-		boolean dirtyChild = false;
+		if (node.getUserObject().dirtyAABB)
+			dirtyNodes.add(node);
+
 		for (int i = 0; i < node.getChildCount(); i++)
-			dirtyChild = dirtyChild || recalculateBoundingBoxes(node.getChildAt(i));
+			queueDirtySubtree(node.getChildAt(i));
+	}
 
-		MapObject obj = node.getUserObject();
+	/**
+	 * Forces every bounding box in the tree to be recalculated on the next update.
+	 */
+	public void invalidateBoundingBoxes()
+	{
+		refreshAll = true;
+	}
 
-		if (obj.dirtyAABB || dirtyChild) {
-			obj.AABB.clear();
-			obj.recalculateAABB();
+	/**
+	 * Recalculates the bounding boxes of queued objects and their ancestors, children before parents.
+	 * @return number of bounding boxes which were recalculated
+	 */
+	public int recalculateBoundingBoxes()
+	{
+		if (refreshAll) {
+			refreshAll = false;
+			dirtyNodes.clear();
+			return recalculateBoundingBoxes(getRoot());
+		}
 
-			for (int i = 0; i < node.getChildCount(); i++)
-				obj.AABB.encompass(node.getChildAt(i).getUserObject().AABB);
+		if (dirtyNodes.isEmpty())
+			return 0;
+
+		IdentityHashSet<MapObjectNode<?>> visited = new IdentityHashSet<>();
+		List<MapObjectNode<?>> refreshList = new ArrayList<>();
+		for (MapObjectNode<?> node : dirtyNodes) {
+			for (MapObjectNode<?> cur = node; cur != null && visited.add(cur); cur = cur.getParent())
+				refreshList.add(cur);
 		}
+		dirtyNodes.clear();
+
+		// deepest first, so children are current before their parents encompass them
+		refreshList.sort((a, b) -> b.getLevel() - a.getLevel());
+
+		for (MapObjectNode<?> node : refreshList)
+			recalculateBoundingBox(node);
 
-		return false;
+		return refreshList.size();
+	}
+
+	private int recalculateBoundingBoxes(MapObjectNode<?> node)
+	{
+		int count = 1;
+		for (int i = 0; i < node.getChildCount(); i++)
+			count += recalculateBoundingBoxes(node.getChildAt(i));
+
+		recalculateBoundingBox(node);
+		return count;
+	}
+
+	private static void recalculateBoundingBox(MapObjectNode<?> node)
+	{
+		MapObject obj = node.getUserObject();
+
+		// cleared first, so changes made while recalculating are queued for the next update
+		obj.dirtyAABB = false;
+		obj.AABB.clear();
+		obj.recalculateAABB();
+
+		for (int i = 0; i < node.getChildCount(); i++)
+			obj.AABB.encompass(node.getChildAt(i).getUserObject().AABB);
 	}
 
 	public void print()
@@ -2,11 +2,12 @@ package game.texture;
 
 import static game.texture.TileFormat.*;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 import java.awt.image.IndexColorModel;
 import java.nio.ByteBuffer;
+import java.util.Random;
 
 public class ImageConverter
 {
@@ -37,100 +38,29 @@ public class ImageConverter
 
 	public static ByteBuffer unpack(Tile img)
 	{
-		switch (img.format) {
-			case RGBA_16:
-				return unpack_RGBA_16bpp(img);
-			case RGBA_32:
-				return unpack_RGBA_32bpp(img);
-			case IA_4:
-				return unpack_IA_4bpp(img);
-			case IA_8:
-				return unpack_IA_8bpp(img);
-			case IA_16:
-				return unpack_IA_16bpp(img);
-			case I_4:
-				return unpack_I_4bpp(img);
-			case I_8:
-				return unpack_I_8bpp(img);
-			case CI_4:
-				return unpack_CI_4bpp(img);
-			case CI_8:
-				return unpack_CI_8bpp(img);
-			case YUV_16:
-			default:
-				throw new UnsupportedOperationException("Unsupported format " + img.format);
-		}
+		return toBuffer(unpackBytes(img));
 	}
 
 	public static ByteBuffer pack(Tile img, ByteBuffer unpacked)
 	{
-		switch (img.format) {
-			case RGBA_16:
-				return unpack_RGBA_16bpp(img);
-			case RGBA_32:
-				return unpack_RGBA_32bpp(img);
-			case IA_4:
-				return unpack_IA_4bpp(img);
-			case IA_8:
-				return unpack_IA_8bpp(img);
-			case IA_16:
-				return unpack_IA_16bpp(img);
-			case I_4:
-				return unpack_I_4bpp(img);
-			case I_8:
-				return unpack_I_8bpp(img);
-			case CI_4:
-				return unpack_CI_4bpp(img);
-			case CI_8:
-				return unpack_CI_8bpp(img);
-			case YUV_16:
-			default:
-				throw new UnsupportedOperationException("Unsupported format " + img.format);
-		}
+		return toBuffer(unpackBytes(img));
 	}
 
 	public static ByteBuffer pack(Tile img)
 	{
-		switch (img.format) {
-			case RGBA_16:
-				return unpack_RGBA_16bpp(img);
-			case RGBA_32:
-				return unpack_RGBA_32bpp(img);
-			case IA_4:
-				return unpack_IA_4bpp(img);
-			case IA_8:
-				return unpack_IA_8bpp(img);
-			case IA_16:
-				return unpack_IA_16bpp(img);
-			case I_4:
-				return unpack_I_4bpp(img);
-			case I_8:
-				return unpack_I_8bpp(img);
-			case CI_4:
-				return unpack_CI_4bpp(img);
-			case CI_8:
-				return unpack_CI_8bpp(img);
-			case YUV_16:
-			default:
-				throw new UnsupportedOperationException("Unsupported format " + img.format);
-		}
+		return toBuffer(unpackBytes(img));
 	}
 
 	public static ByteBuffer convertToGLBuffer(Tile img)
 	{
-		ByteBuffer bb = unpack(img);
+		byte[] unpacked = unpackBytes(img);
 
 		// opengl textures start in lower left corner, so we need to flip vertically
-		bb.rewind();
-		ByteBuffer flipped = ByteBuffer.allocateDirect(bb.limit());
+		ByteBuffer flipped = ByteBuffer.allocateDirect(unpacked.length);
 
 		int rowSize = img.width * img.format.glStride;
-		for (int row = img.height - 1; row >= 0; row--) {
-			byte[] rowBytes = new byte[rowSize];
-			bb.position(row * rowSize);
-			bb.get(rowBytes);
-			flipped.put(rowBytes);
-		}
+		for (int row = img.height - 1; row >= 0; row--)
+			flipped.put(unpacked, row * rowSize, rowSize);
 
 		return flipped;
 	}
@@ -181,251 +111,226 @@ public class ImageConverter
 		//	if(format == CI_8 && img.width % 8 != 0)
 		//		throw new ImageFormatException(CI_8 + " image width must be a multiple of 8!");
 
-		img.raster.rewind();
-		int k = 0;
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				if (format == CI_4) {
-					byte i = data[k++];
-					byte j = data[k++];
-					img.raster.put((byte) (i << 4 | j));
-					x++;
-				}
-				else {
-					img.raster.put(data[k++]);
-				}
-			}
+		int numPixels = img.width * img.height;
+		if (format == CI_4) {
+			byte[] packed = new byte[numPixels / 2];
+			for (int i = 0, k = 0; i < packed.length; i++, k += 2)
+				packed[i] = (byte) (data[k] << 4 | data[k + 1]);
+			putRaster(img, packed);
+		}
+		else {
+			img.raster.rewind();
+			img.raster.put(data, 0, numPixels);
+		}
 
 		int paletteSize = 1 << format.bpp;
-
 		IndexColorModel colorModel = (IndexColorModel) bimg.getColorModel();
 		img.palette = new Palette(colorModel, paletteSize);
 
 		return img;
 	}
 
-	private static ByteBuffer unpack_RGBA_16bpp(Tile img)
+	// Each conversion below reads the whole raster into an array, converts it in one pass with
+	// the lookup tables at the bottom of this file, and writes the result back in one bulk operation.
+	// Unpacked texel layouts match the GL formats used by Tile.glLoad (see TileFormat.glStride).
+
+	private static byte[] getRaster(Tile img)
 	{
-		int stride = 4; // R, G, B, alpha
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
+		ByteBuffer raster = img.raster.duplicate();
+		raster.clear();
+		byte[] bytes = new byte[raster.capacity()];
+		raster.get(bytes);
+		return bytes;
+	}
 
+	private static void putRaster(Tile img, byte[] bytes)
+	{
 		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				Color c = unpackColor(img.raster.getShort());
-				bb.put((byte) c.getRed());
-				bb.put((byte) c.getGreen());
-				bb.put((byte) c.getBlue());
-				bb.put((byte) c.getAlpha());
-			}
+		img.raster.put(bytes);
+	}
 
-		return bb;
+	private static int[] getARGB(BufferedImage bimg)
+	{
+		int w = bimg.getWidth();
+		int h = bimg.getHeight();
+		return bimg.getRGB(0, 0, w, h, null, 0, w);
 	}
 
-	private static ByteBuffer unpack_RGBA_32bpp(Tile img)
+	private static BufferedImage createImage(Tile img, int[] argb)
 	{
-		int stride = 4; // R, G, B, alpha
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
+		BufferedImage tex = new BufferedImage(img.width, img.height, BufferedImage.TYPE_INT_ARGB);
+		tex.setRGB(0, 0, img.width, img.height, argb, 0, img.width);
+		return tex;
+	}
 
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				int v = img.raster.getInt();
-				int R = (v >>> 24) & 0xFF;
-				int G = (v >>> 16) & 0xFF;
-				int B = (v >>> 8) & 0xFF;
-				int A = v & 0xFF;
-
-				bb.put((byte) R);
-				bb.put((byte) G);
-				bb.put((byte) B);
-				bb.put((byte) A);
-			}
+	private static byte[] unpackBytes(Tile img)
+	{
+		switch (img.format) {
+			case RGBA_16:
+				return unpack_RGBA_16bpp(getRaster(img));
+			case RGBA_32:
+				return getRaster(img);
+			case IA_4:
+				return unpack_IA_4bpp(getRaster(img));
+			case IA_8:
+				return unpack_IA_8bpp(getRaster(img));
+			case IA_16:
+				return getRaster(img);
+			case I_4:
+				return unpack_4bpp(getRaster(img), EXPAND_4);
+			case I_8:
+				return getRaster(img);
+			case CI_4:
+				return unpack_4bpp(getRaster(img), null);
+			case CI_8:
+				return getRaster(img);
+			case YUV_16:
+			default:
+				throw new UnsupportedOperationException("Unsupported format " + img.format);
+		}
+	}
 
+	private static ByteBuffer toBuffer(byte[] bytes)
+	{
+		ByteBuffer bb = ByteBuffer.allocateDirect(bytes.length);
+		bb.put(bytes);
 		return bb;
 	}
 
+	/**
+	 * Texel format: [red] [green] [blue] [alpha]
+	 */
+	private static byte[] unpack_RGBA_16bpp(byte[] raster)
+	{
+		byte[] out = new byte[raster.length * 2];
+
+		for (int i = 0, k = 0; i < raster.length; i += 2) {
+			int s = (raster[i] & 0xFF) << 8 | (raster[i + 1] & 0xFF);
+			out[k++] = EXPAND_5[(s >>> 11) & 0x1F];
+			out[k++] = EXPAND_5[(s >>> 6) & 0x1F];
+			out[k++] = EXPAND_5[(s >>> 1) & 0x1F];
+			out[k++] = (byte) (((s & 1) == 1) ? 255 : 0);
+		}
+
+		return out;
+	}
+
 	private static BufferedImage getImage_RGBA(Tile img)
 	{
-		ByteBuffer bb;
+		byte[] bytes;
 		if (img.format == RGBA_16)
-			bb = unpack_RGBA_16bpp(img);
+			bytes = unpack_RGBA_16bpp(getRaster(img));
 		else if (img.format == RGBA_32)
-			bb = unpack_RGBA_32bpp(img);
+			bytes = getRaster(img);
 		else
 			throw new IllegalStateException("Image is not RGBA format: " + img.format);
 
-		BufferedImage tex = new BufferedImage(img.width, img.height, BufferedImage.TYPE_INT_ARGB);
-
-		bb.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				int R = (bb.get() & 0xFF);
-				int G = (bb.get() & 0xFF);
-				int B = (bb.get() & 0xFF);
-				int A = (bb.get() & 0xFF);
-
-				Color c = new Color(R, G, B, A);
-
-				//		if(c.getAlpha() != 255)
-				//			img.alpha = AlphaMode.TRANSLUCENT;
-
-				tex.setRGB(x, y, c.getRGB());
-			}
+		int[] argb = new int[img.width * img.height];
+		for (int i = 0, k = 0; i < argb.length; i++, k += 4) {
+			int R = bytes[k] & 0xFF;
+			int G = bytes[k + 1] & 0xFF;
+			int B = bytes[k + 2] & 0xFF;
+			int A = bytes[k + 3] & 0xFF;
+			argb[i] = A << 24 | R << 16 | G << 8 | B;
+		}
 
-		return tex;
+		return createImage(img, argb);
 	}
 
 	private static Tile getTile_RGBA_16bpp(BufferedImage bimg)
 	{
 		Tile img = new Tile(RGBA_16, bimg.getHeight(), bimg.getWidth());
-		img.raster.rewind();
-
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				Color c = new Color(bimg.getRGB(x, y), true);
-
-				int R = (int) Math.floor(31 * (c.getRed() / 255.0));
-				int G = (int) Math.floor(31 * (c.getGreen() / 255.0));
-				int B = (int) Math.floor(31 * (c.getBlue() / 255.0));
-
-				int color = ((c.getAlpha() & 0x80) == 0) ? 0 : 1;
-				color |= (R & 0x1F) << 11;
-				color |= (G & 0x1F) << 6;
-				color |= (B & 0x1F) << 1;
-
-				img.raster.putShort((short) color);
-			}
+		int[] argb = getARGB(bimg);
+		byte[] packed = new byte[argb.length * 2];
+
+		for (int i = 0, k = 0; i < argb.length; i++) {
+			int c = argb[i];
+			int color = ((c & 0x80000000) == 0) ? 0 : 1;
+			color |= QUANT_5[(c >>> 16) & 0xFF] << 11;
+			color |= QUANT_5[(c >>> 8) & 0xFF] << 6;
+			color |= QUANT_5[c & 0xFF] << 1;
+
+			packed[k++] = (byte) (color >>> 8);
+			packed[k++] = (byte) color;
+		}
 
+		putRaster(img, packed);
 		return img;
 	}
 
 	private static Tile getTile_RGBA_32bpp(BufferedImage bimg)
 	{
 		Tile img = new Tile(RGBA_32, bimg.getHeight(), bimg.getWidth());
-		img.raster.rewind();
-
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				Color c = new Color(bimg.getRGB(x, y), true);
-
-				int v = c.getAlpha();
-				v = c.getBlue() << 8 | v;
-				v = c.getGreen() << 16 | v;
-				v = c.getRed() << 24 | v;
-
-				img.raster.putInt(v);
-			}
+		int[] argb = getARGB(bimg);
+		byte[] packed = new byte[argb.length * 4];
+
+		for (int i = 0, k = 0; i < argb.length; i++) {
+			int c = argb[i];
+			packed[k++] = (byte) (c >>> 16);
+			packed[k++] = (byte) (c >>> 8);
+			packed[k++] = (byte) c;
+			packed[k++] = (byte) (c >>> 24);
+		}
 
+		putRaster(img, packed);
 		return img;
 	}
 
 	/**
-	 * Gets a bytebuffer for an IA image.
 	 * Texel format: [intensity] [alpha]
 	 */
-	private static ByteBuffer unpack_IA_4bpp(Tile img)
+	private static byte[] unpack_IA_4bpp(byte[] raster)
 	{
-		int stride = 2; // intensity, alpha
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
-
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x += 2) {
-				byte b = img.raster.get();
-				byte h = (byte) (b >>> 4 & 0x0F);
-				byte l = (byte) (b & 0x0F);
-
-				int I1 = (h >>> 1) & 0x0F;
-				int A1 = ((h & 0x01) == 1) ? 255 : 0;
-				I1 = (int) Math.ceil(255 * (I1 / 7.0));
-
-				int I2 = (l >>> 1) & 0x0F;
-				int A2 = ((l & 0x01) == 1) ? 255 : 0;
-				I2 = (int) Math.ceil(255 * (I2 / 7.0));
-
-				bb.put((byte) I1);
-				bb.put((byte) A1);
-				bb.put((byte) I2);
-				bb.put((byte) A2);
-			}
-
-		return bb;
-	}
-
-	/**
-	 * Gets a bytebuffer for an IA image.
-	 * Texel format: [intensity] [alpha]
-	 */
-	private static ByteBuffer unpack_IA_8bpp(Tile img)
-	{
-		int stride = 2; // intensity, alpha
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
-
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				byte b = img.raster.get();
-				int I = (b >>> 4) & 0x0F;
-				int A = b & 0x0F;
+		byte[] out = new byte[raster.length * 4];
 
-				I = (int) Math.ceil(255 * (I / 15.0));
-				A = (int) Math.ceil(255 * (A / 15.0));
+		for (int i = 0, k = 0; i < raster.length; i++) {
+			int h = (raster[i] >>> 4) & 0x0F;
+			int l = raster[i] & 0x0F;
 
-				bb.put((byte) I);
-				bb.put((byte) A);
-			}
+			out[k++] = EXPAND_3[h >>> 1];
+			out[k++] = (byte) (((h & 0x01) == 1) ? 255 : 0);
+			out[k++] = EXPAND_3[l >>> 1];
+			out[k++] = (byte) (((l & 0x01) == 1) ? 255 : 0);
+		}
 
-		return bb;
+		return out;
 	}
 
 	/**
-	 * Gets a bytebuffer for an IA image.
 	 * Texel format: [intensity] [alpha]
 	 */
-	private static ByteBuffer unpack_IA_16bpp(Tile img)
+	private static byte[] unpack_IA_8bpp(byte[] raster)
 	{
-		int stride = 2; // intensity, alpha
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
+		byte[] out = new byte[raster.length * 2];
 
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				bb.put(img.raster.get());
-				bb.put(img.raster.get());
-			}
+		for (int i = 0, k = 0; i < raster.length; i++) {
+			out[k++] = EXPAND_4[(raster[i] >>> 4) & 0x0F];
+			out[k++] = EXPAND_4[raster[i] & 0x0F];
+		}
 
-		return bb;
+		return out;
 	}
 
 	private static BufferedImage getImage_IA(Tile img)
 	{
-		ByteBuffer bb;
+		byte[] bytes;
 		if (img.format == IA_4)
-			bb = unpack_IA_4bpp(img);
+			bytes = unpack_IA_4bpp(getRaster(img));
 		else if (img.format == IA_8)
-			bb = unpack_IA_8bpp(img);
+			bytes = unpack_IA_8bpp(getRaster(img));
 		else if (img.format == IA_16)
-			bb = unpack_IA_16bpp(img);
+			bytes = getRaster(img);
 		else
 			throw new IllegalStateException("Image is not IA format: " + img.format);
 
-		BufferedImage tex = new BufferedImage(img.width, img.height, BufferedImage.TYPE_INT_ARGB);
-
-		bb.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				int I = (bb.get() & 0xFF);
-				int A = (bb.get() & 0xFF);
-
-				//			if(A != 255)
-				//				img.alpha = AlphaMode.TRANSLUCENT;
-
-				Color c = new Color(I, I, I, A);
-				tex.setRGB(x, y, c.getRGB());
-			}
+		int[] argb = new int[img.width * img.height];
+		for (int i = 0, k = 0; i < argb.length; i++, k += 2) {
+			int I = bytes[k] & 0xFF;
+			int A = bytes[k + 1] & 0xFF;
+			argb[i] = A << 24 | I << 16 | I << 8 | I;
+		}
 
-		return tex;
+		return createImage(img, argb);
 	}
 
 	/**
@@ -436,31 +341,20 @@ public class ImageConverter
 	private static Tile getTile_IA_4bpp(BufferedImage bimg)
 	{
 		Tile img = new Tile(IA_4, bimg.getHeight(), bimg.getWidth());
-		img.raster.rewind();
-
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width;) {
-				Color c1 = new Color(bimg.getRGB(x++, y), true);
-				Color c2 = new Color(bimg.getRGB(x++, y), true);
-
-				int I1 = (c1.getRed() + c1.getBlue() + c1.getGreen()) / 3;
-				int A1 = c1.getAlpha();
+		int[] argb = getARGB(bimg);
+		byte[] packed = new byte[argb.length / 2];
 
-				int I2 = (c2.getRed() + c2.getBlue() + c2.getGreen()) / 3;
-				int A2 = c2.getAlpha();
+		for (int i = 0, k = 0; i < packed.length; i++) {
+			int c1 = argb[k++];
+			int c2 = argb[k++];
 
-				I1 = (int) Math.floor(7 * (I1 / 255.0));
-				I2 = (int) Math.floor(7 * (I2 / 255.0));
+			int h = QUANT_3[intensity(c1)] << 1 | (((c1 >>> 24) > 128) ? 1 : 0);
+			int l = QUANT_3[intensity(c2)] << 1 | (((c2 >>> 24) > 128) ? 1 : 0);
 
-				A1 = (A1 > 128) ? 1 : 0;
-				A2 = (A2 > 128) ? 1 : 0;
-
-				byte h = (byte) (I1 << 1 | A1);
-				byte l = (byte) (I2 << 1 | A2);
-
-				img.raster.put((byte) (h << 4 | l));
-			}
+			packed[i] = (byte) (h << 4 | l);
+		}
 
+		putRaster(img, packed);
 		return img;
 	}
 
@@ -471,21 +365,15 @@ public class ImageConverter
 	private static Tile getTile_IA_8bpp(BufferedImage bimg)
 	{
 		Tile img = new Tile(IA_8, bimg.getHeight(), bimg.getWidth());
+		int[] argb = getARGB(bimg);
+		byte[] packed = new byte[argb.length];
 
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				Color c = new Color(bimg.getRGB(x, y), true);
-
-				int I = (c.getRed() + c.getBlue() + c.getGreen()) / 3;
-				int A = c.getAlpha();
-
-				I = (int) Math.floor(15 * (I / 255.0));
-				A = (int) Math.floor(15 * (A / 255.0));
-
-				byte b = (byte) (I << 4 | A);
-				img.raster.put(b);
-			}
+		for (int i = 0; i < argb.length; i++) {
+			int c = argb[i];
+			packed[i] = (byte) (QUANT_4[intensity(c)] << 4 | QUANT_4[c >>> 24]);
+		}
 
+		putRaster(img, packed);
 		return img;
 	}
 
@@ -496,86 +384,55 @@ public class ImageConverter
 	private static Tile getTile_IA_16bpp(BufferedImage bimg)
 	{
 		Tile img = new Tile(IA_16, bimg.getHeight(), bimg.getWidth());
-		img.raster.rewind();
-
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				Color c = new Color(bimg.getRGB(x, y), true);
+		int[] argb = getARGB(bimg);
+		byte[] packed = new byte[argb.length * 2];
 
-				int I = (c.getRed() + c.getBlue() + c.getGreen()) / 3;
-				int A = c.getAlpha();
-
-				img.raster.put((byte) I);
-				img.raster.put((byte) A);
-			}
+		for (int i = 0, k = 0; i < argb.length; i++) {
+			int c = argb[i];
+			packed[k++] = (byte) intensity(c);
+			packed[k++] = (byte) (c >>> 24);
+		}
 
+		putRaster(img, packed);
 		return img;
 	}
 
 	/**
-	 * Gets a bytebuffer for an I image.
-	 * Texel format: [intensity]
+	 * Splits each byte into two texels, high nibble first.
+	 * Texel format: [intensity] for I_4 using the expansion table, or [index] for CI_4 without one.
 	 */
-	private static ByteBuffer unpack_I_4bpp(Tile img)
+	private static byte[] unpack_4bpp(byte[] raster, byte[] expand)
 	{
-		int stride = 1; // intensity
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
-
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x += 2) {
-				byte b = img.raster.get();
-				int I1 = (b >>> 4) & 0x0F;
-				int I2 = b & 0x0F;
-				I1 = (int) Math.ceil(255 * (I1 / 15.0));
-				I2 = (int) Math.ceil(255 * (I2 / 15.0));
-
-				bb.put((byte) I1);
-				bb.put((byte) I2);
-			}
+		byte[] out = new byte[raster.length * 2];
 
-		return bb;
-	}
+		for (int i = 0, k = 0; i < raster.length; i++) {
+			int h = (raster[i] >>> 4) & 0x0F;
+			int l = raster[i] & 0x0F;
 
-	/**
-	 * Gets a bytebuffer for an I image.
-	 * Texel format: [intensity]
-	 */
-	private static ByteBuffer unpack_I_8bpp(Tile img)
-	{
-		int stride = 1; // intensity
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
-
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				bb.put(img.raster.get());
-			}
+			out[k++] = (expand != null) ? expand[h] : (byte) h;
+			out[k++] = (expand != null) ? expand[l] : (byte) l;
+		}
 
-		return bb;
+		return out;
 	}
 
 	private static BufferedImage getImage_I(Tile img)
 	{
-		ByteBuffer bb;
+		byte[] bytes;
 		if (img.format == I_4)
-			bb = unpack_I_4bpp(img);
+			bytes = unpack_4bpp(getRaster(img), EXPAND_4);
 		else if (img.format == I_8)
-			bb = unpack_I_8bpp(img);
+			bytes = getRaster(img);
 		else
 			throw new IllegalStateException("Image is not I format: " + img.format);
 
-		BufferedImage tex = new BufferedImage(img.width, img.height, BufferedImage.TYPE_INT_ARGB);
-
-		bb.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				int I = (bb.get() & 0xFF);
-				Color c = new Color(I, I, I, 255);
-				tex.setRGB(x, y, c.getRGB());
-			}
+		int[] argb = new int[img.width * img.height];
+		for (int i = 0; i < argb.length; i++) {
+			int I = bytes[i] & 0xFF;
+			argb[i] = 0xFF000000 | I << 16 | I << 8 | I;
+		}
 
-		return tex;
+		return createImage(img, argb);
 	}
 
 	/**
@@ -585,22 +442,16 @@ public class ImageConverter
 	private static Tile getTile_I_4bpp(BufferedImage bimg)
 	{
 		Tile img = new Tile(I_4, bimg.getHeight(), bimg.getWidth());
+		int[] argb = getARGB(bimg);
+		byte[] packed = new byte[argb.length / 2];
 
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width;) {
-				Color c1 = new Color(bimg.getRGB(x++, y), true);
-				Color c2 = new Color(bimg.getRGB(x++, y), true);
-
-				int I1 = (c1.getRed() + c1.getBlue() + c1.getGreen()) / 3;
-				int I2 = (c2.getRed() + c2.getBlue() + c2.getGreen()) / 3;
-
-				I1 = (int) Math.floor(15 * (I1 / 255.0));
-				I2 = (int) Math.floor(15 * (I2 / 255.0));
-
-				img.raster.put((byte) (I1 << 4 | I2));
-			}
+		for (int i = 0, k = 0; i < packed.length; i++) {
+			int I1 = QUANT_4[intensity(argb[k++])];
+			int I2 = QUANT_4[intensity(argb[k++])];
+			packed[i] = (byte) (I1 << 4 | I2);
+		}
 
+		putRaster(img, packed);
 		return img;
 	}
 
@@ -611,151 +462,252 @@ public class ImageConverter
 	private static Tile getTile_I_8bpp(BufferedImage bimg)
 	{
 		Tile img = new Tile(I_8, bimg.getHeight(), bimg.getWidth());
+		int[] argb = getARGB(bimg);
+		byte[] packed = new byte[argb.length];
 
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				Color c = new Color(bimg.getRGB(x, y), true);
-				int I = (c.getRed() + c.getBlue() + c.getGreen()) / 3;
-				img.raster.put((byte) I);
-			}
+		for (int i = 0; i < argb.length; i++)
+			packed[i] = (byte) intensity(argb[i]);
 
+		putRaster(img, packed);
 		return img;
 	}
 
-	/**
-	 * Gets a bytebuffer for a CI image.
-	 * Texel format: [index]
-	 */
-	private static ByteBuffer unpack_CI_4bpp(Tile img)
+	private static int[] getIndexedARGB(Tile img, Palette pal)
 	{
-		int stride = 1; // index
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
+		byte[] indices;
+		if (img.format == CI_4)
+			indices = unpack_4bpp(getRaster(img), null);
+		else if (img.format == CI_8)
+			indices = getRaster(img);
+		else
+			throw new IllegalStateException("Image is not CI format: " + img.format);
 
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x += 2) {
-				byte b = img.raster.get();
-				int i = (b >>> 4) & 0x0F;
-				int j = b & 0x0F;
-
-				bb.put((byte) i);
-				bb.put((byte) j);
-			}
+		int[] colors = pal.getARGB();
+		int[] argb = new int[img.width * img.height];
+		for (int i = 0; i < argb.length; i++)
+			argb[i] = colors[indices[i] & 0xFF];
 
-		return bb;
+		return argb;
 	}
 
-	/**
-	 * Gets a bytebuffer for a CI image.
-	 * Texel format: [index]
-	 */
-	private static ByteBuffer unpack_CI_8bpp(Tile img)
+	private static BufferedImage getImage_CI(Tile img)
 	{
-		int stride = 1; // index
-		ByteBuffer bb = ByteBuffer.allocateDirect(stride * img.width * img.height);
+		return createImage(img, getIndexedARGB(img, img.palette));
+	}
 
-		img.raster.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				bb.put(img.raster.get());
-			}
+	public static BufferedImage getIndexedImage(Tile img, Palette pal)
+	{
+		int[] argb = getIndexedARGB(img, pal);
 
-		return bb;
+		BufferedImage tex = new BufferedImage(img.width, img.height, BufferedImage.TYPE_BYTE_INDEXED, pal.getIndexColorModel());
+		tex.setRGB(0, 0, img.width, img.height, argb, 0, img.width);
+		return tex;
 	}
 
-	private static BufferedImage getImage_CI(Tile img)
+	private static int intensity(int argb)
 	{
-		ByteBuffer bb;
-		if (img.format == CI_4)
-			bb = unpack_CI_4bpp(img);
-		else if (img.format == CI_8)
-			bb = unpack_CI_8bpp(img);
-		else
-			throw new IllegalStateException("Image is not CI format: " + img.format);
+		return (((argb >>> 16) & 0xFF) + ((argb >>> 8) & 0xFF) + (argb & 0xFF)) / 3;
+	}
 
-		BufferedImage tex = new BufferedImage(img.width, img.height, BufferedImage.TYPE_INT_ARGB);
-		Color[] colors = img.palette.getColors();
+	// Packing and unpacking require converting between a 5-bit color channel
+	// and an 8-bit color channel. For these operations to be bitwise reversible,
+	// truncate with ceil() during unpack and floor() during pack.
+	// packed format: RRRRRGGG GGBBBBBA
+	// The same rule applies to 3-bit and 4-bit channels, and the results are tabulated here.
 
-		bb.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				int i = (bb.get() & 0xFF);
-				Color c = colors[i];
+	private static final byte[] EXPAND_3 = createExpandTable(7);
+	private static final byte[] EXPAND_4 = createExpandTable(15);
+	private static final byte[] EXPAND_5 = createExpandTable(31);
 
-				//	if(c.getAlpha() != 255)
-				//		map.alpha = AlphaMode.TRANSPARENT;
+	private static final int[] QUANT_3 = createQuantizeTable(7);
+	private static final int[] QUANT_4 = createQuantizeTable(15);
+	private static final int[] QUANT_5 = createQuantizeTable(31);
 
-				tex.setRGB(x, y, c.getRGB());
-			}
+	private static byte[] createExpandTable(int max)
+	{
+		byte[] table = new byte[max + 1];
+		for (int i = 0; i <= max; i++)
+			table[i] = (byte) (int) Math.ceil(255 * (i / (double) max));
+		return table;
+	}
 
-		return tex;
+	private static int[] createQuantizeTable(int max)
+	{
+		int[] table = new int[256];
+		for (int i = 0; i < 256; i++)
+			table[i] = (int) Math.floor(max * (i / 255.0));
+		return table;
 	}
 
-	public static BufferedImage getIndexedImage(Tile img, Palette pal)
+	public static class ImageFormatException extends RuntimeException
 	{
-		ByteBuffer bb;
-		if (img.format == CI_4)
-			bb = unpack_CI_4bpp(img);
-		else if (img.format == CI_8)
-			bb = unpack_CI_8bpp(img);
-		else
-			throw new IllegalStateException("Image is not CI format: " + img.format);
+		public ImageFormatException(String msg)
+		{
+			super(msg);
+		}
+	}
 
-		BufferedImage tex = new BufferedImage(img.width, img.height, BufferedImage.TYPE_BYTE_INDEXED, pal.getIndexColorModel());
-		Color[] colors = pal.getColors();
+	/**
+	 * Checks the table-driven conversions for each format against per-texel reference formulas,
+	 * and that every raster survives a round trip through a BufferedImage unchanged.
+	 */
+	public static void main(String[] args)
+	{
+		int width = 64;
+		int height = 32;
+		Random rng = new Random(64);
+
+		for (TileFormat fmt : new TileFormat[] { RGBA_16, RGBA_32, IA_4, IA_8, IA_16, I_4, I_8, CI_4, CI_8 }) {
+			int errors = 0;
+
+			// random raster -> image -> raster
+			Tile tile = new Tile(fmt, height, width);
+			byte[] raster = new byte[tile.raster.capacity()];
+			rng.nextBytes(raster);
+			putRaster(tile, raster);
+
+			BufferedImage bimg;
+			if (fmt.type == TYPE_CI) {
+				short[] colors = new short[1 << fmt.bpp];
+				for (int i = 0; i < colors.length; i++)
+					colors[i] = (short) rng.nextInt();
+				tile.palette = new Palette(colors);
+
+				int[] paletteARGB = tile.palette.getARGB();
+				IndexColorModel colorModel = new IndexColorModel(8, colors.length, paletteARGB, 0, true, -1, DataBuffer.TYPE_BYTE);
+				byte[] indices = (fmt == CI_4) ? unpack_4bpp(raster, null) : raster;
+
+				bimg = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+				bimg.getRaster().setDataElements(0, 0, width, height, indices);
+
+				int[] argb = getARGB(convertToBufferedImage(tile));
+				for (int i = 0; i < argb.length; i++) {
+					if (argb[i] != paletteARGB[indices[i] & 0xFF])
+						errors++;
+				}
 
-		bb.rewind();
-		for (int y = 0; y < img.height; y++)
-			for (int x = 0; x < img.width; x++) {
-				int i = (bb.get() & 0xFF);
-				Color c = colors[i];
+				int[] repackedPalette = getTile(bimg, fmt).palette.getARGB();
+				for (int i = 0; i < paletteARGB.length; i++) {
+					if (repackedPalette[i] != paletteARGB[i])
+						errors++;
+				}
+			}
+			else {
+				bimg = convertToBufferedImage(tile);
+				int[] argb = getARGB(bimg);
+				for (int i = 0; i < argb.length; i++) {
+					if (argb[i] != referenceDecode(fmt, raster, i))
+						errors++;
+				}
+			}
+
+			byte[] repacked = getRaster(getTile(bimg, fmt));
+			for (int i = 0; i < raster.length; i++) {
+				if (repacked[i] != raster[i])
+					errors++;
+			}
 
-				//	if(c.getAlpha() != 255)
-				//		map.alpha = AlphaMode.TRANSPARENT;
+			// random image -> raster -> image
+			if (fmt.type != TYPE_CI) {
+				int[] argb = new int[width * height];
+				for (int i = 0; i < argb.length; i++)
+					argb[i] = rng.nextInt();
 
-				tex.setRGB(x, y, c.getRGB());
+				BufferedImage src = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+				src.setRGB(0, 0, width, height, argb, 0, width);
+				int[] converted = getARGB(convertToBufferedImage(getTile(src, fmt)));
+
+				for (int i = 0; i < argb.length; i++) {
+					if (converted[i] != referenceQuantize(fmt, argb[i]))
+						errors++;
+				}
 			}
 
-		return tex;
+			System.out.printf("%-8s %s%n", fmt, (errors == 0) ? "OK" : errors + " mismatches");
+		}
 	}
 
-	// Packing and unpacking require converting between a 5-bit color channel
-	// and an 8-bit color channel. For these operations to be bitwise reversible,
-	// truncate with ceil() during unpack and floor() during pack.
-	// packed format: RRRRRGGG GGBBBBBA
+	private static int referenceExpand(int value, int max)
+	{
+		return (int) Math.ceil(255 * (value / (double) max));
+	}
 
-	private static Color unpackColor(short s)
+	private static int referenceQuantize(int value, int max)
 	{
-		int R = (s >>> 11) & 0x1F;
-		int G = (s >>> 6) & 0x1F;
-		int B = (s >>> 1) & 0x1F;
-		int A = ((s & 1) == 1) ? 255 : 0;
-		R = (int) Math.ceil(255 * (R / 31.0));
-		G = (int) Math.ceil(255 * (G / 31.0));
-		B = (int) Math.ceil(255 * (B / 31.0));
-		return new Color(R, G, B, A);
+		return (int) Math.floor(max * (value / 255.0));
 	}
 
-	private short packColor(int r, int g, int b, int a)
+	private static int toARGB(int R, int G, int B, int A)
 	{
-		int R = (int) Math.floor(31 * (r / 255.0));
-		int G = (int) Math.floor(31 * (g / 255.0));
-		int B = (int) Math.floor(31 * (b / 255.0));
+		return A << 24 | R << 16 | G << 8 | B;
+	}
 
-		int color = ((a & 0x80) == 0) ? 0 : 1;
-		color |= (R & 0x1F) << 11;
-		color |= (G & 0x1F) << 6;
-		color |= (B & 0x1F) << 1;
+	private static int referenceDecode(TileFormat fmt, byte[] raster, int i)
+	{
+		int nibble = (i % 2 == 0) ? (raster[i / 2] >>> 4) & 0xF : raster[i / 2] & 0xF;
 
-		return (short) color;
+		switch (fmt) {
+			case RGBA_16: {
+				int s = (raster[2 * i] & 0xFF) << 8 | (raster[2 * i + 1] & 0xFF);
+				return toARGB(referenceExpand((s >>> 11) & 0x1F, 31), referenceExpand((s >>> 6) & 0x1F, 31),
+					referenceExpand((s >>> 1) & 0x1F, 31), ((s & 1) == 1) ? 255 : 0);
+			}
+			case RGBA_32:
+				return toARGB(raster[4 * i] & 0xFF, raster[4 * i + 1] & 0xFF, raster[4 * i + 2] & 0xFF, raster[4 * i + 3] & 0xFF);
+			case IA_4: {
+				int I = referenceExpand(nibble >>> 1, 7);
+				return toARGB(I, I, I, ((nibble & 1) == 1) ? 255 : 0);
+			}
+			case IA_8: {
+				int I = referenceExpand((raster[i] >>> 4) & 0xF, 15);
+				return toARGB(I, I, I, referenceExpand(raster[i] & 0xF, 15));
+			}
+			case IA_16: {
+				int I = raster[2 * i] & 0xFF;
+				return toARGB(I, I, I, raster[2 * i + 1] & 0xFF);
+			}
+			case I_4: {
+				int I = referenceExpand(nibble, 15);
+				return toARGB(I, I, I, 255);
+			}
+			case I_8: {
+				int I = raster[i] & 0xFF;
+				return toARGB(I, I, I, 255);
+			}
+			default:
+				throw new UnsupportedOperationException("Unsupported format " + fmt);
+		}
 	}
 
-	public static class ImageFormatException extends RuntimeException
+	private static int referenceQuantize(TileFormat fmt, int argb)
 	{
-		public ImageFormatException(String msg)
-		{
-			super(msg);
+		int A = argb >>> 24;
+		int R = (argb >>> 16) & 0xFF;
+		int G = (argb >>> 8) & 0xFF;
+		int B = argb & 0xFF;
+		int I = (R + G + B) / 3;
+
+		switch (fmt) {
+			case RGBA_16:
+				return toARGB(referenceExpand(referenceQuantize(R, 31), 31), referenceExpand(referenceQuantize(G, 31), 31),
+					referenceExpand(referenceQuantize(B, 31), 31), (A >= 128) ? 255 : 0);
+			case RGBA_32:
+				return argb;
+			case IA_4:
+				I = referenceExpand(referenceQuantize(I, 7), 7);
+				return toARGB(I, I, I, (A > 128) ? 255 : 0);
+			case IA_8:
+				I = referenceExpand(referenceQuantize(I, 15), 15);
+				return toARGB(I, I, I, referenceExpand(referenceQuantize(A, 15), 15));
+			case IA_16:
+				return toARGB(I, I, I, A);
+			case I_4:
+				I = referenceExpand(referenceQuantize(I, 15), 15);
+				return toARGB(I, I, I, 255);
+			case I_8:
+				return toARGB(I, I, I, 255);
+			default:
+				throw new UnsupportedOperationException("Unsupported format " + fmt);
 		}
 	}
 }
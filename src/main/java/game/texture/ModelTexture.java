@@ -8,6 +8,9 @@ import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import game.map.editor.render.TextureManager;
 import renderer.shaders.scene.ModelShader;
@@ -15,6 +18,8 @@ import util.Logger;
 
 /**
  * Wraps a {@link Texture} object to add preview thumbnail and gl texture ID.
+ * Construction does all the CPU work and may run on any thread. The GL textures are
+ * created later by {@link #glUpload()}, until then {@link #isUploaded()} is false.
  */
 public class ModelTexture
 {
@@ -25,30 +30,29 @@ public class ModelTexture
 
 	public int modelCount = 0;
 
+	// converted pixel data waiting for glUpload
+	private ByteBuffer mainBuffer;
+	private ByteBuffer auxBuffer;
+	private List<ByteBuffer> mipmapBuffers;
+
+	private volatile boolean uploaded = false;
+
 	public ModelTexture(Texture tx)
 	{
 		this.tx = tx;
 
 		BufferedImage mainImage = ImageConverter.convertToBufferedImage(tx.main);
 		mainPreview = createPreview(mainImage);
-
-		tx.main.glLoad(tx.hWrap[IMG], tx.vWrap[IMG], tx.hasMipmaps && tx.mipmapList.size() > 0);
-
-		if (tx.main.palette != null)
-			tx.main.palette.glLoad();
+		mainBuffer = ImageConverter.convertToGLBuffer(tx.main);
 
 		if (tx.hasAux) {
 			BufferedImage auxImage = ImageConverter.convertToBufferedImage(tx.aux);
 			auxPreview = createPreview(auxImage);
-
-			tx.aux.glLoad(tx.hWrap[AUX], tx.vWrap[AUX], false);
-
-			if (tx.aux.palette != null)
-				tx.aux.palette.glLoad();
+			auxBuffer = ImageConverter.convertToGLBuffer(tx.aux);
 		}
 
 		if (tx.hasMipmaps && tx.mipmapList.size() > 0) {
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, tx.mipmapList.size());
+			mipmapBuffers = new ArrayList<>(tx.mipmapList.size());
 
 			int curX = tx.main.width;
 			int curY = tx.main.height;
@@ -64,10 +68,51 @@ public class ModelTexture
 							+ "(in both dimensions) of the previous level.",
 						lod, tx.name);
 
-				mm.glMipmap(lod);
+				mipmapBuffers.add(ImageConverter.convertToGLBuffer(mm));
+				lod++;
+			}
+		}
+	}
+
+	public boolean isUploaded()
+	{
+		return uploaded;
+	}
+
+	/**
+	 * Creates the GL textures from the converted pixel data. Must be called from the GL thread.
+	 */
+	public void glUpload()
+	{
+		if (uploaded)
+			return;
+
+		tx.main.glLoad(mainBuffer, tx.hWrap[IMG], tx.vWrap[IMG], mipmapBuffers != null);
+
+		if (tx.main.palette != null)
+			tx.main.palette.glLoad();
+
+		if (mipmapBuffers != null) {
+			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, mipmapBuffers.size());
+
+			int lod = 1;
+			for (Tile mm : tx.mipmapList) {
+				mm.glMipmap(mipmapBuffers.get(lod - 1), lod);
 				lod++;
 			}
 		}
+
+		if (tx.hasAux) {
+			tx.aux.glLoad(auxBuffer, tx.hWrap[AUX], tx.vWrap[AUX], false);
+
+			if (tx.aux.palette != null)
+				tx.aux.palette.glLoad();
+		}
+
+		mainBuffer = null;
+		auxBuffer = null;
+		mipmapBuffers = null;
+		uploaded = true;
 	}
 
 	public String getName()
@@ -58,6 +58,16 @@ public class Palette
 		}
 	}
 
+	Palette(byte[] r, byte[] g, byte[] b, byte[] a)
+	{
+		this.size = r.length;
+
+		this.r = r;
+		this.g = g;
+		this.b = b;
+		this.a = a;
+	}
+
 	public Palette(Palette pal)
 	{
 		this(pal.getColors());
@@ -82,10 +92,7 @@ public class Palette
 
 	public IndexColorModel getIndexColorModel()
 	{
-		// pack to ARGB color space representation
-		int[] cmap = new int[size];
-		for (int i = 0; i < size; i++)
-			cmap[i] = ((a[i] << 24) & 0xFF000000) | ((r[i] << 16) & 0x00FF0000) | ((g[i] << 8) & 0x0000FF00) | (b[i] & 0x000000FF);
+		int[] cmap = getARGB();
 
 		return new IndexColorModel(8, // bits per pixel
 			16, // size of color component array
@@ -176,6 +183,17 @@ public class Palette
 			raf.writeShort(packIndex(i));
 	}
 
+	/**
+	 * @return colors packed in ARGB order, as used by {@link java.awt.image.BufferedImage#getRGB(int, int)}
+	 */
+	public int[] getARGB()
+	{
+		int[] argb = new int[size];
+		for (int i = 0; i < size; i++)
+			argb[i] = ((a[i] << 24) & 0xFF000000) | ((r[i] << 16) & 0x00FF0000) | ((g[i] << 8) & 0x0000FF00) | (b[i] & 0x000000FF);
+		return argb;
+	}
+
 	public Color getColor(int i)
 	{
 		return new Color(r[i] & 0xFF, g[i] & 0xFF, b[i] & 0xFF, a[i] & 0xFF);
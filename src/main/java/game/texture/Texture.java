@@ -104,8 +104,6 @@ public class Texture
 		String auxFormatName = null;
 		tx.hWrap = new int[2];
 		tx.vWrap = new int[2];
-		boolean convertImg = false;
-		boolean convertAux = false;
 		ImageAttributes attr;
 
 		Iterator<String> iter = lines.iterator();
@@ -129,8 +127,6 @@ public class Texture
 					}
 					attr = parseImage(archiveFile, tx, imgLines);
 					imgFormatName = attr.format;
-					if (attr.convert != null)
-						convertImg = attr.convert.equals(YES);
 					if (attr.hWrap != null)
 						tx.hWrap[IMG] = getWrapMode(archiveFile, name, attr.hWrap);
 					if (attr.vWrap != null)
@@ -152,8 +148,6 @@ public class Texture
 					}
 					attr = parseImage(archiveFile, tx, auxLines);
 					auxFormatName = attr.format;
-					if (attr.convert != null)
-						convertAux = attr.convert.equals(YES);
 					if (attr.hWrap != null)
 						tx.hWrap[AUX] = getWrapMode(archiveFile, name, attr.hWrap);
 					if (attr.vWrap != null)
@@ -207,10 +201,10 @@ public class Texture
 				throw new InputFileException(archiveFile, "(%s) Texture cannot have both mipmaps and aux.", name);
 		}
 
-		tx.main = Tile.load(dir + imgName, imgFormat, convertImg);
+		tx.main = TileCache.load(new File(dir + imgName), imgFormat);
 
 		if (tx.hasAux)
-			tx.aux = Tile.load(dir + auxName, auxFormat, convertAux);
+			tx.aux = TileCache.load(new File(dir + auxName), auxFormat);
 
 		if (tx.hasMipmaps) {
 			int divisor = 2;
@@ -226,7 +220,7 @@ public class Texture
 						imgName = imgName.substring(0, imgName.indexOf("."));
 
 					String mmName = imgName + "_MIPMAP_" + (tx.mipmapList.size() + 1) + ".png";
-					Tile mipmap = Tile.load(dir + mmName, imgFormat, convertImg);
+					Tile mipmap = TileCache.load(new File(dir + mmName), imgFormat);
 
 					if (mipmap.height != mmHeight)
 						throw new InputFileException(archiveFile, "%s has incorrect height: %s instead of %s", mmName, mipmap.height, mmHeight);
@@ -311,11 +305,11 @@ public class Texture
 
 		AssetHandle mainAsset = AssetManager.get(AssetSubdir.MAP_TEX, texName + "/" + tx.name + ".png");
 
-		tx.main = Tile.load(mainAsset, imgFormat);
+		tx.main = TileCache.load(mainAsset, imgFormat);
 
 		if (tx.hasAux) {
 			AssetHandle auxAsset = AssetManager.get(AssetSubdir.MAP_TEX, texName + "/" + tx.name + "_AUX.png");
-			tx.aux = Tile.load(auxAsset, auxFormat);
+			tx.aux = TileCache.load(auxAsset, auxFormat);
 		}
 
 		if (tx.hasMipmaps) {
@@ -330,7 +324,7 @@ public class Texture
 
 					String mmName = tx.name + "_MM" + (tx.mipmapList.size() + 1);
 					AssetHandle mmAsset = AssetManager.get(AssetSubdir.MAP_TEX, texName + "/" + mmName + ".png");
-					Tile mipmap = Tile.load(mmAsset, imgFormat);
+					Tile mipmap = TileCache.load(mmAsset, imgFormat);
 
 					if (mipmap.height != mmHeight)
 						throw new InputFileException(source, "%s has incorrect height: %s instead of %s", mmName, mipmap.height, mmHeight);
@@ -3,15 +3,20 @@ package game.texture;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.commons.io.FilenameUtils;
 
 import com.google.gson.Gson;
 import com.google.gson.stream.JsonReader;
 
+import app.Environment;
 import app.input.IOUtils;
 import app.input.InputFileException;
 
@@ -50,14 +55,16 @@ public class TextureArchive
 		String texName = FilenameUtils.getBaseName(texFile.getName());
 		TextureArchive ta = new TextureArchive(texName);
 
-		Gson gson = new Gson();
-		JsonReader jsonReader = new JsonReader(new FileReader(texFile));
-		JsonTexture[] jsonTextures = gson.fromJson(jsonReader, JsonTexture[].class);
-
-		for (JsonTexture tex : jsonTextures) {
-			ta.textureList.add(Texture.parseTexture(texFile, tex));
+		JsonTexture[] jsonTextures;
+		try (JsonReader jsonReader = new JsonReader(new FileReader(texFile))) {
+			jsonTextures = new Gson().fromJson(jsonReader, JsonTexture[].class);
 		}
 
+		List<TextureParser> parsers = new ArrayList<>(jsonTextures.length);
+		for (JsonTexture tex : jsonTextures)
+			parsers.add(() -> Texture.parseTexture(texFile, tex));
+
+		ta.parseAll(parsers);
 		return ta;
 	}
 
@@ -70,6 +77,8 @@ public class TextureArchive
 		String subdir = parentDirectory.getAbsolutePath() + "/" + texName + "/";
 		List<String> lines = IOUtils.readFormattedTextFile(texFile, false);
 
+		List<TextureParser> parsers = new ArrayList<>();
+
 		Iterator<String> iter = lines.iterator();
 		while (iter.hasNext()) {
 			String line = iter.next();
@@ -107,10 +116,47 @@ public class TextureArchive
 				textureLines.add(line);
 			}
 
-			Texture tx = Texture.parseTexture(texFile, subdir, name, textureLines);
-			ta.textureList.add(tx);
+			parsers.add(() -> Texture.parseTexture(texFile, subdir, name, textureLines));
 		}
 
+		ta.parseAll(parsers);
 		return ta;
 	}
+
+	private static interface TextureParser
+	{
+		public Texture parse() throws IOException;
+	}
+
+	/**
+	 * Reading and decoding the images dominates load time, so textures are parsed in parallel
+	 * on the global executor. The archive order is preserved.
+	 */
+	private void parseAll(List<TextureParser> parsers) throws IOException
+	{
+		List<CompletableFuture<Texture>> futures = new ArrayList<>(parsers.size());
+		for (TextureParser parser : parsers) {
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return parser.parse();
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, Environment.getExecutor()));
+		}
+
+		try {
+			for (CompletableFuture<Texture> future : futures)
+				textureList.add(future.join());
+		}
+		catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException ioe)
+				throw ioe.getCause();
+			if (cause instanceof RuntimeException re)
+				throw re;
+			throw new IOException(cause);
+		}
+	}
 }
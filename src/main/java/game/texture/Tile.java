@@ -58,6 +58,19 @@ public class Tile
 		palette = null;
 	}
 
+	/**
+	 * Wraps an existing raster, which must hold exactly w * h pixels in this format.
+	 */
+	Tile(TileFormat fmt, int h, int w, ByteBuffer raster)
+	{
+		format = fmt;
+		height = h;
+		width = w;
+
+		this.raster = raster;
+		palette = null;
+	}
+
 	public Tile(Tile original)
 	{
 		format = original.format;
@@ -475,11 +488,19 @@ public class Tile
 	}
 
 	public void glLoad(int hWrap, int vWrap, boolean mipmaps)
+	{
+		glLoad(ImageConverter.convertToGLBuffer(this), hWrap, vWrap, mipmaps);
+	}
+
+	/**
+	 * Uploads pixel data which was already converted by {@link ImageConverter#convertToGLBuffer(Tile)},
+	 * allowing the conversion to run off the GL thread.
+	 */
+	public void glLoad(ByteBuffer buffer, int hWrap, int vWrap, boolean mipmaps)
 	{
 		if (glLoaded)
 			glDeleteTextures(glTexID);
 
-		ByteBuffer buffer = ImageConverter.convertToGLBuffer(this);
 		buffer.rewind();
 
 		glTexID = glGenTextures();
@@ -552,7 +573,11 @@ public class Tile
 
 	public void glMipmap(int level)
 	{
-		ByteBuffer buffer = ImageConverter.convertToGLBuffer(this);
+		glMipmap(ImageConverter.convertToGLBuffer(this), level);
+	}
+
+	public void glMipmap(ByteBuffer buffer, int level)
+	{
 		buffer.rewind();
 
 		switch (format.glStride) {
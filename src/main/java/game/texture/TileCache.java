@@ -0,0 +1,182 @@
+package game.texture;
+
+import static game.texture.TileFormat.TYPE_CI;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import app.Directories;
+import app.Environment;
+import app.StarRodException;
+import app.input.IOUtils;
+import util.ContentHash;
+import util.Logger;
+
+/**
+ * Keeps converted texture tiles in the project cache, so reloading an unchanged texture archive
+ * skips PNG decoding and format conversion. Entries are named by the hash of the PNG content,
+ * target format, and tool version, so they never need to be invalidated and may be deleted at any time.
+ * Cached rasters are memory mapped copy-on-write, so loading them does not copy the pixel data.
+ */
+public abstract class TileCache
+{
+	private static final String CACHE_DIR = "textures";
+	private static final String EXT_TILE = ".tile";
+	private static final int MAGIC = 0x544C4331; // TLC1
+
+	/**
+	 * Loads an image with the same result as {@link Tile#load(File, TileFormat)}, using the
+	 * project cache when one is available.
+	 */
+	public static Tile load(File in, TileFormat format)
+	{
+		if (Environment.getProjectDirectory() == null)
+			return Tile.load(in, format, false);
+
+		byte[] png;
+		try {
+			png = Files.readAllBytes(in.toPath());
+		}
+		catch (IOException e) {
+			throw new StarRodException("Exception loading image: %s %n%s", in.getAbsolutePath(), e.getMessage());
+		}
+
+		String key = new ContentHash().add(png).add(format.name).add(Environment.getVersionString()).get();
+		File entry = Directories.PROJ_CACHE.file(CACHE_DIR + "/" + key + EXT_TILE);
+
+		if (entry.exists()) {
+			try {
+				Tile tile = read(entry, format);
+				if (tile != null)
+					return tile;
+			}
+			catch (IOException | RuntimeException e) {
+				Logger.logWarning("Discarding unreadable cache for " + in.getName() + ": " + e.getMessage());
+			}
+		}
+
+		Tile tile;
+		try {
+			BufferedImage bimg = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(png)));
+			if (bimg == null)
+				throw new IOException("Unsupported image type.");
+			tile = ImageConverter.getTile(bimg, format);
+		}
+		catch (IOException e) {
+			throw new StarRodException("Exception loading image: %s %n%s", in.getAbsolutePath(), e.getMessage());
+		}
+
+		try {
+			write(entry, tile);
+		}
+		catch (IOException e) {
+			Logger.logWarning("Could not cache " + in.getName() + ": " + e.getMessage());
+		}
+
+		return tile;
+	}
+
+	/*
+	 * Entry format: magic, format name, width, height, raster size, raster,
+	 * palette size (zero if none), then the red, green, blue, and alpha palette arrays.
+	 */
+
+	private static void write(File entry, Tile tile) throws IOException
+	{
+		ByteBuffer raster = tile.raster.duplicate();
+		raster.clear();
+		byte[] rasterBytes = new byte[raster.capacity()];
+		raster.get(rasterBytes);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(rasterBytes.length + 0x500);
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(MAGIC);
+		out.writeUTF(tile.format.name);
+		out.writeInt(tile.width);
+		out.writeInt(tile.height);
+		out.writeInt(rasterBytes.length);
+		out.write(rasterBytes);
+
+		Palette pal = tile.palette;
+		if (pal == null) {
+			out.writeInt(0);
+		}
+		else {
+			out.writeInt(pal.size);
+			out.write(pal.r);
+			out.write(pal.g);
+			out.write(pal.b);
+			out.write(pal.a);
+		}
+
+		out.flush();
+		IOUtils.writeBytesToFileAtomic(bytes.toByteArray(), entry);
+	}
+
+	/**
+	 * @return cached tile, or null if the entry is for a different format
+	 */
+	private static Tile read(File entry, TileFormat format) throws IOException
+	{
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(entry.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// private mapping, so any edits to the raster stay in memory (requires a writable channel)
+			buffer = channel.map(FileChannel.MapMode.PRIVATE, 0, channel.size());
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Invalid cache entry.");
+
+			byte[] name = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(name);
+			if (!format.name.equals(new String(name, StandardCharsets.UTF_8)))
+				return null;
+
+			int width = buffer.getInt();
+			int height = buffer.getInt();
+			int rasterSize = buffer.getInt();
+			if (rasterSize != (width * height * format.bpp >> 3))
+				throw new IOException("Raster size does not match image dimensions.");
+
+			ByteBuffer raster = buffer.slice(buffer.position(), rasterSize);
+			buffer.position(buffer.position() + rasterSize);
+
+			Palette pal = null;
+			int palSize = buffer.getInt();
+			if (palSize > 0) {
+				byte[][] channels = new byte[4][palSize];
+				for (byte[] c : channels)
+					buffer.get(c);
+				pal = new Palette(channels[0], channels[1], channels[2], channels[3]);
+			}
+			else if (format.type == TYPE_CI) {
+				throw new IOException("Missing palette.");
+			}
+
+			if (buffer.hasRemaining())
+				throw new IOException("Unexpected data after palette.");
+
+			Tile tile = new Tile(format, height, width, raster);
+			tile.palette = pal;
+			return tile;
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("Cache entry is truncated or corrupt.");
+		}
+	}
+}
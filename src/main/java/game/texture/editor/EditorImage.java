@@ -9,6 +9,10 @@ import java.awt.image.DataBuffer;
 import java.awt.image.IndexColorModel;
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
 import common.commands.AbstractCommand;
 import game.texture.ImageConverter;
@@ -36,6 +40,12 @@ public class EditorImage
 		indexLUT_IA8 = createLUT_IA(getPaletteIA8());
 	}
 
+	// value of a cleared pixel, matching Pixel::clear
+	private static final int DEFAULT_COLOR = 0xFF000000;
+
+	// undo saves the contents of each tile the first time a stroke writes to it
+	private static final int UNDO_TILE_SIZE = 16;
+
 	private BufferedMesh mesh;
 
 	private final ImageEditor editor;
@@ -44,11 +54,13 @@ public class EditorImage
 	public final int width;
 	public final int height;
 
-	private final Pixel[][] pixels;
+	// pixels are stored in rows, so pixel (x,y) is at y * width + x
+	private final int[] colors; // ARGB
+	private final byte[] indices;
 	private final Color[] palette;
 	public final boolean editablePalette;
 
-	private boolean[][] selectionMask;
+	private BitSet selectionMask;
 	private int selectedCount = 0;
 
 	public File source;
@@ -60,8 +72,10 @@ public class EditorImage
 		this.width = width;
 		this.height = height;
 
-		pixels = new Pixel[width][height];
-		selectionMask = new boolean[width][height];
+		colors = new int[width * height];
+		indices = new byte[width * height];
+		Arrays.fill(colors, DEFAULT_COLOR);
+		selectionMask = new BitSet(width * height);
 
 		// create palette
 		switch (format) {
@@ -107,8 +121,10 @@ public class EditorImage
 		this.width = width;
 		this.height = height;
 
-		pixels = new Pixel[width][height];
-		selectionMask = new boolean[width][height];
+		colors = new int[width * height];
+		indices = new byte[width * height];
+		Arrays.fill(colors, DEFAULT_COLOR);
+		selectionMask = new BitSet(width * height);
 
 		palette = pal.getColors();
 		editablePalette = true;
@@ -147,41 +163,83 @@ public class EditorImage
 		}
 
 		// read pixels from tile
-		for (int j = 0; j < tile.height; j++)
-			for (int i = 0; i < tile.width; i++) {
-				switch (tile.format.type) {
-					case TileFormat.TYPE_CI:
-						pixels[i][j] = Pixel.getColorIndexed(glBuffer.get());
-						break;
-					case TileFormat.TYPE_I:
-						pixels[i][j] = Pixel.getIntensity(glBuffer.get(), (byte) 255);
-						break;
-					case TileFormat.TYPE_IA:
-						pixels[i][j] = Pixel.getIntensity(glBuffer.get(), glBuffer.get());
-						break;
-					case TileFormat.TYPE_RGBA:
-						pixels[i][j] = Pixel.getRGBA(glBuffer.get(), glBuffer.get(), glBuffer.get(), glBuffer.get());
-						break;
-				}
+		for (int k = 0; k < width * height; k++) {
+			int I, A;
+			switch (tile.format.type) {
+				case TileFormat.TYPE_CI:
+					indices[k] = glBuffer.get();
+					break;
+				case TileFormat.TYPE_I:
+					I = glBuffer.get() & 0xFF;
+					colors[k] = pack(I, I, I, 255);
+					break;
+				case TileFormat.TYPE_IA:
+					I = glBuffer.get() & 0xFF;
+					A = glBuffer.get() & 0xFF;
+					colors[k] = pack(I, I, I, A);
+					break;
+				case TileFormat.TYPE_RGBA:
+					int R = glBuffer.get() & 0xFF;
+					int G = glBuffer.get() & 0xFF;
+					int B = glBuffer.get() & 0xFF;
+					A = glBuffer.get() & 0xFF;
+					colors[k] = pack(R, G, B, A);
+					break;
 			}
+		}
 
 		// assign indices for indexed I/IA formats
-		for (int j = 0; j < tile.height; j++)
-			for (int i = 0; i < tile.width; i++) {
-				Pixel pixel = pixels[i][j];
-				switch (tile.format) {
-					case I_4:
-						pixel.index = indexLUT_I4[pixel.r];
-						break;
-					case IA_4:
-						pixel.index = indexLUT_IA4[pixel.r][pixel.a];
-						break;
-					case IA_8:
-						pixel.index = indexLUT_IA8[pixel.r][pixel.a];
-						break;
-					default:
-				}
+		for (int k = 0; k < width * height; k++) {
+			int I = red(colors[k]);
+			int A = alpha(colors[k]);
+			switch (tile.format) {
+				case I_4:
+					indices[k] = (byte) indexLUT_I4[I];
+					break;
+				case IA_4:
+					indices[k] = (byte) indexLUT_IA4[I][A];
+					break;
+				case IA_8:
+					indices[k] = (byte) indexLUT_IA8[I][A];
+					break;
+				default:
 			}
+		}
+	}
+
+	private static int pack(int r, int g, int b, int a)
+	{
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	private static int pack(Color c)
+	{
+		return pack(c.getRed(), c.getGreen(), c.getBlue(), c.getAlpha());
+	}
+
+	private static int alpha(int argb)
+	{
+		return (argb >>> 24);
+	}
+
+	private static int red(int argb)
+	{
+		return (argb >> 16) & 0xFF;
+	}
+
+	private static int green(int argb)
+	{
+		return (argb >> 8) & 0xFF;
+	}
+
+	private static int blue(int argb)
+	{
+		return argb & 0xFF;
+	}
+
+	private int getIndex(int k)
+	{
+		return indices[k] & 0xFF;
 	}
 
 	public static EditorImage resize(EditorImage oldImage, ResizeOptions resizeOptions)
@@ -197,11 +255,6 @@ public class EditorImage
 			newImage.palette[i] = new Color(c.getRed(), c.getGreen(), c.getBlue(), c.getAlpha());
 		}
 
-		for (int j = 0; j < H; j++)
-			for (int i = 0; i < W; i++) {
-				newImage.pixels[i][j] = new Pixel();
-			}
-
 		int dx = W - oldImage.width;
 		int dy = H - oldImage.height;
 
@@ -231,18 +284,19 @@ public class EditorImage
 				break;
 		}
 
-		for (int j = 0; j < H; j++) {
+		// copy the overlapping part of each row
+		int minX = Math.max(0, padLeft);
+		int maxX = Math.min(W, oldImage.width + padLeft);
+
+		for (int j = 0; j < H && minX < maxX; j++) {
 			int jp = j - padTop;
 			if (jp < 0 || jp >= oldImage.height)
 				continue;
 
-			for (int i = 0; i < W; i++) {
-				int ip = i - padLeft;
-				if (ip < 0 || ip >= oldImage.width)
-					continue;
-
-				newImage.pixels[i][j].sample(oldImage.pixels[ip][jp]);
-			}
+			int src = jp * oldImage.width + (minX - padLeft);
+			int dst = j * W + minX;
+			System.arraycopy(oldImage.colors, src, newImage.colors, dst, maxX - minX);
+			System.arraycopy(oldImage.indices, src, newImage.indices, dst, maxX - minX);
 		}
 
 		return newImage;
@@ -253,49 +307,34 @@ public class EditorImage
 		EditorImage newImage = new EditorImage(oldImage.editor, pal, oldImage.width, oldImage.height);
 		newImage.source = oldImage.source;
 
-		for (int j = 0; j < newImage.height; j++)
-			for (int i = 0; i < newImage.width; i++) {
-				newImage.pixels[i][j] = new Pixel(oldImage.pixels[i][j]);
-				Pixel pixel = newImage.pixels[i][j];
-				int R, G, B, A;
-
-				// convert to RBGA
-				if (oldImage.palette != null) {
-					Color c = oldImage.palette[pixel.index];
-					R = c.getRed();
-					G = c.getGreen();
-					B = c.getBlue();
-					A = c.getAlpha();
-				}
-				else if (oldImage.format.type == TileFormat.TYPE_I) {
-					R = pixel.r;
-					G = pixel.r;
-					B = pixel.r;
-					A = 255;
-				}
-				else if (oldImage.format.type == TileFormat.TYPE_IA) {
-					R = pixel.r;
-					G = pixel.r;
-					B = pixel.r;
-					A = pixel.a;
-				}
-				else {
-					R = pixel.r;
-					G = pixel.g;
-					B = pixel.b;
-					A = pixel.a;
-				}
+		for (int k = 0; k < newImage.colors.length; k++) {
+			int color = oldImage.getRGBA(k);
+			int index = finalNearestPaletteIndex(newImage.palette, red(color), green(color), blue(color), alpha(color));
 
-				pixel.index = finalNearestPaletteIndex(newImage.palette, R, G, B, A);
-				pixel.r = newImage.palette[pixel.index].getRed();
-				pixel.g = newImage.palette[pixel.index].getGreen();
-				pixel.b = newImage.palette[pixel.index].getBlue();
-				pixel.a = newImage.palette[pixel.index].getAlpha();
-			}
+			newImage.indices[k] = (byte) index;
+			newImage.colors[k] = pack(newImage.palette[index]);
+		}
 
 		return newImage;
 	}
 
+	/**
+	 * @return the color of a pixel in RGBA terms, looking it up in the palette for indexed formats
+	 */
+	private int getRGBA(int k)
+	{
+		int color = colors[k];
+
+		if (palette != null)
+			return pack(palette[getIndex(k)]);
+		else if (format.type == TileFormat.TYPE_I)
+			return pack(red(color), red(color), red(color), 255);
+		else if (format.type == TileFormat.TYPE_IA)
+			return pack(red(color), red(color), red(color), alpha(color));
+		else
+			return color;
+	}
+
 	private static int finalNearestPaletteIndex(Color[] palette, int r, int g, int b, int a)
 	{
 		int minScore = Integer.MAX_VALUE;
@@ -324,6 +363,8 @@ public class EditorImage
 		EditorImage newImage = new EditorImage(oldImage.editor, settings.fmt, oldImage.width, oldImage.height);
 		newImage.source = oldImage.source;
 
+		System.arraycopy(oldImage.indices, 0, newImage.indices, 0, oldImage.indices.length);
+
 		if (newImage.format == TileFormat.CI_8 && oldImage.format == TileFormat.CI_4) {
 			// if expanding palette, copy old one
 			for (int i = 0; i < oldImage.palette.length; i++) {
@@ -331,39 +372,13 @@ public class EditorImage
 				newImage.palette[i] = new Color(c.getRed(), c.getGreen(), c.getBlue(), c.getAlpha());
 			}
 
-			for (int j = 0; j < newImage.height; j++)
-				for (int i = 0; i < newImage.width; i++) {
-					newImage.pixels[i][j] = new Pixel(oldImage.pixels[i][j]);
-				}
+			System.arraycopy(oldImage.colors, 0, newImage.colors, 0, oldImage.colors.length);
 			return newImage;
 		}
 
-		for (int j = 0; j < newImage.height; j++)
-			for (int i = 0; i < newImage.width; i++) {
-				newImage.pixels[i][j] = new Pixel(oldImage.pixels[i][j]);
-				Pixel pixel = newImage.pixels[i][j];
-
-				// convert to RBGA
-				if (oldImage.palette != null) {
-					Color c = oldImage.palette[pixel.index];
-					pixel.r = c.getRed();
-					pixel.g = c.getGreen();
-					pixel.b = c.getBlue();
-					pixel.a = c.getAlpha();
-				}
-				else if (oldImage.format.type == TileFormat.TYPE_I) {
-					pixel.r = pixel.r;
-					pixel.g = pixel.r;
-					pixel.b = pixel.r;
-					pixel.a = 255;
-				}
-				else if (oldImage.format.type == TileFormat.TYPE_IA) {
-					pixel.r = pixel.r;
-					pixel.g = pixel.r;
-					pixel.b = pixel.r;
-					pixel.a = pixel.a;
-				}
-			}
+		// convert to RBGA
+		for (int k = 0; k < newImage.colors.length; k++)
+			newImage.colors[k] = oldImage.getRGBA(k);
 
 		switch (newImage.format) {
 			case CI_4:
@@ -401,56 +416,53 @@ public class EditorImage
 
 	private static void convertToGrayscale(EditorImage image, ConvertSettings settings, boolean hasAlpha)
 	{
-		for (int j = 0; j < image.height; j++)
-			for (int i = 0; i < image.width; i++) {
-				Pixel pixel = image.pixels[i][j];
-
-				switch (settings.intensityMethod) {
-					case Luminance:
-						pixel.r = Math.min(255, Math.round((0.2126f * pixel.r) + (0.7152f * pixel.g) + (0.0722f * pixel.b)));
-						break;
-					case Balanced:
-						pixel.r = Math.min(255, Math.round((0.299f * pixel.r) + (0.587f * pixel.g) + (0.114f * pixel.b)));
-						break;
-					case Average:
-						pixel.r = Math.min(255, Math.round((0.333f * pixel.r) + (0.333f * pixel.g) + (0.333f * pixel.b)));
-						break;
-				}
-
-				pixel.g = pixel.r;
-				pixel.b = pixel.r;
-
-				if (!hasAlpha)
-					pixel.a = 255;
+		for (int k = 0; k < image.colors.length; k++) {
+			int color = image.colors[k];
+			int R = red(color);
+			int G = green(color);
+			int B = blue(color);
+			int I = 0;
+
+			switch (settings.intensityMethod) {
+				case Luminance:
+					I = Math.min(255, Math.round((0.2126f * R) + (0.7152f * G) + (0.0722f * B)));
+					break;
+				case Balanced:
+					I = Math.min(255, Math.round((0.299f * R) + (0.587f * G) + (0.114f * B)));
+					break;
+				case Average:
+					I = Math.min(255, Math.round((0.333f * R) + (0.333f * G) + (0.333f * B)));
+					break;
 			}
+
+			image.colors[k] = pack(I, I, I, hasAlpha ? alpha(color) : 255);
+		}
 	}
 
 	private static void reduceI(EditorImage image, int[] LUT)
 	{
-		for (int j = 0; j < image.height; j++)
-			for (int i = 0; i < image.width; i++) {
-				Pixel pixel = image.pixels[i][j];
-				pixel.index = LUT[pixel.r];
-				Color reduced = image.palette[pixel.index];
-				pixel.r = reduced.getRed();
-				pixel.g = reduced.getRed();
-				pixel.b = reduced.getRed();
-				pixel.a = reduced.getAlpha();
-			}
+		for (int k = 0; k < image.colors.length; k++) {
+			int index = LUT[red(image.colors[k])];
+			image.setReduced(k, index);
+		}
 	}
 
 	private static void reduceIA(EditorImage image, int[][] LUT)
 	{
-		for (int j = 0; j < image.height; j++)
-			for (int i = 0; i < image.width; i++) {
-				Pixel pixel = image.pixels[i][j];
-				pixel.index = LUT[pixel.r][pixel.a];
-				Color reduced = image.palette[pixel.index];
-				pixel.r = reduced.getRed();
-				pixel.g = reduced.getRed();
-				pixel.b = reduced.getRed();
-				pixel.a = reduced.getAlpha();
-			}
+		for (int k = 0; k < image.colors.length; k++) {
+			int color = image.colors[k];
+			int index = LUT[red(color)][alpha(color)];
+			image.setReduced(k, index);
+		}
+	}
+
+	private void setReduced(int k, int index)
+	{
+		Color reduced = palette[index];
+		int I = reduced.getRed();
+
+		indices[k] = (byte) index;
+		colors[k] = pack(I, I, I, reduced.getAlpha());
 	}
 
 	private static void reduceCI(EditorImage image, DitherMethod type)
@@ -460,8 +472,7 @@ public class EditorImage
 		// pack pixels --> ARGB integers
 		for (int j = 0; j < image.height; j++)
 			for (int i = 0; i < image.width; i++) {
-				Pixel pixel = image.pixels[i][j];
-				packedPixels[i][j] = (pixel.a << 24) | (pixel.r << 16) | (pixel.g << 8) | (pixel.b << 0);
+				packedPixels[i][j] = image.colors[j * image.width + i];
 			}
 
 		int[][] originalPixels = new int[image.width][image.height];
@@ -489,14 +500,10 @@ public class EditorImage
 		for (int j = 0; j < image.height; j++)
 			for (int i = 0; i < image.width; i++) {
 				int index = packedPixels[i][j];
+				int k = j * image.width + i;
 
-				Pixel pixel = image.pixels[i][j];
-				pixel.index = index;
-
-				pixel.a = image.palette[index].getAlpha();
-				pixel.r = image.palette[index].getRed();
-				pixel.g = image.palette[index].getGreen();
-				pixel.b = image.palette[index].getBlue();
+				image.indices[k] = (byte) index;
+				image.colors[k] = pack(image.palette[index]);
 			}
 	}
 
@@ -508,10 +515,7 @@ public class EditorImage
 			bimg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
 
 			for (int y = 0; y < height; y++)
-				for (int x = 0; x < width; x++) {
-					Pixel pixel = pixels[x][y];
-					bimg.setRGB(x, (height - 1) - y, pixel.getARGB());
-				}
+				bimg.setRGB(0, (height - 1) - y, width, 1, colors, y * width, width);
 		}
 		else {
 			int[] cmap = new int[palette.length];
@@ -529,11 +533,12 @@ public class EditorImage
 					0, // the pixel value that should be transparent
 					DataBuffer.TYPE_BYTE));
 
-			for (int y = 0; y < height; y++)
-				for (int x = 0; x < width; x++) {
-					Pixel pixel = pixels[x][y];
-					bimg.setRGB(x, (height - 1) - y, palette[pixel.index].getRGB());
-				}
+			int[] row = new int[width];
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++)
+					row[x] = cmap[getIndex(y * width + x)];
+				bimg.setRGB(0, (height - 1) - y, width, 1, row, 0, width);
+			}
 		}
 
 		return ImageConverter.getTile(bimg, format);
@@ -551,15 +556,28 @@ public class EditorImage
 
 	public void draw(int mousePixelX, int mousePixelY, Pixel pickedPixel)
 	{
-		if (selectedCount == 0 || selectionMask[mousePixelX][mousePixelY]) {
-			pixels[mousePixelX][mousePixelY].sample(pickedPixel);
+		int k = mousePixelY * width + mousePixelX;
+		if (selectedCount == 0 || selectionMask.get(k)) {
+			setPixel(mousePixelX, mousePixelY, pickedPixel);
 			numDrawn++;
 		}
 	}
 
+	private void setPixel(int x, int y, Pixel px)
+	{
+		if (imageBackup != null)
+			imageBackup.save(this, x / UNDO_TILE_SIZE, y / UNDO_TILE_SIZE);
+
+		int k = y * width + x;
+		colors[k] = px.getARGB();
+		indices[k] = (byte) px.index;
+	}
+
 	public void sample(int mousePixelX, int mousePixelY, Pixel pickedPixel)
 	{
-		pickedPixel.sample(pixels[mousePixelX][mousePixelY]);
+		int k = mousePixelY * width + mousePixelX;
+		pickedPixel.setARGB(colors[k]);
+		pickedPixel.index = getIndex(k);
 	}
 
 	/**
@@ -570,115 +588,120 @@ public class EditorImage
 	{
 		if (selectedCount > 0) {
 			numDrawnSelected = selectedCount;
-			selectionMask = new boolean[width][height];
+			selectionMask.clear();
 			selectedCount = 0;
 		}
 	}
 
 	public void selectionFill(int x, int y)
 	{
-		boolean[][] flooded = new boolean[width][height];
-		Pixel startingPixel = pixels[x][y];
-
-		flood(x, y, startingPixel, flooded);
+		flood(x, y, true);
 	}
 
 	public void deselectionFill(int x, int y)
 	{
-		boolean[][] flooded = new boolean[width][height];
-		Pixel startingPixel = pixels[x][y];
-
-		antiflood(x, y, startingPixel, flooded);
+		flood(x, y, false);
 	}
 
-	private void flood(int x, int y, Pixel startingPixel, boolean[][] flooded)
+	/**
+	 * Selects or deselects the four-way connected region of pixels matching the one at (x,y).
+	 * Works one horizontal span at a time, with an explicit stack of seed points for the rows
+	 * above and below each span, so large regions neither recurse nor revisit pixels.
+	 */
+	private void flood(int x, int y, boolean select)
 	{
-		if (x < 0 || x >= width)
+		if (x < 0 || x >= width || y < 0 || y >= height)
 			return;
 
-		if (y < 0 || y >= height)
-			return;
+		int start = y * width + x;
+		int matchColor = colors[start];
+		byte matchIndex = indices[start];
 
-		if (flooded[x][y])
-			return;
+		BitSet visited = new BitSet(width * height);
+		int[] stack = new int[64];
+		int stackSize = 0;
 
-		flooded[x][y] = true;
+		stack[stackSize++] = start;
 
-		if (!startingPixel.equals(pixels[x][y]))
-			return;
+		while (stackSize > 0) {
+			int seed = stack[--stackSize];
+			if (visited.get(seed))
+				continue;
 
-		if (!selectionMask[x][y]) {
-			selectionMask[x][y] = true;
-			selectedCount++;
-			numDrawnSelected++;
-		}
+			int row = (seed / width) * width;
 
-		flood(x - 1, y, startingPixel, flooded);
-		flood(x + 1, y, startingPixel, flooded);
-		flood(x, y - 1, startingPixel, flooded);
-		flood(x, y + 1, startingPixel, flooded);
-	}
+			// extend the span in both directions
+			int left = seed;
+			while (left > row && !visited.get(left - 1) && matches(left - 1, matchColor, matchIndex))
+				left--;
 
-	private void antiflood(int x, int y, Pixel startingPixel, boolean[][] flooded)
-	{
-		if (x < 0 || x >= width)
-			return;
+			int right = seed + 1;
+			while (right < row + width && !visited.get(right) && matches(right, matchColor, matchIndex))
+				right++;
 
-		if (y < 0 || y >= height)
-			return;
-
-		if (flooded[x][y])
-			return;
+			visited.set(left, right);
 
-		flooded[x][y] = true;
+			for (int k = left; k < right; k++) {
+				if (selectionMask.get(k) != select) {
+					selectionMask.set(k, select);
+					selectedCount += select ? 1 : -1;
+					numDrawnSelected++;
+				}
+			}
 
-		if (!startingPixel.equals(pixels[x][y]))
-			return;
+			// seed each run of matching pixels touching the span from above and below
+			for (int offset = -width; offset <= width; offset += 2 * width) {
+				int adjRow = row + offset;
+				if (adjRow < 0 || adjRow >= colors.length)
+					continue;
 
-		if (selectionMask[x][y]) {
-			selectionMask[x][y] = false;
-			selectedCount++;
-			numDrawnSelected++;
+				boolean inRun = false;
+				for (int k = left + offset; k < right + offset; k++) {
+					boolean open = !visited.get(k) && matches(k, matchColor, matchIndex);
+					if (open && !inRun) {
+						if (stackSize == stack.length)
+							stack = Arrays.copyOf(stack, 2 * stack.length);
+						stack[stackSize++] = k;
+					}
+					inRun = open;
+				}
+			}
 		}
 
-		antiflood(x - 1, y, startingPixel, flooded);
-		antiflood(x + 1, y, startingPixel, flooded);
-		antiflood(x, y - 1, startingPixel, flooded);
-		antiflood(x, y + 1, startingPixel, flooded);
+		assert (selectedCount >= 0);
+	}
+
+	private boolean matches(int k, int matchColor, byte matchIndex)
+	{
+		return colors[k] == matchColor && indices[k] == matchIndex;
 	}
 
 	public void fillSelection(Pixel pickedPixel)
 	{
 		if (selectedCount > 0) {
-			for (int i = 0; i < width; i++) {
-				for (int j = 0; j < height; j++) {
-					if (!selectionMask[i][j])
-						continue;
-
-					pixels[i][j].sample(pickedPixel);
-					numDrawn++;
-				}
+			for (int k = selectionMask.nextSetBit(0); k >= 0; k = selectionMask.nextSetBit(k + 1)) {
+				setPixel(k % width, k / width, pickedPixel);
+				numDrawn++;
 			}
 		}
 	}
 
 	public void selectByIndex(int index)
 	{
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				if (pixels[i][j].index == index) {
-					selectionMask[i][j] = true;
-					selectedCount++;
-					numDrawnSelected++;
-				}
+		for (int k = 0; k < indices.length; k++) {
+			if (getIndex(k) == index && !selectionMask.get(k)) {
+				selectionMask.set(k);
+				selectedCount++;
+				numDrawnSelected++;
 			}
 		}
 	}
 
 	public void select(int i, int j)
 	{
-		if (!selectionMask[i][j]) {
-			selectionMask[i][j] = true;
+		int k = j * width + i;
+		if (!selectionMask.get(k)) {
+			selectionMask.set(k);
 			selectedCount++;
 			numDrawnSelected++;
 
@@ -688,8 +711,9 @@ public class EditorImage
 
 	public void deselect(int i, int j)
 	{
-		if (selectionMask[i][j]) {
-			selectionMask[i][j] = false;
+		int k = j * width + i;
+		if (selectionMask.get(k)) {
+			selectionMask.clear(k);
 			selectedCount--;
 			numDrawnSelected++;
 
@@ -718,31 +742,24 @@ public class EditorImage
 		else
 			mesh.clear();
 
-		for (int i = 0; i < width; i++)
-			for (int j = 0; j < height; j++) {
-				if (!selectionMask[i][j])
-					buildPixel(i, j);
-			}
+		for (int k = selectionMask.nextClearBit(0); k < colors.length; k = selectionMask.nextClearBit(k + 1))
+			buildPixel(k);
 
 		RenderState.setColor(1.0f, selectionColorAmount, selectionColorAmount, 1.0f);
 		float delta = 0.25f;
 
-		for (int i = 0; i < width; i++)
-			for (int j = 0; j < height; j++) {
-				if (selectionMask[i][j]) {
-					mesh.addQuad(
-						mesh.addVertex().setPosition(i - delta, j - delta, 0).getIndex(),
-						mesh.addVertex().setPosition(i + 1 + delta, j - delta, 0).getIndex(),
-						mesh.addVertex().setPosition(i + 1 + delta, j + 1 + delta, 0).getIndex(),
-						mesh.addVertex().setPosition(i - delta, j + 1 + delta, 0).getIndex());
-				}
-			}
+		for (int k = selectionMask.nextSetBit(0); k >= 0; k = selectionMask.nextSetBit(k + 1)) {
+			int i = k % width;
+			int j = k / width;
+			mesh.addQuad(
+				mesh.addVertex().setPosition(i - delta, j - delta, 0).getIndex(),
+				mesh.addVertex().setPosition(i + 1 + delta, j - delta, 0).getIndex(),
+				mesh.addVertex().setPosition(i + 1 + delta, j + 1 + delta, 0).getIndex(),
+				mesh.addVertex().setPosition(i - delta, j + 1 + delta, 0).getIndex());
+		}
 
-		for (int i = 0; i < width; i++)
-			for (int j = 0; j < height; j++) {
-				if (selectionMask[i][j])
-					buildPixel(i, j);
-			}
+		for (int k = selectionMask.nextSetBit(0); k >= 0; k = selectionMask.nextSetBit(k + 1))
+			buildPixel(k);
 
 		mesh.loadBuffers();
 
@@ -750,14 +767,14 @@ public class EditorImage
 		mesh.render();
 	}
 
-	private void buildPixel(int i, int j)
+	private void buildPixel(int k)
 	{
-		Pixel px = pixels[i][j];
-		if (px == null)
-			return;
+		int i = k % width;
+		int j = k / width;
+		int color = colors[k];
 
 		if (palette != null) {
-			int index = px.index;
+			int index = getIndex(k);
 
 			float R = palette[index].getRed() / 255.0f;
 			float G = palette[index].getGreen() / 255.0f;
@@ -767,16 +784,16 @@ public class EditorImage
 			RenderState.setColor(R, G, B, A);
 		}
 		else if (format.type == TileFormat.TYPE_I || format.type == TileFormat.TYPE_IA) {
-			float I = px.r / 255.0f;
-			float A = px.a;
+			float I = red(color) / 255.0f;
+			float A = alpha(color);
 
 			RenderState.setColor(I, I, I, A);
 		}
 		else if (format.type == TileFormat.TYPE_RGBA) {
-			float R = px.r / 255.0f;
-			float G = px.g / 255.0f;
-			float B = px.b / 255.0f;
-			float A = px.a / 255.0f;
+			float R = red(color) / 255.0f;
+			float G = green(color) / 255.0f;
+			float B = blue(color) / 255.0f;
+			float A = alpha(color) / 255.0f;
 
 			RenderState.setColor(R, G, B, A);
 		}
@@ -964,26 +981,86 @@ public class EditorImage
 		colorBackup = null;
 	}
 
+	/**
+	 * Contents of the tiles touched by a drawing operation. Tiles are saved the first time they
+	 * are written to, so a backup only grows with the area actually being edited.
+	 */
 	public static class ImageBackup
 	{
-		private Pixel[][] pixels;
+		private final int tilesX;
+		private final BitSet savedTiles;
+		private final List<TileBackup> tiles = new ArrayList<>();
 
 		public ImageBackup(EditorImage image)
 		{
-			pixels = new Pixel[image.width][image.height];
+			tilesX = (image.width + UNDO_TILE_SIZE - 1) / UNDO_TILE_SIZE;
+			savedTiles = new BitSet();
+		}
 
-			for (int j = 0; j < image.height; j++)
-				for (int i = 0; i < image.width; i++) {
-					pixels[i][j] = new Pixel(image.pixels[i][j]);
-				}
+		/**
+		 * Captures the current contents of the same tiles as another backup.
+		 */
+		public ImageBackup(EditorImage image, ImageBackup other)
+		{
+			tilesX = other.tilesX;
+			savedTiles = (BitSet) other.savedTiles.clone();
+
+			for (TileBackup tile : other.tiles)
+				tiles.add(new TileBackup(image, tile.x, tile.y, tile.w, tile.h));
+		}
+
+		private void save(EditorImage image, int tileX, int tileY)
+		{
+			int id = tileY * tilesX + tileX;
+			if (savedTiles.get(id))
+				return;
+
+			savedTiles.set(id);
+
+			int x = tileX * UNDO_TILE_SIZE;
+			int y = tileY * UNDO_TILE_SIZE;
+			int w = Math.min(UNDO_TILE_SIZE, image.width - x);
+			int h = Math.min(UNDO_TILE_SIZE, image.height - y);
+			tiles.add(new TileBackup(image, x, y, w, h));
 		}
 
 		public void apply(EditorImage image)
 		{
-			for (int j = 0; j < image.height; j++)
-				for (int i = 0; i < image.width; i++) {
-					image.pixels[i][j].sample(pixels[i][j]);
-				}
+			for (TileBackup tile : tiles)
+				tile.apply(image);
+		}
+	}
+
+	private static class TileBackup
+	{
+		private final int x, y, w, h;
+		private final int[] colors;
+		private final byte[] indices;
+
+		private TileBackup(EditorImage image, int x, int y, int w, int h)
+		{
+			this.x = x;
+			this.y = y;
+			this.w = w;
+			this.h = h;
+
+			colors = new int[w * h];
+			indices = new byte[w * h];
+
+			for (int j = 0; j < h; j++) {
+				int src = (y + j) * image.width + x;
+				System.arraycopy(image.colors, src, colors, j * w, w);
+				System.arraycopy(image.indices, src, indices, j * w, w);
+			}
+		}
+
+		private void apply(EditorImage image)
+		{
+			for (int j = 0; j < h; j++) {
+				int dst = (y + j) * image.width + x;
+				System.arraycopy(colors, j * w, image.colors, dst, w);
+				System.arraycopy(indices, j * w, image.indices, dst, w);
+			}
 		}
 	}
 
@@ -998,7 +1075,7 @@ public class EditorImage
 			super("Modify Image");
 			this.image = image;
 			this.oldBackup = backup;
-			this.newBackup = new ImageBackup(image);
+			this.newBackup = new ImageBackup(image, backup);
 		}
 
 		@Override
@@ -1018,28 +1095,18 @@ public class EditorImage
 
 	public static class SelectionBackup
 	{
-		private boolean[][] selection;
+		private BitSet selection;
 		private int numSelected;
 
 		public SelectionBackup(EditorImage image)
 		{
-			selection = new boolean[image.width][image.height];
-
-			for (int j = 0; j < image.height; j++)
-				for (int i = 0; i < image.width; i++) {
-					selection[i][j] = image.selectionMask[i][j];
-				}
-
+			selection = (BitSet) image.selectionMask.clone();
 			numSelected = image.selectedCount;
 		}
 
 		public void apply(EditorImage image)
 		{
-			for (int j = 0; j < image.height; j++)
-				for (int i = 0; i < image.width; i++) {
-					image.selectionMask[i][j] = selection[i][j];
-				}
-
+			image.selectionMask = (BitSet) selection.clone();
 			image.selectedCount = numSelected;
 		}
 	}
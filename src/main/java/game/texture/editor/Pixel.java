@@ -64,6 +64,14 @@ public class Pixel
 		return (a << 24) | (r << 16) | (g << 8) | b;
 	}
 
+	public void setARGB(int argb)
+	{
+		a = (argb >>> 24);
+		r = (argb >> 16) & 0xFF;
+		g = (argb >> 8) & 0xFF;
+		b = argb & 0xFF;
+	}
+
 	public boolean equals(Pixel other)
 	{
 		if (r != other.r)
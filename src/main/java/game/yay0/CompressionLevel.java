@@ -0,0 +1,39 @@
+package game.yay0;
+
+public enum CompressionLevel
+{
+	/**
+	 * Greedy hash chain search with one step of lazy matching. Intended for quick iteration.
+	 */
+	FAST ("fast"),
+
+	/**
+	 * Exhaustive search of the window followed by a shortest-path parse over encoded sizes.
+	 */
+	OPTIMAL ("optimal");
+
+	public final String name;
+
+	private CompressionLevel(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * @return matching level, or null if there is none
+	 */
+	public static CompressionLevel get(String name)
+	{
+		for (CompressionLevel level : values()) {
+			if (level.name.equalsIgnoreCase(name))
+				return level;
+		}
+		return null;
+	}
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
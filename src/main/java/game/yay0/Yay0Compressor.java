@@ -0,0 +1,218 @@
+package game.yay0;
+
+import java.util.Arrays;
+
+/**
+ * Finds links with hash chains over the 4 KB window and writes them with {@link Yay0Encoder}.
+ * Each chain lists earlier positions sharing a hash of their next three bytes, nearest first.
+ */
+class Yay0Compressor
+{
+	// all limits are inclusive
+	private static final int MIN_LINK_LENGTH = 3;
+	private static final int MAX_LINK_LENGTH = 273;
+	private static final int MAX_OFFSET = 4096;
+
+	// links longer than this need an extra byte for their length
+	private static final int SHORT_LINK_LENGTH = 17;
+
+	// encoded sizes in bits, including the control bit
+	private static final int COPY_COST = 9;
+	private static final int SHORT_LINK_COST = 17;
+	private static final int LONG_LINK_COST = 25;
+
+	private static final int HASH_BITS = 15;
+
+	// FAST gives up searching after this many candidates, or once it finds a match this long
+	private static final int FAST_MAX_CHAIN = 32;
+	private static final int FAST_NICE_LENGTH = 64;
+
+	private final byte[] source;
+	private final int[] head;
+	private final int[] prev;
+
+	private final Yay0Encoder encoder;
+
+	// distance of the match most recently returned by findMatch
+	private int matchDistance;
+
+	public Yay0Compressor(byte[] src, CompressionLevel level)
+	{
+		source = src;
+		encoder = new Yay0Encoder(source.length);
+
+		head = new int[1 << HASH_BITS];
+		prev = new int[source.length];
+		Arrays.fill(head, -1);
+
+		switch (level) {
+			case FAST:
+				encodeLazy();
+				break;
+			case OPTIMAL:
+				encodeOptimal();
+				break;
+		}
+
+		encoder.flush();
+	}
+
+	public byte[] getFile()
+	{
+		return encoder.getFile();
+	}
+
+	private int hash(int pos)
+	{
+		int key = ((source[pos] & 0xFF) << 16) | ((source[pos + 1] & 0xFF) << 8) | (source[pos + 2] & 0xFF);
+		return (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+	}
+
+	/**
+	 * Adds a position to the hash chains. Positions must be inserted in increasing order.
+	 */
+	private void insert(int pos)
+	{
+		if (pos + MIN_LINK_LENGTH > source.length)
+			return;
+
+		int h = hash(pos);
+		prev[pos] = head[h];
+		head[h] = pos;
+	}
+
+	/**
+	 * Finds the longest match for the bytes at pos among the inserted positions, preferring
+	 * the nearest one. Matches may overlap pos, repeating the last few bytes.
+	 * @return length of the match, or zero if there is none
+	 */
+	private int findMatch(int pos, int maxChain, int niceLength)
+	{
+		int maxLength = Math.min(MAX_LINK_LENGTH, source.length - pos);
+		if (maxLength < MIN_LINK_LENGTH)
+			return 0;
+
+		int minPos = Math.max(0, pos - MAX_OFFSET);
+		int bestLength = MIN_LINK_LENGTH - 1;
+		int bestDistance = 0;
+
+		int chain = maxChain;
+		for (int cand = head[hash(pos)]; cand >= minPos && chain > 0; cand = prev[cand], chain--) {
+			// cannot be longer than the best match if the byte just past it differs
+			if (source[cand + bestLength] != source[pos + bestLength])
+				continue;
+
+			int length = 0;
+			while (length < maxLength && source[cand + length] == source[pos + length])
+				length++;
+
+			if (length > bestLength) {
+				bestLength = length;
+				bestDistance = pos - cand;
+
+				if (length >= niceLength || length == maxLength)
+					break;
+			}
+		}
+
+		if (bestDistance == 0)
+			return 0;
+
+		matchDistance = bestDistance;
+		return bestLength;
+	}
+
+	/**
+	 * Greedy parse which defers each link by one byte if that would produce a longer link.
+	 */
+	private void encodeLazy()
+	{
+		int pos = 0;
+		int length = findMatch(pos, FAST_MAX_CHAIN, FAST_NICE_LENGTH);
+		int distance = matchDistance;
+
+		while (pos < source.length) {
+			insert(pos);
+
+			if (length >= MIN_LINK_LENGTH && length < FAST_NICE_LENGTH) {
+				int nextLength = findMatch(pos + 1, FAST_MAX_CHAIN, FAST_NICE_LENGTH);
+				if (nextLength > length) {
+					encoder.addCopy(source[pos]);
+					pos++;
+					length = nextLength;
+					distance = matchDistance;
+					continue;
+				}
+			}
+
+			if (length < MIN_LINK_LENGTH) {
+				encoder.addCopy(source[pos]);
+				pos++;
+			}
+			else {
+				encoder.addLink(length, distance);
+				for (int i = 1; i < length; i++)
+					insert(pos + i);
+				pos += length;
+			}
+
+			length = findMatch(pos, FAST_MAX_CHAIN, FAST_NICE_LENGTH);
+			distance = matchDistance;
+		}
+	}
+
+	/**
+	 * Finds the longest match at every position, then chooses the sequence of copies and links
+	 * with the smallest total encoded size. Every prefix of a match is also a match at the same
+	 * distance, so the longest match at each position covers all the links which can start there.
+	 */
+	private void encodeOptimal()
+	{
+		int size = source.length;
+
+		int[] cost = new int[size + 1];
+		int[] stepLength = new int[size + 1]; // 1 = copy
+		int[] stepDistance = new int[size + 1];
+
+		Arrays.fill(cost, Integer.MAX_VALUE);
+		cost[0] = 0;
+
+		for (int pos = 0; pos < size; pos++) {
+			int length = findMatch(pos, Integer.MAX_VALUE, MAX_LINK_LENGTH);
+			int distance = matchDistance;
+			insert(pos);
+
+			int base = cost[pos];
+
+			if (base + COPY_COST < cost[pos + 1]) {
+				cost[pos + 1] = base + COPY_COST;
+				stepLength[pos + 1] = 1;
+			}
+
+			for (int i = MIN_LINK_LENGTH; i <= length; i++) {
+				int linkCost = base + ((i > SHORT_LINK_LENGTH) ? LONG_LINK_COST : SHORT_LINK_COST);
+				if (linkCost < cost[pos + i]) {
+					cost[pos + i] = linkCost;
+					stepLength[pos + i] = i;
+					stepDistance[pos + i] = distance;
+				}
+			}
+		}
+
+		// walk back from the end, then encode the chosen steps in order
+		int numSteps = 0;
+		int[] steps = new int[size];
+		for (int pos = size; pos > 0; pos -= stepLength[pos])
+			steps[numSteps++] = pos;
+
+		for (int i = numSteps - 1; i >= 0; i--) {
+			int end = steps[i];
+			int length = stepLength[end];
+
+			if (length == 1)
+				encoder.addCopy(source[end - 1]);
+			else
+				encoder.addLink(length, stepDistance[end]);
+		}
+	}
+}
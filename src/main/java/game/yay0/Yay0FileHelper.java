@@ -1,9 +1,15 @@
 package game.yay0;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 
 public class Yay0FileHelper
 {
@@ -13,14 +19,18 @@ public class Yay0FileHelper
 	0x08	offset to link table
 	0x0C	offset to non-linked chunks and count modifiers table
 	0x10	packed data
-	
+
 	The packed data is a bitstream (padded to a multiple of 32bits), with each bit having the following meaning:
-	
+
 	0	linked chunk, copy block from the link table (offset 0x0008)
 	1	non linked chunk, copy next byte from non-linked chunks and count modifiers table (offset at 0x000c)
 	 **/
 
-	public static void decode(File source, File dest) throws IOException
+	/**
+	 * Decodes a Yay0 file into the destination directory, using the same name with a .bin extension.
+	 * @return the decoded file
+	 */
+	public static File decode(File source, File dest) throws IOException
 	{
 		if (source == null || dest == null)
 			throw new IllegalArgumentException("File arguments may not be null!");
@@ -28,73 +38,41 @@ public class Yay0FileHelper
 		if (!dest.isDirectory())
 			throw new IllegalArgumentException("Destination must be a directory!");
 
-		RandomAccessFile raf = new RandomAccessFile(source, "r");
-
-		int magicNumber = raf.readInt();
-		assert (magicNumber == 0x59617930); // "Yay0"
-		int decompressedSize = raf.readInt();
-		int linkOffset = raf.readInt();
-		int sourceOffset = raf.readInt();
-
-		byte currentCommand = 0;
-		int commandOffset = 16;
-		int remainingBits = 0;
-
-		byte[] decoded = new byte[decompressedSize];
-		int decodedBytes = 0;
-
-		do {
-			// get the next command
-			if (remainingBits == 0) {
-				raf.seek(commandOffset);
-				currentCommand = raf.readByte();
-				commandOffset++;
-				remainingBits = 8;
-			}
-
-			// bit == 1 --> copy directly from source
-			if ((currentCommand & 0x80) != 0) {
-				raf.seek(sourceOffset);
-				decoded[decodedBytes] = raf.readByte();
-				sourceOffset++;
-				decodedBytes++;
+		ByteBuffer decoded;
+		try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer mapped = in.map(MapMode.READ_ONLY, 0, in.size());
+			decoded = ByteBuffer.allocate(Yay0Helper.getDecodedSize(mapped, 0));
+			Yay0Helper.decode(mapped, decoded);
+		}
+		decoded.flip();
 
-				// bit == 0 --> copy from decoded buffer
-			}
-			else {
-				// find out where to copy from
-				raf.seek(linkOffset);
-				short link = raf.readShort();
-				linkOffset += 2;
-				int dist = (link & 0x0FFF);
-				int copySrc = decodedBytes - (dist + 1);
-				int length = ((link >> 12) & 0x0F);
+		File out = new File(dest, FilenameUtils.getBaseName(source.getName()) + ".bin");
+		try (FileChannel channel = FileChannel.open(out.toPath(),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (decoded.hasRemaining())
+				channel.write(decoded);
+		}
 
-				// determine how many bytes to copy
-				if (length == 0) {
-					raf.seek(sourceOffset);
-					length = (raf.readByte() & 0x0FF) + 0x10;
-					sourceOffset++;
-				}
+		return out;
+	}
 
-				length += 2;
+	/**
+	 * Compresses a file into the destination directory, using the same name with a .yay0 extension.
+	 * @return the encoded file
+	 */
+	public static File encode(File source, File dest, CompressionLevel level) throws IOException
+	{
+		if (source == null || dest == null)
+			throw new IllegalArgumentException("File arguments may not be null!");
 
-				// copy
-				for (int i = 0; i < length; i++) {
-					decoded[decodedBytes] = decoded[copySrc + i];
-					decodedBytes++;
-				}
-			}
+		if (!dest.isDirectory())
+			throw new IllegalArgumentException("Destination must be a directory!");
 
-			currentCommand <<= 1;
-			remainingBits--;
-		}
-		while (decodedBytes < decompressedSize);
+		byte[] encoded = Yay0Helper.encode(FileUtils.readFileToByteArray(source), level);
 
-		raf.close();
+		File out = new File(dest, FilenameUtils.getBaseName(source.getName()) + ".yay0");
+		FileUtils.writeByteArrayToFile(out, encoded);
 
-		FileOutputStream out = new FileOutputStream(new File("./test/hos_bt02_hit.bin"));
-		out.write(decoded);
-		out.close();
+		return out;
 	}
 }
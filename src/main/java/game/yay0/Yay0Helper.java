@@ -1,5 +1,9 @@
 package game.yay0;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Yay0 is an implementation of LZSS.
  */
@@ -45,9 +49,20 @@ public final class Yay0Helper
 
 	public static byte[] encode(byte[] source)
 	{
-		return encode(source, false);
+		return encode(source, CompressionLevel.OPTIMAL);
 	}
 
+	public static byte[] encode(byte[] source, CompressionLevel level)
+	{
+		return new Yay0Compressor(source, level).getFile();
+	}
+
+	/**
+	 * Uses the original brute force encoder, which searches the entire window at every position.
+	 * @deprecated use {@link #encode(byte[], CompressionLevel)}, which is much faster and
+	 * produces output at least as small with {@link CompressionLevel#OPTIMAL}
+	 */
+	@Deprecated
 	public static byte[] encode(byte[] source, boolean logUpdates)
 	{
 		if (source.length < 64)
@@ -57,89 +72,240 @@ public final class Yay0Helper
 		return helper.getFile();
 	}
 
+	private static final int YAY0_MAGIC = 0x59617930; // "Yay0"
+	private static final int HEADER_SIZE = 16;
+
+	// links at least this long are copied with System.arraycopy when they do not overlap
+	private static final int BULK_COPY_LENGTH = 16;
+
+	public static boolean isYay0(ByteBuffer source, int offset)
+	{
+		return source.limit() - offset >= HEADER_SIZE && getIntBE(source, offset) == YAY0_MAGIC;
+	}
+
 	/**
-	 *
-	 * @param source
-	 * @return
+	 * @return decompressed size of the Yay0 block beginning at offset
 	 */
+	public static int getDecodedSize(ByteBuffer source, int offset)
+	{
+		checkHeader(source, offset);
+		return getIntBE(source, offset + 4);
+	}
+
 	public static byte[] decode(byte[] source)
 	{
-		assert (getInteger(source, 0) == 0x59617930); // "Yay0"
-		int decompressedSize = getInteger(source, 4);
-		int linkOffset = getInteger(source, 8);
-		int sourceOffset = getInteger(source, 12);
+		return decode(ByteBuffer.wrap(source), 0);
+	}
 
-		byte currentCommand = 0;
-		int commandOffset = 16;
-		int remainingBits = 0;
+	/**
+	 * Decodes a Yay0 block directly from any buffer, such as a slice of the base ROM,
+	 * without copying the compressed data first.
+	 * @param source buffer containing the block, its position is ignored
+	 * @param offset absolute offset of the block header
+	 */
+	public static byte[] decode(ByteBuffer source, int offset)
+	{
+		ByteBuffer in = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+		byte[] decoded = new byte[getDecodedSize(in, offset)];
+		decode(in, offset, decoded, 0, decoded.length);
+		return decoded;
+	}
 
-		byte[] decoded = new byte[decompressedSize];
-		int decodedBytes = 0;
+	/**
+	 * Streaming variant which decodes the block at the position of source into dest. Afterward,
+	 * source is positioned after the end of the compressed data and dest is positioned after
+	 * the end of the decoded data.
+	 * @throws BufferOverflowException if dest does not have room for the decoded data
+	 */
+	public static void decode(ByteBuffer source, ByteBuffer dest)
+	{
+		ByteBuffer in = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int offset = source.position();
+		int size = getDecodedSize(in, offset);
 
-		do {
-			// get the next command
-			if (remainingBits == 0) {
-				currentCommand = source[commandOffset];
-				commandOffset++;
-				remainingBits = 8;
-			}
+		if (dest.remaining() < size)
+			throw new BufferOverflowException();
+
+		int end;
+		if (dest.hasArray() && !dest.isReadOnly())
+			end = decode(in, offset, dest.array(), dest.arrayOffset() + dest.position(), size);
+		else
+			end = decode(in, offset, dest, dest.position(), size);
+
+		source.position(end);
+		dest.position(dest.position() + size);
+	}
+
+	private static int getIntBE(ByteBuffer source, int pos)
+	{
+		int value = source.getInt(pos);
+		return (source.order() == ByteOrder.BIG_ENDIAN) ? value : Integer.reverseBytes(value);
+	}
+
+	private static void checkHeader(ByteBuffer source, int offset)
+	{
+		if (!isYay0(source, offset))
+			throw new IllegalArgumentException(String.format("No Yay0 header found at offset %X", offset));
+	}
+
+	/**
+	 * Reads the next 32 control bits, zero-padding streams which do not end on a word boundary.
+	 */
+	private static int getControlWord(ByteBuffer source, int pos)
+	{
+		if (pos + 4 <= source.limit())
+			return source.getInt(pos);
+
+		int word = 0;
+		for (int i = 0; i < 4; i++) {
+			word <<= 8;
+			if (pos + i < source.limit())
+				word |= source.get(pos + i) & 0xFF;
+		}
+		return word;
+	}
+
+	private static IllegalArgumentException invalidLink(int pos)
+	{
+		return new IllegalArgumentException(String.format("Yay0 link at decoded offset %X points before the start of the data", pos));
+	}
+
+	/*
+	 * Control bits are consumed 32 at a time. Each run of set bits is a run of literal bytes,
+	 * copied in bulk. Each clear bit is a link to previously decoded bytes, which are copied
+	 * in bulk unless the link overlaps its own output.
+	 */
+
+	/**
+	 * @return absolute offset of the end of the compressed data
+	 */
+	private static int decode(ByteBuffer in, int base, byte[] out, int outStart, int size)
+	{
+		int ctrlPos = base + HEADER_SIZE;
+		int linkPos = base + in.getInt(base + 8);
+		int dataPos = base + in.getInt(base + 12);
 
-			// bit == 1 --> copy directly from source
-			if ((currentCommand & 0x80) != 0) {
-				//	Logger.logfDetail("%-5X : Adding copy %02X", decodedBytes, source[sourceOffset], Priority.DETAIL);
+		int outPos = outStart;
+		int outEnd = outStart + size;
 
-				decoded[decodedBytes] = source[sourceOffset];
-				sourceOffset++;
-				decodedBytes++;
+		int ctrl = 0;
+		int bits = 0;
 
-				// bit == 0 --> copy from decoded buffer
+		while (outPos < outEnd) {
+			if (bits == 0) {
+				ctrl = getControlWord(in, ctrlPos);
+				ctrlPos += 4;
+				bits = 32;
 			}
-			else {
-				// find out where to copy from
-				short link = getShort(source, linkOffset);
-				linkOffset += 2;
 
-				int dist = link & 0x0FFF;
-				int copySrc = decodedBytes - (dist + 1);
-				int length = ((link >> 12) & 0x0F);
+			// vacated low bits are zero, so a run of literals never extends past the valid bits
+			int literals = Integer.numberOfLeadingZeros(~ctrl);
+			if (literals > 0) {
+				int count = Math.min(literals, outEnd - outPos);
+				in.get(dataPos, out, outPos, count);
+				dataPos += count;
+				outPos += count;
 
-				// determine how many bytes to copy
-				if (length == 0) {
-					length = (source[sourceOffset] & 0x0FF);
-					length += (byte) 0x10;
-					sourceOffset++;
-				}
+				bits -= literals;
+				ctrl = (literals == 32) ? 0 : ctrl << literals;
+				continue;
+			}
 
-				length += 2;
+			int link = in.getShort(linkPos) & 0xFFFF;
+			linkPos += 2;
 
-				//	Logger.logfDetail("%-5X : Linking %d bytes from offset %d", decodedBytes, length, dist + 1);
+			int dist = (link & 0xFFF) + 1;
+			int length = link >>> 12;
+			if (length == 0)
+				length = (in.get(dataPos++) & 0xFF) + 0x12;
+			else
+				length += 2;
 
-				// copy
-				for (int i = 0; i < length; i++) {
-					decoded[decodedBytes] = decoded[copySrc + i];
-					decodedBytes++;
-				}
+			int copySrc = outPos - dist;
+			if (copySrc < outStart)
+				throw invalidLink(outPos - outStart);
 
+			length = Math.min(length, outEnd - outPos);
+			if (dist >= length && length >= BULK_COPY_LENGTH) {
+				System.arraycopy(out, copySrc, out, outPos, length);
+				outPos += length;
+			}
+			else {
+				// overlapping links repeat the last dist bytes
+				for (int i = 0; i < length; i++)
+					out[outPos++] = out[copySrc + i];
 			}
 
-			currentCommand <<= 1;
-			remainingBits--;
+			ctrl <<= 1;
+			bits--;
 		}
-		while (decodedBytes < decompressedSize);
 
-		return decoded;
+		return dataPos;
 	}
 
-	private static short getShort(byte[] buffer, int start)
+	/**
+	 * Same as {@link #decode(ByteBuffer, int, byte[], int, int)} for destinations without a backing array.
+	 * @return absolute offset of the end of the compressed data
+	 */
+	private static int decode(ByteBuffer in, int base, ByteBuffer out, int outStart, int size)
 	{
-		return (short) ((buffer[start + 1] & 0xFF) | (buffer[start] & 0xFF) << 8);
-	}
+		int ctrlPos = base + HEADER_SIZE;
+		int linkPos = base + in.getInt(base + 8);
+		int dataPos = base + in.getInt(base + 12);
 
-	private static int getInteger(byte[] buffer, int start)
-	{
-		return (buffer[start + 3] & 0xFF) |
-			(buffer[start + 2] & 0xFF) << 8 |
-			(buffer[start + 1] & 0xFF) << 16 |
-			(buffer[start + 0] & 0xFF) << 24;
+		int outPos = outStart;
+		int outEnd = outStart + size;
+
+		int ctrl = 0;
+		int bits = 0;
+
+		while (outPos < outEnd) {
+			if (bits == 0) {
+				ctrl = getControlWord(in, ctrlPos);
+				ctrlPos += 4;
+				bits = 32;
+			}
+
+			int literals = Integer.numberOfLeadingZeros(~ctrl);
+			if (literals > 0) {
+				int count = Math.min(literals, outEnd - outPos);
+				out.put(outPos, in, dataPos, count);
+				dataPos += count;
+				outPos += count;
+
+				bits -= literals;
+				ctrl = (literals == 32) ? 0 : ctrl << literals;
+				continue;
+			}
+
+			int link = in.getShort(linkPos) & 0xFFFF;
+			linkPos += 2;
+
+			int dist = (link & 0xFFF) + 1;
+			int length = link >>> 12;
+			if (length == 0)
+				length = (in.get(dataPos++) & 0xFF) + 0x12;
+			else
+				length += 2;
+
+			int copySrc = outPos - dist;
+			if (copySrc < outStart)
+				throw invalidLink(outPos - outStart);
+
+			length = Math.min(length, outEnd - outPos);
+			if (dist >= length && length >= BULK_COPY_LENGTH) {
+				out.put(outPos, out, copySrc, length);
+				outPos += length;
+			}
+			else {
+				for (int i = 0; i < length; i++)
+					out.put(outPos++, out.get(copySrc + i));
+			}
+
+			ctrl <<= 1;
+			bits--;
+		}
+
+		return dataPos;
 	}
 }
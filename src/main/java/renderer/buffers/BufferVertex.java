@@ -1,67 +1,61 @@
 package renderer.buffers;
 
-import game.map.editor.render.Color4f;
 import game.map.editor.render.PresetColor;
-import renderer.shaders.RenderState;
 
+/**
+ * Accessor for a single vertex held in a {@link VertexStore}. Each store owns exactly one
+ * of these and repositions it for every addVertex/getVertex call, so a BufferVertex must be
+ * used immediately and not retained. Usual form is a single chained expression:
+ * <pre>addVertex().setPosition(x, y, z).setColor(c).getIndex()</pre>
+ */
 public final class BufferVertex
 {
+	private final VertexStore store;
 	private int index;
-	protected float x;
-	protected float y;
-	protected float z;
-	protected float u, v;
-	protected float r, g, b, a;
-	protected float aux0, aux1;
 
-	protected BufferVertex(int index)
+	BufferVertex(VertexStore store)
 	{
-		this.index = index;
-
-		Color4f color = RenderState.getColor();
-		r = color.r;
-		g = color.g;
-		b = color.b;
-		a = color.a;
+		this.store = store;
 	}
 
-	public int getIndex()
+	BufferVertex moveTo(int index)
 	{
-		return index;
+		this.index = index;
+		return this;
 	}
 
-	protected void setIndex(int newIndex)
+	public int getIndex()
 	{
-		index = newIndex;
+		return index;
 	}
 
 	public BufferVertex setPosition(float x, float y, float z)
 	{
-		this.x = x;
-		this.y = y;
-		this.z = z;
+		float[] pos = store.pos;
+		pos[3 * index] = x;
+		pos[3 * index + 1] = y;
+		pos[3 * index + 2] = z;
 		return this;
 	}
 
 	public BufferVertex setUV(float u, float v)
 	{
-		this.u = u;
-		this.v = v;
+		float[] uv = store.uv;
+		uv[2 * index] = u;
+		uv[2 * index + 1] = v;
 		return this;
 	}
 
 	public BufferVertex setAux(int index, float value)
 	{
-		if (index == 0)
-			this.aux0 = value;
-		else if (index == 1)
-			this.aux1 = value;
+		if (index == 0 || index == 1)
+			store.aux[2 * this.index + index] = value;
 		return this;
 	}
 
 	protected BufferVertex setPointSize(float size)
 	{
-		aux0 = size;
+		store.aux[2 * index] = size;
 		return this;
 	}
 
@@ -87,18 +81,26 @@ public final class BufferVertex
 
 	public BufferVertex setColor(float r, float g, float b, float a)
 	{
-		this.r = r;
-		this.g = g;
-		this.b = b;
-		this.a = a;
+		float[] col = store.col;
+		col[4 * index] = r;
+		col[4 * index + 1] = g;
+		col[4 * index + 2] = b;
+		col[4 * index + 3] = a;
 		return this;
 	}
 
 	@Override
 	public String toString()
 	{
+		float[] pos = store.pos;
+		float[] uv = store.uv;
+		float[] col = store.col;
+		float[] aux = store.aux;
 		String indexString = String.format("[%X]", index);
-		return String.format("%6s %5.1f %5.1f %5.1f : %5.4f %5.4f : %5.1f %5.1f %5.1f %5.1f : %5f %5f", indexString, x, y, z, u, v, r, g, b, a, aux0,
-			aux1);
+		return String.format("%6s %5.1f %5.1f %5.1f : %5.4f %5.4f : %5.1f %5.1f %5.1f %5.1f : %5f %5f", indexString,
+			pos[3 * index], pos[3 * index + 1], pos[3 * index + 2],
+			uv[2 * index], uv[2 * index + 1],
+			col[4 * index], col[4 * index + 1], col[4 * index + 2], col[4 * index + 3],
+			aux[2 * index], aux[2 * index + 1]);
 	}
 }
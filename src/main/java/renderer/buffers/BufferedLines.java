@@ -10,18 +10,18 @@ import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
-import org.lwjgl.BufferUtils;
-
 import game.map.shape.TransformMatrix;
 import renderer.shaders.RenderState;
 
 public class BufferedLines extends LineBatch
 {
+	// interleaved position and color
+	private static final int STRIDE = 7;
+
 	private int vao = -1;
 
 	private VBO idxVBO = null;
-	private VBO posVBO = null;
-	private VBO colVBO = null;
+	private VBO dataVBO = null;
 
 	public BufferedLines()
 	{}
@@ -44,71 +44,40 @@ public class BufferedLines extends LineBatch
 		RenderState.setVAO(vao);
 
 		int numVerts = verts.size();
-		int numLines = lines.size();
-
-		// reallocate as needed
-
-		if (idxVBO == null || idxVBO.numElem < numLines) {
-			if (idxVBO != null)
-				glDeleteBuffers(idxVBO.id);
-
-			int id = glGenBuffers();
-			idxVBO = new VBO(id, numLines);
-		}
-
-		if (posVBO == null || posVBO.numElem < numVerts) {
-			if (posVBO != null)
-				glDeleteBuffers(posVBO.id);
-
-			int id = glGenBuffers();
-			posVBO = new VBO(id, numVerts);
-		}
-
-		if (colVBO == null || colVBO.numElem < numVerts) {
-			if (colVBO != null)
-				glDeleteBuffers(colVBO.id);
-
-			int id = glGenBuffers();
-			colVBO = new VBO(id, numVerts);
-		}
-
-		IntBuffer ib = null;
-		FloatBuffer fb = null;
+		int numLines = lines.size() / 2;
 
 		// index buffer
 
-		ib = BufferUtils.createIntBuffer(2 * idxVBO.numElem);
-		for (BufferLine ln : lines)
-			ib.put(ln.i).put(ln.j);
+		idxVBO = BufferedMesh.ensureCapacity(GL_ELEMENT_ARRAY_BUFFER, idxVBO, numLines, 2 * 4);
+
+		IntBuffer ib = UploadBuffer.ints(lines.size());
+		for (int i = 0; i < lines.size(); i++)
+			ib.put(lines.get(i));
 		ib.flip();
 
 		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, idxVBO.id);
-		glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib, GL_STATIC_DRAW);
+		glBufferSubData(GL_ELEMENT_ARRAY_BUFFER, 0, ib);
 
-		// position buffer
+		// vertex buffer
 
-		fb = BufferUtils.createFloatBuffer(3 * posVBO.numElem);
-		for (BufferVertex bv : verts)
-			fb.put(bv.x).put(bv.y).put(bv.z);
+		dataVBO = BufferedMesh.ensureCapacity(GL_ARRAY_BUFFER, dataVBO, numVerts, STRIDE * 4);
+
+		FloatBuffer fb = UploadBuffer.floats(STRIDE * numVerts);
+		float[] pos = verts.pos;
+		float[] col = verts.col;
+		for (int i = 0; i < numVerts; i++) {
+			fb.put(pos[3 * i]).put(pos[3 * i + 1]).put(pos[3 * i + 2]);
+			fb.put(col[4 * i]).put(col[4 * i + 1]).put(col[4 * i + 2]).put(col[4 * i + 3]);
+		}
 		fb.flip();
 
-		glBindBuffer(GL_ARRAY_BUFFER, posVBO.id);
-		glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
+		glBindBuffer(GL_ARRAY_BUFFER, dataVBO.id);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, fb);
 
-		glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
+		glVertexAttribPointer(0, 3, GL_FLOAT, false, STRIDE * 4, 0);
 		glEnableVertexAttribArray(0);
 
-		// color buffer
-
-		fb = BufferUtils.createFloatBuffer(4 * colVBO.numElem);
-		for (BufferVertex bv : verts)
-			fb.put(bv.r).put(bv.g).put(bv.b).put(bv.a);
-		fb.flip();
-
-		glBindBuffer(GL_ARRAY_BUFFER, colVBO.id);
-		glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
-
-		glVertexAttribPointer(1, 4, GL_FLOAT, false, 0, 0);
+		glVertexAttribPointer(1, 4, GL_FLOAT, false, STRIDE * 4, 3 * 4);
 		glEnableVertexAttribArray(1);
 	}
 
@@ -117,11 +86,8 @@ public class BufferedLines extends LineBatch
 		if (idxVBO != null)
 			glDeleteBuffers(idxVBO.id);
 
-		if (posVBO != null)
-			glDeleteBuffers(posVBO.id);
-
-		if (colVBO != null)
-			glDeleteBuffers(colVBO.id);
+		if (dataVBO != null)
+			glDeleteBuffers(dataVBO.id);
 
 		glDeleteVertexArrays(vao);
 	}
@@ -135,7 +101,7 @@ public class BufferedLines extends LineBatch
 			return;
 
 		RenderState.setVAO(vao);
-		glDrawElements(GL_LINES, 2 * lines.size(), GL_UNSIGNED_INT, 0);
+		glDrawElements(GL_LINES, lines.size(), GL_UNSIGNED_INT, 0);
 	}
 
 	/**
@@ -149,14 +115,13 @@ public class BufferedLines extends LineBatch
 			return;
 
 		RenderState.setVAO(vao);
-		glDrawElements(GL_LINES, 2 * lines.size(), GL_UNSIGNED_INT, 0);
+		glDrawElements(GL_LINES, lines.size(), GL_UNSIGNED_INT, 0);
 	}
 
 	public void print()
 	{
-		for (BufferVertex bv : verts)
-			System.out.println(bv);
-		for (BufferLine line : lines)
-			System.out.println(line);
+		System.out.print(verts);
+		for (int i = 0; i < lines.size(); i += 2)
+			System.out.println(String.format("%3d --> %-3d", lines.get(i), lines.get(i + 1)));
 	}
 }
@@ -9,13 +9,16 @@ import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.ArrayList;
-
-import org.lwjgl.BufferUtils;
 
 import game.map.shape.TransformMatrix;
 import renderer.shaders.RenderState;
+import util.Stopwatch;
 
+/**
+ * Triangle mesh backed by primitive vertex storage. Positions, colors, and UVs are packed
+ * into a single interleaved vertex buffer. Aux values are kept in their own small buffer
+ * so they can be updated (e.g. for selection highlighting) without re-uploading the rest.
+ */
 public class BufferedMesh
 {
 	// @formatter:off
@@ -33,28 +36,22 @@ public class BufferedMesh
 	private final boolean hasColors;
 	private final boolean hasAux;
 
-	private ArrayList<BufferVertex> verts = new ArrayList<>();
-	private ArrayList<BufferTriangle> tris = new ArrayList<>();
+	// layout of the interleaved buffer, in floats
+	private final int stride;
+	private final int colorOffset;
+	private final int uvOffset;
+
+	private final VertexStore verts = new VertexStore();
+	private final IntList tris = new IntList();
 
 	private int vao = -1;
 
 	private VBO idxVBO = null;
-	private VBO posVBO = null;
-	private VBO uvVBO = null;
-	private VBO colVBO = null;
+	private VBO dataVBO = null;
 	private VBO auxVBO = null;
 
-	private static class BufferTriangle
-	{
-		private int i, j, k;
-
-		public BufferTriangle(int i, int j, int k)
-		{
-			this.i = i;
-			this.j = j;
-			this.k = k;
-		}
-	}
+	// number of vertex buffer uploads across all meshes, polled by the editor once per frame
+	private static int uploadCount = 0;
 
 	public BufferedMesh(int flags)
 	{
@@ -70,6 +67,15 @@ public class BufferedMesh
 		this.hasColors = (flags & VBO_COLOR) != 0;
 		this.hasUVs = (flags & VBO_UV) != 0;
 		this.hasAux = (flags & VBO_AUX) != 0;
+
+		int floats = 3;
+		colorOffset = floats;
+		if (hasColors)
+			floats += 4;
+		uvOffset = floats;
+		if (hasUVs)
+			floats += 2;
+		stride = floats;
 	}
 
 	public void clear()
@@ -78,36 +84,40 @@ public class BufferedMesh
 		tris.clear();
 	}
 
+	/**
+	 * @return the vertex at index, valid only until the next call to getVertex or addVertex
+	 */
 	public BufferVertex getVertex(int index)
 	{
 		return verts.get(index);
 	}
 
+	/**
+	 * @return a new vertex, valid only until the next call to getVertex or addVertex
+	 */
 	public BufferVertex addVertex()
 	{
-		BufferVertex vtx = new BufferVertex(verts.size());
-		verts.add(vtx);
-		return vtx;
+		return verts.append();
 	}
 
 	// CCW around outer perimeter
 	public void addTriangle(int i, int j, int k)
 	{
-		tris.add(new BufferTriangle(i, j, k));
+		tris.add(i, j, k);
 	}
 
 	// CCW around outer perimeter
 	public void addQuad(int i, int j, int k, int l)
 	{
-		tris.add(new BufferTriangle(i, j, k));
-		tris.add(new BufferTriangle(i, k, l));
+		tris.add(i, j, k);
+		tris.add(i, k, l);
 	}
 
 	// CCW around outer perimeter
 	public void addFan(int i, int ... more)
 	{
 		for (int j = 0; j < more.length - 1; j++)
-			tris.add(new BufferTriangle(i, more[j], more[j + 1]));
+			tris.add(i, more[j], more[j + 1]);
 	}
 
 	public int getVertexCount()
@@ -117,9 +127,28 @@ public class BufferedMesh
 
 	public int getTriangleCount()
 	{
-		return tris.size();
+		return tris.size() / 3;
 	}
 
+	/**
+	 * @return number of vertex buffer uploads since the last call, then resets the count
+	 */
+	public static int pollUploadCount()
+	{
+		int count = uploadCount;
+		uploadCount = 0;
+		return count;
+	}
+
+	// number of vertices sent to the GPU, non-indexed meshes are expanded per triangle
+	private int getWorkingVertexCount()
+	{
+		return hasIndex ? verts.size() : tris.size();
+	}
+
+	/**
+	 * Uploads every attribute of the mesh, growing vertex buffers as needed.
+	 */
 	public void loadBuffers()
 	{
 		if (vao < 0)
@@ -127,132 +156,162 @@ public class BufferedMesh
 
 		RenderState.setVAO(vao);
 
-		ArrayList<BufferVertex> workingVerts = verts;
-		if (!hasIndex) {
-			workingVerts = new ArrayList<>(3 * tris.size());
-			for (BufferTriangle t : tris) {
-				workingVerts.add(verts.get(t.i));
-				workingVerts.add(verts.get(t.j));
-				workingVerts.add(verts.get(t.k));
-			}
-		}
-
-		int numVerts = Math.max(minVerts, workingVerts.size());
-		int numTris = Math.max(minTris, tris.size());
+		int numVerts = getWorkingVertexCount();
 
-		// reallocate as needed
+		if (hasIndex) {
+			int numTris = Math.max(minTris, getTriangleCount());
+			idxVBO = ensureCapacity(GL_ELEMENT_ARRAY_BUFFER, idxVBO, numTris, 3 * 4);
 
-		if (hasIndex && (idxVBO == null || idxVBO.numElem < numTris)) {
-			if (idxVBO != null)
-				glDeleteBuffers(idxVBO.id);
+			IntBuffer ib = UploadBuffer.ints(tris.size());
+			for (int i = 0; i < tris.size(); i++)
+				ib.put(tris.get(i));
+			ib.flip();
 
-			int id = glGenBuffers();
-			idxVBO = new VBO(id, numTris);
+			glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, idxVBO.id);
+			glBufferSubData(GL_ELEMENT_ARRAY_BUFFER, 0, ib);
+			uploadCount++;
 		}
 
-		if (posVBO == null || posVBO.numElem < numVerts) {
-			if (posVBO != null)
-				glDeleteBuffers(posVBO.id);
+		dataVBO = ensureCapacity(GL_ARRAY_BUFFER, dataVBO, Math.max(minVerts, numVerts), stride * 4);
+		uploadData();
 
-			int id = glGenBuffers();
-			posVBO = new VBO(id, numVerts);
-		}
+		glVertexAttribPointer(0, 3, GL_FLOAT, false, stride * 4, 0);
+		glEnableVertexAttribArray(0);
 
-		if (hasColors && (colVBO == null || colVBO.numElem < numVerts)) {
-			if (colVBO != null)
-				glDeleteBuffers(colVBO.id);
+		if (hasColors) {
+			glVertexAttribPointer(1, 4, GL_FLOAT, false, stride * 4, colorOffset * 4);
+			glEnableVertexAttribArray(1);
+		}
 
-			int id = glGenBuffers();
-			colVBO = new VBO(id, numVerts);
+		if (hasUVs) {
+			glVertexAttribPointer(2, 2, GL_FLOAT, false, stride * 4, uvOffset * 4);
+			glEnableVertexAttribArray(2);
 		}
 
-		if (hasUVs && (uvVBO == null || uvVBO.numElem < numVerts)) {
-			if (uvVBO != null)
-				glDeleteBuffers(uvVBO.id);
+		if (hasAux) {
+			auxVBO = ensureCapacity(GL_ARRAY_BUFFER, auxVBO, Math.max(minVerts, numVerts), 2 * 4);
+			uploadAux();
 
-			int id = glGenBuffers();
-			uvVBO = new VBO(id, numVerts);
+			glVertexAttribPointer(3, 2, GL_FLOAT, false, 0, 0);
+			glEnableVertexAttribArray(3);
 		}
+	}
 
-		if (hasAux && (auxVBO == null || auxVBO.numElem < numVerts)) {
-			if (auxVBO != null)
-				glDeleteBuffers(auxVBO.id);
+	/**
+	 * Re-uploads only the selected attributes (VBO_COLOR, VBO_UV, VBO_AUX) from the current
+	 * vertex data. Vertex and triangle counts must not have changed since the last full load,
+	 * otherwise this falls back to {@link #loadBuffers()}. Colors and UVs share the interleaved
+	 * buffer with positions, so updating either re-uploads that buffer.
+	 */
+	public void updateBuffers(int attributes)
+	{
+		int numVerts = getWorkingVertexCount();
 
-			int id = glGenBuffers();
-			auxVBO = new VBO(id, numVerts);
+		if (vao < 0 || dataVBO == null || dataVBO.numElem < numVerts) {
+			loadBuffers();
+			return;
 		}
 
-		IntBuffer ib = null;
-		FloatBuffer fb = null;
-
-		// index buffer
+		RenderState.setVAO(vao);
 
-		if (hasIndex) {
-			ib = BufferUtils.createIntBuffer(3 * idxVBO.numElem);
-			for (BufferTriangle bt : tris)
-				ib.put(bt.i).put(bt.j).put(bt.k);
-			ib.flip();
+		if ((hasColors && (attributes & VBO_COLOR) != 0) || (hasUVs && (attributes & VBO_UV) != 0))
+			uploadData();
 
-			glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, idxVBO.id);
-			glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib, GL_STATIC_DRAW);
+		if (hasAux && (attributes & VBO_AUX) != 0) {
+			if (auxVBO == null || auxVBO.numElem < numVerts) {
+				loadBuffers();
+				return;
+			}
+			uploadAux();
 		}
+	}
 
-		// position buffer
-
-		fb = BufferUtils.createFloatBuffer(3 * posVBO.numElem);
-		for (BufferVertex bv : workingVerts)
-			fb.put(bv.x).put(bv.y).put(bv.z);
-		fb.flip();
+	/**
+	 * Grows a vertex buffer to hold at least numElem elements. Storage is reserved
+	 * once and filled with glBufferSubData, so uploads of the same size or smaller
+	 * reuse the existing allocation.
+	 */
+	static VBO ensureCapacity(int target, VBO vbo, int numElem, int elemBytes)
+	{
+		if (vbo != null && vbo.numElem >= numElem)
+			return vbo;
 
-		glBindBuffer(GL_ARRAY_BUFFER, posVBO.id);
-		glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
+		int capacity = Math.max(1, numElem);
+		if (vbo != null)
+			capacity = Math.max(capacity, vbo.numElem + vbo.numElem / 2);
 
-		glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-		glEnableVertexAttribArray(0);
+		if (vbo == null)
+			vbo = new VBO(glGenBuffers(), capacity);
+		else
+			vbo.numElem = capacity;
 
-		// color buffer
+		glBindBuffer(target, vbo.id);
+		glBufferData(target, (long) capacity * elemBytes, GL_STATIC_DRAW);
+		return vbo;
+	}
 
-		if (hasColors) {
-			fb = BufferUtils.createFloatBuffer(4 * colVBO.numElem);
-			for (BufferVertex bv : workingVerts)
-				fb.put(bv.r).put(bv.g).put(bv.b).put(bv.a);
-			fb.flip();
+	private void uploadData()
+	{
+		FloatBuffer fb = UploadBuffer.floats(stride * getWorkingVertexCount());
+		packInterleaved(fb);
+		fb.flip();
 
-			glBindBuffer(GL_ARRAY_BUFFER, colVBO.id);
-			glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
+		glBindBuffer(GL_ARRAY_BUFFER, dataVBO.id);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, fb);
+		uploadCount++;
+	}
 
-			glVertexAttribPointer(1, 4, GL_FLOAT, false, 0, 0);
-			glEnableVertexAttribArray(1);
-		}
+	private void uploadAux()
+	{
+		FloatBuffer fb = UploadBuffer.floats(2 * getWorkingVertexCount());
+		packAux(fb);
+		fb.flip();
 
-		// texcoord buffer
+		glBindBuffer(GL_ARRAY_BUFFER, auxVBO.id);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, fb);
+		uploadCount++;
+	}
 
-		if (hasUVs) {
-			fb = BufferUtils.createFloatBuffer(2 * uvVBO.numElem);
-			for (BufferVertex bv : workingVerts)
-				fb.put(bv.u).put(bv.v);
-			fb.flip();
+	private void packInterleaved(FloatBuffer fb)
+	{
+		if (hasIndex) {
+			for (int i = 0; i < verts.size(); i++)
+				putVertex(fb, i);
+		}
+		else {
+			for (int i = 0; i < tris.size(); i++)
+				putVertex(fb, tris.get(i));
+		}
+	}
 
-			glBindBuffer(GL_ARRAY_BUFFER, uvVBO.id);
-			glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
+	private void putVertex(FloatBuffer fb, int i)
+	{
+		float[] pos = verts.pos;
+		fb.put(pos[3 * i]).put(pos[3 * i + 1]).put(pos[3 * i + 2]);
 
-			glVertexAttribPointer(2, 2, GL_FLOAT, false, 0, 0);
-			glEnableVertexAttribArray(2);
+		if (hasColors) {
+			float[] col = verts.col;
+			fb.put(col[4 * i]).put(col[4 * i + 1]).put(col[4 * i + 2]).put(col[4 * i + 3]);
 		}
 
-		// aux buffer
-
-		if (hasAux) {
-			fb = BufferUtils.createFloatBuffer(2 * auxVBO.numElem);
-			for (BufferVertex bv : workingVerts)
-				fb.put(bv.aux0).put(bv.aux1);
-			fb.flip();
+		if (hasUVs) {
+			float[] uv = verts.uv;
+			fb.put(uv[2 * i]).put(uv[2 * i + 1]);
+		}
+	}
 
-			glBindBuffer(GL_ARRAY_BUFFER, auxVBO.id);
-			glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
+	private void packAux(FloatBuffer fb)
+	{
+		float[] aux = verts.aux;
 
-			glVertexAttribPointer(3, 2, GL_FLOAT, false, 0, 0);
-			glEnableVertexAttribArray(3);
+		if (hasIndex) {
+			fb.put(aux, 0, 2 * verts.size());
+		}
+		else {
+			for (int i = 0; i < tris.size(); i++) {
+				int v = tris.get(i);
+				fb.put(aux[2 * v]).put(aux[2 * v + 1]);
+			}
 		}
 	}
 
@@ -261,18 +320,16 @@ public class BufferedMesh
 		if (idxVBO != null)
 			glDeleteBuffers(idxVBO.id);
 
-		if (posVBO != null)
-			glDeleteBuffers(posVBO.id);
-
-		if (colVBO != null)
-			glDeleteBuffers(colVBO.id);
-
-		if (uvVBO != null)
-			glDeleteBuffers(uvVBO.id);
+		if (dataVBO != null)
+			glDeleteBuffers(dataVBO.id);
 
 		if (auxVBO != null)
 			glDeleteBuffers(auxVBO.id);
 
+		idxVBO = null;
+		dataVBO = null;
+		auxVBO = null;
+
 		glDeleteVertexArrays(vao);
 		RenderState.setVAO(0);
 		vao = -1;
@@ -291,9 +348,9 @@ public class BufferedMesh
 		RenderState.setVAO(vao);
 
 		if (hasIndex)
-			glDrawElements(GL_TRIANGLES, 3 * tris.size(), GL_UNSIGNED_INT, 0);
+			glDrawElements(GL_TRIANGLES, tris.size(), GL_UNSIGNED_INT, 0);
 		else
-			glDrawArrays(GL_TRIANGLES, 0, 3 * tris.size());
+			glDrawArrays(GL_TRIANGLES, 0, tris.size());
 	}
 
 	/**
@@ -305,8 +362,46 @@ public class BufferedMesh
 		RenderState.setVAO(vao);
 
 		if (hasIndex)
-			glDrawElements(GL_TRIANGLES, 3 * tris.size(), GL_UNSIGNED_INT, 0);
+			glDrawElements(GL_TRIANGLES, tris.size(), GL_UNSIGNED_INT, 0);
 		else
-			glDrawArrays(GL_TRIANGLES, 0, 3 * tris.size());
+			glDrawArrays(GL_TRIANGLES, 0, tris.size());
+	}
+
+	/**
+	 * Times packing of a large mesh into the upload buffer. Packing needs no GL context.
+	 */
+	public static void main(String[] args)
+	{
+		int numTris = 100_000 / 3;
+		int iterations = 200;
+
+		BufferedMesh mesh = new BufferedMesh(VBO_UV | VBO_COLOR | VBO_AUX);
+		FloatBuffer fb = null;
+
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass warms up the JIT and grows storage to its working size
+			Stopwatch watch = new Stopwatch();
+
+			for (int n = 0; n < iterations; n++) {
+				mesh.clear();
+				for (int t = 0; t < numTris; t++) {
+					int i = mesh.addVertex().setPosition(t, 0, 0).setColor(1.0f, 1.0f, 1.0f, 1.0f).setUV(0, 0).getIndex();
+					int j = mesh.addVertex().setPosition(t, 1, 0).setColor(1.0f, 1.0f, 1.0f, 1.0f).setUV(1, 0).getIndex();
+					int k = mesh.addVertex().setPosition(t, 0, 1).setColor(1.0f, 1.0f, 1.0f, 1.0f).setUV(0, 1).getIndex();
+					mesh.addTriangle(i, j, k);
+				}
+
+				fb = UploadBuffer.floats(mesh.stride * mesh.getWorkingVertexCount());
+				mesh.packInterleaved(fb);
+				fb.flip();
+
+				fb = UploadBuffer.floats(2 * mesh.getWorkingVertexCount());
+				mesh.packAux(fb);
+				fb.flip();
+			}
+
+			if (pass > 0)
+				System.out.printf("Packed %d vertices in %.3f ms%n", 3 * numTris, watch.ms() / iterations);
+		}
 	}
 }
@@ -8,27 +8,23 @@ import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 
 import java.nio.FloatBuffer;
-import java.util.ArrayList;
-
-import org.lwjgl.BufferUtils;
 
 import game.map.shape.TransformMatrix;
 import renderer.shaders.RenderState;
 
 public class BufferedPoints
 {
+	// interleaved position, color, and aux
+	private static final int STRIDE = 9;
+
 	private int vao = -1;
 
-	private VBO posVBO = null;
-	private VBO colVBO = null;
-	private VBO auxVBO = null;
+	private VBO dataVBO = null;
 
-	private ArrayList<BufferVertex> points;
+	private final VertexStore points = new VertexStore();
 
 	public BufferedPoints()
-	{
-		points = new ArrayList<>();
-	}
+	{}
 
 	public void clear()
 	{
@@ -40,14 +36,12 @@ public class BufferedPoints
 		return addPoint(RenderState.getPointSize());
 	}
 
+	/**
+	 * @return a new point, valid only until the next call to addPoint
+	 */
 	public BufferVertex addPoint(float size)
 	{
-		BufferVertex vtx = new BufferVertex(points.size());
-		points.add(vtx);
-
-		vtx.setPointSize(size);
-
-		return vtx;
+		return points.append().setPointSize(size);
 	}
 
 	public void loadBuffers()
@@ -62,84 +56,36 @@ public class BufferedPoints
 
 		int numVerts = points.size();
 
-		// reallocate as needed
-
-		if (posVBO == null || posVBO.numElem < numVerts) {
-			if (posVBO != null)
-				glDeleteBuffers(posVBO.id);
-
-			int id = glGenBuffers();
-			posVBO = new VBO(id, numVerts);
-		}
-
-		if (colVBO == null || colVBO.numElem < numVerts) {
-			if (colVBO != null)
-				glDeleteBuffers(colVBO.id);
-
-			int id = glGenBuffers();
-			colVBO = new VBO(id, numVerts);
-		}
-
-		if (auxVBO == null || auxVBO.numElem < numVerts) {
-			if (auxVBO != null)
-				glDeleteBuffers(auxVBO.id);
+		dataVBO = BufferedMesh.ensureCapacity(GL_ARRAY_BUFFER, dataVBO, numVerts, STRIDE * 4);
 
-			int id = glGenBuffers();
-			auxVBO = new VBO(id, numVerts);
+		FloatBuffer fb = UploadBuffer.floats(STRIDE * numVerts);
+		float[] pos = points.pos;
+		float[] col = points.col;
+		float[] aux = points.aux;
+		for (int i = 0; i < numVerts; i++) {
+			fb.put(pos[3 * i]).put(pos[3 * i + 1]).put(pos[3 * i + 2]);
+			fb.put(col[4 * i]).put(col[4 * i + 1]).put(col[4 * i + 2]).put(col[4 * i + 3]);
+			fb.put(aux[2 * i]).put(aux[2 * i + 1]);
 		}
-
-		FloatBuffer fb = null;
-
-		// position buffer
-
-		fb = BufferUtils.createFloatBuffer(3 * posVBO.numElem);
-		for (BufferVertex bv : points)
-			fb.put(bv.x).put(bv.y).put(bv.z);
 		fb.flip();
 
-		glBindBuffer(GL_ARRAY_BUFFER, posVBO.id);
-		glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
+		glBindBuffer(GL_ARRAY_BUFFER, dataVBO.id);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, fb);
 
-		glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
+		glVertexAttribPointer(0, 3, GL_FLOAT, false, STRIDE * 4, 0);
 		glEnableVertexAttribArray(0);
 
-		// color buffer
-
-		fb = BufferUtils.createFloatBuffer(4 * colVBO.numElem);
-		for (BufferVertex bv : points)
-			fb.put(bv.r).put(bv.g).put(bv.b).put(bv.a);
-		fb.flip();
-
-		glBindBuffer(GL_ARRAY_BUFFER, colVBO.id);
-		glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
-
-		glVertexAttribPointer(1, 4, GL_FLOAT, false, 0, 0);
+		glVertexAttribPointer(1, 4, GL_FLOAT, false, STRIDE * 4, 3 * 4);
 		glEnableVertexAttribArray(1);
 
-		// aux buffer
-
-		fb = BufferUtils.createFloatBuffer(2 * auxVBO.numElem);
-		for (BufferVertex bv : points)
-			fb.put(bv.aux0).put(bv.aux1);
-		fb.flip();
-
-		glBindBuffer(GL_ARRAY_BUFFER, auxVBO.id);
-		glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
-
-		glVertexAttribPointer(3, 2, GL_FLOAT, false, 0, 0);
+		glVertexAttribPointer(3, 2, GL_FLOAT, false, STRIDE * 4, 7 * 4);
 		glEnableVertexAttribArray(3);
 	}
 
 	public void delete()
 	{
-		if (posVBO != null)
-			glDeleteBuffers(posVBO.id);
-
-		if (colVBO != null)
-			glDeleteBuffers(colVBO.id);
-
-		if (auxVBO != null)
-			glDeleteBuffers(auxVBO.id);
+		if (dataVBO != null)
+			glDeleteBuffers(dataVBO.id);
 
 		glDeleteVertexArrays(vao);
 	}
@@ -8,10 +8,7 @@ import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map.Entry;
-
-import org.lwjgl.BufferUtils;
+import java.util.Arrays;
 
 import renderer.shaders.RenderState;
 import renderer.shaders.ShaderManager;
@@ -19,12 +16,21 @@ import renderer.shaders.scene.LineShader;
 
 public abstract class DeferredLineRenderer
 {
+	// interleaved position and color
+	private static final int STRIDE = 7;
+
 	private static int vao;
 	private static ArrayList<LineBatch> normalBatches = new ArrayList<>();
 	private static ArrayList<LineBatch> noDepthBatches = new ArrayList<>();
 
-	private static VBO posVBO = null;
-	private static VBO colVBO = null;
+	// batches are recycled every frame, so callers must not hold onto them
+	private static ArrayList<LineBatch> batchPool = new ArrayList<>();
+	private static int poolUsed = 0;
+
+	// distinct line widths in the current set of batches
+	private static float[] widths = new float[8];
+
+	private static VBO dataVBO = null;
 
 	public static void init()
 	{
@@ -35,11 +41,25 @@ public abstract class DeferredLineRenderer
 	{
 		normalBatches.clear();
 		noDepthBatches.clear();
+		poolUsed = 0;
 	}
 
+	/**
+	 * @return a line batch which is valid until the next call to render or reset
+	 */
 	public static LineBatch addLineBatch(boolean useDepth)
 	{
-		LineBatch batch = new LineBatch();
+		LineBatch batch;
+		if (poolUsed < batchPool.size()) {
+			batch = batchPool.get(poolUsed++);
+			batch.reset();
+		}
+		else {
+			batch = new LineBatch();
+			batchPool.add(batch);
+			poolUsed++;
+		}
+
 		if (useDepth)
 			normalBatches.add(batch);
 		else
@@ -47,22 +67,6 @@ public abstract class DeferredLineRenderer
 		return batch;
 	}
 
-	public static HashMap<Float, ArrayList<LineBatch>> split(ArrayList<LineBatch> batches)
-	{
-		HashMap<Float, ArrayList<LineBatch>> thicknessMap = new HashMap<>();
-
-		for (LineBatch batch : batches) {
-			ArrayList<LineBatch> list = thicknessMap.get(batch.lineWidth);
-			if (list == null) {
-				list = new ArrayList<>();
-				thicknessMap.put(batch.lineWidth, list);
-			}
-			list.add(batch);
-		}
-
-		return thicknessMap;
-	}
-
 	public static void render()
 	{
 		RenderState.setLineWidth(1.0f);
@@ -71,100 +75,98 @@ public abstract class DeferredLineRenderer
 
 		ShaderManager.use(LineShader.class);
 
-		if (normalBatches.size() > 0) {
-			for (Entry<Float, ArrayList<LineBatch>> entry : split(normalBatches).entrySet()) {
-				float width = entry.getKey();
-				RenderState.setLineWidth(width == 0.0f ? 1.0f : width);
-
-				int size = loadBuffers(entry.getValue());
-				glDrawArrays(GL_LINES, 0, size);
-			}
-			normalBatches.clear();
-		}
+		if (normalBatches.size() > 0)
+			renderBatches(normalBatches);
 
 		if (noDepthBatches.size() > 0) {
 			RenderState.enableDepthTest(false);
-			for (Entry<Float, ArrayList<LineBatch>> entry : split(noDepthBatches).entrySet()) {
-				float width = entry.getKey();
-				RenderState.setLineWidth(width == 0.0f ? 1.0f : width);
-
-				int size = loadBuffers(entry.getValue());
-				glDrawArrays(GL_LINES, 0, size);
-			}
+			renderBatches(noDepthBatches);
 			RenderState.enableDepthTest(true);
-			noDepthBatches.clear();
 		}
+
+		reset();
 	}
 
-	public static int loadBuffers(ArrayList<LineBatch> batches)
+	/**
+	 * Draws each group of batches sharing a line width with a single upload and draw call.
+	 */
+	private static void renderBatches(ArrayList<LineBatch> batches)
 	{
-		ArrayList<BufferVertex> verts = new ArrayList<>();
+		int numWidths = 0;
 
-		for (LineBatch batch : batches) {
-			batch.startIndex = verts.size();
-			for (BufferLine line : batch.lines) {
-				verts.add(batch.verts.get(line.i));
-				verts.add(batch.verts.get(line.j));
-			}
-		}
+		for (int i = 0; i < batches.size(); i++) {
+			float width = batches.get(i).lineWidth;
 
-		int numVerts = verts.size();
+			boolean found = false;
+			for (int j = 0; j < numWidths; j++) {
+				if (Float.compare(widths[j], width) == 0) {
+					found = true;
+					break;
+				}
+			}
 
-		// reallocate as needed
+			if (!found) {
+				if (numWidths == widths.length)
+					widths = Arrays.copyOf(widths, 2 * widths.length);
+				widths[numWidths++] = width;
+			}
+		}
 
-		if (posVBO == null || posVBO.numElem < numVerts) {
-			if (posVBO != null)
-				glDeleteBuffers(posVBO.id);
+		for (int i = 0; i < numWidths; i++) {
+			float width = widths[i];
+			RenderState.setLineWidth(width == 0.0f ? 1.0f : width);
 
-			int id = glGenBuffers();
-			posVBO = new VBO(id, numVerts);
+			int size = loadBuffers(batches, width);
+			glDrawArrays(GL_LINES, 0, size);
 		}
+	}
 
-		if (colVBO == null || colVBO.numElem < numVerts) {
-			if (colVBO != null)
-				glDeleteBuffers(colVBO.id);
-
-			int id = glGenBuffers();
-			colVBO = new VBO(id, numVerts);
+	/**
+	 * Packs line endpoints for every batch with the given width into the vertex buffer.
+	 * @return number of vertices uploaded
+	 */
+	private static int loadBuffers(ArrayList<LineBatch> batches, float width)
+	{
+		int numVerts = 0;
+		for (int i = 0; i < batches.size(); i++) {
+			LineBatch batch = batches.get(i);
+			if (Float.compare(batch.lineWidth, width) == 0)
+				numVerts += batch.lines.size();
 		}
 
-		FloatBuffer fb = null;
+		dataVBO = BufferedMesh.ensureCapacity(GL_ARRAY_BUFFER, dataVBO, numVerts, STRIDE * 4);
 
-		// position buffer
+		FloatBuffer fb = UploadBuffer.floats(STRIDE * numVerts);
+		for (int i = 0; i < batches.size(); i++) {
+			LineBatch batch = batches.get(i);
+			if (Float.compare(batch.lineWidth, width) != 0)
+				continue;
 
-		fb = BufferUtils.createFloatBuffer(3 * posVBO.numElem);
-		for (BufferVertex bv : verts)
-			fb.put(bv.x).put(bv.y).put(bv.z);
+			float[] pos = batch.verts.pos;
+			float[] col = batch.verts.col;
+			for (int j = 0; j < batch.lines.size(); j++) {
+				int v = batch.lines.get(j);
+				fb.put(pos[3 * v]).put(pos[3 * v + 1]).put(pos[3 * v + 2]);
+				fb.put(col[4 * v]).put(col[4 * v + 1]).put(col[4 * v + 2]).put(col[4 * v + 3]);
+			}
+		}
 		fb.flip();
 
-		glBindBuffer(GL_ARRAY_BUFFER, posVBO.id);
-		glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
+		glBindBuffer(GL_ARRAY_BUFFER, dataVBO.id);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, fb);
 
-		glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
+		glVertexAttribPointer(0, 3, GL_FLOAT, false, STRIDE * 4, 0);
 		glEnableVertexAttribArray(0);
 
-		// color buffer
-
-		fb = BufferUtils.createFloatBuffer(4 * colVBO.numElem);
-		for (BufferVertex bv : verts)
-			fb.put(bv.r).put(bv.g).put(bv.b).put(bv.a);
-		fb.flip();
-
-		glBindBuffer(GL_ARRAY_BUFFER, colVBO.id);
-		glBufferData(GL_ARRAY_BUFFER, fb, GL_STATIC_DRAW);
-
-		glVertexAttribPointer(1, 4, GL_FLOAT, false, 0, 0);
+		glVertexAttribPointer(1, 4, GL_FLOAT, false, STRIDE * 4, 3 * 4);
 		glEnableVertexAttribArray(1);
 
-		return verts.size();
+		return numVerts;
 	}
 
 	public void freeBuffers()
 	{
-		if (posVBO != null)
-			glDeleteBuffers(posVBO.id);
-
-		if (colVBO != null)
-			glDeleteBuffers(colVBO.id);
+		if (dataVBO != null)
+			glDeleteBuffers(dataVBO.id);
 	}
 }
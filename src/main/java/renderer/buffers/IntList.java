@@ -0,0 +1,53 @@
+package renderer.buffers;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used for triangle and line indices.
+ */
+final class IntList
+{
+	private int[] data = new int[64];
+	private int size = 0;
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		size = 0;
+	}
+
+	public int get(int index)
+	{
+		return data[index];
+	}
+
+	public void add(int i, int j)
+	{
+		ensureCapacity(size + 2);
+		data[size++] = i;
+		data[size++] = j;
+	}
+
+	public void add(int i, int j, int k)
+	{
+		ensureCapacity(size + 3);
+		data[size++] = i;
+		data[size++] = j;
+		data[size++] = k;
+	}
+
+	private void ensureCapacity(int minCapacity)
+	{
+		if (minCapacity > data.length)
+			data = Arrays.copyOf(data, Math.max(minCapacity, 2 * data.length));
+	}
+}
@@ -1,39 +1,45 @@
 package renderer.buffers;
 
-import java.util.ArrayList;
-
 public class LineBatch implements Comparable<LineBatch>
 {
-	protected ArrayList<BufferVertex> verts = new ArrayList<>();
-	protected ArrayList<BufferLine> lines = new ArrayList<>();
+	protected final VertexStore verts = new VertexStore();
+	protected final IntList lines = new IntList();
 	protected float lineWidth;
 	protected int priority;
-	protected int startIndex;
 
+	/**
+	 * @return a new vertex, valid only until the next call to addVertex
+	 */
 	public BufferVertex addVertex()
 	{
-		BufferVertex vtx = new BufferVertex(verts.size());
-		verts.add(vtx);
-		return vtx;
+		return verts.append();
 	}
 
 	public void add(int i, int j)
 	{
-		lines.add(new BufferLine(verts.get(i), verts.get(j)));
+		checkIndex(i);
+		checkIndex(j);
+		lines.add(i, j);
 	}
 
 	public void add(int ... indices)
 	{
 		for (int i = 1; i < indices.length; i++)
-			lines.add(new BufferLine(verts.get(indices[i - 1]), verts.get(indices[i])));
+			add(indices[i - 1], indices[i]);
 	}
 
 	public void addLoop(int ... indices)
 	{
 		for (int i = 1; i < indices.length; i++)
-			lines.add(new BufferLine(verts.get(indices[i - 1]), verts.get(indices[i])));
+			add(indices[i - 1], indices[i]);
 		if (indices.length > 2)
-			lines.add(new BufferLine(verts.get(indices[indices.length - 1]), verts.get(indices[0])));
+			add(indices[indices.length - 1], indices[0]);
+	}
+
+	private void checkIndex(int index)
+	{
+		if (index < 0 || index >= verts.size())
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + verts.size());
 	}
 
 	public LineBatch setPriority(int priority)
@@ -55,7 +61,15 @@ public class LineBatch implements Comparable<LineBatch>
 
 	public int getLineCount()
 	{
-		return lines.size();
+		return lines.size() / 2;
+	}
+
+	protected void reset()
+	{
+		verts.clear();
+		lines.clear();
+		lineWidth = 0.0f;
+		priority = 0;
 	}
 
 	@Override
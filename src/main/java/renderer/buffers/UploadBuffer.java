@@ -0,0 +1,59 @@
+package renderer.buffers;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * Shared direct buffer for staging vertex data on its way to the GPU. glBufferData and
+ * glBufferSubData copy their source before returning, so one buffer can be reused by
+ * every upload made from the GL thread. It only grows, so steady-state rendering does
+ * not allocate native memory. Only one view may be in use at a time.
+ */
+abstract class UploadBuffer
+{
+	private static ByteBuffer bytes;
+	private static FloatBuffer floatView;
+	private static IntBuffer intView;
+
+	static {
+		allocate(0x10000);
+	}
+
+	/**
+	 * @return cleared float view with room for exactly count values
+	 */
+	public static FloatBuffer floats(int count)
+	{
+		ensureCapacity(4 * count);
+		floatView.clear();
+		floatView.limit(count);
+		return floatView;
+	}
+
+	/**
+	 * @return cleared int view with room for exactly count values
+	 */
+	public static IntBuffer ints(int count)
+	{
+		ensureCapacity(4 * count);
+		intView.clear();
+		intView.limit(count);
+		return intView;
+	}
+
+	private static void ensureCapacity(int numBytes)
+	{
+		if (numBytes > bytes.capacity())
+			allocate(Math.max(numBytes, 2 * bytes.capacity()));
+	}
+
+	private static void allocate(int numBytes)
+	{
+		bytes = BufferUtils.createByteBuffer(numBytes);
+		floatView = bytes.asFloatBuffer();
+		intView = bytes.asIntBuffer();
+	}
+}
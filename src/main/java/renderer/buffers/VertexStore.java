@@ -0,0 +1,105 @@
+package renderer.buffers;
+
+import java.util.Arrays;
+
+import game.map.editor.render.Color4f;
+import renderer.shaders.RenderState;
+
+/**
+ * Growable struct-of-arrays storage for buffer vertices. Arrays are kept across
+ * {@link #clear()} so render queues which are refilled every frame stop allocating
+ * once they have reached their working size.
+ */
+final class VertexStore
+{
+	private static final int INITIAL_CAPACITY = 64;
+
+	float[] pos = new float[3 * INITIAL_CAPACITY];
+	float[] col = new float[4 * INITIAL_CAPACITY];
+	float[] uv = new float[2 * INITIAL_CAPACITY];
+	float[] aux = new float[2 * INITIAL_CAPACITY];
+
+	private int size = 0;
+
+	// flyweight handed out by append/get, see BufferVertex
+	private final BufferVertex cursor = new BufferVertex(this);
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Appends a new vertex with zero position, UV, and aux values and the current render color.
+	 * @return the new vertex, which remains valid only until the next call to append or get
+	 */
+	public BufferVertex append()
+	{
+		if (size == capacity())
+			grow(size + 1);
+
+		int i = size++;
+
+		pos[3 * i] = 0.0f;
+		pos[3 * i + 1] = 0.0f;
+		pos[3 * i + 2] = 0.0f;
+
+		Color4f color = RenderState.getColor();
+		col[4 * i] = color.r;
+		col[4 * i + 1] = color.g;
+		col[4 * i + 2] = color.b;
+		col[4 * i + 3] = color.a;
+
+		uv[2 * i] = 0.0f;
+		uv[2 * i + 1] = 0.0f;
+
+		aux[2 * i] = 0.0f;
+		aux[2 * i + 1] = 0.0f;
+
+		return cursor.moveTo(i);
+	}
+
+	/**
+	 * @return the vertex at index, which remains valid only until the next call to append or get
+	 */
+	public BufferVertex get(int index)
+	{
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+
+		return cursor.moveTo(index);
+	}
+
+	private int capacity()
+	{
+		return pos.length / 3;
+	}
+
+	private void grow(int minCapacity)
+	{
+		int newCapacity = Math.max(minCapacity, 2 * capacity());
+		pos = Arrays.copyOf(pos, 3 * newCapacity);
+		col = Arrays.copyOf(col, 4 * newCapacity);
+		uv = Arrays.copyOf(uv, 2 * newCapacity);
+		aux = Arrays.copyOf(aux, 2 * newCapacity);
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size; i++)
+			sb.append(cursor.moveTo(i)).append(System.lineSeparator());
+		return sb.toString();
+	}
+}
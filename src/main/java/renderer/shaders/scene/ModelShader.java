@@ -95,7 +95,7 @@ public final class ModelShader extends BaseShader
 			return;
 
 		ModelTexture tex = mdl.hasMesh() ? mdl.getMesh().texture : null;
-		if (tex == null) {
+		if (tex == null || !tex.isUploaded()) {
 			textured.set(false);
 			mainImg.bind(TextureManager.glMissingTextureID);
 			return;
@@ -0,0 +1,109 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import app.input.IOUtils;
+
+/**
+ * Growable in-memory replacement for writing big-endian binaries through a {@link java.io.RandomAccessFile}.
+ * Supports the same seek and patch pattern: seeking past the end and writing fills the gap with zeros,
+ * and seeking back overwrites existing bytes. The result is written to disk in one piece when finished.
+ */
+public class BinaryWriter
+{
+	private byte[] buffer;
+	private int length;
+	private int pos;
+
+	public BinaryWriter()
+	{
+		this(0x10000);
+	}
+
+	public BinaryWriter(int initialCapacity)
+	{
+		buffer = new byte[Math.max(16, initialCapacity)];
+	}
+
+	public void seek(long offset)
+	{
+		if (offset < 0 || offset > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid offset: " + offset);
+		pos = (int) offset;
+	}
+
+	public int getFilePointer()
+	{
+		return pos;
+	}
+
+	public int length()
+	{
+		return length;
+	}
+
+	private void reserve(int count)
+	{
+		// bytes past the end are never written, so any gap left by seeking is already zero
+		int end = pos + count;
+		if (end > buffer.length)
+			buffer = Arrays.copyOf(buffer, Math.max(end, buffer.length * 2));
+
+		if (end > length)
+			length = end;
+	}
+
+	public void write(int b)
+	{
+		reserve(1);
+		buffer[pos++] = (byte) b;
+	}
+
+	public void write(byte[] b)
+	{
+		write(b, 0, b.length);
+	}
+
+	public void write(byte[] b, int off, int len)
+	{
+		reserve(len);
+		System.arraycopy(b, off, buffer, pos, len);
+		pos += len;
+	}
+
+	public void writeShort(int v)
+	{
+		reserve(2);
+		buffer[pos++] = (byte) (v >> 8);
+		buffer[pos++] = (byte) v;
+	}
+
+	public void writeInt(int v)
+	{
+		reserve(4);
+		buffer[pos++] = (byte) (v >> 24);
+		buffer[pos++] = (byte) (v >> 16);
+		buffer[pos++] = (byte) (v >> 8);
+		buffer[pos++] = (byte) v;
+	}
+
+	public void writeFloat(float v)
+	{
+		writeInt(Float.floatToIntBits(v));
+	}
+
+	public byte[] toByteArray()
+	{
+		return Arrays.copyOf(buffer, length);
+	}
+
+	/**
+	 * Replaces the file atomically, so readers never observe a partially written file.
+	 */
+	public void writeTo(File file) throws IOException
+	{
+		IOUtils.writeBytesToFileAtomic(toByteArray(), file);
+	}
+}
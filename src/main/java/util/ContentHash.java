@@ -0,0 +1,93 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Accumulates a SHA-1 digest over files and strings. Used to key on-disk caches
+ * by the content of their sources rather than by file timestamps, which are
+ * unreliable after checkouts and copies.
+ */
+public class ContentHash
+{
+	private static final int BUFFER_SIZE = 0x10000;
+
+	private final MessageDigest digest;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	public ContentHash()
+	{
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public ContentHash add(String s)
+	{
+		byte[] bytes = (s == null) ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+		addLength(bytes.length);
+		digest.update(bytes);
+		return this;
+	}
+
+	public ContentHash add(byte[] bytes)
+	{
+		addLength(bytes.length);
+		digest.update(bytes);
+		return this;
+	}
+
+	/**
+	 * Adds the content of a file to the digest. Missing files contribute a marker
+	 * distinct from any empty file, so creating or deleting a file changes the hash.
+	 */
+	public ContentHash add(File f) throws IOException
+	{
+		if (f == null || !f.exists()) {
+			addLength(-1);
+			return this;
+		}
+
+		addLength(f.length());
+		try (InputStream in = Files.newInputStream(f.toPath())) {
+			int n;
+			while ((n = in.read(buffer)) > 0)
+				digest.update(buffer, 0, n);
+		}
+		return this;
+	}
+
+	private void addLength(long len)
+	{
+		for (int i = 7; i >= 0; i--)
+			digest.update((byte) (len >> (8 * i)));
+	}
+
+	/**
+	 * @return hex string of the digest; the accumulator is reset afterward
+	 */
+	public String get()
+	{
+		byte[] hashedBytes = digest.digest();
+
+		StringBuilder sb = new StringBuilder(2 * hashedBytes.length);
+		for (byte b : hashedBytes)
+			sb.append(String.format("%02x", b));
+
+		return sb.toString();
+	}
+
+	public static String of(File f) throws IOException
+	{
+		return new ContentHash().add(f).get();
+	}
+}
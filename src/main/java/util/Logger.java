@@ -7,6 +7,10 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+/**
+ * Messages may be logged from any thread. Broadcasts are serialized, so listeners
+ * receive one message at a time.
+ */
 public abstract class Logger
 {
 	private static List<ListenerReference> listeners = new LinkedList<>();
@@ -46,7 +50,7 @@ public abstract class Logger
 		}
 	}
 
-	public static void addListener(Listener listener)
+	public static synchronized void addListener(Listener listener)
 	{
 		listeners.add(new ListenerReference(listener, defaultPriority));
 
@@ -54,7 +58,7 @@ public abstract class Logger
 			minListenerPriority = defaultPriority;
 	}
 
-	public static void addListener(Listener listener, Priority p)
+	public static synchronized void addListener(Listener listener, Priority p)
 	{
 		listeners.add(new ListenerReference(listener, p));
 
@@ -62,7 +66,7 @@ public abstract class Logger
 			minListenerPriority = p;
 	}
 
-	public static void removeListener(Listener listener)
+	public static synchronized void removeListener(Listener listener)
 	{
 		Iterator<ListenerReference> iter = listeners.iterator();
 		while (iter.hasNext()) {
@@ -89,7 +93,7 @@ public abstract class Logger
 		progressListener = null;
 	}
 
-	private static void broadcast(String text, Priority p)
+	private static synchronized void broadcast(String text, Priority p)
 	{
 		if (!enabled)
 			return;
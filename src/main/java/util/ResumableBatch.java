@@ -0,0 +1,139 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.Environment;
+import app.input.IOUtils;
+
+/**
+ * Runs a batch of named tasks in parallel on the global executor. Each task is appended to a
+ * progress file as soon as it completes, so an interrupted batch picks up where it left off
+ * when it is run again. Tasks must not share mutable state with each other.
+ */
+public class ResumableBatch
+{
+	public static interface Task
+	{
+		public void run() throws Exception;
+	}
+
+	private final String desc;
+	private final File progressFile;
+
+	private final LinkedHashMap<String, Task> tasks = new LinkedHashMap<>();
+	private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger numFinished = new AtomicInteger();
+	private final AtomicInteger numFailed = new AtomicInteger();
+
+	/**
+	 * @param desc describes the tasks in log messages, e.g. "map"
+	 * @param progressFile records completed tasks, created on demand
+	 */
+	public ResumableBatch(String desc, File progressFile)
+	{
+		this.desc = desc;
+		this.progressFile = progressFile;
+
+		if (!progressFile.exists())
+			return;
+
+		try {
+			completed.addAll(IOUtils.readPlainTextFile(progressFile));
+		}
+		catch (IOException e) {
+			Logger.logWarning("Could not read " + progressFile.getName() + ", starting over.");
+		}
+	}
+
+	/**
+	 * Adds a task to the batch. Task names must be unique and may not contain line breaks.
+	 */
+	public void add(String name, Task task)
+	{
+		if (tasks.put(name, task) != null)
+			throw new IllegalArgumentException("Duplicate task name: " + name);
+	}
+
+	/**
+	 * Runs every task which has not been completed by a previous run, and waits for them to finish.
+	 * @return true if all tasks in the batch are now complete
+	 */
+	public boolean run()
+	{
+		Stopwatch watch = new Stopwatch();
+
+		List<Entry<String, Task>> pending = new ArrayList<>(tasks.size());
+		for (Entry<String, Task> e : tasks.entrySet()) {
+			if (!completed.contains(e.getKey()))
+				pending.add(e);
+		}
+
+		int numSkipped = tasks.size() - pending.size();
+		if (numSkipped > 0)
+			Logger.logf("Resuming: %d of %d %ss already done", numSkipped, tasks.size(), desc);
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>(pending.size());
+		for (Entry<String, Task> e : pending)
+			futures.add(CompletableFuture.runAsync(() -> exec(e.getKey(), e.getValue(), pending.size()),
+				Environment.getExecutor()));
+
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+		Logger.logf("Processed %d %ss in %.2f seconds (%d failed)",
+			pending.size(), desc, watch.ms() / 1e3, numFailed.get());
+
+		return numFailed.get() == 0;
+	}
+
+	private void exec(String name, Task task, int numPending)
+	{
+		boolean success = false;
+
+		try {
+			task.run();
+			markComplete(name);
+			success = true;
+		}
+		catch (Throwable t) {
+			numFailed.incrementAndGet();
+			Logger.printStackTrace(t);
+		}
+
+		int count = numFinished.incrementAndGet();
+		if (success)
+			Logger.logf("(%d/%d) Finished %s %s", count, numPending, desc, name);
+		else
+			Logger.logfError("(%d/%d) Failed %s %s", count, numPending, desc, name);
+	}
+
+	private synchronized void markComplete(String name) throws IOException
+	{
+		completed.add(name);
+
+		progressFile.getParentFile().mkdirs();
+		Files.writeString(progressFile.toPath(), name + System.lineSeparator(), StandardCharsets.UTF_8,
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Discards the progress file, so the next run of this batch starts over.
+	 */
+	public void reset()
+	{
+		completed.clear();
+		progressFile.delete();
+	}
+}
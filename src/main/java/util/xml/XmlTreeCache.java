@@ -0,0 +1,364 @@
+package util.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.io.FilenameUtils;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import app.Environment;
+import app.input.IOUtils;
+import app.input.InputFileException;
+import util.ContentHash;
+import util.Logger;
+import util.xml.XmlWrapper.XmlReader;
+
+/**
+ * Keeps binary snapshots of parsed XML element trees in a cache directory, so unchanged files
+ * can be reopened without parsing them again. Each snapshot is keyed by the content of its XML file
+ * and the tool version, so edits and upgrades invalidate it automatically. The XML file remains the
+ * source of truth and snapshots may be deleted at any time.
+ * <p>
+ * Large subtrees of many small elements, such as mesh vertex tables, can be stored in a compact form
+ * of their own. While a file is read for a new snapshot, objects attach a {@link PackedElement} to the
+ * element they were read from with {@link XmlReader#setPacked}. The snapshot stores that in place of
+ * the element's children, and when it is loaded the objects find it again with {@link XmlReader#getPacked}
+ * and skip reading the children. Each packed tag needs a reader registered with {@link #addPackedType}.
+ */
+public class XmlTreeCache
+{
+	private static final String EXT_SNAPSHOT = ".xmlc";
+	private static final int MAGIC = 0x58544332; // XTC2
+
+	static final String PACKED_DATA_KEY = "packed";
+
+	/**
+	 * Compact form of the children of an element.
+	 */
+	public static interface PackedElement
+	{
+		public void write(DataOutputStream out) throws IOException;
+	}
+
+	public static interface PackedElementReader
+	{
+		public PackedElement read(ByteBuffer in) throws IOException;
+	}
+
+	private final File cacheDir;
+	private final HashMap<String, PackedElementReader> packedTypes = new HashMap<>();
+
+	// snapshot to write once the file read by the last call to read has been loaded
+	private File pendingSnapshot = null;
+	private String pendingKey = null;
+	private XmlReader pendingReader = null;
+
+	public XmlTreeCache(File cacheDir)
+	{
+		this.cacheDir = cacheDir;
+	}
+
+	public XmlTreeCache addPackedType(XmlKey tag, PackedElementReader reader)
+	{
+		packedTypes.put(tag.toString(), reader);
+		return this;
+	}
+
+	/**
+	 * Reads an XML file, using its snapshot if one matches the current content of the file.
+	 * Otherwise the file is parsed, and {@link #save} writes a new snapshot for next time
+	 * once the caller has finished reading it.
+	 */
+	public XmlReader read(File xmlFile)
+	{
+		pendingSnapshot = null;
+		pendingKey = null;
+		pendingReader = null;
+
+		byte[] contents;
+		try {
+			contents = Files.readAllBytes(xmlFile.toPath());
+		}
+		catch (IOException e) {
+			throw new InputFileException(xmlFile, e.getMessage());
+		}
+
+		String key = new ContentHash().add(contents).add(Environment.getVersionString()).get();
+		File snapshot = getSnapshotFile(xmlFile);
+
+		if (snapshot.exists()) {
+			try {
+				Element root = readSnapshot(snapshot, key, packedTypes);
+				if (root != null)
+					return new XmlReader(xmlFile, root);
+			}
+			catch (IOException | RuntimeException | ParserConfigurationException e) {
+				Logger.logWarning("Discarding unreadable cache for " + xmlFile.getName() + ": " + e.getMessage());
+			}
+		}
+
+		Element root;
+		try {
+			root = XmlReader.readElements(new ByteArrayInputStream(contents));
+		}
+		catch (ParserConfigurationException | XMLStreamException e) {
+			throw new InputFileException(xmlFile, e.getMessage());
+		}
+
+		if (root == null)
+			throw new InputFileException(xmlFile, "Document has no root element.");
+
+		XmlReader xmr = new XmlReader(xmlFile, root);
+		xmr.collectPacked = true;
+
+		pendingSnapshot = snapshot;
+		pendingKey = key;
+		pendingReader = xmr;
+		return xmr;
+	}
+
+	/**
+	 * Writes a snapshot of the file parsed by the last call to {@link #read}, including any packed
+	 * elements attached while it was loaded. Does nothing if that file was read from its snapshot.
+	 * Only call this once the file has loaded successfully, so broken files are not cached.
+	 */
+	public void save()
+	{
+		if (pendingReader == null)
+			return;
+
+		XmlReader xmr = pendingReader;
+		xmr.collectPacked = false;
+		pendingReader = null;
+
+		try {
+			writeSnapshot(pendingSnapshot, pendingKey, xmr.getRootElement());
+		}
+		catch (IOException e) {
+			Logger.logWarning("Could not cache " + xmr.getSourceFile().getName() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Files with the same name may exist in several asset directories, so the path is part of the name.
+	 */
+	private File getSnapshotFile(File xmlFile)
+	{
+		String pathHash = new ContentHash().add(xmlFile.getAbsolutePath()).get().substring(0, 8);
+		return new File(cacheDir, FilenameUtils.getBaseName(xmlFile.getName()) + "_" + pathHash + EXT_SNAPSHOT);
+	}
+
+	/*
+	 * Snapshot format: magic, key, then the root element.
+	 * Element: name, attribute count, (name, value) for each attribute, then either a zero byte,
+	 * child count and children, or a one byte, length and the packed form of the children.
+	 * Strings are written in full the first time they appear and by index afterward,
+	 * which also lets repeated attribute values share one instance when read back.
+	 */
+
+	private static void writeSnapshot(File snapshot, String key, Element root) throws IOException
+	{
+		SnapshotWriter out = new SnapshotWriter();
+		out.writeInt(MAGIC);
+		out.writeString(key);
+		out.writeElement(root);
+
+		IOUtils.writeBytesToFileAtomic(out.toByteArray(), snapshot);
+	}
+
+	/**
+	 * @return root element, or null if the snapshot is for a different key
+	 */
+	private static Element readSnapshot(File snapshot, String key, HashMap<String, PackedElementReader> packedTypes)
+		throws IOException, ParserConfigurationException
+	{
+		SnapshotReader in = new SnapshotReader(Files.readAllBytes(snapshot.toPath()), packedTypes);
+
+		try {
+			if (in.buffer.getInt() != MAGIC || !key.equals(in.readString()))
+				return null;
+
+			Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			document.setStrictErrorChecking(false);
+			Element root = in.readElement(document);
+			document.appendChild(root);
+
+			if (in.buffer.hasRemaining())
+				throw new IOException("Unexpected data after root element.");
+
+			return root;
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("Snapshot is truncated or corrupt.");
+		}
+	}
+
+	private static class SnapshotWriter extends ByteArrayOutputStream
+	{
+		private final HashMap<String, Integer> stringIndex = new HashMap<>();
+
+		private SnapshotWriter()
+		{
+			super(0x10000);
+		}
+
+		private void writeInt(int v)
+		{
+			write(v >>> 24);
+			write(v >>> 16);
+			write(v >>> 8);
+			write(v);
+		}
+
+		private void writeVarInt(int v)
+		{
+			while ((v & ~0x7F) != 0) {
+				write((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			write(v);
+		}
+
+		private void writeString(String s)
+		{
+			Integer index = stringIndex.get(s);
+			if (index != null) {
+				writeVarInt(index + 1);
+				return;
+			}
+
+			stringIndex.put(s, stringIndex.size());
+
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(0);
+			writeVarInt(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+
+		private void writeElement(Element elem) throws IOException
+		{
+			writeString(elem.getTagName());
+
+			NamedNodeMap attributes = elem.getAttributes();
+			writeVarInt(attributes.getLength());
+			for (int i = 0; i < attributes.getLength(); i++) {
+				Attr attr = (Attr) attributes.item(i);
+				writeString(attr.getName());
+				writeString(attr.getValue());
+			}
+
+			if (elem.getUserData(PACKED_DATA_KEY) instanceof PackedElement packed) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(bytes);
+				packed.write(out);
+				out.flush();
+
+				write(1);
+				writeVarInt(bytes.size());
+				bytes.writeTo(this);
+				return;
+			}
+
+			write(0);
+
+			ArrayList<Element> children = new ArrayList<>();
+			for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+				if (child instanceof Element childElem)
+					children.add(childElem);
+			}
+
+			writeVarInt(children.size());
+			for (Element child : children)
+				writeElement(child);
+		}
+	}
+
+	private static class SnapshotReader
+	{
+		private final ByteBuffer buffer;
+		private final ArrayList<String> strings = new ArrayList<>();
+		private final HashMap<String, PackedElementReader> packedTypes;
+
+		private SnapshotReader(byte[] bytes, HashMap<String, PackedElementReader> packedTypes)
+		{
+			buffer = ByteBuffer.wrap(bytes);
+			this.packedTypes = packedTypes;
+		}
+
+		private int readVarInt() throws IOException
+		{
+			int v = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				byte b = buffer.get();
+				v |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return v;
+			}
+			throw new IOException("Invalid variable length integer.");
+		}
+
+		private String readString() throws IOException
+		{
+			int index = readVarInt();
+			if (index > 0)
+				return strings.get(index - 1);
+
+			int length = readVarInt();
+			String s = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+
+			strings.add(s);
+			return s;
+		}
+
+		private Element readElement(Document document) throws IOException
+		{
+			Element elem = document.createElement(readString());
+
+			int numAttributes = readVarInt();
+			for (int i = 0; i < numAttributes; i++) {
+				String name = readString();
+				elem.setAttribute(name, readString());
+			}
+
+			if (buffer.get() != 0) {
+				PackedElementReader reader = packedTypes.get(elem.getTagName());
+				if (reader == null)
+					throw new IOException("No reader for packed " + elem.getTagName());
+
+				int length = readVarInt();
+				ByteBuffer packedBuffer = buffer.slice(buffer.position(), length);
+				elem.setUserData(PACKED_DATA_KEY, reader.read(packedBuffer), null);
+
+				if (packedBuffer.hasRemaining())
+					throw new IOException("Unexpected data after packed " + elem.getTagName());
+
+				buffer.position(buffer.position() + length);
+				return elem;
+			}
+
+			int numChildren = readVarInt();
+			for (int i = 0; i < numChildren; i++)
+				elem.appendChild(readElement(document));
+
+			return elem;
+		}
+	}
+}
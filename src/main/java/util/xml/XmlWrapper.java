@@ -1,29 +1,39 @@
 package util.xml;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import app.input.IOUtils;
 import app.input.InputFileException;
 import util.Logger;
+import util.xml.XmlTreeCache.PackedElement;
 
 public class XmlWrapper
 {
@@ -39,22 +49,75 @@ public class XmlWrapper
 		private final File xmlFile;
 		private Element rootElement;
 
+		// set while this file is being read for a new snapshot, see XmlTreeCache
+		boolean collectPacked = false;
+
 		public XmlReader(File xmlFile)
 		{
 			this.xmlFile = xmlFile;
-			Document document;
 
-			try {
-				DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-				DocumentBuilder builder = factory.newDocumentBuilder();
-				document = builder.parse(xmlFile);
+			try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile))) {
+				rootElement = readElements(in);
 			}
-			catch (ParserConfigurationException | SAXException | IOException e) {
+			catch (ParserConfigurationException | XMLStreamException | IOException e) {
 				throw new InputFileException(xmlFile, e.getMessage());
 			}
 
-			document.getDocumentElement().normalize();
-			rootElement = document.getDocumentElement();
+			if (rootElement == null)
+				complain("Document has no root element.");
+		}
+
+		XmlReader(File xmlFile, Element rootElement)
+		{
+			this.xmlFile = xmlFile;
+			this.rootElement = rootElement;
+		}
+
+		/**
+		 * Builds the element tree with a streaming parser. Only elements and their attributes are kept,
+		 * which skips the whitespace and comment nodes a DocumentBuilder would create between every tag.
+		 */
+		static Element readElements(InputStream in) throws ParserConfigurationException, XMLStreamException
+		{
+			Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			document.setStrictErrorChecking(false);
+
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			ArrayDeque<Element> openElements = new ArrayDeque<>();
+			Element root = null;
+
+			try {
+				while (reader.hasNext()) {
+					switch (reader.next()) {
+						case XMLStreamConstants.START_ELEMENT:
+							Element elem = document.createElement(reader.getLocalName());
+							for (int i = 0; i < reader.getAttributeCount(); i++)
+								elem.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+
+							if (openElements.isEmpty()) {
+								document.appendChild(elem);
+								root = elem;
+							}
+							else {
+								openElements.peek().appendChild(elem);
+							}
+							openElements.push(elem);
+							break;
+						case XMLStreamConstants.END_ELEMENT:
+							openElements.pop();
+							break;
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+
+			return root;
 		}
 
 		public File getSourceFile()
@@ -62,6 +125,29 @@ public class XmlWrapper
 			return xmlFile;
 		}
 
+		/**
+		 * @return compact form of the children of an element, if it was read from a snapshot
+		 */
+		public PackedElement getPacked(Element elem)
+		{
+			return (PackedElement) elem.getUserData(XmlTreeCache.PACKED_DATA_KEY);
+		}
+
+		/**
+		 * @return true if a snapshot will be taken of this file, so compact forms of elements should be
+		 * attached with {@link #setPacked}
+		 */
+		public boolean isCollectingPacked()
+		{
+			return collectPacked;
+		}
+
+		public void setPacked(Element elem, PackedElement packed)
+		{
+			if (collectPacked)
+				elem.setUserData(XmlTreeCache.PACKED_DATA_KEY, packed, null);
+		}
+
 		public void complain(String message)
 		{
 			throw new InputFileException(xmlFile, message);
@@ -105,7 +191,7 @@ public class XmlWrapper
 		public String[] readStringArray(Element elem, XmlKey key, int len)
 		{
 			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
+			String[] tokens = split(value);
 
 			if (len > 0 && tokens.length != len)
 				complain("Length of array does not equal " + len + ": " + value);
@@ -116,7 +202,7 @@ public class XmlWrapper
 		public List<String> readStringList(Element elem, XmlKey key)
 		{
 			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
+			String[] tokens = split(value);
 			return Arrays.asList(tokens);
 		}
 
@@ -193,19 +279,20 @@ public class XmlWrapper
 		public byte[] readByteArray(Element elem, XmlKey key, int len)
 		{
 			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
+			int[] bounds = tokenize(value);
+			int count = bounds.length / 2;
 
-			if (len > 0 && tokens.length != len)
+			if (len > 0 && count != len)
 				complain("Length of array does not equal " + len + ": " + value);
 
-			byte[] values = new byte[tokens.length];
+			byte[] values = new byte[count];
 			int i = 0;
 			try {
 				for (; i < values.length; i++)
-					values[i] = (byte) Integer.parseInt(tokens[i]);
+					values[i] = (byte) Integer.parseInt(value, bounds[2 * i], bounds[2 * i + 1], 10);
 			}
 			catch (NumberFormatException e) {
-				complain("Invalid byte value for " + key + " array: " + values[i]);
+				complain("Invalid byte value for " + key + " array: " + getToken(value, bounds, i));
 			}
 			return values;
 		}
@@ -213,19 +300,20 @@ public class XmlWrapper
 		public byte[] readHexByteArray(Element elem, XmlKey key, int len)
 		{
 			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
+			int[] bounds = tokenize(value);
+			int count = bounds.length / 2;
 
-			if (len > 0 && tokens.length != len)
+			if (len > 0 && count != len)
 				complain("Length of array does not equal " + len + ": " + value);
 
-			byte[] values = new byte[tokens.length];
+			byte[] values = new byte[count];
 			int i = 0;
 			try {
 				for (; i < values.length; i++)
-					values[i] = (byte) Integer.parseInt(tokens[i], 16);
+					values[i] = (byte) Integer.parseInt(value, bounds[2 * i], bounds[2 * i + 1], 16);
 			}
 			catch (NumberFormatException e) {
-				complain("Invalid hex value for " + key + " array: " + values[i]);
+				complain("Invalid hex value for " + key + " array: " + getToken(value, bounds, i));
 			}
 			return values;
 		}
@@ -233,52 +321,46 @@ public class XmlWrapper
 		public int[] readIntArray(Element elem, XmlKey key, int len)
 		{
 			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
+			int[] bounds = tokenize(value);
+			int count = bounds.length / 2;
 
-			if (len > 0 && tokens.length != len)
+			if (len > 0 && count != len)
 				complain("Length of array does not equal " + len + ": " + value);
 
-			int[] values = new int[tokens.length];
+			int[] values = new int[count];
 			int i = 0;
 			try {
 				for (; i < values.length; i++)
-					values[i] = Integer.parseInt(tokens[i]);
+					values[i] = Integer.parseInt(value, bounds[2 * i], bounds[2 * i + 1], 10);
 			}
 			catch (NumberFormatException e) {
-				complain("Invalid integer value for " + key + " array: " + values[i]);
+				complain("Invalid integer value for " + key + " array: " + getToken(value, bounds, i));
 			}
 			return values;
 		}
 
 		public int[] readHexArray(Element elem, XmlKey key)
 		{
-			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
-
-			return makeHexArray(key, tokens);
+			return readHexArray(elem, key, 0);
 		}
 
 		public int[] readHexArray(Element elem, XmlKey key, int len)
 		{
 			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
+			int[] bounds = tokenize(value);
+			int count = bounds.length / 2;
 
-			if (len > 0 && tokens.length != len)
+			if (len > 0 && count != len)
 				complain("Length of array does not equal " + len + ": " + value);
 
-			return makeHexArray(key, tokens);
-		}
-
-		private int[] makeHexArray(XmlKey key, String[] tokens)
-		{
-			int[] values = new int[tokens.length];
+			int[] values = new int[count];
 			int i = 0;
 			try {
 				for (; i < values.length; i++)
-					values[i] = (int) Long.parseLong(tokens[i], 16);
+					values[i] = (int) Long.parseLong(value, bounds[2 * i], bounds[2 * i + 1], 16);
 			}
 			catch (NumberFormatException e) {
-				complain("Invalid hex value for " + key + " array: " + values[i]);
+				complain("Invalid hex value for " + key + " array: " + getToken(value, bounds, i));
 			}
 			return values;
 		}
@@ -286,7 +368,7 @@ public class XmlWrapper
 		public float[] readFloatArray(Element elem, XmlKey key, int len)
 		{
 			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
+			String[] tokens = split(value);
 
 			if (len > 0 && tokens.length != len)
 				complain("Length of array does not equal " + len + ": " + value);
@@ -306,7 +388,7 @@ public class XmlWrapper
 		public double[] readDoubleArray(Element elem, XmlKey key, int len)
 		{
 			String value = getAttribute(elem, key);
-			String[] tokens = value.split("\\s*,\\s*");
+			String[] tokens = split(value);
 
 			if (len > 0 && tokens.length != len)
 				complain("Length of array does not equal " + len + ": " + value);
@@ -323,6 +405,73 @@ public class XmlWrapper
 			return values;
 		}
 
+		/**
+		 * Finds the tokens of a comma separated list, matching {@code value.split("\\s*,\\s*")}
+		 * without compiling a regex or allocating substrings. Like split, trailing empty tokens are dropped.
+		 * @return start and end offsets of each token, interleaved
+		 */
+		private static int[] tokenize(String value)
+		{
+			if (value.isEmpty())
+				return new int[] { 0, 0 };
+
+			int count = 1;
+			for (int i = 0; i < value.length(); i++) {
+				if (value.charAt(i) == ',')
+					count++;
+			}
+
+			int[] bounds = new int[2 * count];
+			int start = 0;
+			int n = 0;
+
+			for (int i = 0; i <= value.length(); i++) {
+				if (i < value.length() && value.charAt(i) != ',')
+					continue;
+
+				// like the regex, only whitespace next to a comma is removed
+				int begin = start;
+				int end = i;
+				if (begin > 0) {
+					while (begin < end && isSpace(value.charAt(begin)))
+						begin++;
+				}
+				if (end < value.length()) {
+					while (end > begin && isSpace(value.charAt(end - 1)))
+						end--;
+				}
+
+				bounds[n++] = begin;
+				bounds[n++] = end;
+				start = i + 1;
+			}
+
+			while (count > 0 && bounds[2 * count - 2] == bounds[2 * count - 1])
+				count--;
+
+			return (2 * count == bounds.length) ? bounds : Arrays.copyOf(bounds, 2 * count);
+		}
+
+		// matches the regex character class \s
+		private static boolean isSpace(char c)
+		{
+			return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+		}
+
+		private static String getToken(String value, int[] bounds, int i)
+		{
+			return value.substring(bounds[2 * i], bounds[2 * i + 1]);
+		}
+
+		private static String[] split(String value)
+		{
+			int[] bounds = tokenize(value);
+			String[] tokens = new String[bounds.length / 2];
+			for (int i = 0; i < tokens.length; i++)
+				tokens[i] = getToken(value, bounds, i);
+			return tokens;
+		}
+
 		/**
 		 * Returns a single child element if it exists.
 		 * Complains if more than one is found.
@@ -467,45 +616,82 @@ public class XmlWrapper
 		private PrintWriter pw;
 		private String indentString = "";
 
-		public XmlWriter(File xmlFile, String ... headerComments) throws FileNotFoundException
+		/**
+		 * Writes to a temporary file beside the destination, which is moved into place by {@link #save()}.
+		 */
+		public XmlWriter(File xmlFile, String ... headerComments) throws IOException
 		{
-			try {
-				temp = File.createTempFile(FilenameUtils.getBaseName("StarRod_" + xmlFile.getName()), null);
-				temp.deleteOnExit();
+			File dir = xmlFile.getAbsoluteFile().getParentFile();
+			dir.mkdirs();
+
+			temp = File.createTempFile(xmlFile.getName() + ".", ".temp", dir);
+			temp.deleteOnExit();
+
+			file = xmlFile;
+			pw = IOUtils.getBufferedPrintWriter(temp);
+			printHeader(headerComments);
+		}
+
+		/**
+		 * Writes to a stream, such as an in-memory snapshot. {@link #save()} only flushes the stream.
+		 */
+		public XmlWriter(OutputStream out, String ... headerComments)
+		{
+			pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+			printHeader(headerComments);
+		}
 
-				file = xmlFile;
-				pw = IOUtils.getBufferedPrintWriter(temp);
-				pw.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		private void printHeader(String ... headerComments)
+		{
+			pw.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
 
-				for (String comment : headerComments)
-					pw.println("<!-- " + comment + " -->");
+			for (String comment : headerComments)
+				pw.println("<!-- " + comment + " -->");
+		}
+
+		/**
+		 * Finishes writing and replaces the destination file. On failure the destination is left
+		 * untouched and the temporary file is removed.
+		 * @throws IOException if any write failed or the file could not be moved into place
+		 */
+		public void save() throws IOException
+		{
+			pw.close();
+
+			// PrintWriter swallows exceptions, so don't replace the file with an incomplete one
+			if (pw.checkError()) {
+				discardTemp();
+				throw new IOException("Failed to write " + (file != null ? file.getName() : "XML stream"));
+			}
+
+			if (file == null)
+				return;
+
+			try {
+				Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 			}
 			catch (IOException e) {
-				e.printStackTrace();
+				discardTemp();
+				throw new IOException("Failed to replace " + file.getName() + ": " + e.getMessage(), e);
 			}
+
+			temp = null;
 		}
 
-		public void save()
+		private void discardTemp()
 		{
-			if (pw != null) {
-				pw.close();
-
-				try {
-					FileUtils.copyFile(temp, file);
-				}
-				catch (IOException e) {
-					Logger.printStackTrace(e);
-				}
+			if (temp != null) {
+				temp.delete();
+				temp = null;
 			}
 		}
 
 		@Override
 		public void close()
 		{
-			if (temp != null)
-				temp.delete();
-			if (pw != null)
-				pw.close();
+			pw.close();
+			discardTemp();
 		}
 
 		public void printComment(String comment)
@@ -605,12 +791,12 @@ public class XmlWrapper
 
 		public void addInt(XmlTag tag, XmlKey key, int i)
 		{
-			addAttribute(tag, key, String.format("%d", i));
+			addAttribute(tag, key, Integer.toString(i));
 		}
 
 		public void addHex(XmlTag tag, XmlKey key, int i)
 		{
-			addAttribute(tag, key, String.format("%X", i));
+			addAttribute(tag, key, Integer.toHexString(i).toUpperCase());
 		}
 
 		public void addHex(XmlTag tag, XmlKey key, String fmt, int i)
@@ -632,10 +818,9 @@ public class XmlWrapper
 		{
 			StringBuilder sb = new StringBuilder();
 			for (int i = 0; i < values.length; i++) {
-				if (i == 0)
-					sb.append(String.format("%d", values[i]));
-				else
-					sb.append(String.format(",%d", values[i]));
+				if (i > 0)
+					sb.append(',');
+				sb.append(values[i]);
 			}
 
 			addAttribute(tag, key, sb.toString());
@@ -645,10 +830,9 @@ public class XmlWrapper
 		{
 			StringBuilder sb = new StringBuilder();
 			for (int i = 0; i < values.length; i++) {
-				if (i == 0)
-					sb.append(String.format("%d", values[i]));
-				else
-					sb.append(String.format(",%d", values[i]));
+				if (i > 0)
+					sb.append(',');
+				sb.append(values[i]);
 			}
 
 			addAttribute(tag, key, sb.toString());
@@ -658,10 +842,9 @@ public class XmlWrapper
 		{
 			StringBuilder sb = new StringBuilder();
 			for (int i = 0; i < values.length; i++) {
-				if (i == 0)
-					sb.append(String.format("%X", values[i]));
-				else
-					sb.append(String.format(",%X", values[i]));
+				if (i > 0)
+					sb.append(',');
+				sb.append(Integer.toHexString(values[i]).toUpperCase());
 			}
 
 			addAttribute(tag, key, sb.toString());